@@ -1,87 +0,0 @@
-package com.northteam.indoororientation.model;
-
-/**
- * @author beatrizgomes
- * Date 11/05/2016
- */
-
-public class Edge implements Comparable<Edge>{
-
-    int v;
-    int w;
-    private float weight; // Weight of the connection
-    char compass; // Direction
-
-    /**
-     * Initializes an edge between vertices <tt>v</tt> and <tt>w</tt> of
-     * the given <tt>weight</tt>.
-     *
-     * @param  v one vertex
-     * @param  w the other vertex
-     * @param  weight the weight of this edge
-     * @throws IndexOutOfBoundsException if either <tt>v</tt> or <tt>w</tt>
-     *         is a negative integer
-     * @throws IllegalArgumentException if <tt>weight</tt> is <tt>NaN</tt>
-     */
-    public Edge(int v, int w, float weight, char compass) {
-        if (v < 0) throw new IndexOutOfBoundsException("Vertex name must be a nonnegative integer");
-        if (w < 0) throw new IndexOutOfBoundsException("Vertex name must be a nonnegative integer");
-        if (Double.isNaN(weight)) throw new IllegalArgumentException("Weight is NaN");
-        this.v = v;
-        this.w = w;
-        this.weight = weight;
-        this.compass = compass;
-    }
-
-    /**
-     * Returns either endpoint of this edge.
-     *
-     * @return either endpoint of this edge
-     */
-    public int either() {
-        return v;
-    }
-
-    /**
-     * Returns the endpoint of this edge that is different from the given vertex.
-     *
-     * @param  vertex one endpoint of this edge
-     * @return the other endpoint of this edge
-     * @throws IllegalArgumentException if the vertex is not one of the
-     *         endpoints of this edge
-     */
-    public int other(int vertex) {
-        if      (vertex == v) return w;
-        else if (vertex == w) return v;
-        else throw new IllegalArgumentException("Illegal endpoint");
-    }
-    /**
-     * Compares two edges by weight.
-     * Note that <tt>compareTo()</tt> is not consistent with <tt>equals()</tt>,
-     * which uses the reference equality implementation inherited from <tt>Object</tt>.
-     *
-     * @param  that the other edge
-     * @return a negative integer, zero, or positive integer depending on whether
-     *         the weight of this is less than, equal to, or greater than the
-     *         argument edge
-     */
-    @Override
-    public int compareTo(Edge that) {
-        if      (this.getWeight() < that.getWeight())
-            return -1;
-        else if (this.getWeight() > that.getWeight())
-            return +1;
-        else
-            return  0;
-    }
-
-
-
-    public float getWeight() {
-        return weight;
-    }
-
-    public void setWeight(float weight) {
-        this.weight = weight;
-    }
-}
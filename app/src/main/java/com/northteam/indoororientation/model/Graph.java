@@ -1,92 +0,0 @@
-package com.northteam.indoororientation.model;
-
-import java.util.ArrayList;
-
-/**
- * @author beatrizgomes
- * Date 11/05/2016
- */
-public class Graph {
-    int V; // Number of vertices of the Graph
-    int E; // Number of edges of the Graph
-    private Bag<Edge>[] adj;
-    private ST<Integer, Beacon> beaconST;
-
-    public Graph(int V) {
-        if (V < 0) throw new IllegalArgumentException("Number of vertices must be nonnegative");
-        this.V = V;
-        this.E = 0;
-        adj = (Bag<Edge>[]) new Bag[V];
-        for (int v = 0; v < V; v++) {
-            adj[v] = new Bag<Edge>();
-        }
-    }
-
-    /**
-     * Returns the number of vertices in this graph.
-     *
-     * @return the number of vertices in this graph
-     */
-    public int getV() {
-        return V;
-    }
-
-    // throw an IndexOutOfBoundsException unless 0 <= v < V
-    private void validateVertex(int v) {
-        if (v < 0 || v >= V)
-            throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (V-1));
-    }
-
-    /**
-     * Returns the edges incident on vertex <tt>v</tt>.
-     *
-     * @param  v the vertex
-     * @return the edges incident on vertex <tt>v</tt> as an Iterable
-     * @throws IndexOutOfBoundsException unless 0 <= v < V
-     */
-    public Iterable<Edge> adj(int v) {
-        validateVertex(v);
-        return adj[v];
-    }
-
-    /**
-     * Adds the undirected edge <tt>e</tt> to this edge-weighted graph.
-     *
-     * @param  e the edge
-     * @throws IndexOutOfBoundsException unless both endpoints are between 0 and V-1
-     */
-    public void addEdge(Edge e) {
-        int v = e.either();
-        int w = e.other(v);
-        validateVertex(v);
-        validateVertex(w);
-        adj[v].add(e);
-        adj[w].add(e);
-        E++;
-    }
-
-    /**
-     * Returns all edges in this edge-weighted graph.
-     * To iterate over the edges in this edge-weighted graph, use foreach notation:
-     * <tt>for (Edge e : G.edges())</tt>.
-     *
-     * @return all edges in this edge-weighted graph, as an iterable
-     */
-    public Iterable<Edge> edges() {
-        Bag<Edge> list = new Bag<Edge>();
-        for (int v = 0; v < V; v++) {
-            int selfLoops = 0;
-            for (Edge e : adj(v)) {
-                if (e.other(v) > v) {
-                    list.add(e);
-                }
-                // only add one copy of each self loop (self loops will be consecutive)
-                else if (e.other(v) == v) {
-                    if (selfLoops % 2 == 0) list.add(e);
-                    selfLoops++;
-                }
-            }
-        }
-        return list;
-    }
-}
@@ -0,0 +1,18 @@
+package com.northteam.indoororientation.platform;
+
+import android.util.Xml;
+
+import com.northteam.indoororientation.model.PullParserFactory;
+
+import org.xmlpull.v1.XmlPullParser;
+
+/**
+ * Creates the pull parsers built into Android for the map files.
+ */
+public class AndroidPullParserFactory implements PullParserFactory {
+
+    @Override
+    public XmlPullParser newPullParser() {
+        return Xml.newPullParser();
+    }
+}
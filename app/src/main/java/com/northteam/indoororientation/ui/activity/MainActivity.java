@@ -1,10 +1,18 @@
 package com.northteam.indoororientation.ui.activity;
 
+import android.app.ActivityManager;
+import android.content.ComponentCallbacks2;
 import android.content.Intent;
-import android.content.res.AssetManager;
+import android.os.AsyncTask;
 import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
 import android.support.design.widget.FloatingActionButton;
 import android.support.design.widget.Snackbar;
+import android.support.v7.widget.LinearLayoutManager;
+import android.support.v7.widget.RecyclerView;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.support.design.widget.NavigationView;
@@ -14,62 +22,88 @@ import android.support.v7.app.ActionBarDrawerToggle;
 import android.support.v7.app.AppCompatActivity;
 import android.support.v7.widget.Toolbar;
 import android.view.MenuItem;
-import android.widget.AdapterView;
-import android.widget.ArrayAdapter;
-import android.widget.Spinner;
+import android.view.ViewTreeObserver;
+import android.widget.EditText;
 import android.widget.Toast;
 
+import com.northteam.indoororientation.BuildConfig;
 import com.northteam.indoororientation.R;
-import com.northteam.indoororientation.model.NothingSelectedSpinnerAdapter;
+import com.northteam.indoororientation.memory.MapMemory;
+import com.northteam.indoororientation.memory.MemoryBudget;
+import com.northteam.indoororientation.memory.MemoryReport;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+import com.northteam.indoororientation.metrics.MetricsSnapshot;
+import com.northteam.indoororientation.model.FuzzyPlaceMatcher;
+import com.northteam.indoororientation.model.PlaceSearchIndex;
 import com.northteam.indoororientation.model.XmlParser;
 import com.northteam.indoororientation.model.Place;
+import com.northteam.indoororientation.platform.AndroidPullParserFactory;
+import com.northteam.indoororientation.startup.Startup;
+import com.northteam.indoororientation.startup.StartupTask;
+import com.northteam.indoororientation.startup.StartupTrace;
+import com.northteam.indoororientation.ui.adapter.PlacePickerAdapter;
 
 import org.xmlpull.v1.XmlPullParserException;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
-import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executor;
 
 public class MainActivity extends AppCompatActivity
-        implements NavigationView.OnNavigationItemSelectedListener, AdapterView.OnItemSelectedListener {
+        implements NavigationView.OnNavigationItemSelectedListener, PlacePickerAdapter.OnPlaceClickListener {
 
     private static final String TAG = "MainActivity";
-
-    List<Place> places = null;
-    ArrayList<String> placesName = new ArrayList<>();
-    XmlParser xmlParser = new XmlParser();
+    private static final int MAX_RESULTS = 50;
+    private static final String METRICS_FILE = "metrics.csv";
+    private static final String STARTUP_TRACE_FILE = "startup.csv";
+    private static final String MEMORY_FILE = "memory.csv";
+    private static final int MEMORY_BUDGET_SHARE = 8; // the map may take 1/8 of the heap
+    private static final double STARTUP_REGRESSION_RATIO = 1.2;
+    private static final long STARTUP_REGRESSION_NANOS = 5000000;
+
+    // built by the startup tasks on the background pool
+    volatile List<Place> places;
+    volatile PlaceSearchIndex searchIndex;
+    volatile FuzzyPlaceMatcher fuzzyMatcher;
+    MemoryBudget memory;
+    boolean fuzzyMatcherReleased;
+    PlacePickerAdapter placesAdapter;
+    RecyclerView placesList;
+    EditText search;
+    int[] results = new int[MAX_RESULTS];
 
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
+        final Startup startup = new Startup();
+        ActivityManager activityManager = (ActivityManager) getSystemService(ACTIVITY_SERVICE);
+        memory = new MemoryBudget(activityManager.getMemoryClass() * 1024L * 1024L / MEMORY_BUDGET_SHARE);
         setContentView(R.layout.activity_main);
         Toolbar toolbar = (Toolbar) findViewById(R.id.toolbar);
         setSupportActionBar(toolbar);
 
+        placesList = (RecyclerView) findViewById(R.id.listPlaces);
+        placesList.setLayoutManager(new LinearLayoutManager(this));
+        placesList.setHasFixedSize(true);
 
-        try {
-            getPlacesFromXml();
-        } catch (IOException e) {
-            e.printStackTrace();
-        }
+        search = (EditText) findViewById(R.id.searchPlaces);
+        search.addTextChangedListener(new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {
+            }
 
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {
+                searchPlaces(s);
+            }
 
-        Spinner spinner = (Spinner) findViewById(R.id.spinnerPlaces);
-        spinner.setPrompt(this.getString(R.string.spinner_prompt));
-        // Create an ArrayAdapter using the string array and a default spinner layout
-        ArrayAdapter<String> adapter = new ArrayAdapter(this, android.R.layout.simple_spinner_item, placesName);
-        // Specify the layout to use when the list of choices appears
-        adapter.setDropDownViewResource(android.R.layout.simple_spinner_dropdown_item);
-        // Apply the adapter to the spinner
-        spinner.setAdapter(
-                new NothingSelectedSpinnerAdapter(
-                        adapter,
-                        R.layout.contact_spinner_row_nothing_selected,
-                        // R.layout.contact_spinner_nothing_selected_dropdown, // Optional
-                        this));
-        spinner.setOnItemSelectedListener(this);
+            @Override
+            public void afterTextChanged(Editable s) {
+            }
+        });
 
 
         FloatingActionButton fab = (FloatingActionButton) findViewById(R.id.fab);
@@ -89,6 +123,198 @@ public class MainActivity extends AppCompatActivity
 
         NavigationView navigationView = (NavigationView) findViewById(R.id.nav_view);
         navigationView.setNavigationItemSelectedListener(this);
+
+        startPlaces(startup);
+    }
+
+    // Loads the places off the main thread; the list is shown as soon as they are parsed,
+    // and the fuzzy matcher, only needed for misspelled searches, is built after the first frame
+    private void startPlaces(final Startup startup) {
+        startup.add(new StartupTask("parsePlaces", false, false) {
+            @Override
+            protected void run() throws Exception {
+                places = getPlacesFromXml();
+            }
+        }).add(new StartupTask("searchIndex", false, false, "parsePlaces") {
+            @Override
+            protected void run() {
+                searchIndex = new PlaceSearchIndex(places);
+            }
+        }).add(new StartupTask("showPlaces", true, false, "parsePlaces") {
+            @Override
+            protected void run() {
+                placesAdapter = new PlacePickerAdapter(places);
+                placesAdapter.setOnPlaceClickListener(MainActivity.this);
+                placesList.setAdapter(placesAdapter);
+                searchPlaces(search.getText());
+            }
+        }).add(new StartupTask("fuzzyMatcher", false, true, "parsePlaces") {
+            @Override
+            protected void run() {
+                fuzzyMatcher = new FuzzyPlaceMatcher(places);
+            }
+        });
+
+        startup.setListener(new Startup.Listener() {
+            @Override
+            public void onInteractive(StartupTrace trace) {
+                searchPlaces(search.getText());
+            }
+
+            @Override
+            public void onDone(StartupTrace trace) {
+                trace.setLabel("version " + BuildConfig.VERSION_NAME + " places "
+                        + (places == null ? 0 : places.size()));
+                saveStartupTrace(trace);
+                accountMemory();
+                logMemory(memory.enforce());
+            }
+
+            @Override
+            public void onTaskFailed(String task, Throwable e) {
+                Log.e(TAG, "Startup task " + task + " failed", e);
+            }
+        });
+
+        final View decor = getWindow().getDecorView();
+        decor.getViewTreeObserver().addOnPreDrawListener(new ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decor.getViewTreeObserver().removeOnPreDrawListener(this);
+                // runs once the frame being drawn is done
+                decor.post(new Runnable() {
+                    @Override
+                    public void run() {
+                        startup.onFirstFrame();
+                    }
+                });
+                return true;
+            }
+        });
+
+        final Handler mainHandler = new Handler(Looper.getMainLooper());
+        startup.start(new Executor() {
+            @Override
+            public void execute(Runnable r) {
+                mainHandler.post(r);
+            }
+        }, AsyncTask.THREAD_POOL_EXECUTOR);
+    }
+
+    // Registers the structures built at startup with the memory budget; the fuzzy matcher is
+    // cold data, dropped when memory runs short and built again by the next misspelled search
+    private void accountMemory() {
+        if (places == null) return;
+        MapMemory.register(memory, null, places);
+        memory.register("searchIndex", MemoryBudget.Kind.PINNED, new MemoryBudget.Account() {
+            @Override
+            public long estimateBytes() {
+                PlaceSearchIndex index = searchIndex;
+                return index == null ? 0 : index.estimateBytes();
+            }
+
+            @Override
+            public long release(long bytes) {
+                return 0;
+            }
+        });
+        memory.register("fuzzyMatcher", MemoryBudget.Kind.COLD, new MemoryBudget.Account() {
+            @Override
+            public long estimateBytes() {
+                FuzzyPlaceMatcher matcher = fuzzyMatcher;
+                return matcher == null ? 0 : matcher.estimateBytes();
+            }
+
+            @Override
+            public long release(long bytes) {
+                FuzzyPlaceMatcher matcher = fuzzyMatcher;
+                if (matcher == null) return 0;
+                fuzzyMatcher = null;
+                fuzzyMatcherReleased = true;
+                return matcher.estimateBytes();
+            }
+        });
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        if (memory == null) return;
+        // when the system runs low, drop everything that can be rebuilt; otherwise keep to the budget
+        logMemory(level >= ComponentCallbacks2.TRIM_MEMORY_RUNNING_LOW ? memory.trimTo(0) : memory.enforce());
+    }
+
+    private static void logMemory(MemoryReport report) {
+        if (report.getReleased() > 0 || report.isOverBudget()) Log.w(TAG, "Memory: " + report);
+        else Log.d(TAG, "Memory: " + report);
+    }
+
+    // Builds the fuzzy matcher again, off the main thread, after it was dropped to save memory
+    private void rebuildFuzzyMatcher() {
+        final List<Place> loaded = places;
+        if (!fuzzyMatcherReleased || loaded == null) return;
+        fuzzyMatcherReleased = false;
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                fuzzyMatcher = new FuzzyPlaceMatcher(loaded);
+                runOnUiThread(new Runnable() {
+                    @Override
+                    public void run() {
+                        searchPlaces(search.getText());
+                    }
+                });
+            }
+        });
+    }
+
+    // Saves the startup trace and logs the phases that got slower since the previous start
+    private void saveStartupTrace(final StartupTrace trace) {
+        final File file = new File(getFilesDir(), STARTUP_TRACE_FILE);
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    StartupTrace previous = StartupTrace.read(file);
+                    if (previous != null) {
+                        for (String regression : trace.regressions(previous, STARTUP_REGRESSION_RATIO,
+                                STARTUP_REGRESSION_NANOS))
+                            Log.w(TAG, "Startup regression, " + regression);
+                    }
+                    trace.writeTo(file);
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not save the startup trace", e);
+                }
+            }
+        });
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        exportMetrics();
+    }
+
+    // Writes the metrics gathered so far and the memory report to the app's external files directory,
+    // off the main thread
+    private void exportMetrics() {
+        File dir = getExternalFilesDir(null);
+        if (dir == null) return;
+        final File file = new File(dir, METRICS_FILE);
+        final File memoryFile = new File(dir, MEMORY_FILE);
+        final MetricsSnapshot snapshot = MetricsRegistry.getDefault().snapshot(System.currentTimeMillis());
+        final MemoryReport report = memory.report();
+        AsyncTask.THREAD_POOL_EXECUTOR.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    snapshot.writeTo(file);
+                    report.writeTo(memoryFile);
+                } catch (IOException e) {
+                    Log.w(TAG, "Could not export the metrics", e);
+                }
+            }
+        });
     }
 
     @Override
@@ -120,47 +346,31 @@ public class MainActivity extends AppCompatActivity
     }
 
     @Override
-    public void onItemSelected(AdapterView<?> parent, View view, int position, long id) {
-        if(position!=0)
-            Toast.makeText(this,parent.getItemAtPosition(position).toString(),Toast.LENGTH_LONG).show();
-
-
-    }
-
-    @Override
-    public void onNothingSelected(AdapterView<?> parent) {
-
+    public void onPlaceClick(Place place) {
+        Toast.makeText(this, place.getName(), Toast.LENGTH_LONG).show();
     }
 
-    private void getPlacesFromXml() throws IOException {
-
-        AssetManager assetManager = getBaseContext().getAssets();
-        InputStream stream = null;
-
-
-        try {
-            stream = assetManager.open("places.xml");
-
-            places = xmlParser.parsePlaces(stream);
-
-            for (Place place : places) {
-                placesName.add(place.getName());
-                Log.d(TAG, "Id: " + place.getId());
-                Log.d(TAG, "Nome: " + place.getName());
-            }
-
-        } catch (IOException | XmlPullParserException e) {
-            e.printStackTrace();
-            Log.d(TAG, "ERRO");
-        } finally {
-            if (stream != null) {
-                try {
-                    stream.close();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
+    // Shows every place for an empty query, otherwise the exact matches or, if there are none, the fuzzy ones
+    private void searchPlaces(CharSequence query) {
+        if (placesAdapter == null) return;
+        if (searchIndex == null || query.toString().trim().isEmpty()) {
+            placesAdapter.showAll();
+            return;
+        }
+        int n = searchIndex.search(query, results);
+        FuzzyPlaceMatcher matcher = fuzzyMatcher;
+        if (n == 0 && matcher != null) {
+            n = matcher.search(query, results);
+        } else if (n == 0) {
+            rebuildFuzzyMatcher();
         }
+        placesAdapter.setResults(results, n);
+    }
 
+    private List<Place> getPlacesFromXml() throws IOException, XmlPullParserException {
+        InputStream stream = getAssets().open("places.xml");
+        List<Place> parsed = new XmlParser(new AndroidPullParserFactory()).parsePlaces(stream);
+        Log.d(TAG, "Places: " + parsed.size());
+        return parsed;
     }
 }
@@ -0,0 +1,143 @@
+package com.northteam.indoororientation.ui.adapter;
+
+import android.support.v7.widget.RecyclerView;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import com.northteam.indoororientation.R;
+import com.northteam.indoororientation.model.Place;
+
+import java.util.List;
+
+/**
+ * Adapter of the destination list. The RecyclerView only creates the rows that
+ * fit on screen and rebinds them while scrolling, so the number of views does not
+ * grow with the number of places.
+ * <p>
+ * The list shows every place, or the results of a search. When the results of a
+ * search change, only the rows that were inserted, removed or moved are notified
+ * (see {@link ResultDiff}).
+ */
+public class PlacePickerAdapter extends RecyclerView.Adapter<PlacePickerAdapter.ViewHolder>
+        implements ResultDiff.Callback {
+
+    public interface OnPlaceClickListener {
+        void onPlaceClick(Place place);
+    }
+
+    private final List<Place> places;
+    private final ResultDiff diff;
+    private OnPlaceClickListener listener;
+    private boolean showingAll = true;
+    private int[] results = new int[0];
+    private int count;
+
+    public PlacePickerAdapter(List<Place> places) {
+        this.places = places;
+        this.diff = new ResultDiff(places.size());
+        setHasStableIds(true);
+    }
+
+    public void setOnPlaceClickListener(OnPlaceClickListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Shows every place, in the order of the map file.
+     */
+    public void showAll() {
+        if (showingAll) return;
+        showingAll = true;
+        count = 0;
+        notifyDataSetChanged();
+    }
+
+    /**
+     * Shows the results of a search.
+     *
+     * @param newResults positions in the list of places, in the first <tt>n</tt> entries
+     * @param n          the number of results
+     */
+    public void setResults(int[] newResults, int n) {
+        if (results.length < n) {
+            int[] grown = new int[Math.max(n, 2 * results.length)];
+            System.arraycopy(results, 0, grown, 0, count);
+            results = grown;
+        }
+        if (showingAll) {
+            showingAll = false;
+            System.arraycopy(newResults, 0, results, 0, n);
+            count = n;
+            notifyDataSetChanged();
+            return;
+        }
+        diff.dispatch(results, count, newResults, n, this);
+        System.arraycopy(newResults, 0, results, 0, n);
+        count = n;
+    }
+
+    // position in the list of places of the row at the given adapter position
+    private int placeAt(int position) {
+        return showingAll ? position : results[position];
+    }
+
+    @Override
+    public ViewHolder onCreateViewHolder(ViewGroup parent, int viewType) {
+        View row = LayoutInflater.from(parent.getContext()).inflate(R.layout.place_row, parent, false);
+        return new ViewHolder(row);
+    }
+
+    @Override
+    public void onBindViewHolder(ViewHolder holder, int position) {
+        holder.place = places.get(placeAt(position));
+        holder.name.setText(holder.place.getName());
+    }
+
+    @Override
+    public int getItemCount() {
+        return showingAll ? places.size() : count;
+    }
+
+    @Override
+    public long getItemId(int position) {
+        return placeAt(position);
+    }
+
+    @Override
+    public void onInserted(int position, int n) {
+        notifyItemRangeInserted(position, n);
+    }
+
+    @Override
+    public void onRemoved(int position, int n) {
+        notifyItemRangeRemoved(position, n);
+    }
+
+    @Override
+    public void onMoved(int fromPosition, int toPosition) {
+        notifyItemMoved(fromPosition, toPosition);
+    }
+
+    @Override
+    public void onReset() {
+        notifyDataSetChanged();
+    }
+
+    public class ViewHolder extends RecyclerView.ViewHolder implements View.OnClickListener {
+        final TextView name;
+        Place place;
+
+        ViewHolder(View row) {
+            super(row);
+            name = (TextView) row.findViewById(android.R.id.text1);
+            row.setOnClickListener(this);
+        }
+
+        @Override
+        public void onClick(View v) {
+            if (listener != null && place != null) listener.onPlaceClick(place);
+        }
+    }
+}
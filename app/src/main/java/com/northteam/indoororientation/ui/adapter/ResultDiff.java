@@ -0,0 +1,108 @@
+package com.northteam.indoororientation.ui.adapter;
+
+/**
+ * Works out the insertions, removals and moves that turn one list of search
+ * results into another, so that a list view only animates and rebinds the rows
+ * that changed. Results are positions in the list of places.
+ * <p>
+ * The diff takes time proportional to the number of results, plus the length of
+ * each move. Past {@link #MAX_INCREMENTAL} results it is cheaper to redraw the
+ * list, and the callback is told to reset instead.
+ */
+public class ResultDiff {
+
+    public static final int MAX_INCREMENTAL = 500;
+
+    /**
+     * Receives the changes, in the order they must be applied.
+     */
+    public interface Callback {
+        void onInserted(int position, int count);
+
+        void onRemoved(int position, int count);
+
+        void onMoved(int fromPosition, int toPosition);
+
+        /**
+         * Too many changes, the whole list must be redrawn.
+         */
+        void onReset();
+    }
+
+    private final int[] inNew;     // inNew[p] == generation if p is in the new results
+    private final int[] inWorking; // inWorking[p] == generation if p is in the working list
+    private int generation;
+    private int[] working = new int[16];
+
+    /**
+     * @param places the number of places results can refer to
+     */
+    public ResultDiff(int places) {
+        inNew = new int[places];
+        inWorking = new int[places];
+    }
+
+    /**
+     * @param oldResults the results shown, in the first <tt>oldCount</tt> entries
+     * @param newResults the results to show, in the first <tt>newCount</tt> entries
+     * @param callback   receives the changes
+     */
+    public void dispatch(int[] oldResults, int oldCount, int[] newResults, int newCount, Callback callback) {
+        if (oldCount > MAX_INCREMENTAL || newCount > MAX_INCREMENTAL) {
+            callback.onReset();
+            return;
+        }
+        if (++generation == Integer.MAX_VALUE) {
+            java.util.Arrays.fill(inNew, 0);
+            java.util.Arrays.fill(inWorking, 0);
+            generation = 1;
+        }
+        for (int i = 0; i < newCount; i++)
+            inNew[newResults[i]] = generation;
+
+        if (working.length < oldCount + newCount) working = new int[2 * (oldCount + newCount)];
+        int W = 0;
+        for (int i = 0; i < oldCount; i++)
+            working[W++] = oldResults[i];
+
+        // removals, in runs, from the end so the positions stay valid
+        int i = W - 1;
+        while (i >= 0) {
+            if (inNew[working[i]] == generation) {
+                i--;
+                continue;
+            }
+            int end = i;
+            while (i >= 0 && inNew[working[i]] != generation) i--;
+            int count = end - i;
+            callback.onRemoved(i + 1, count);
+            System.arraycopy(working, end + 1, working, i + 1, W - end - 1);
+            W -= count;
+        }
+        for (int k = 0; k < W; k++)
+            inWorking[working[k]] = generation;
+
+        // the working list is now a subset of the new results: insert and move into place
+        for (i = 0; i < newCount; i++) {
+            int p = newResults[i];
+            if (i < W && working[i] == p) continue;
+            if (inWorking[p] == generation) {
+                int j = i + 1;
+                while (working[j] != p) j++;
+                callback.onMoved(j, i);
+                System.arraycopy(working, i, working, i + 1, j - i);
+                working[i] = p;
+            } else {
+                int run = 1;
+                while (i + run < newCount && inWorking[newResults[i + run]] != generation) run++;
+                callback.onInserted(i, run);
+                System.arraycopy(working, i, working, i + run, W - i);
+                System.arraycopy(newResults, i, working, i, run);
+                for (int k = i; k < i + run; k++)
+                    inWorking[working[k]] = generation;
+                W += run;
+                i += run - 1;
+            }
+        }
+    }
+}
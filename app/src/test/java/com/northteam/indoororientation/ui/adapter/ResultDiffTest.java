@@ -0,0 +1,128 @@
+package com.northteam.indoororientation.ui.adapter;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ResultDiffTest {
+
+    // applies the changes to a copy of the old results, as the list view would
+    private static class Replay implements ResultDiff.Callback {
+        final List<Integer> rows = new ArrayList<Integer>();
+        final int[] newResults;
+        int inserted, removed, moved;
+        boolean reset;
+
+        Replay(int[] oldResults, int[] newResults) {
+            for (int p : oldResults) rows.add(p);
+            this.newResults = newResults;
+        }
+
+        @Override
+        public void onInserted(int position, int count) {
+            inserted += count;
+            for (int i = 0; i < count; i++)
+                rows.add(position + i, newResults[position + i]);
+        }
+
+        @Override
+        public void onRemoved(int position, int count) {
+            removed += count;
+            for (int i = 0; i < count; i++)
+                rows.remove(position);
+        }
+
+        @Override
+        public void onMoved(int fromPosition, int toPosition) {
+            moved++;
+            rows.add(toPosition, rows.remove(fromPosition));
+        }
+
+        @Override
+        public void onReset() {
+            reset = true;
+        }
+
+        int[] rows() {
+            int[] a = new int[rows.size()];
+            for (int i = 0; i < a.length; i++)
+                a[i] = rows.get(i);
+            return a;
+        }
+    }
+
+    private static Replay diff(int places, int[] oldResults, int[] newResults) {
+        Replay replay = new Replay(oldResults, newResults);
+        new ResultDiff(places).dispatch(oldResults, oldResults.length, newResults, newResults.length, replay);
+        if (!replay.reset) assertArrayEquals(newResults, replay.rows());
+        return replay;
+    }
+
+    @Test
+    public void identicalResults() {
+        Replay replay = diff(10, new int[]{3, 1, 4}, new int[]{3, 1, 4});
+        assertEquals(0, replay.inserted + replay.removed + replay.moved);
+        assertEquals(0, diff(10, new int[0], new int[0]).inserted);
+    }
+
+    @Test
+    public void insertions() {
+        Replay replay = diff(10, new int[]{3, 4}, new int[]{7, 3, 8, 9, 4, 5});
+        assertEquals(4, replay.inserted);
+        assertEquals(0, replay.removed + replay.moved);
+    }
+
+    @Test
+    public void removals() {
+        Replay replay = diff(10, new int[]{7, 3, 8, 9, 4, 5}, new int[]{3, 4});
+        assertEquals(4, replay.removed);
+        assertEquals(0, replay.inserted + replay.moved);
+    }
+
+    @Test
+    public void moves() {
+        Replay replay = diff(10, new int[]{1, 2, 3, 4}, new int[]{4, 1, 2, 3});
+        assertEquals(1, replay.moved);
+        assertEquals(0, replay.inserted + replay.removed);
+        diff(10, new int[]{1, 2, 3, 4}, new int[]{4, 3, 2, 1});
+    }
+
+    @Test
+    public void everythingAtOnce() {
+        Replay replay = diff(10, new int[]{0, 1, 2, 3, 4}, new int[]{5, 3, 1, 6, 0});
+        assertEquals(2, replay.inserted);
+        assertEquals(2, replay.removed);
+    }
+
+    @Test
+    public void randomResults() {
+        Random random = new Random(42);
+        ResultDiff diff = new ResultDiff(50);  // reused, as by the adapter
+        List<Integer> places = new ArrayList<Integer>();
+        for (int p = 0; p < 50; p++) places.add(p);
+        int[] shown = new int[0];
+        for (int t = 0; t < 1000; t++) {
+            Collections.shuffle(places, random);
+            int[] next = new int[random.nextInt(20)];
+            for (int i = 0; i < next.length; i++) next[i] = places.get(i);
+            Replay replay = new Replay(shown, next);
+            diff.dispatch(shown, shown.length, next, next.length, replay);
+            assertArrayEquals(Arrays.toString(shown) + " -> " + Arrays.toString(next), next, replay.rows());
+            shown = next;
+        }
+    }
+
+    @Test
+    public void tooManyResultsReset() {
+        int[] many = new int[ResultDiff.MAX_INCREMENTAL + 1];
+        for (int i = 0; i < many.length; i++) many[i] = i;
+        assertTrue(diff(many.length, new int[]{0}, many).reset);
+        assertTrue(diff(many.length, many, new int[0]).reset);
+    }
+}
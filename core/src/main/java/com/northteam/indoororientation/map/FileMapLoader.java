@@ -0,0 +1,116 @@
+package com.northteam.indoororientation.map;
+
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.HubLabels;
+import com.northteam.indoororientation.model.Place;
+import com.northteam.indoororientation.model.PullParserFactory;
+import com.northteam.indoororientation.model.RouteProfile;
+import com.northteam.indoororientation.model.VertexOrder;
+import com.northteam.indoororientation.model.XmlParser;
+import com.northteam.indoororientation.util.StringPool;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/**
+ * Loads the map from a beacons file and a places file.
+ * <p>
+ * Every {@link #loadGraph} starts a new {@link XmlParser}, with a new pool of
+ * strings, which the {@link #loadPlaces} that follows shares: the names of the
+ * beacons and the places are kept once within a version of the map, and the
+ * pool goes with it, instead of growing with every reload.
+ */
+public class FileMapLoader implements MapLoader {
+
+    private final File beacons;
+    private final File places;
+    private final PullParserFactory factory;
+    private XmlParser parser;  // of the load in progress, between loadGraph and loadPlaces
+    private volatile boolean reorder;
+
+    public FileMapLoader(File beacons, File places) {
+        this(beacons, places, PullParserFactory.XMLPULL);
+    }
+
+    /**
+     * @param beacons the beacons file
+     * @param places  the places file
+     * @param factory creates the pull parsers, e.g. the platform's own on Android
+     */
+    public FileMapLoader(File beacons, File places, PullParserFactory factory) {
+        this.beacons = beacons;
+        this.places = places;
+        this.factory = factory;
+    }
+
+    /**
+     * Renumbers the vertices of the graphs loaded from now on in
+     * {@link VertexOrder#reverseCuthillMcKee Reverse Cuthill-McKee} order, so that
+     * searches over a large map touch less memory. The vertices are then no longer
+     * the beacon ids of the file; translate them with {@link Graph#getVertexOrder}.
+     *
+     * @param reorder whether to renumber the vertices
+     */
+    public void setReorder(boolean reorder) {
+        this.reorder = reorder;
+    }
+
+    @Override
+    public Graph loadGraph() throws IOException, XmlPullParserException {
+        parser = new XmlParser(factory, new StringPool());
+        Graph G = new Graph(parser.parseBeacons(new FileInputStream(beacons)));
+        return reorder ? VertexOrder.reverseCuthillMcKee(G).apply(G) : G;
+    }
+
+    @Override
+    public List<Place> loadPlaces() throws IOException, XmlPullParserException {
+        XmlParser p = parser != null ? parser : new XmlParser(factory);
+        parser = null;
+        return p.parsePlaces(new FileInputStream(places));
+    }
+
+    /**
+     * @return the file next to the beacons file that keeps the {@link HubLabels}
+     *         of the map, written by the <tt>LabelIndexer</tt> of the tools
+     */
+    public File getLabelsFile() {
+        return new File(beacons.getPath() + ".labels");
+    }
+
+    /**
+     * Reads the hub labels of a graph loaded by this loader from
+     * {@link #getLabelsFile}. Only the <tt>LabelIndexer</tt> reads them so far,
+     * to check the file it wrote; the maps are served without them.
+     *
+     * @param  G the graph
+     * @return the labels, or <tt>null</tt> if there is no such file, or it can not
+     *         be read or was computed for another version of the map; compute them
+     *         then with {@link HubLabels#HubLabels(Graph)}
+     */
+    public HubLabels loadLabels(Graph G) {
+        File file = getLabelsFile();
+        if (!file.isFile()) return null;
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                return HubLabels.read(in, G, RouteProfile.ANY);
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return the files the map is read from, for a {@link MapFileWatcher}
+     */
+    public File[] getFiles() {
+        return new File[]{beacons, places};
+    }
+}
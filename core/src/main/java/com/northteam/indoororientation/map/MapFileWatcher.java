@@ -0,0 +1,112 @@
+package com.northteam.indoororientation.map;
+
+import java.io.File;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Reloads a {@link MapStore} when the map files change on disk.
+ * <p>
+ * The files are polled, as file change notifications are not available on every
+ * platform the engine runs on: every period the modification time and length of
+ * every file are compared with the ones of the last load. A change is only acted
+ * upon once it has stayed the same for a whole period, so that a file that is
+ * still being copied is not read half way. The files count as loaded only once
+ * the reload succeeded: a reload that failed, e.g. on a file that was still
+ * being written, is tried again every period until one succeeds.
+ */
+public class MapFileWatcher {
+
+    public static final long DEFAULT_PERIOD_MILLIS = 2000;
+
+    private final MapStore store;
+    private final File[] files;
+    private final long periodMillis;
+    private ScheduledExecutorService scheduler;
+    private volatile long loaded;    // signature of the files at the last load
+    private volatile long pending;   // signature of a change not yet stable
+
+    public MapFileWatcher(MapStore store, File... files) {
+        this(store, DEFAULT_PERIOD_MILLIS, files);
+    }
+
+    /**
+     * @param store        the store to reload
+     * @param periodMillis time between two looks at the files
+     * @param files        the files the map is read from
+     */
+    public MapFileWatcher(MapStore store, long periodMillis, File... files) {
+        this.store = store;
+        this.periodMillis = periodMillis;
+        this.files = files.clone();
+    }
+
+    /**
+     * Starts watching, taking the files as they are now as the ones loaded.
+     */
+    public synchronized void start() {
+        if (scheduler != null) return;
+        loaded = signature();
+        pending = loaded;
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "map-watcher");
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                poll();
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stop() {
+        if (scheduler == null) return;
+        scheduler.shutdownNow();
+        scheduler = null;
+    }
+
+    /**
+     * Looks at the files once and, if they changed, reloads the store and waits
+     * for the reload. Runs on the watcher's thread.
+     *
+     * @return <tt>true</tt> if the map was reloaded
+     */
+    boolean poll() {
+        long now = signature();
+        if (now == loaded) {
+            pending = now;
+            return false;
+        }
+        if (now != pending) {
+            pending = now;
+            return false;
+        }
+        try {
+            store.reload().get();
+        } catch (ExecutionException e) {
+            return false; // counted by the store; tried again at the next poll
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        loaded = now;
+        return true;
+    }
+
+    private long signature() {
+        long h = 17;
+        for (File f : files) {
+            h = 31 * h + f.lastModified();
+            h = 31 * h + f.length();
+        }
+        return h;
+    }
+}
@@ -0,0 +1,25 @@
+package com.northteam.indoororientation.map;
+
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.Place;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Reads the map from where it is kept, for the {@link MapStore} to load and reload.
+ */
+public interface MapLoader {
+
+    /**
+     * @return a new graph, built from the beacons of the map
+     */
+    Graph loadGraph() throws IOException, XmlPullParserException;
+
+    /**
+     * @return the places of the map
+     */
+    List<Place> loadPlaces() throws IOException, XmlPullParserException;
+}
@@ -0,0 +1,20 @@
+package com.northteam.indoororientation.map;
+
+import com.northteam.indoororientation.model.Graph;
+
+/**
+ * A change to the map, such as closing a corridor, applied by the
+ * {@link MapStore} to a copy of the current graph.
+ */
+public interface MapPatch {
+
+    /**
+     * Changes the graph. The graph is a copy that nobody else sees until the patch
+     * returns; it is then frozen and published. If the loader renumbered the
+     * vertices, {@link Graph#getVertexOrder} translates the beacon ids of the map
+     * file to them.
+     *
+     * @param G the copy of the current graph
+     */
+    void apply(Graph G);
+}
@@ -0,0 +1,112 @@
+package com.northteam.indoororientation.map;
+
+import com.northteam.indoororientation.model.FuzzyPlaceMatcher;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.MapDictionary;
+import com.northteam.indoororientation.model.Place;
+import com.northteam.indoororientation.model.PlaceSearchIndex;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * One version of the map: a frozen {@link Graph}, its places, the
+ * {@link MapDictionary} that joins them and the search indexes of the places. A
+ * snapshot never changes, so any number of threads can read it without locks; a
+ * new version of the map is a new snapshot, published by the {@link MapStore}.
+ * The indexes are built once per snapshot and shared: every thread that searches
+ * them only needs its own {@link PlaceSearchIndex.Searcher} and
+ * {@link FuzzyPlaceMatcher.Searcher}.
+ */
+public class MapSnapshot {
+
+    private final Graph G;
+    private final List<Place> places;
+    private final MapDictionary dictionary;
+    private final PlaceSearchIndex searchIndex;
+    private final FuzzyPlaceMatcher matcher;
+    private final long version;
+    private final long createdMillis;
+
+    /**
+     * Freezes the graph, copies the list of places and builds their dictionary
+     * and search indexes.
+     *
+     * @param G       the graph; frozen by this constructor
+     * @param places  the places of the map
+     * @param version increases with every snapshot of the same store
+     */
+    public MapSnapshot(Graph G, List<Place> places, long version) {
+        this.G = G.freeze();
+        this.places = Collections.unmodifiableList(new ArrayList<Place>(places));
+        this.dictionary = new MapDictionary(this.G, this.places);
+        this.searchIndex = new PlaceSearchIndex(this.places);
+        this.matcher = new FuzzyPlaceMatcher(this.places);
+        this.version = version;
+        this.createdMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * A snapshot with another graph and the places of <tt>base</tt>, whose
+     * search indexes it shares.
+     *
+     * @param G       the graph; frozen by this constructor
+     * @param base    the snapshot whose places are kept
+     * @param version increases with every snapshot of the same store
+     */
+    MapSnapshot(Graph G, MapSnapshot base, long version) {
+        this.G = G.freeze();
+        this.places = base.places;
+        this.dictionary = new MapDictionary(this.G, this.places);
+        this.searchIndex = base.searchIndex;
+        this.matcher = base.matcher;
+        this.version = version;
+        this.createdMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * @return the graph, which is frozen
+     */
+    public Graph getGraph() {
+        return G;
+    }
+
+    /**
+     * @return the places, as a list that can not be changed
+     */
+    public List<Place> getPlaces() {
+        return places;
+    }
+
+    /**
+     * @return the ids and names of the graph and the places as handles
+     */
+    public MapDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * @return the prefix and infix index of the place names; search it from
+     *         every thread with a {@link PlaceSearchIndex#newSearcher searcher} of its own
+     */
+    public PlaceSearchIndex getSearchIndex() {
+        return searchIndex;
+    }
+
+    /**
+     * @return the typo tolerant matcher of the place names; search it from
+     *         every thread with a {@link FuzzyPlaceMatcher#newSearcher searcher} of its own
+     */
+    public FuzzyPlaceMatcher getMatcher() {
+        return matcher;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public long getCreatedMillis() {
+        return createdMillis;
+    }
+}
@@ -0,0 +1,172 @@
+package com.northteam.indoororientation.map;
+
+import com.northteam.indoororientation.metrics.Counter;
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.Place;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Holds the current {@link MapSnapshot} behind an atomic reference.
+ * <p>
+ * Readers call {@link #current} once per query and use that snapshot to the end
+ * of the query; they never lock, and a query that started before a reload finishes
+ * on the map it started with. Reloads and patches build a new snapshot on the
+ * store's own thread, from a fresh load or from a copy of the current graph, and
+ * then swap it in; they are applied one at a time, in the order they were asked.
+ * If a reload fails, the current snapshot stays.
+ */
+public class MapStore {
+
+    private static final LatencyHistogram RELOADS = MetricsRegistry.getDefault().histogram("map.reload");
+    private static final LatencyHistogram PATCHES = MetricsRegistry.getDefault().histogram("map.patch");
+    private static final Counter FAILED_RELOADS = MetricsRegistry.getDefault().counter("map.reload.failed");
+
+    /**
+     * Told on the store's thread every time a new snapshot is published.
+     */
+    public interface Listener {
+        /**
+         * @param previous the snapshot replaced; <tt>null</tt> on the first load
+         * @param current  the snapshot now published
+         */
+        void onMapChanged(MapSnapshot previous, MapSnapshot current);
+    }
+
+    private final MapLoader loader;
+    private final AtomicReference<MapSnapshot> current = new AtomicReference<MapSnapshot>();
+    private final AtomicLong versions = new AtomicLong();
+    private final Object writeLock = new Object();
+    private final List<Listener> listeners = new CopyOnWriteArrayList<Listener>();
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "map-writer");
+            t.setDaemon(true);
+            t.setPriority(Thread.NORM_PRIORITY - 1);
+            return t;
+        }
+    });
+
+    /**
+     * Creates a store that loads the map with the given loader. Nothing is loaded
+     * until {@link #load} or {@link #reload} is called.
+     */
+    public MapStore(MapLoader loader) {
+        this.loader = loader;
+    }
+
+    /**
+     * Creates a store with a map that is already loaded and can only be patched.
+     */
+    public MapStore(Graph G, List<Place> places) {
+        this.loader = null;
+        publish(new MapSnapshot(G, places, versions.incrementAndGet()));
+    }
+
+    /**
+     * @return the current snapshot; <tt>null</tt> if nothing was loaded yet
+     */
+    public MapSnapshot current() {
+        return current.get();
+    }
+
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Loads the map on the calling thread and publishes it.
+     *
+     * @return the new snapshot
+     * @throws IllegalStateException if the store has no loader
+     */
+    public MapSnapshot load() throws IOException, XmlPullParserException {
+        if (loader == null) throw new IllegalStateException("the store has no loader");
+        synchronized (writeLock) {
+            long start = System.nanoTime();
+            try {
+                Graph G = loader.loadGraph();
+                List<Place> places = loader.loadPlaces();
+                MapSnapshot snapshot = new MapSnapshot(G, places, versions.incrementAndGet());
+                publish(snapshot);
+                return snapshot;
+            } catch (IOException | XmlPullParserException | RuntimeException e) {
+                FAILED_RELOADS.inc();
+                throw e;
+            } finally {
+                RELOADS.recordSince(start);
+            }
+        }
+    }
+
+    /**
+     * Loads the map again on the store's thread and publishes it.
+     *
+     * @return the new snapshot, or the exception that made the reload fail
+     */
+    public Future<MapSnapshot> reload() {
+        return writer.submit(new Callable<MapSnapshot>() {
+            @Override
+            public MapSnapshot call() throws Exception {
+                return load();
+            }
+        });
+    }
+
+    /**
+     * Applies a patch to a copy of the current graph on the store's thread and
+     * publishes the result. The places and their search indexes are kept.
+     *
+     * @return the new snapshot, or the exception thrown by the patch
+     * @throws IllegalStateException, through the future, if nothing was loaded yet
+     */
+    public Future<MapSnapshot> patch(final MapPatch patch) {
+        return writer.submit(new Callable<MapSnapshot>() {
+            @Override
+            public MapSnapshot call() {
+                synchronized (writeLock) {
+                    long start = System.nanoTime();
+                    MapSnapshot base = current.get();
+                    if (base == null) throw new IllegalStateException("no map loaded");
+                    Graph G = base.getGraph().mutableCopy();
+                    patch.apply(G);
+                    MapSnapshot snapshot = new MapSnapshot(G, base, versions.incrementAndGet());
+                    publish(snapshot);
+                    PATCHES.recordSince(start);
+                    return snapshot;
+                }
+            }
+        });
+    }
+
+    private void publish(MapSnapshot snapshot) {
+        MapSnapshot previous = current.getAndSet(snapshot);
+        for (Listener l : listeners)
+            l.onMapChanged(previous, snapshot);
+    }
+
+    /**
+     * Stops the store's thread; reloads and patches still queued are dropped.
+     */
+    public void shutdown() {
+        writer.shutdownNow();
+    }
+}
@@ -0,0 +1,105 @@
+package com.northteam.indoororientation.memory;
+
+import com.northteam.indoororientation.model.Beacon;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.Place;
+
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Accounts for the memory of a loaded map in a {@link MemoryBudget}: the
+ * adjacency of the graph, the beacon table, the place list and the strings of
+ * the beacons and places, all pinned.
+ */
+public final class MapMemory {
+
+    public static final String ADJACENCY = "graph.adjacency";
+    public static final String BEACONS = "graph.beacons";
+    public static final String PLACES = "places";
+    public static final String STRINGS = "strings";
+
+    private MapMemory() {
+    }
+
+    /**
+     * Registers the accounts of a map; <tt>G</tt> or <tt>places</tt> may be
+     * <tt>null</tt> when only the other is loaded. Strings and graph sizes are
+     * estimated when a report is asked, so the accounts follow a graph that grows.
+     */
+    public static void register(MemoryBudget budget, final Graph G, final List<Place> places) {
+        if (G != null) {
+            budget.register(ADJACENCY, MemoryBudget.Kind.PINNED, new Pinned() {
+                @Override
+                public long estimateBytes() {
+                    return G.estimateAdjacencyBytes();
+                }
+            });
+            budget.register(BEACONS, MemoryBudget.Kind.PINNED, new Pinned() {
+                @Override
+                public long estimateBytes() {
+                    return G.estimateBeaconBytes();
+                }
+            });
+        }
+        if (places != null) {
+            budget.register(PLACES, MemoryBudget.Kind.PINNED, new Pinned() {
+                @Override
+                public long estimateBytes() {
+                    return places(places);
+                }
+            });
+        }
+        budget.register(STRINGS, MemoryBudget.Kind.PINNED, new Pinned() {
+            @Override
+            public long estimateBytes() {
+                return strings(G, places);
+            }
+        });
+    }
+
+    /**
+     * @return the estimated bytes of a place list and its places, not counting their strings
+     */
+    public static long places(List<Place> places) {
+        return MemorySizes.arrayList(places.size()) + places.size() * MemorySizes.object(2 * MemorySizes.REFERENCE);
+    }
+
+    /**
+     * @return the estimated bytes of the strings of the beacons of <tt>G</tt> and of
+     *         <tt>places</tt>; either may be <tt>null</tt>. A string shared by
+     *         several beacons or places, as the {@link com.northteam.indoororientation.model.XmlParser}
+     *         interns them, is counted once.
+     */
+    public static long strings(Graph G, List<Place> places) {
+        Map<String, Boolean> counted = new IdentityHashMap<String, Boolean>();
+        long bytes = 0;
+        if (G != null) {
+            for (int v = 0; v < G.getV(); v++) {
+                Beacon b = G.getBeacon(v);
+                if (b == null) continue;
+                bytes += string(counted, b.getUiniqueId()) + string(counted, b.getName())
+                        + string(counted, b.getNamePlace());
+            }
+        }
+        if (places != null) {
+            for (Place p : places)
+                bytes += string(counted, p.getId()) + string(counted, p.getName());
+        }
+        return bytes;
+    }
+
+    // the bytes of s, unless it was counted already
+    private static long string(Map<String, Boolean> counted, String s) {
+        if (s == null || counted.put(s, Boolean.TRUE) != null) return 0;
+        return MemorySizes.string(s);
+    }
+
+    private abstract static class Pinned implements MemoryBudget.Account {
+        @Override
+        public long release(long bytes) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,193 @@
+package com.northteam.indoororientation.memory;
+
+import com.northteam.indoororientation.metrics.Counter;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Accounts for the memory of the big structures of the app and keeps their
+ * total under a budget.
+ * <p>
+ * Every structure is registered as an {@link Account} under a name and a
+ * {@link Kind}. {@link #report} estimates the bytes of all of them, so that a
+ * crash for lack of memory can be traced to the structure that grew.
+ * {@link #enforce} releases memory when the total is over the budget: caches
+ * first, then cold data that can be rebuilt, in each kind the biggest account
+ * first, until the total fits. Pinned structures, like the map itself, are only
+ * reported.
+ * <p>
+ * Accounts are estimated and released on the thread that calls {@link #report}
+ * or {@link #enforce}; an account whose structure is used by another thread
+ * must release it in a way that thread can see, e.g. by clearing a volatile
+ * field.
+ */
+public class MemoryBudget {
+
+    private static final Counter RELEASED = MetricsRegistry.getDefault().counter("memory.released.bytes");
+    private static final Counter ENFORCED = MetricsRegistry.getDefault().counter("memory.enforced");
+
+    /**
+     * How an account is treated when the budget is exceeded, in the order they
+     * are released.
+     */
+    public enum Kind {
+        /**
+         * Kept only to answer faster, e.g. the cached shortest paths tree of a router.
+         */
+        CACHE,
+        /**
+         * Needed now and then and rebuilt when needed, e.g. the fuzzy matcher.
+         */
+        COLD,
+        /**
+         * Needed all the time; never released.
+         */
+        PINNED
+    }
+
+    /**
+     * A structure whose memory is accounted for.
+     */
+    public interface Account {
+        /**
+         * @return the estimated bytes the structure keeps alive
+         */
+        long estimateBytes();
+
+        /**
+         * Releases at least <tt>bytes</tt> if it can, e.g. by shrinking a cache,
+         * or everything it can. Never called for pinned accounts.
+         *
+         * @param  bytes how many bytes should be released
+         * @return the estimated bytes released
+         */
+        long release(long bytes);
+    }
+
+    private static class Entry {
+        final String name;
+        final Kind kind;
+        final Account account;
+        long bytes;
+
+        Entry(String name, Kind kind, Account account) {
+            this.name = name;
+            this.kind = kind;
+            this.account = account;
+        }
+    }
+
+    private final List<Entry> entries = new ArrayList<Entry>();
+    private volatile long budget;
+
+    /**
+     * @param budget the most bytes the accounts together should take
+     */
+    public MemoryBudget(long budget) {
+        setBudget(budget);
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    public void setBudget(long budget) {
+        if (budget < 0) throw new IllegalArgumentException("budget must be nonnegative");
+        this.budget = budget;
+    }
+
+    /**
+     * Registers a structure. An account registered again under the same name
+     * replaces the previous one.
+     */
+    public synchronized void register(String name, Kind kind, Account account) {
+        unregister(name);
+        entries.add(new Entry(name, kind, account));
+    }
+
+    public synchronized void unregister(String name) {
+        for (int i = 0; i < entries.size(); i++) {
+            if (entries.get(i).name.equals(name)) {
+                entries.remove(i);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Estimates every account.
+     *
+     * @return the bytes of every account and their total
+     */
+    public synchronized MemoryReport report() {
+        measure();
+        return snapshot(0);
+    }
+
+    /**
+     * Releases caches and cold data until the accounts fit in the budget.
+     *
+     * @return the accounts after releasing, with the bytes released
+     */
+    public synchronized MemoryReport enforce() {
+        return trimTo(budget);
+    }
+
+    /**
+     * Releases caches and cold data until the accounts take at most
+     * <tt>target</tt> bytes, e.g. 0 to release all of them when the system
+     * runs low on memory.
+     *
+     * @return the accounts after releasing, with the bytes released
+     */
+    public synchronized MemoryReport trimTo(long target) {
+        long total = measure();
+        if (total <= target) return snapshot(0);
+        ENFORCED.inc();
+
+        Entry[] order = entries.toArray(new Entry[entries.size()]);
+        Arrays.sort(order, new Comparator<Entry>() {
+            @Override
+            public int compare(Entry a, Entry b) {
+                if (a.kind != b.kind) return a.kind.compareTo(b.kind);
+                return Long.compare(b.bytes, a.bytes);
+            }
+        });
+        long released = 0;
+        for (Entry e : order) {
+            if (total - released <= target || e.kind == Kind.PINNED) break;
+            if (e.bytes == 0) continue;
+            released += e.account.release(total - released - target);
+        }
+        RELEASED.add(released);
+        measure();
+        return snapshot(released);
+    }
+
+    private long measure() {
+        long total = 0;
+        for (Entry e : entries) {
+            e.bytes = e.account.estimateBytes();
+            total += e.bytes;
+        }
+        return total;
+    }
+
+    private MemoryReport snapshot(long released) {
+        int n = entries.size();
+        String[] names = new String[n];
+        Kind[] kinds = new Kind[n];
+        long[] bytes = new long[n];
+        for (int i = 0; i < n; i++) {
+            Entry e = entries.get(i);
+            names[i] = e.name;
+            kinds[i] = e.kind;
+            bytes[i] = e.bytes;
+        }
+        return new MemoryReport(names, kinds, bytes, budget, released);
+    }
+}
@@ -0,0 +1,111 @@
+package com.northteam.indoororientation.memory;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * The estimated bytes of every account of a {@link MemoryBudget} at one moment.
+ */
+public class MemoryReport {
+
+    private final String[] names;
+    private final MemoryBudget.Kind[] kinds;
+    private final long[] bytes;
+    private final long budget;
+    private final long released;
+    private final long total;
+
+    MemoryReport(String[] names, MemoryBudget.Kind[] kinds, long[] bytes, long budget, long released) {
+        this.names = names;
+        this.kinds = kinds;
+        this.bytes = bytes;
+        this.budget = budget;
+        this.released = released;
+        long sum = 0;
+        for (long b : bytes) sum += b;
+        this.total = sum;
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    public String getName(int i) {
+        return names[i];
+    }
+
+    public MemoryBudget.Kind getKind(int i) {
+        return kinds[i];
+    }
+
+    public long getBytes(int i) {
+        return bytes[i];
+    }
+
+    /**
+     * @return the bytes of the account with the given name; 0 if there is none
+     */
+    public long getBytes(String name) {
+        for (int i = 0; i < names.length; i++)
+            if (names[i].equals(name)) return bytes[i];
+        return 0;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    public long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the bytes released to make this report fit the budget
+     */
+    public long getReleased() {
+        return released;
+    }
+
+    public boolean isOverBudget() {
+        return total > budget;
+    }
+
+    /**
+     * Writes the report as CSV, one row per account and a last row with the total.
+     * <pre>
+     * name,kind,bytes
+     * graph.adjacency,PINNED,1048576
+     * total,,1048576
+     * </pre>
+     */
+    public void writeTo(Writer out) throws IOException {
+        out.write("name,kind,bytes\n");
+        for (int i = 0; i < names.length; i++)
+            out.write(names[i] + "," + kinds[i] + "," + bytes[i] + "\n");
+        out.write("total,," + total + "\n");
+        out.flush();
+    }
+
+    public void writeTo(File file) throws IOException {
+        Writer out = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder s = new StringBuilder();
+        s.append(String.format(Locale.US, "%.1f of %.1f KiB", total / 1024.0, budget / 1024.0));
+        if (released > 0) s.append(String.format(Locale.US, ", %.1f KiB released", released / 1024.0));
+        for (int i = 0; i < names.length; i++)
+            s.append(String.format(Locale.US, "; %s %.1f KiB", names[i], bytes[i] / 1024.0));
+        return s.toString();
+    }
+}
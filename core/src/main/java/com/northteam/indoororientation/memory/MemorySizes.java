@@ -0,0 +1,73 @@
+package com.northteam.indoororientation.memory;
+
+/**
+ * Estimates of the bytes taken by objects on the heap, for the layout of both
+ * ART and a 64-bit HotSpot with compressed references: 12 bytes of object
+ * header, 16 of array header, 4-byte references, and every object padded to a
+ * multiple of 8 bytes. The estimates are meant to compare structures and find
+ * the big ones, not to be exact.
+ */
+public final class MemorySizes {
+
+    public static final int OBJECT_HEADER = 12;
+    public static final int ARRAY_HEADER = 16;
+    public static final int REFERENCE = 4;
+
+    private MemorySizes() {
+    }
+
+    /**
+     * @param  fieldBytes the bytes of the fields of the object
+     * @return the bytes of an object with those fields
+     */
+    public static long object(long fieldBytes) {
+        return align(OBJECT_HEADER + fieldBytes);
+    }
+
+    /**
+     * @param  length the length of the array
+     * @param  elementBytes the bytes of one element, e.g. 4 for an <tt>int[]</tt>
+     *         or {@link #REFERENCE} for an array of objects
+     * @return the bytes of the array, not counting the objects it refers to
+     */
+    public static long array(long length, int elementBytes) {
+        return align(ARRAY_HEADER + length * elementBytes);
+    }
+
+    /**
+     * @return the bytes of a string and its characters; 0 for <tt>null</tt>
+     */
+    public static long string(String s) {
+        if (s == null) return 0;
+        return object(REFERENCE + 4 + 4) + array(s.length(), 2);
+    }
+
+    /**
+     * @return the bytes of an <tt>ArrayList</tt> with room for <tt>capacity</tt>
+     *         items, not counting the items
+     */
+    public static long arrayList(int capacity) {
+        return object(REFERENCE + 4 + 4) + array(capacity, REFERENCE);
+    }
+
+    /**
+     * @return the bytes of a <tt>HashMap</tt> with <tt>n</tt> entries, not counting
+     *         the keys and values
+     */
+    public static long hashMap(int n) {
+        int table = Integer.highestOneBit(Math.max(1, (int) (n / 0.75f)) * 2 - 1);
+        return object(6 * REFERENCE + 4 * 4) + array(table, REFERENCE) + n * object(3 * REFERENCE + 4);
+    }
+
+    /**
+     * @return the bytes of a <tt>TreeMap</tt> with <tt>n</tt> entries, not counting
+     *         the keys and values
+     */
+    public static long treeMap(int n) {
+        return object(5 * REFERENCE + 2 * 4) + n * object(5 * REFERENCE + 1);
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
+}
@@ -0,0 +1,55 @@
+package com.northteam.indoororientation.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A counter that can be incremented from many threads at once. The count is
+ * spread over several cells, each on its own cache line, and a thread always
+ * adds to the cell picked by its id, so threads rarely fight over the same cell.
+ * Reading the count sums the cells.
+ */
+public class Counter {
+
+    // longs per cache line, so that cells do not share one
+    private static final int PAD = 8;
+
+    private final String name;
+    private final AtomicLongArray cells;
+    private final int mask;
+
+    Counter(String name) {
+        this.name = name;
+        int stripes = 1;
+        while (stripes < 2 * Runtime.getRuntime().availableProcessors()) stripes <<= 1;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        this.mask = stripes - 1;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void inc() {
+        add(1);
+    }
+
+    public void add(long n) {
+        cells.getAndAdd(cell(), n);
+    }
+
+    private int cell() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return ((h >>> 16) & mask) * PAD;
+    }
+
+    /**
+     * @return the count; not a snapshot if other threads are adding at the same time
+     */
+    public long get() {
+        long sum = 0;
+        for (int i = 0; i < cells.length(); i += PAD)
+            sum += cells.get(i);
+        return sum;
+    }
+}
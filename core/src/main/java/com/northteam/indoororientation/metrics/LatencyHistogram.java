@@ -0,0 +1,175 @@
+package com.northteam.indoororientation.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, with a fixed set of log-linear
+ * buckets: every power of two is split in 8 buckets, so a recorded value is
+ * off by at most 12.5% and the whole range of a <tt>long</tt> fits in 488
+ * buckets. Recording takes constant time, does not allocate and can be done
+ * from any thread.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB = 1 << SUB_BITS;
+    static final int BUCKETS = (64 - SUB_BITS) * SUB;
+
+    private final String name;
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Records one latency; negative values count as 0.
+     *
+     * @param nanos the latency in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) nanos = 0;
+        buckets.getAndIncrement(bucketOf(nanos));
+        count.getAndIncrement();
+        sum.getAndAdd(nanos);
+        long m = max.get();
+        while (nanos > m && !max.compareAndSet(m, nanos))
+            m = max.get();
+    }
+
+    /**
+     * Records the time elapsed since <tt>startNanos</tt>, as given by {@link System#nanoTime}.
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public void record(long duration, TimeUnit unit) {
+        record(unit.toNanos(duration));
+    }
+
+    static int bucketOf(long v) {
+        if (v < SUB) return (int) v;
+        int e = 63 - Long.numberOfLeadingZeros(v);
+        int sub = (int) (v >>> (e - SUB_BITS)) & (SUB - 1);
+        return (e - SUB_BITS + 1) * SUB + sub;
+    }
+
+    // smallest value that falls in bucket i
+    static long lowerBound(int i) {
+        if (i < SUB) return i;
+        int e = i / SUB + SUB_BITS - 1;
+        return (long) (SUB + i % SUB) << (e - SUB_BITS);
+    }
+
+    // largest value that falls in bucket i
+    static long upperBound(int i) {
+        return i == BUCKETS - 1 ? Long.MAX_VALUE : lowerBound(i + 1) - 1;
+    }
+
+    /**
+     * Copies the histogram. Values recorded while copying may be missing from
+     * the copy, or be in the buckets but not yet in the count.
+     *
+     * @return the copy
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            copy[i] = buckets.get(i);
+        return new Snapshot(name, copy, count.get(), sum.get(), max.get());
+    }
+
+    /**
+     * An immutable copy of a {@link LatencyHistogram}.
+     */
+    public static class Snapshot {
+        private final String name;
+        private final long[] buckets;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        Snapshot(String name, long[] buckets, long count, long sum, long max) {
+            this.name = name;
+            this.buckets = buckets;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public double getMean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * Returns the latency below which the given percentage of the values fall,
+         * as the upper end of its bucket.
+         *
+         * @param  percentile between 0 and 100
+         * @return the latency in nanoseconds; 0 if nothing was recorded
+         */
+        public long getValueAtPercentile(double percentile) {
+            long total = 0;
+            for (long b : buckets) total += b;
+            if (total == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= rank) return Math.min(upperBound(i), max);
+            }
+            return max;
+        }
+
+        /**
+         * @return the number of buckets, for {@link #getBucketCount} and {@link #getBucketUpperBound}
+         */
+        public int getBuckets() {
+            return buckets.length;
+        }
+
+        public long getBucketCount(int i) {
+            return buckets[i];
+        }
+
+        public long getBucketUpperBound(int i) {
+            return upperBound(i);
+        }
+
+        /**
+         * Adds two snapshots up, e.g. of histograms kept by different threads so
+         * that they do not contend on the same counters.
+         *
+         * @param  other the other snapshot
+         * @return a snapshot named like this one with the values of both
+         */
+        public Snapshot merge(Snapshot other) {
+            long[] merged = new long[buckets.length];
+            for (int i = 0; i < merged.length; i++)
+                merged[i] = buckets[i] + other.buckets[i];
+            return new Snapshot(name, merged, count + other.count, sum + other.sum, Math.max(max, other.max));
+        }
+    }
+}
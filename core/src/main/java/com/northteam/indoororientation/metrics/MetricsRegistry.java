@@ -0,0 +1,76 @@
+package com.northteam.indoororientation.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The counters and latency histograms of the app, by name.
+ * <p>
+ * Looking a metric up by name goes through a map, so instrumented code should
+ * look its metrics up once and keep them in fields; updating a metric never
+ * allocates.
+ */
+public class MetricsRegistry {
+
+    private static final MetricsRegistry DEFAULT = new MetricsRegistry();
+
+    private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+    private final ConcurrentMap<String, LatencyHistogram> histograms =
+            new ConcurrentHashMap<String, LatencyHistogram>();
+
+    /**
+     * @return the registry the app's own code reports to
+     */
+    public static MetricsRegistry getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Returns the counter with the given name, creating it the first time.
+     */
+    public Counter counter(String name) {
+        Counter c = counters.get(name);
+        if (c == null) {
+            Counter created = new Counter(name);
+            c = counters.putIfAbsent(name, created);
+            if (c == null) c = created;
+        }
+        return c;
+    }
+
+    /**
+     * Returns the histogram with the given name, creating it the first time.
+     */
+    public LatencyHistogram histogram(String name) {
+        LatencyHistogram h = histograms.get(name);
+        if (h == null) {
+            LatencyHistogram created = new LatencyHistogram(name);
+            h = histograms.putIfAbsent(name, created);
+            if (h == null) h = created;
+        }
+        return h;
+    }
+
+    /**
+     * Copies every metric. Each metric is copied on its own, so metrics updated
+     * while copying may be off from each other by the updates in flight.
+     *
+     * @param  timeMillis the time to stamp the snapshot with
+     * @return the copy
+     */
+    public MetricsSnapshot snapshot(long timeMillis) {
+        List<Counter> cs = new ArrayList<Counter>(counters.values());
+        String[] names = new String[cs.size()];
+        long[] values = new long[cs.size()];
+        for (int i = 0; i < names.length; i++) {
+            names[i] = cs.get(i).getName();
+            values[i] = cs.get(i).get();
+        }
+        List<LatencyHistogram.Snapshot> hs = new ArrayList<LatencyHistogram.Snapshot>();
+        for (LatencyHistogram h : histograms.values())
+            hs.add(h.snapshot());
+        return new MetricsSnapshot(timeMillis, names, values, hs);
+    }
+}
@@ -0,0 +1,113 @@
+package com.northteam.indoororientation.metrics;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * An immutable copy of the metrics of a {@link MetricsRegistry}, that can be
+ * written to a CSV file for offline analysis. The file has one line per counter,
+ * one summary line per histogram and one line per non-empty histogram bucket:
+ * <pre>
+ * # metrics,&lt;time in millis&gt;
+ * counter,&lt;name&gt;,&lt;value&gt;
+ * histogram,&lt;name&gt;,&lt;count&gt;,&lt;mean&gt;,&lt;p50&gt;,&lt;p90&gt;,&lt;p99&gt;,&lt;max&gt;
+ * bucket,&lt;name&gt;,&lt;upper bound&gt;,&lt;count&gt;
+ * </pre>
+ * Latencies are in nanoseconds; lines are sorted by name.
+ */
+public class MetricsSnapshot {
+
+    private final long timeMillis;
+    private final String[] counterNames;
+    private final long[] counterValues;
+    private final List<LatencyHistogram.Snapshot> histograms;
+
+    MetricsSnapshot(long timeMillis, String[] counterNames, long[] counterValues,
+                    List<LatencyHistogram.Snapshot> histograms) {
+        this.timeMillis = timeMillis;
+        this.counterNames = counterNames;
+        this.counterValues = counterValues;
+        this.histograms = new ArrayList<LatencyHistogram.Snapshot>(histograms);
+        Collections.sort(this.histograms, new Comparator<LatencyHistogram.Snapshot>() {
+            @Override
+            public int compare(LatencyHistogram.Snapshot a, LatencyHistogram.Snapshot b) {
+                return a.getName().compareTo(b.getName());
+            }
+        });
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return the value of the counter; 0 if there is no such counter
+     */
+    public long getCounter(String name) {
+        for (int i = 0; i < counterNames.length; i++)
+            if (counterNames[i].equals(name)) return counterValues[i];
+        return 0;
+    }
+
+    /**
+     * @return the copy of the histogram; <tt>null</tt> if there is no such histogram
+     */
+    public LatencyHistogram.Snapshot getHistogram(String name) {
+        for (LatencyHistogram.Snapshot h : histograms)
+            if (h.getName().equals(name)) return h;
+        return null;
+    }
+
+    public List<LatencyHistogram.Snapshot> getHistograms() {
+        return Collections.unmodifiableList(histograms);
+    }
+
+    /**
+     * Writes the snapshot as CSV. The writer is not closed.
+     */
+    public void writeTo(Writer out) throws IOException {
+        out.write("# metrics," + timeMillis + "\n");
+
+        Integer[] order = new Integer[counterNames.length];
+        for (int i = 0; i < order.length; i++) order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return counterNames[a].compareTo(counterNames[b]);
+            }
+        });
+        for (int i : order)
+            out.write("counter," + counterNames[i] + "," + counterValues[i] + "\n");
+
+        for (LatencyHistogram.Snapshot h : histograms) {
+            out.write("histogram," + h.getName() + "," + h.getCount() + "," + Math.round(h.getMean())
+                    + "," + h.getValueAtPercentile(50) + "," + h.getValueAtPercentile(90)
+                    + "," + h.getValueAtPercentile(99) + "," + h.getMax() + "\n");
+            for (int i = 0; i < h.getBuckets(); i++) {
+                if (h.getBucketCount(i) == 0) continue;
+                out.write("bucket," + h.getName() + "," + h.getBucketUpperBound(i) + "," + h.getBucketCount(i) + "\n");
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot as CSV to a file, replacing it.
+     */
+    public void writeTo(File file) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+}
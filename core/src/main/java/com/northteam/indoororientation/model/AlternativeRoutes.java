@@ -0,0 +1,282 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Finds the shortest route between two vertices and up to <em>k</em> - 1
+ * alternatives to it, e.g. to send part of a crowd another way.
+ * <p>
+ * Every alternative goes through a via vertex <em>v</em>: it is the shortest path
+ * from the source to <em>v</em> followed by the shortest path from <em>v</em> to
+ * the target. Both halves are read from two shortest paths trees, one rooted at
+ * each end, so the trees are computed once however many alternatives are asked.
+ * Via vertices are tried by increasing length of their route, and a route is kept
+ * only if
+ * <ul>
+ * <li>it is at most <tt>maxStretch</tt> times as long as the shortest route,</li>
+ * <li>it does not visit a vertex twice, and</li>
+ * <li>at most <tt>maxShare</tt> of its length is shared with any route kept before.</li>
+ * </ul>
+ * The vertices of kept routes are not tried, as they would give those routes
+ * back, and of the vertices of a plateau (a path on both trees, which gives
+ * one route through any of its vertices) only the one nearest the source is.
+ * The length a tree path shares with a kept route is the length its parent's
+ * path shares plus its last edge, so it is remembered per vertex, and checking a
+ * via vertex costs nearly nothing once its tree neighbours were checked. The
+ * arrays are stamped per query, so they are not cleared.
+ * <p>
+ * This class is not thread safe.
+ */
+public class AlternativeRoutes {
+
+    public static final float DEFAULT_MAX_STRETCH = 1.5f;
+    public static final float DEFAULT_MAX_SHARE = 0.7f;
+
+    private static final LatencyHistogram QUERY = MetricsRegistry.getDefault().histogram("route.alternatives");
+
+    private final Graph G;
+    private final float maxStretch;
+    private final float maxShare;
+    private final int[] mark;    // vertex visited by the half from the source if mark[v] == stamp
+    private int stamp;
+    private final int[] onRoute; // vertex on a route kept by this query if onRoute[v] == query
+    private int query;
+    private Edge[][] routeEdge = new Edge[0][]; // routeEdge[r][v] = edge of kept route r leaving v,
+    private int[][] routeStamp = new int[0][];  // if routeStamp[r][v] == query
+    private Shared[] shared = new Shared[0];    // per kept route, 2r for the forward tree, 2r+1 backward
+    private final int[] stack;
+
+    public AlternativeRoutes(Graph G) {
+        this(G, DEFAULT_MAX_STRETCH, DEFAULT_MAX_SHARE);
+    }
+
+    /**
+     * @param G          the graph
+     * @param maxStretch how many times longer than the shortest an alternative can be
+     * @param maxShare   the fraction of the length of an alternative that can be
+     *                   shared with another route
+     * @throws IllegalArgumentException if <tt>maxStretch</tt> is less than 1 or
+     *         <tt>maxShare</tt> is not between 0 and 1
+     */
+    public AlternativeRoutes(Graph G, float maxStretch, float maxShare) {
+        if (!(maxStretch >= 1)) throw new IllegalArgumentException("maxStretch must be at least 1");
+        if (!(maxShare >= 0 && maxShare <= 1)) throw new IllegalArgumentException("maxShare must be between 0 and 1");
+        this.G = G;
+        this.maxStretch = maxStretch;
+        this.maxShare = maxShare;
+        this.mark = new int[G.getV()];
+        this.onRoute = new int[G.getV()];
+        this.stack = new int[G.getV()];
+    }
+
+    // the length of the tree path from the root to every vertex that is on one kept route
+    private static class Shared {
+        final float[] length;
+        final int[] stamp;   // length[v] is valid if stamp[v] == query
+
+        Shared(int V) {
+            length = new float[V];
+            stamp = new int[V];
+        }
+    }
+
+    /**
+     * A route found by {@link #routes}.
+     */
+    public static class Route {
+        private final List<Edge> edges;
+        private final float distance;
+        private final int via;
+
+        Route(List<Edge> edges, float distance, int via) {
+            this.edges = edges;
+            this.distance = distance;
+            this.via = via;
+        }
+
+        /**
+         * @return the edges of the route in walking order
+         */
+        public List<Edge> getEdges() {
+            return edges;
+        }
+
+        public float getDistance() {
+            return distance;
+        }
+
+        /**
+         * @return the via vertex of the route; the source for the shortest route
+         */
+        public int getVia() {
+            return via;
+        }
+    }
+
+    /**
+     * Returns the shortest route between two vertices followed by at most
+     * <tt>k</tt> - 1 alternatives, shortest first.
+     *
+     * @param  from the vertex where the user is
+     * @param  to the destination vertex
+     * @param  k the most routes to return
+     * @param  profile the edges that can be used
+     * @return the routes; empty if <tt>to</tt> can not be reached from <tt>from</tt>
+     * @throws IndexOutOfBoundsException unless both vertices are between 0 and V-1
+     */
+    public List<Route> routes(int from, int to, int k, RouteProfile profile) {
+        long start = System.nanoTime();
+        List<Route> routes = new ArrayList<Route>();
+        DijkstraSP forward = new DijkstraSP(G, from, profile);
+        if (k <= 0 || !forward.hasPathTo(to)) {
+            QUERY.recordSince(start);
+            return routes;
+        }
+        float shortest = forward.distTo(to);
+        routes.add(new Route(path(forward, null, to), shortest, from));
+        if (k == 1 || from == to) {
+            QUERY.recordSince(start);
+            return routes;
+        }
+        DijkstraSP backward = new DijkstraSP(G, to, profile);
+
+        // via vertices short enough, by increasing length of their route; the
+        // lengths are nonnegative so their bits sort like them
+        float limit = shortest * maxStretch;
+        long[] candidates = new long[G.getV()];
+        int n = 0;
+        for (int v = 0; v < G.getV(); v++) {
+            float d = forward.distTo(v) + backward.distTo(v);
+            if (d <= limit && v != from && v != to && !samePlateau(forward, backward, v))
+                candidates[n++] = ((long) Float.floatToIntBits(d) << 32) | v;
+        }
+        Arrays.sort(candidates, 0, n);
+
+        query++;
+        if (routeEdge.length < k) {
+            routeEdge = Arrays.copyOf(routeEdge, k);
+            routeStamp = Arrays.copyOf(routeStamp, k);
+            Shared[] grown = new Shared[2 * k];
+            System.arraycopy(shared, 0, grown, 0, shared.length);
+            for (int i = shared.length; i < grown.length; i++) grown[i] = new Shared(G.getV());
+            shared = grown;
+        }
+        keep(0, from, routes.get(0).getEdges());
+
+        for (int i = 0; i < n && routes.size() < k; i++) {
+            int v = (int) candidates[i];
+            if (onRoute[v] == query) continue;
+            float length = Float.intBitsToFloat((int) (candidates[i] >>> 32));
+            if (tooShared(forward, backward, v, length, routes.size()) || !simple(forward, backward, v)) continue;
+            List<Edge> edges = path(forward, backward, v);
+            keep(routes.size(), from, edges);
+            routes.add(new Route(edges, length, v));
+        }
+        QUERY.recordSince(start);
+        return routes;
+    }
+
+    // true if the last edge to v from the source is also on the path from its other end
+    // to the target: both vertices are on one plateau and give the same route
+    private static boolean samePlateau(DijkstraSP forward, DijkstraSP backward, int v) {
+        Edge e = forward.edgeTo(v);
+        return e != null && backward.edgeTo(e.other(v)) == e;
+    }
+
+    // true if the two halves through v do not meet before v
+    private boolean simple(DijkstraSP forward, DijkstraSP backward, int v) {
+        stamp++;
+        int x = v;
+        mark[x] = stamp;
+        for (Edge e = forward.edgeTo(x); e != null; e = forward.edgeTo(x)) {
+            x = e.other(x);
+            mark[x] = stamp;
+        }
+        x = v;
+        for (Edge e = backward.edgeTo(x); e != null; e = backward.edgeTo(x)) {
+            x = e.other(x);
+            if (mark[x] == stamp) return false;
+        }
+        return true;
+    }
+
+    // remembers the vertices and edges of kept route r
+    private void keep(int r, int from, List<Edge> edges) {
+        if (routeEdge[r] == null) {
+            routeEdge[r] = new Edge[G.getV()];
+            routeStamp[r] = new int[G.getV()];
+        }
+        int x = from;
+        onRoute[x] = query;
+        for (Edge e : edges) {
+            routeEdge[r][x] = e;
+            routeStamp[r][x] = query;
+            x = e.other(x);
+            onRoute[x] = query;
+        }
+    }
+
+    // true if more than maxShare of the route through v is on one of the kept routes
+    private boolean tooShared(DijkstraSP forward, DijkstraSP backward, int v, float length, int kept) {
+        for (int r = 0; r < kept; r++) {
+            float on = sharedTo(forward, r, shared[2 * r], v) + sharedTo(backward, r, shared[2 * r + 1], v);
+            if (on > maxShare * length) return true;
+        }
+        return false;
+    }
+
+    // the length of the tree path from v to the root that is on kept route r
+    private float sharedTo(DijkstraSP tree, int r, Shared memo, int v) {
+        int n = 0;
+        int x = v;
+        while (memo.stamp[x] != query) {
+            Edge e = tree.edgeTo(x);
+            if (e == null) {
+                memo.length[x] = 0f;
+                memo.stamp[x] = query;
+                break;
+            }
+            stack[n++] = x;
+            x = e.other(x);
+        }
+        float length = memo.length[x];
+        while (n > 0) {
+            int y = stack[--n];
+            Edge e = tree.edgeTo(y);
+            if (isOnRoute(r, y, e) || isOnRoute(r, e.other(y), e)) length += e.getWeight();
+            memo.length[y] = length;
+            memo.stamp[y] = query;
+        }
+        return length;
+    }
+
+    private boolean isOnRoute(int r, int x, Edge e) {
+        return routeStamp[r][x] == query && routeEdge[r][x] == e;
+    }
+
+    // the path from the source of forward to v, then from v to the source of backward
+    private static List<Edge> path(DijkstraSP forward, DijkstraSP backward, int v) {
+        Deque<Edge> head = new ArrayDeque<Edge>();
+        int x = v;
+        for (Edge e = forward.edgeTo(x); e != null; e = forward.edgeTo(x)) {
+            head.push(e);
+            x = e.other(x);
+        }
+        List<Edge> edges = new ArrayList<Edge>(head);
+        if (backward != null) {
+            x = v;
+            for (Edge e = backward.edgeTo(x); e != null; e = backward.edgeTo(x)) {
+                edges.add(e);
+                x = e.other(x);
+            }
+        }
+        return edges;
+    }
+}
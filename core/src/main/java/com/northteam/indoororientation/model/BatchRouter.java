@@ -0,0 +1,268 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Answers many shortest distance queries at once, for precomputed distance
+ * tables and analytics.
+ * <p>
+ * The queries are grouped by source, and every distinct source is searched once
+ * with Dijkstra's algorithm, stopping as soon as all the targets asked from that
+ * source are settled. The sources are spread over a fork/join pool. The graph is
+ * copied at construction into flat arrays, so later changes to it are not seen;
+ * give it a frozen graph.
+ */
+public class BatchRouter {
+
+    private static final LatencyHistogram BATCHES = MetricsRegistry.getDefault().histogram("batch.query");
+
+    private static ForkJoinPool defaultPool;
+
+    private final int V;
+    private final int[] start;      // edges of v are at start[v] .. start[v+1]-1
+    private final int[] to;
+    private final float[] weight;
+    private final ForkJoinPool pool;
+    private final ThreadLocal<Search> searches = new ThreadLocal<Search>() {
+        @Override
+        protected Search initialValue() {
+            return new Search();
+        }
+    };
+
+    /**
+     * Uses a pool shared by every batch router, with one thread per processor.
+     */
+    public BatchRouter(Graph G) {
+        this(G, defaultPool());
+    }
+
+    public BatchRouter(Graph G, ForkJoinPool pool) {
+        this.V = G.getV();
+        this.pool = pool;
+        start = new int[V + 1];
+        for (int v = 0; v < V; v++) {
+            int degree = 0;
+            for (Edge e : G.adj(v)) degree++;
+            start[v + 1] = start[v] + degree;
+        }
+        to = new int[start[V]];
+        weight = new float[start[V]];
+        for (int v = 0; v < V; v++) {
+            int i = start[v];
+            for (Edge e : G.adj(v)) {
+                if (e.getWeight() < 0)
+                    throw new IllegalArgumentException("edge " + v + "-" + e.other(v) + " has negative weight");
+                to[i] = e.other(v);
+                weight[i++] = e.getWeight();
+            }
+        }
+    }
+
+    private static synchronized ForkJoinPool defaultPool() {
+        if (defaultPool == null) defaultPool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        return defaultPool;
+    }
+
+    /**
+     * Returns the shortest distance of every pair <tt>from[i]</tt>, <tt>to[i]</tt>.
+     *
+     * @param  from the source of every pair
+     * @param  to   the target of every pair
+     * @return the distances, in the order of the pairs;
+     *         <tt>Float.POSITIVE_INFINITY</tt> where the target can not be reached
+     * @throws IllegalArgumentException if the arrays do not have the same length
+     * @throws IndexOutOfBoundsException unless every vertex is between 0 and V-1
+     */
+    public float[] distances(int[] from, int[] to) {
+        if (from.length != to.length) throw new IllegalArgumentException("from and to differ in length");
+        long begin = System.nanoTime();
+        int n = from.length;
+        // sort the pairs by source, keeping their position
+        long[] pairs = new long[n];
+        for (int i = 0; i < n; i++) {
+            validateVertex(from[i]);
+            validateVertex(to[i]);
+            pairs[i] = ((long) from[i] << 32) | i;
+        }
+        Arrays.sort(pairs);
+
+        Jobs jobs = new Jobs(n);
+        for (int k = 0; k < n; k++) {
+            int i = (int) pairs[k];
+            if (k == 0 || from[(int) pairs[k - 1]] != from[i]) jobs.addSource(from[i]);
+            jobs.addTarget(to[i], i);
+        }
+        float[] result = new float[n];
+        run(jobs.finish(), result);
+        BATCHES.recordSince(begin);
+        return result;
+    }
+
+    /**
+     * Returns the shortest distance from every source to every target.
+     *
+     * @param  sources the sources, one row each
+     * @param  targets the targets, one column each
+     * @return <tt>result[i][j]</tt> is the distance from <tt>sources[i]</tt> to
+     *         <tt>targets[j]</tt>; <tt>Float.POSITIVE_INFINITY</tt> if it can not be reached
+     * @throws IndexOutOfBoundsException unless every vertex is between 0 and V-1
+     */
+    public float[][] matrix(int[] sources, int[] targets) {
+        long begin = System.nanoTime();
+        int S = sources.length;
+        int T = targets.length;
+        for (int s : sources) validateVertex(s);
+        for (int t : targets) validateVertex(t);
+
+        // a source that is asked twice is searched once, its row copied afterwards
+        int[] firstRow = new int[V];
+        Arrays.fill(firstRow, -1);
+        Jobs jobs = new Jobs(S * T);
+        for (int i = 0; i < S; i++) {
+            if (firstRow[sources[i]] >= 0) continue;
+            firstRow[sources[i]] = i;
+            jobs.addSource(sources[i]);
+            for (int j = 0; j < T; j++) jobs.addTarget(targets[j], i * T + j);
+        }
+        float[] flat = new float[S * T];
+        run(jobs.finish(), flat);
+
+        float[][] result = new float[S][T];
+        for (int i = 0; i < S; i++)
+            System.arraycopy(flat, firstRow[sources[i]] * T, result[i], 0, T);
+        BATCHES.recordSince(begin);
+        return result;
+    }
+
+    private void run(Jobs jobs, float[] result) {
+        int threshold = Math.max(1, jobs.sources / (8 * pool.getParallelism()));
+        pool.invoke(new SourceRange(jobs, result, 0, jobs.sources, threshold));
+    }
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    // the distinct sources, each with the targets asked from it and where to write their distances
+    private static class Jobs {
+        int sources;
+        int[] source;
+        int[] first;       // targets of source k are at first[k] .. first[k+1]-1
+        final int[] target;
+        final int[] slot;
+        int targets;
+
+        Jobs(int capacity) {
+            source = new int[16];
+            first = new int[17];
+            target = new int[capacity];
+            slot = new int[capacity];
+        }
+
+        void addSource(int s) {
+            if (sources == source.length) {
+                source = Arrays.copyOf(source, 2 * sources);
+                first = Arrays.copyOf(first, 2 * sources + 1);
+            }
+            first[sources] = targets;
+            source[sources++] = s;
+        }
+
+        void addTarget(int t, int where) {
+            target[targets] = t;
+            slot[targets++] = where;
+        }
+
+        Jobs finish() {
+            first[sources] = targets;
+            return this;
+        }
+    }
+
+    private class SourceRange extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final Jobs jobs;
+        private final float[] result;
+        private final int lo;
+        private final int hi;
+        private final int threshold;
+
+        SourceRange(Jobs jobs, float[] result, int lo, int hi, int threshold) {
+            this.jobs = jobs;
+            this.result = result;
+            this.lo = lo;
+            this.hi = hi;
+            this.threshold = threshold;
+        }
+
+        @Override
+        protected void compute() {
+            if (hi - lo <= threshold) {
+                Search search = searches.get();
+                for (int k = lo; k < hi; k++)
+                    search.run(jobs, k, result);
+                return;
+            }
+            int mid = (lo + hi) >>> 1;
+            invokeAll(new SourceRange(jobs, result, lo, mid, threshold),
+                    new SourceRange(jobs, result, mid, hi, threshold));
+        }
+    }
+
+    // the arrays of one search, reused by the same thread
+    private class Search {
+        final IndexMinPQ pq = new IndexMinPQ(V);
+        final float[] distTo = new float[V];
+        final int[] seen = new int[V];      // distTo[v] is valid if seen[v] == run
+        final int[] wanted = new int[V];    // v is a target of this run if wanted[v] == run
+        int run;
+
+        void run(Jobs jobs, int k, float[] result) {
+            run++;
+            int s = jobs.source[k];
+            int remaining = 0;
+            for (int i = jobs.first[k]; i < jobs.first[k + 1]; i++) {
+                int t = jobs.target[i];
+                if (wanted[t] != run) {
+                    wanted[t] = run;
+                    remaining++;
+                }
+            }
+
+            pq.clear();
+            seen[s] = run;
+            distTo[s] = 0f;
+            pq.insert(s, 0f);
+            while (!pq.isEmpty() && remaining > 0) {
+                int v = pq.delMin();
+                if (wanted[v] == run) remaining--;
+                float d = distTo[v];
+                for (int i = start[v]; i < start[v + 1]; i++) {
+                    int w = to[i];
+                    float dw = d + weight[i];
+                    if (seen[w] != run) {
+                        seen[w] = run;
+                        distTo[w] = dw;
+                        pq.insert(w, dw);
+                    } else if (dw < distTo[w] && pq.contains(w)) {
+                        distTo[w] = dw;
+                        pq.decreaseKey(w, dw);
+                    }
+                }
+            }
+
+            for (int i = jobs.first[k]; i < jobs.first[k + 1]; i++) {
+                int t = jobs.target[i];
+                result[jobs.slot[i]] = seen[t] == run ? distTo[t] : Float.POSITIVE_INFINITY;
+            }
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * @author beatrizgomes
+ * Date 11/05/2016
+ */
+public class Beacon {
+
+    int id;
+    private String uiniqueId;
+    private String name;
+    private String namePlace;
+    private List<Edge> adj = new ArrayList<Edge>();
+    private List<NearPlace> adjNear = new ArrayList<NearPlace>();  // both read-only views once frozen
+    private boolean frozen; // part of a published map
+
+    public Beacon(int id, String uiniqueId, String name, String namePlace) {
+        this.id = id;
+        this.uiniqueId = uiniqueId;
+        this.name = name;
+        this.namePlace = namePlace;
+    }
+
+    /**
+     * Lists an edge of this beacon, as read from the map file. Edges listed twice
+     * are kept once by the {@link GraphBuilder}.
+     *
+     * @param  e the edge
+     */
+    public void addAdj(Edge e) {
+        checkNotFrozen();
+        adj.add(e);
+    }
+
+    /**
+     * Lists a place that can be seen from this beacon. Places listed twice are
+     * kept once by the {@link GraphBuilder}.
+     *
+     * @param  np the near place
+     */
+    public void addAdjNear(NearPlace np) {
+        checkNotFrozen();
+        adjNear.add(np);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Returns the edges listed for this beacon in the map file; once the beacon is
+     * part of a graph, the edges of the graph incident on it.
+     *
+     * @return the edges of this beacon; a list that can not be changed once the
+     *         beacon is frozen
+     */
+    public List<Edge> getAdj() {
+        return adj;
+    }
+
+    /**
+     * Returns the places that can be seen from this beacon.
+     *
+     * @return the near places of this beacon; a list that can not be changed
+     *         once the beacon is frozen
+     */
+    public List<NearPlace> getAdjNear() {
+        return adjNear;
+    }
+
+    public String getUiniqueId() {
+        return uiniqueId;
+    }
+
+    public void setUiniqueId(String uiniqueId) {
+        checkNotFrozen();
+        this.uiniqueId = uiniqueId;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        checkNotFrozen();
+        this.name = name;
+    }
+
+    public String getNamePlace() {
+        return namePlace;
+    }
+
+    public void setNamePlace(String namePlace) {
+        checkNotFrozen();
+        this.namePlace = namePlace;
+    }
+
+    // bytes of the beacon and its lists, not counting its strings and the edges, which belong to the graph
+    long estimateBytes() {
+        return MemorySizes.object(4 + 4 * MemorySizes.REFERENCE + 1)
+                + MemorySizes.arrayList(adj.size()) + MemorySizes.arrayList(adjNear.size())
+                + (frozen ? 2 * MemorySizes.object(2 * MemorySizes.REFERENCE) : 0)  // the views
+                + adjNear.size() * MemorySizes.object(4 + 4 + 2);
+    }
+
+    // copy that is not frozen, with the edges replaced by their copies where there is one
+    Beacon copy(Map<Edge, Edge> edges) {
+        Beacon b = new Beacon(id, uiniqueId, name, namePlace);
+        for (Edge e : adj) {
+            Edge c = edges.get(e);
+            b.adj.add(c != null ? c : new Edge(e.v, e.w, e.getWeight(), e.compass, e.attributes));
+        }
+        b.adjNear.addAll(adjNear);
+        return b;
+    }
+
+    // the lists of a beacon added to a GraphBuilder, without duplicates
+    void setLists(ArrayList<Edge> adj, ArrayList<NearPlace> adjNear) {
+        this.adj = adj;
+        this.adjNear = adjNear;
+    }
+
+    void freeze() {
+        if (frozen) return;
+        frozen = true;
+        for (Edge e : adj) e.freeze();
+        adj = Collections.unmodifiableList(adj);
+        adjNear = Collections.unmodifiableList(adjNear);
+    }
+
+    void checkNotFrozen() {
+        if (frozen) throw new IllegalStateException("beacon " + id + " belongs to a frozen graph");
+    }
+}
@@ -0,0 +1,91 @@
+package com.northteam.indoororientation.model;
+
+/**
+ * Conversions between the <tt>compass</tt> letters used by the map file
+ * (<tt>N</tt>, <tt>E</tt>, <tt>S</tt>, <tt>W</tt>) and headings in degrees,
+ * clockwise from north.
+ */
+public final class Compass {
+
+    /**
+     * Heading returned for a letter that is not a direction.
+     */
+    public static final float UNKNOWN = Float.NaN;
+
+    private Compass() {
+    }
+
+    /**
+     * @param  compass a direction letter of the map file
+     * @return the heading in degrees, or {@link #UNKNOWN}
+     */
+    public static float toDegrees(char compass) {
+        switch (compass) {
+            case 'N': case 'n': return 0f;
+            case 'E': case 'e': return 90f;
+            case 'S': case 's': return 180f;
+            case 'W': case 'w': return 270f;
+            default: return UNKNOWN;
+        }
+    }
+
+    /**
+     * @param  compass a direction letter of the map file
+     * @return the letter of the opposite direction, or <tt>compass</tt> itself
+     *         if it is not a direction
+     */
+    public static char opposite(char compass) {
+        switch (compass) {
+            case 'N': case 'n': return 'S';
+            case 'E': case 'e': return 'W';
+            case 'S': case 's': return 'N';
+            case 'W': case 'w': return 'E';
+            default: return compass;
+        }
+    }
+
+    /**
+     * Returns the direction of an edge when it is walked starting at <tt>vertex</tt>.
+     * The <tt>compass</tt> of an edge is the direction from <tt>v</tt> to <tt>w</tt>.
+     *
+     * @param  e the edge
+     * @param  vertex the endpoint the walk starts from
+     * @return the direction letter of the walk
+     * @throws IllegalArgumentException if <tt>vertex</tt> is not an endpoint of <tt>e</tt>
+     */
+    public static char leaving(Edge e, int vertex) {
+        if (vertex == e.either()) return e.getCompass();
+        e.other(vertex);
+        return opposite(e.getCompass());
+    }
+
+    /**
+     * Returns the smallest angle between two headings.
+     *
+     * @return an angle between 0 and 180 degrees, or <tt>NaN</tt> if either heading is unknown
+     */
+    public static float difference(float a, float b) {
+        float d = Math.abs(a - b) % 360f;
+        return d > 180f ? 360f - d : d;
+    }
+
+    /**
+     * Returns the signed turn from heading <tt>from</tt> to heading <tt>to</tt>.
+     *
+     * @return an angle in ]-180, 180], positive clockwise (to the right)
+     */
+    public static float turn(float from, float to) {
+        float d = (to - from) % 360f;
+        if (d > 180f) d -= 360f;
+        else if (d <= -180f) d += 360f;
+        return d;
+    }
+
+    /**
+     * @return the heading in [0, 360[
+     */
+    public static float normalize(float degrees) {
+        float d = degrees % 360f;
+        return d < 0 ? d + 360f : d;
+    }
+}
@@ -0,0 +1,275 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ *  The <tt>DijkstraSP</tt> class represents a data type for solving the
+ *  single-source shortest paths problem in the undirected edge-weighted
+ *  {@link Graph} of the map, where the edge weights are nonnegative distances.
+ *  <p>
+ *  This implementation uses Dijkstra's algorithm with a binary heap.
+ *  The constructor takes time proportional to <em>E</em> log <em>V</em>.
+ *  Afterwards, the <tt>distTo()</tt> and <tt>hasPathTo()</tt> methods take
+ *  constant time and the <tt>pathTo()</tt> method takes time proportional to the
+ *  number of edges in the shortest path returned.
+ *  <p>
+ *  When weights of the graph change, {@link #repair} brings the tree up to date
+ *  visiting only the vertices whose shortest path used a changed edge or can use
+ *  one now, rather than computing it again.
+ *  <p>
+ *  For additional documentation, see <a href="http://algs4.cs.princeton.edu/44sp">Section 4.4</a> of
+ *  <i>Algorithms, 4th Edition</i> by Robert Sedgewick and Kevin Wayne.
+ */
+public class DijkstraSP {
+    private final Graph G;
+    private final int s;          // source vertex
+    private final RouteProfile profile;
+    private float[] distTo;       // distTo[v] = distance of shortest s->v path
+    private Edge[] edgeTo;        // edgeTo[v] = last edge on shortest s->v path
+    private IndexMinPQ pq;        // priority queue of vertices
+    private int[] mark;           // vertex whose distance is repaired if mark[v] == stamp
+    private int[] stack;
+    private int stamp;
+
+    /**
+     * Computes a shortest paths tree from <tt>s</tt> to every other vertex in
+     * the edge-weighted graph <tt>G</tt>.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @throws IllegalArgumentException if an edge weight is negative
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>s</tt> &le; <tt>V</tt> - 1
+     */
+    public DijkstraSP(Graph G, int s) {
+        this(G, s, RouteProfile.ANY);
+    }
+
+    /**
+     * Computes a shortest paths tree from <tt>s</tt> to every other vertex in
+     * the edge-weighted graph <tt>G</tt>, using only the edges <tt>profile</tt> allows.
+     *
+     * @param  G the edge-weighted graph
+     * @param  s the source vertex
+     * @param  profile the edges that can be used
+     * @throws IllegalArgumentException if an edge weight is negative
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>s</tt> &le; <tt>V</tt> - 1
+     */
+    public DijkstraSP(Graph G, int s, RouteProfile profile) {
+        if (s < 0 || s >= G.getV())
+            throw new IndexOutOfBoundsException("vertex " + s + " is not between 0 and " + (G.getV() - 1));
+        this.G = G;
+        this.s = s;
+        this.profile = profile;
+        distTo = new float[G.getV()];
+        edgeTo = new Edge[G.getV()];
+        for (int v = 0; v < G.getV(); v++)
+            distTo[v] = Float.POSITIVE_INFINITY;
+        distTo[s] = 0.0f;
+
+        // relax vertices in order of distance from s
+        pq = new IndexMinPQ(G.getV());
+        pq.insert(s, distTo[s]);
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            for (Edge e : G.adj(v))
+                if (profile.allows(e)) relax(e, v);
+        }
+    }
+
+    /**
+     * Brings this tree up to date after the weights of <tt>changes</tt> were set
+     * in the graph. A longer edge that is in the tree cuts off the subtree below
+     * it, whose vertices take the best distance through their neighbours outside
+     * it; a shorter edge offers a shorter distance to its ends. Dijkstra's
+     * algorithm then runs from those vertices only, so the vertices whose
+     * distance does not change are not visited, apart from the neighbours of
+     * the cut subtrees.
+     *
+     * @param  changes the weights applied by {@link Graph#updateWeights}
+     * @return the number of vertices whose distance was recomputed
+     */
+    public int repair(WeightBatch changes) {
+        if (mark == null) {
+            mark = new int[distTo.length];
+            stack = new int[distTo.length];
+        }
+        stamp++;
+
+        // cut the subtrees below the edges that became longer
+        int cut = 0;
+        for (int i = 0; i < changes.size(); i++) {
+            Edge e = changes.getEdge(i);
+            if (changes.getWeight(i) <= changes.getPrevious(i)) continue;
+            if (edgeTo[e.v] == e && mark[e.v] != stamp) cut = cut(e.v, cut);
+            if (edgeTo[e.w] == e && mark[e.w] != stamp) cut = cut(e.w, cut);
+        }
+        // the vertices cut are at the start of stack; reach them from outside
+        for (int i = 0; i < cut; i++) {
+            int v = stack[i];
+            for (Edge e : G.adj(v)) {
+                int w = e.other(v);
+                if (mark[w] == stamp || !profile.allows(e)) continue;
+                float d = distTo[w] + e.getWeight();
+                if (d < distTo[v]) {
+                    distTo[v] = d;
+                    edgeTo[v] = e;
+                }
+            }
+            if (distTo[v] < Float.POSITIVE_INFINITY) pq.insert(v, distTo[v]);
+        }
+
+        // offer the edges that became shorter
+        for (int i = 0; i < changes.size(); i++) {
+            Edge e = changes.getEdge(i);
+            if (changes.getWeight(i) >= changes.getPrevious(i) || !profile.allows(e)) continue;
+            if (distTo[e.v] < Float.POSITIVE_INFINITY) relax(e, e.v);
+            if (distTo[e.w] < Float.POSITIVE_INFINITY) relax(e, e.w);
+        }
+        int changed = cut;
+        while (!pq.isEmpty()) {
+            int v = pq.delMin();
+            if (mark[v] != stamp) {
+                mark[v] = stamp;
+                changed++;
+            }
+            for (Edge e : G.adj(v))
+                if (profile.allows(e)) relax(e, v);
+        }
+        return changed;
+    }
+
+    // marks and resets the subtree of v, leaving its vertices on stack after the first n
+    private int cut(int v, int n) {
+        int top = n;
+        mark[v] = stamp;
+        stack[top++] = v;
+        for (int i = n; i < top; i++) {
+            int x = stack[i];
+            for (Edge e : G.adj(x)) {
+                int y = e.other(x);
+                if (edgeTo[y] == e && mark[y] != stamp) {
+                    mark[y] = stamp;
+                    stack[top++] = y;
+                }
+            }
+            distTo[x] = Float.POSITIVE_INFINITY;
+            edgeTo[x] = null;
+        }
+        return top;
+    }
+
+    // relax edge e and update pq if changed
+    private void relax(Edge e, int v) {
+        int w = e.other(v);
+        if (e.getWeight() < 0)
+            throw new IllegalArgumentException("edge " + v + "-" + w + " has negative weight");
+        if (distTo[w] > distTo[v] + e.getWeight()) {
+            distTo[w] = distTo[v] + e.getWeight();
+            edgeTo[w] = e;
+            if (pq.contains(w)) pq.decreaseKey(w, distTo[w]);
+            else                pq.insert(w, distTo[w]);
+        }
+    }
+
+    /**
+     * Returns the source vertex of this shortest paths tree.
+     *
+     * @return the source vertex
+     */
+    public int source() {
+        return s;
+    }
+
+    /**
+     * Returns the profile the paths of this tree were computed for.
+     *
+     * @return the profile
+     */
+    public RouteProfile profile() {
+        return profile;
+    }
+
+    /**
+     * Estimates the bytes of this tree, not counting the graph.
+     *
+     * @return the estimated bytes
+     */
+    public long estimateBytes() {
+        long bytes = MemorySizes.object(2 * 4 + 7 * MemorySizes.REFERENCE)
+                + MemorySizes.array(distTo.length, 4) + MemorySizes.array(edgeTo.length, MemorySizes.REFERENCE)
+                + pq.estimateBytes();
+        if (mark != null) bytes += 2 * MemorySizes.array(mark.length, 4);
+        return bytes;
+    }
+
+    // last edge on the shortest path from s to v; null for s and unreachable vertices
+    Edge edgeTo(int v) {
+        return edgeTo[v];
+    }
+
+    /**
+     * Returns the length of a shortest path between the source vertex <tt>s</tt> and
+     * vertex <tt>v</tt>.
+     *
+     * @param  v the destination vertex
+     * @return the length of a shortest path between the source vertex <tt>s</tt> and
+     *         the vertex <tt>v</tt>; <tt>Float.POSITIVE_INFINITY</tt> if no such path
+     */
+    public float distTo(int v) {
+        return distTo[v];
+    }
+
+    /**
+     * Returns true if there is a path between the source vertex <tt>s</tt> and
+     * vertex <tt>v</tt>.
+     *
+     * @param  v the destination vertex
+     * @return <tt>true</tt> if there is a path between the source vertex
+     *         <tt>s</tt> to vertex <tt>v</tt>; <tt>false</tt> otherwise
+     */
+    public boolean hasPathTo(int v) {
+        return distTo[v] < Float.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Returns a shortest path between the source vertex <tt>s</tt> and vertex <tt>v</tt>,
+     * in walking order.
+     *
+     * @param  v the destination vertex
+     * @return a shortest path between the source vertex <tt>s</tt> and vertex <tt>v</tt>;
+     *         <tt>null</tt> if no such path
+     */
+    public Iterable<Edge> pathTo(int v) {
+        if (!hasPathTo(v)) return null;
+        Deque<Edge> path = new ArrayDeque<Edge>();
+        int x = v;
+        for (Edge e = edgeTo[v]; e != null; e = edgeTo[x]) {
+            path.push(e);
+            x = e.other(x);
+        }
+        return path;
+    }
+
+    /**
+     * Returns a shortest path between vertex <tt>v</tt> and the source vertex <tt>s</tt>,
+     * in walking order. As the graph is undirected, this is the path returned by
+     * {@link #pathTo} walked backwards.
+     *
+     * @param  v the vertex to start from
+     * @return a shortest path between vertex <tt>v</tt> and the source vertex <tt>s</tt>;
+     *         <tt>null</tt> if no such path
+     */
+    public Iterable<Edge> pathFrom(int v) {
+        if (!hasPathTo(v)) return null;
+        Deque<Edge> path = new ArrayDeque<Edge>();
+        int x = v;
+        for (Edge e = edgeTo[v]; e != null; e = edgeTo[x]) {
+            path.addLast(e);
+            x = e.other(x);
+        }
+        return path;
+    }
+}
@@ -0,0 +1,107 @@
+package com.northteam.indoororientation.model;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * The walking distances from some sources to some targets of a graph that is
+ * not frozen, kept up to date while its weights change, e.g. the distances from
+ * the entrances to the exits of a venue as crowds move.
+ * <p>
+ * The table keeps a shortest paths tree per distinct source. When
+ * {@link Graph#updateWeights} changes the weights, every tree is repaired with
+ * {@link DijkstraSP#repair} and only the rows of the trees that changed are read
+ * again. Call {@link #close} when the table is not needed any more.
+ * <p>
+ * This class is not thread safe; use it on the thread that updates the graph.
+ */
+public class DistanceTable implements Graph.WeightListener {
+
+    private final Graph G;
+    private final int[] targets;
+    private final DijkstraSP[] trees;   // trees[i] is shared by the rows of equal sources
+    private final int[] firstRow;       // the first row with the source of row i
+    private final float[][] distances;
+
+    /**
+     * Computes the table and starts listening to the weights of the graph.
+     *
+     * @param  G the graph
+     * @param  sources the sources, one row each
+     * @param  targets the targets, one column each
+     * @param  profile the edges that can be used
+     * @throws IndexOutOfBoundsException unless every vertex is between 0 and V-1
+     */
+    public DistanceTable(Graph G, int[] sources, int[] targets, RouteProfile profile) {
+        this.G = G;
+        this.targets = targets.clone();
+        for (int t : targets)
+            if (t < 0 || t >= G.getV())
+                throw new IndexOutOfBoundsException("vertex " + t + " is not between 0 and " + (G.getV() - 1));
+        trees = new DijkstraSP[sources.length];
+        firstRow = new int[sources.length];
+        distances = new float[sources.length][];
+        Map<Integer, Integer> rows = new HashMap<Integer, Integer>();
+        for (int i = 0; i < sources.length; i++) {
+            Integer first = rows.get(sources[i]);
+            if (first == null) {
+                rows.put(sources[i], i);
+                firstRow[i] = i;
+                trees[i] = new DijkstraSP(G, sources[i], profile);
+            } else {
+                firstRow[i] = first;
+                trees[i] = trees[first];
+            }
+            distances[i] = new float[targets.length];
+            read(i);
+        }
+        G.addWeightListener(this);
+    }
+
+    @Override
+    public void onWeightsChanged(Graph G, WeightBatch changes) {
+        for (int i = 0; i < trees.length; i++) {
+            if (firstRow[i] < i) {
+                System.arraycopy(distances[firstRow[i]], 0, distances[i], 0, targets.length);
+            } else if (trees[i].repair(changes) > 0) {
+                read(i);
+            }
+        }
+    }
+
+    private void read(int i) {
+        for (int j = 0; j < targets.length; j++)
+            distances[i][j] = trees[i].distTo(targets[j]);
+    }
+
+    /**
+     * @return the distance from source <tt>i</tt> to target <tt>j</tt>;
+     *         <tt>Float.POSITIVE_INFINITY</tt> if it can not be reached
+     */
+    public float distance(int i, int j) {
+        return distances[i][j];
+    }
+
+    /**
+     * @return the shortest path from source <tt>i</tt> to target <tt>j</tt>, in
+     *         walking order; <tt>null</tt> if it can not be reached
+     */
+    public Iterable<Edge> path(int i, int j) {
+        return trees[i].pathTo(targets[j]);
+    }
+
+    /**
+     * @return a copy of row <tt>i</tt>
+     */
+    public float[] row(int i) {
+        return Arrays.copyOf(distances[i], targets.length);
+    }
+
+    /**
+     * Stops listening to the weights of the graph; the table stays as it is.
+     */
+    public void close() {
+        G.removeWeightListener(this);
+    }
+}
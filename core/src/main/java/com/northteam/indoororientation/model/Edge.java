@@ -0,0 +1,188 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+
+import java.util.Locale;
+
+/**
+ * @author beatrizgomes
+ * Date 11/05/2016
+ */
+
+public class Edge implements Comparable<Edge>{
+
+    /**
+     * Attribute of an edge that has steps.
+     */
+    public static final int STAIRS = 1;
+
+    /**
+     * Attribute of an edge that is a lift ride.
+     */
+    public static final int LIFT = 1 << 1;
+
+    /**
+     * Attribute of an edge that goes through a door.
+     */
+    public static final int DOOR = 1 << 2;
+
+    /**
+     * Attribute of an edge that is outdoors.
+     */
+    public static final int OUTDOOR = 1 << 3;
+
+    private static final String[] ATTRIBUTE_NAMES = {"stairs", "lift", "door", "outdoor"};
+
+    int v;
+    int w;
+    private float weight; // Weight of the connection
+    char compass; // Direction
+    int attributes; // STAIRS, LIFT, DOOR and OUTDOOR bits
+    private boolean frozen; // part of a published map
+
+    /**
+     * Initializes an edge between vertices <tt>v</tt> and <tt>w</tt> of
+     * the given <tt>weight</tt>.
+     *
+     * @param  v one vertex
+     * @param  w the other vertex
+     * @param  weight the weight of this edge
+     * @throws IndexOutOfBoundsException if either <tt>v</tt> or <tt>w</tt>
+     *         is a negative integer
+     * @throws IllegalArgumentException if <tt>weight</tt> is <tt>NaN</tt>
+     */
+    public Edge(int v, int w, float weight, char compass) {
+        this(v, w, weight, compass, 0);
+    }
+
+    /**
+     * Initializes an edge between vertices <tt>v</tt> and <tt>w</tt> of
+     * the given <tt>weight</tt> and attributes.
+     *
+     * @param  v one vertex
+     * @param  w the other vertex
+     * @param  weight the weight of this edge
+     * @param  compass the direction from <tt>v</tt> to <tt>w</tt>
+     * @param  attributes a combination of {@link #STAIRS}, {@link #LIFT},
+     *         {@link #DOOR} and {@link #OUTDOOR}
+     * @throws IndexOutOfBoundsException if either <tt>v</tt> or <tt>w</tt>
+     *         is a negative integer
+     * @throws IllegalArgumentException if <tt>weight</tt> is <tt>NaN</tt>
+     */
+    public Edge(int v, int w, float weight, char compass, int attributes) {
+        if (v < 0) throw new IndexOutOfBoundsException("Vertex name must be a nonnegative integer");
+        if (w < 0) throw new IndexOutOfBoundsException("Vertex name must be a nonnegative integer");
+        if (Double.isNaN(weight)) throw new IllegalArgumentException("Weight is NaN");
+        this.v = v;
+        this.w = w;
+        this.weight = weight;
+        this.compass = compass;
+        this.attributes = attributes;
+    }
+
+    /**
+     * Returns either endpoint of this edge.
+     *
+     * @return either endpoint of this edge
+     */
+    public int either() {
+        return v;
+    }
+
+    /**
+     * Returns the endpoint of this edge that is different from the given vertex.
+     *
+     * @param  vertex one endpoint of this edge
+     * @return the other endpoint of this edge
+     * @throws IllegalArgumentException if the vertex is not one of the
+     *         endpoints of this edge
+     */
+    public int other(int vertex) {
+        if      (vertex == v) return w;
+        else if (vertex == w) return v;
+        else throw new IllegalArgumentException("Illegal endpoint");
+    }
+    /**
+     * Compares two edges by weight.
+     * Note that <tt>compareTo()</tt> is not consistent with <tt>equals()</tt>,
+     * which uses the reference equality implementation inherited from <tt>Object</tt>.
+     *
+     * @param  that the other edge
+     * @return a negative integer, zero, or positive integer depending on whether
+     *         the weight of this is less than, equal to, or greater than the
+     *         argument edge
+     */
+    @Override
+    public int compareTo(Edge that) {
+        if      (this.getWeight() < that.getWeight())
+            return -1;
+        else if (this.getWeight() > that.getWeight())
+            return +1;
+        else
+            return  0;
+    }
+
+
+
+    public float getWeight() {
+        return weight;
+    }
+
+    /**
+     * Sets the weight of this edge. Shortest paths that were computed with the old
+     * weight are not told; use {@link Graph#updateWeights} to change weights they
+     * depend on.
+     *
+     * @param  weight the new weight
+     * @throws IllegalStateException if the edge belongs to a frozen {@link Graph}
+     */
+    public void setWeight(float weight) {
+        if (frozen) throw new IllegalStateException("edge " + v + "-" + w + " belongs to a frozen graph");
+        this.weight = weight;
+    }
+
+    void freeze() {
+        frozen = true;
+    }
+
+    public char getCompass() {
+        return compass;
+    }
+
+    /**
+     * @return the estimated bytes of an edge on the heap
+     */
+    public static long estimateBytes() {
+        return MemorySizes.object(4 + 4 + 4 + 2 + 4 + 1);
+    }
+
+    public int getAttributes() {
+        return attributes;
+    }
+
+    /**
+     * Returns true if this edge has any of the given attributes.
+     *
+     * @param  mask a combination of {@link #STAIRS}, {@link #LIFT}, {@link #DOOR} and {@link #OUTDOOR}
+     * @return <tt>true</tt> if this edge has at least one of them
+     */
+    public boolean hasAny(int mask) {
+        return (attributes & mask) != 0;
+    }
+
+    /**
+     * Returns the attributes named in a list such as <tt>"stairs door"</tt>,
+     * separated by spaces or commas. Unknown names are ignored.
+     *
+     * @param  names the names, in any case
+     * @return the combination of the attributes named
+     */
+    public static int parseAttributes(String names) {
+        int mask = 0;
+        for (String name : names.trim().toLowerCase(Locale.US).split("[\\s,]+")) {
+            for (int i = 0; i < ATTRIBUTE_NAMES.length; i++)
+                if (ATTRIBUTE_NAMES[i].equals(name)) mask |= 1 << i;
+        }
+        return mask;
+    }
+}
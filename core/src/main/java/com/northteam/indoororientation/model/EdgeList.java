@@ -0,0 +1,68 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * The edges incident on one vertex of a {@link Graph}, in an array that the
+ * {@link GraphBuilder} sizes exactly and that grows by doubling when edges are
+ * added one at a time.
+ */
+class EdgeList implements Iterable<Edge> {
+
+    private static final Edge[] NONE = new Edge[0];
+
+    private Edge[] items;
+    private int n;
+
+    EdgeList() {
+        items = NONE;
+    }
+
+    EdgeList(int capacity) {
+        items = capacity == 0 ? NONE : new Edge[capacity];
+    }
+
+    void add(Edge e) {
+        if (n == items.length) items = Arrays.copyOf(items, Math.max(2, 2 * n));
+        items[n++] = e;
+    }
+
+    int size() {
+        return n;
+    }
+
+    Edge get(int i) {
+        return items[i];
+    }
+
+    long estimateBytes() {
+        return MemorySizes.object(MemorySizes.REFERENCE + 4) + MemorySizes.array(items.length, MemorySizes.REFERENCE);
+    }
+
+    @Override
+    public Iterator<Edge> iterator() {
+        return new Iterator<Edge>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < n;
+            }
+
+            @Override
+            public Edge next() {
+                if (i >= n) throw new NoSuchElementException();
+                return items[i++];
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+}
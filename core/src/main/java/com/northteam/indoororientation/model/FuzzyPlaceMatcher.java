@@ -0,0 +1,406 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Typo tolerant search over the names of the places, for queries such as
+ * "gabinete estagio" or "ISSUS" that {@link PlaceSearchIndex} does not find.
+ * <p>
+ * Names are folded like in {@link PlaceSearchIndex} and split into words, and
+ * the distinct words are stored in a trie. A query word is matched by walking the
+ * trie with the rows of the Levenshtein distance table (a simulated Levenshtein
+ * automaton): every node computes one row from its parent's, and the whole
+ * subtree is skipped as soon as no cell of the row can lead to a word within the
+ * tolerance. Each node knows the shortest and longest word below it, so a cell
+ * also counts the letters that will have to be inserted or deleted to reach the
+ * end of both the query and the word. Only the prefixes within the tolerance of
+ * the query are ever looked at.
+ * <p>
+ * A place matches when every word of the query is within the tolerance of some
+ * word of its name; places are ranked by the sum of those distances, then by
+ * the length of the name. The tolerance grows with the length of the word: none
+ * up to 2 letters, 1 up to 5, 2 after that.
+ * <p>
+ * The matcher does not change once built. Queries reuse the buffers of a
+ * {@link Searcher}, so threads that share a matcher search each with their own
+ * searcher; {@link #search} uses one owned by the matcher, from one thread at a
+ * time.
+ */
+public class FuzzyPlaceMatcher {
+
+    private static final int MAX_DISTANCE = 2;
+
+    private final List<Place> places;
+    private final int[] nameLength;
+
+    // distinct words and the places they appear in: places of word w are postings[start[w] .. start[w+1]-1]
+    private final int W;
+    private final int[] start;
+    private final int[] postings;
+
+    // trie of the words, node 0 is the root
+    private final char[] label;
+    private final int[] depthOf;
+    private final int[] firstChild;
+    private final int[] nextSibling;
+    private final int[] wordAt;      // word ending at the node, or -1
+    private final int[] minLength;   // shortest word below the node
+    private final int[] maxLength;   // longest word below the node
+
+    private Searcher searcher; // of search, made by the first query
+
+    public FuzzyPlaceMatcher(List<Place> places) {
+        this.places = places;
+        int P = places.size();
+        nameLength = new int[P];
+
+        // distinct words, with the places of each
+        HashMap<String, Integer> ids = new HashMap<String, Integer>();
+        int[] wordOf = new int[16];
+        int[] placeOf = new int[16];
+        int pairs = 0;
+        for (int p = 0; p < P; p++) {
+            char[] n = PlaceSearchIndex.fold(places.get(p).getName());
+            nameLength[p] = n.length;
+            int i = 0;
+            while (i < n.length) {
+                int j = i;
+                while (j < n.length && n[j] != ' ') j++;
+                String w = new String(n, i, j - i);
+                Integer id = ids.get(w);
+                if (id == null) {
+                    id = ids.size();
+                    ids.put(w, id);
+                }
+                if (pairs == wordOf.length) {
+                    wordOf = Arrays.copyOf(wordOf, 2 * pairs);
+                    placeOf = Arrays.copyOf(placeOf, 2 * pairs);
+                }
+                wordOf[pairs] = id;
+                placeOf[pairs] = p;
+                pairs++;
+                i = j + 1;
+            }
+        }
+        // renumber the words in sorted order
+        W = ids.size();
+        String[] sorted = ids.keySet().toArray(new String[W]);
+        Arrays.sort(sorted);
+        int[] rank = new int[W];
+        int nodes = 1;
+        for (int w = 0; w < W; w++) {
+            rank[ids.get(sorted[w])] = w;
+            nodes += sorted[w].length() - (w == 0 ? 0 : lcp(sorted[w - 1], sorted[w]));
+        }
+        for (int k = 0; k < pairs; k++)
+            wordOf[k] = rank[wordOf[k]];
+
+        start = new int[W + 1];
+        for (int k = 0; k < pairs; k++)
+            start[wordOf[k] + 1]++;
+        for (int w = 0; w < W; w++)
+            start[w + 1] += start[w];
+        int[] next = Arrays.copyOf(start, W);
+        int[] ps = new int[pairs];
+        int N = 0;
+        for (int k = 0; k < pairs; k++) {
+            int w = wordOf[k];
+            // places are visited in order, so a repeated word of one name is adjacent
+            if (next[w] > start[w] && ps[next[w] - 1] == placeOf[k]) continue;
+            ps[next[w]++] = placeOf[k];
+        }
+        // compact the postings after removing repeated words
+        postings = new int[pairs];
+        for (int w = 0; w < W; w++) {
+            int from = start[w];
+            int length = next[w] - from;
+            start[w] = N;
+            System.arraycopy(ps, from, postings, N, length);
+            N += length;
+        }
+        start[W] = N;
+
+        // sorted words only add nodes after their common prefix with the previous word
+        label = new char[nodes];
+        depthOf = new int[nodes];
+        firstChild = new int[nodes];
+        nextSibling = new int[nodes];
+        wordAt = new int[nodes];
+        Arrays.fill(firstChild, -1);
+        Arrays.fill(nextSibling, -1);
+        Arrays.fill(wordAt, -1);
+        minLength = new int[nodes];
+        maxLength = new int[nodes];
+        int[] parentOf = new int[nodes];
+        int[] path = new int[64];
+        int size = 1;
+        for (int w = 0; w < W; w++) {
+            String word = sorted[w];
+            if (path.length <= word.length()) path = Arrays.copyOf(path, 2 * word.length());
+            for (int d = w == 0 ? 0 : lcp(sorted[w - 1], word); d < word.length(); d++) {
+                int node = size++;
+                int parent = path[d];
+                label[node] = word.charAt(d);
+                depthOf[node] = d + 1;
+                nextSibling[node] = firstChild[parent];
+                firstChild[parent] = node;
+                parentOf[node] = parent;
+                path[d + 1] = node;
+            }
+            wordAt[path[word.length()]] = w;
+        }
+        Arrays.fill(minLength, Integer.MAX_VALUE);
+        for (int node = nodes - 1; node > 0; node--) {
+            // children are created after their parent
+            if (wordAt[node] >= 0) {
+                minLength[node] = Math.min(minLength[node], depthOf[node]);
+                maxLength[node] = Math.max(maxLength[node], depthOf[node]);
+            }
+            int parent = parentOf[node];
+            minLength[parent] = Math.min(minLength[parent], minLength[node]);
+            maxLength[parent] = Math.max(maxLength[parent], maxLength[node]);
+        }
+    }
+
+    /**
+     * @param  length the length of a query word
+     * @return the number of typos tolerated in a word of that length
+     */
+    public static int tolerance(int length) {
+        if (length <= 2) return 0;
+        if (length <= 5) return 1;
+        return MAX_DISTANCE;
+    }
+
+    /**
+     * Estimates the bytes of this matcher, not counting the places.
+     *
+     * @return the estimated bytes
+     */
+    public long estimateBytes() {
+        long bytes = MemorySizes.object(12 * MemorySizes.REFERENCE + 4)
+                + MemorySizes.array(nameLength.length, 4)
+                + MemorySizes.array(start.length, 4) + MemorySizes.array(postings.length, 4)
+                + MemorySizes.array(label.length, 2)
+                + 6 * MemorySizes.array(depthOf.length, 4);      // the int arrays of the trie
+        Searcher s = searcher;
+        return s == null ? bytes : bytes + s.estimateBytes();
+    }
+
+    /**
+     * Finds the places whose name is close to the query, with the buffers of
+     * the matcher; from one thread at a time.
+     *
+     * @param  text the text typed by the user
+     * @param  results receives the positions, in the list of places, of the best matches, best first
+     * @return the number of results written
+     */
+    public int search(CharSequence text, int[] results) {
+        if (searcher == null) searcher = new Searcher();
+        return searcher.search(text, results);
+    }
+
+    /**
+     * Returns new buffers to query this matcher from one more thread.
+     */
+    public Searcher newSearcher() {
+        return new Searcher();
+    }
+
+    // letters to insert or delete to end together, when q letters of the query
+    // and between shortest and longest letters of the word are left
+    private static int gap(int q, int shortest, int longest) {
+        if (q < shortest) return shortest - q;
+        if (q > longest) return q - longest;
+        return 0;
+    }
+
+    private static int lcp(String a, String b) {
+        int n = Math.min(a.length(), b.length());
+        int i = 0;
+        while (i < n && a.charAt(i) == b.charAt(i)) i++;
+        return i;
+    }
+
+    /**
+     * The buffers of the queries of one thread over a {@link FuzzyPlaceMatcher}.
+     */
+    public final class Searcher {
+
+        private char[] folded = new char[64];
+        private int[][] rows = new int[0][]; // rows[d] = distance table row of the node being visited at depth d
+        private final int[] stack = new int[label.length];
+        private final int[] seen = new int[nameLength.length];
+        private final int[] count = new int[nameLength.length];
+        private final int[] lastWord = new int[nameLength.length];
+        private final int[] best = new int[nameLength.length];
+        private final int[] total = new int[nameLength.length];
+        private final int[] candidates = new int[nameLength.length];
+        private int query;
+
+        private Searcher() { }
+
+        /**
+         * Finds the places whose name is close to the query.
+         *
+         * @param  text the text typed by the user
+         * @param  results receives the positions, in the list of places, of the best matches, best first
+         * @return the number of results written
+         */
+        public int search(CharSequence text, int[] results) {
+            if (W == 0 || results.length == 0) return 0;
+            if (folded.length < text.length()) folded = new char[text.length()];
+            int n = PlaceSearchIndex.fold(text, folded);
+            if (++query == Integer.MAX_VALUE) {
+                Arrays.fill(seen, 0);
+                query = 1;
+            }
+            int C = 0;
+            int j = 0;
+            int i = 0;
+            while (i < n) {
+                int e = i;
+                while (e < n && folded[e] != ' ') e++;
+                C = searchWord(i, e, j, C);
+                if (C == 0) return 0;
+                i = e + 1;
+                j++;
+            }
+
+            int found = 0;
+            for (int k = 0; k < C; k++) {
+                int p = candidates[k];
+                if (count[p] == j) found = offer(p, results, found);
+            }
+            return found;
+        }
+
+        // matches query word number j, folded[from .. to-1], against the trie; returns the candidate count
+        private int searchWord(int from, int to, int j, int C) {
+            int n = to - from;
+            int k = tolerance(n);
+            int longest = n + k;
+            if (rows.length < longest + 1 || rows[0].length < n + 1) {
+                rows = new int[longest + 1][n + 1];
+            }
+            int[] first = rows[0];
+            for (int c = 0; c <= n; c++)
+                first[c] = c;
+
+            int top = 0;
+            for (int child = firstChild[0]; child != -1; child = nextSibling[child])
+                if (minLength[child] <= longest && maxLength[child] >= n - k) stack[top++] = child;
+            while (top > 0) {
+                int node = stack[--top];
+                int depth = depthOf[node];
+                char letter = label[node];
+                int[] prev = rows[depth - 1];
+                int[] cur = rows[depth];
+                // letters left to the end of the words below, beyond this node
+                int shortest = minLength[node] - depth;
+                int remaining = maxLength[node] - depth;
+                // only the cells within k of the diagonal can stay within the tolerance,
+                // the cells just outside that band are capped at k + 1
+                int lo = Math.max(1, depth - k);
+                int hi = Math.min(n, depth + k);
+                int bound = k + 1;
+                if (lo == 1) {
+                    cur[0] = depth;
+                    bound = depth + gap(n, shortest, remaining);
+                } else {
+                    cur[lo - 1] = k + 1;
+                }
+                for (int c = lo; c <= hi; c++) {
+                    int v = Math.min(Math.min(cur[c - 1], prev[c]) + 1,
+                            prev[c - 1] + (folded[from + c - 1] == letter ? 0 : 1));
+                    cur[c] = v;
+                    int b = v + gap(n - c, shortest, remaining);
+                    if (b < bound) bound = b;
+                }
+                if (hi < n) cur[hi + 1] = k + 1;
+                if (bound > k) continue; // no word below can be within the tolerance
+                if (wordAt[node] >= 0 && hi == n && cur[n] <= k) C = match(wordAt[node], cur[n], j, C);
+                // the rows stop at the longest word that can match
+                for (int child = firstChild[node]; child != -1; child = nextSibling[child])
+                    if (minLength[child] <= longest && maxLength[child] >= n - k) stack[top++] = child;
+            }
+            return C;
+        }
+
+        // records that query word j is at distance d of word w
+        private int match(int w, int d, int j, int C) {
+            for (int i = start[w]; i < start[w + 1]; i++) {
+                int p = postings[i];
+                if (seen[p] != query) {
+                    if (j != 0) continue; // missed an earlier word
+                    seen[p] = query;
+                    count[p] = 0;
+                    lastWord[p] = -1;
+                    total[p] = 0;
+                    candidates[C++] = p;
+                }
+                if (lastWord[p] != j) {
+                    if (count[p] != j) continue;
+                    lastWord[p] = j;
+                    count[p]++;
+                    best[p] = d;
+                    total[p] += d;
+                } else if (d < best[p]) {
+                    total[p] -= best[p] - d;
+                    best[p] = d;
+                }
+            }
+            return C;
+        }
+
+        private boolean before(int a, int b) {
+            if (total[a] != total[b]) return total[a] < total[b];
+            if (nameLength[a] != nameLength[b]) return nameLength[a] < nameLength[b];
+            return a < b;
+        }
+
+        private int offer(int p, int[] results, int found) {
+            int i = found;
+            if (found == results.length) {
+                if (!before(p, results[found - 1])) return found;
+                i = found - 1;
+            } else {
+                found++;
+            }
+            while (i > 0 && before(p, results[i - 1])) {
+                results[i] = results[i - 1];
+                i--;
+            }
+            results[i] = p;
+            return found;
+        }
+
+        long estimateBytes() {
+            long bytes = MemorySizes.object(10 * MemorySizes.REFERENCE + 4)
+                    + MemorySizes.array(stack.length, 4) + 6 * MemorySizes.array(seen.length, 4)
+                    + MemorySizes.array(folded.length, 2) + MemorySizes.array(rows.length, MemorySizes.REFERENCE);
+            for (int[] row : rows)
+                bytes += MemorySizes.array(row.length, 4);
+            return bytes;
+        }
+    }
+
+    /**
+     * @param  i a result of {@link #search}
+     * @return the place
+     */
+    public Place getPlace(int i) {
+        return places.get(i);
+    }
+
+    /**
+     * @return the number of distinct words of the place names
+     */
+    public int getWordCount() {
+        return W;
+    }
+}
@@ -0,0 +1,358 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * @author beatrizgomes
+ * Date 11/05/2016
+ */
+public class Graph {
+    private static final LatencyHistogram BUILD = MetricsRegistry.getDefault().histogram("graph.build");
+    private static final LatencyHistogram UPDATES = MetricsRegistry.getDefault().histogram("graph.update");
+
+    /**
+     * Told after {@link #updateWeights} changed the weights, e.g. to repair
+     * shortest paths computed before.
+     */
+    public interface WeightListener {
+        /**
+         * @param G       the graph
+         * @param changes the new and previous weights of the edges changed
+         */
+        void onWeightsChanged(Graph G, WeightBatch changes);
+    }
+
+    int V; // Number of vertices of the Graph
+    int E; // Number of edges of the Graph
+    private EdgeList[] adj;
+    private ST<Integer, Beacon> beaconST;
+    private HashMap<String, Integer> uniqueIds; // uniqueId of the beacon -> vertex
+    private volatile boolean frozen;
+    private volatile int weightVersion; // bumped by every updateWeights, once the weights are set
+    private VertexOrder order; // how the vertices were renumbered from the map file, null if they were not
+    private final List<WeightListener> weightListeners = new CopyOnWriteArrayList<WeightListener>();
+
+    public Graph(int V) {
+        if (V < 0) throw new IllegalArgumentException("Number of vertices must be nonnegative");
+        this.V = V;
+        this.E = 0;
+        adj = new EdgeList[V];
+        for (int v = 0; v < V; v++) {
+            adj[v] = new EdgeList();
+        }
+        beaconST = new ST<Integer, Beacon>();
+        uniqueIds = new HashMap<String, Integer>();
+    }
+
+    /**
+     * Initializes a graph from the beacons of a map file. Every beacon is a vertex
+     * and the edges listed by the beacons are added once, even when both endpoints
+     * list the same connection; see {@link GraphBuilder}.
+     *
+     * @param  beacons the beacons returned by {@link XmlParser#parseBeacons}
+     * @throws IndexOutOfBoundsException if an edge references a vertex that is not a beacon id
+     */
+    public Graph(List<Beacon> beacons) {
+        this(GraphBuilder.of(beacons));
+    }
+
+    // takes the edges and beacons gathered by the builder
+    Graph(GraphBuilder builder) {
+        this.V = builder.getV();
+        this.adj = builder.adjacency();
+        this.E = builder.getE();
+        Beacon[] beacons = builder.beacons(adj);
+        beaconST = new ST<Integer, Beacon>();
+        uniqueIds = new HashMap<String, Integer>(beacons.length * 2);
+        for (Beacon b : beacons) {
+            if (b != null) addBeacon(b);
+        }
+        BUILD.recordSince(builder.getCreated());
+    }
+
+    /**
+     * Returns the number of vertices in this graph.
+     *
+     * @return the number of vertices in this graph
+     */
+    public int getV() {
+        return V;
+    }
+
+    // throw an IndexOutOfBoundsException unless 0 <= v < V
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (V-1));
+    }
+
+    /**
+     * Returns the edges incident on vertex <tt>v</tt>.
+     *
+     * @param  v the vertex
+     * @return the edges incident on vertex <tt>v</tt> as an Iterable
+     * @throws IndexOutOfBoundsException unless 0 <= v < V
+     */
+    public Iterable<Edge> adj(int v) {
+        validateVertex(v);
+        return adj[v];
+    }
+
+    /**
+     * Returns the degree of vertex <tt>v</tt>.
+     *
+     * @param  v the vertex
+     * @return the degree of vertex <tt>v</tt>
+     * @throws IndexOutOfBoundsException unless 0 <= v < V
+     */
+    public int degree(int v) {
+        validateVertex(v);
+        return adj[v].size();
+    }
+
+    /**
+     * Adds the undirected edge <tt>e</tt> to this edge-weighted graph.
+     *
+     * @param  e the edge
+     * @throws IndexOutOfBoundsException unless both endpoints are between 0 and V-1
+     * @throws IllegalStateException if this graph is frozen
+     */
+    public void addEdge(Edge e) {
+        checkNotFrozen();
+        int v = e.either();
+        int w = e.other(v);
+        validateVertex(v);
+        validateVertex(w);
+        adj[v].add(e);
+        adj[w].add(e);
+        E++;
+    }
+
+    /**
+     * Returns an edge between vertices <tt>v</tt> and <tt>w</tt>.
+     *
+     * @param  v one vertex
+     * @param  w the other vertex
+     * @return the edge, or <tt>null</tt> if they are not connected
+     * @throws IndexOutOfBoundsException unless both vertices are between 0 and V-1
+     */
+    public Edge edge(int v, int w) {
+        validateVertex(w);
+        for (Edge e : adj(v))
+            if (e.other(v) == w) return e;
+        return null;
+    }
+
+    /**
+     * Sets the weights of a batch of edges of this graph and then tells the
+     * weight listeners, which repair what they computed from the old weights.
+     * Changing the weight of an edge with {@link Edge#setWeight} is not seen by
+     * the listeners.
+     *
+     * @param  changes the new weights
+     * @throws IllegalStateException if this graph is frozen
+     */
+    public void updateWeights(WeightBatch changes) {
+        checkNotFrozen();
+        if (changes.isEmpty()) return;
+        long start = System.nanoTime();
+        changes.apply();
+        weightVersion++;
+        for (int i = 0; i < weightListeners.size(); i++)
+            weightListeners.get(i).onWeightsChanged(this, changes);
+        UPDATES.recordSince(start);
+    }
+
+    /**
+     * Returns the number of times {@link #updateWeights} changed the weights. A
+     * search run on another thread can read it before it starts and again when
+     * it is done, to know whether it saw the weights of one version only.
+     */
+    public int weightVersion() {
+        return weightVersion;
+    }
+
+    /**
+     * Adds a listener told of every {@link #updateWeights}, on the thread that
+     * calls it. The graph keeps the listener until it is removed.
+     */
+    public void addWeightListener(WeightListener listener) {
+        weightListeners.add(listener);
+    }
+
+    public void removeWeightListener(WeightListener listener) {
+        weightListeners.remove(listener);
+    }
+
+    /**
+     * Returns the number of edges in this graph.
+     *
+     * @return the number of edges in this graph
+     */
+    public int getE() {
+        return E;
+    }
+
+    /**
+     * Registers the beacon placed at vertex <tt>b.getId()</tt>.
+     *
+     * @param  b the beacon
+     * @throws IndexOutOfBoundsException unless 0 <= b.getId() < V
+     * @throws IllegalStateException if this graph is frozen
+     */
+    public void addBeacon(Beacon b) {
+        checkNotFrozen();
+        validateVertex(b.getId());
+        beaconST.put(b.getId(), b);
+        if (b.getUiniqueId() != null) {
+            uniqueIds.put(b.getUiniqueId(), b.getId());
+        }
+    }
+
+    /**
+     * Returns the beacon placed at vertex <tt>v</tt>.
+     *
+     * @param  v the vertex
+     * @return the beacon at <tt>v</tt>, or <tt>null</tt> if there is none
+     * @throws IndexOutOfBoundsException unless 0 <= v < V
+     */
+    public Beacon getBeacon(int v) {
+        validateVertex(v);
+        return beaconST.get(v);
+    }
+
+    /**
+     * Returns the vertex of the beacon with the given advertised unique id.
+     *
+     * @param  uniqueId the unique id read from the scan
+     * @return the vertex, or <tt>-1</tt> if the beacon is not part of this map
+     */
+    public int indexOf(String uniqueId) {
+        Integer v = uniqueIds.get(uniqueId);
+        return v == null ? -1 : v;
+    }
+
+    /**
+     * Returns how the vertices of this graph were renumbered from the beacon ids
+     * of the map file, by {@link VertexOrder#apply}.
+     *
+     * @return the order, or <tt>null</tt> if the vertices are numbered by the beacon ids
+     */
+    public VertexOrder getVertexOrder() {
+        return order;
+    }
+
+    void setVertexOrder(VertexOrder order) {
+        this.order = order;
+    }
+
+    /**
+     * Returns all edges in this edge-weighted graph.
+     * To iterate over the edges in this edge-weighted graph, use foreach notation:
+     * <tt>for (Edge e : G.edges())</tt>.
+     *
+     * @return all edges in this edge-weighted graph, as an iterable
+     */
+    public Iterable<Edge> edges() {
+        Bag<Edge> list = new Bag<Edge>();
+        for (int v = 0; v < V; v++) {
+            int selfLoops = 0;
+            for (Edge e : adj(v)) {
+                if (e.other(v) > v) {
+                    list.add(e);
+                }
+                // only add one copy of each self loop (self loops will be consecutive)
+                else if (e.other(v) == v) {
+                    if (selfLoops % 2 == 0) list.add(e);
+                    selfLoops++;
+                }
+            }
+        }
+        return list;
+    }
+
+    /**
+     * Makes this graph, its edges and its beacons read-only, so that it can be
+     * shared between threads without locks: from now on adding edges or beacons,
+     * changing an edge weight or changing a beacon throws an
+     * <tt>IllegalStateException</tt>. A graph can not be unfrozen; use
+     * {@link #mutableCopy} to change it.
+     *
+     * @return this graph
+     */
+    public Graph freeze() {
+        if (frozen) return this;
+        for (int v = 0; v < V; v++) {
+            for (Edge e : adj[v]) e.freeze();
+            Beacon b = beaconST.get(v);
+            if (b != null) b.freeze();
+        }
+        frozen = true;
+        return this;
+    }
+
+    public boolean isFrozen() {
+        return frozen;
+    }
+
+    /**
+     * Returns a copy of this graph that can be changed, with its own edges and
+     * beacons, numbered the same. The near places are shared, as they can not be
+     * changed. The weight listeners are not copied.
+     *
+     * @return the copy, not frozen
+     */
+    public Graph mutableCopy() {
+        Graph copy = new Graph(V);
+        Map<Edge, Edge> copies = new IdentityHashMap<Edge, Edge>();
+        for (Edge e : edges()) {
+            Edge c = new Edge(e.v, e.w, e.getWeight(), e.compass, e.attributes);
+            copies.put(e, c);
+            copy.addEdge(c);
+        }
+        for (int v = 0; v < V; v++) {
+            Beacon b = beaconST.get(v);
+            if (b != null) copy.addBeacon(b.copy(copies));
+        }
+        copy.order = order;
+        return copy;
+    }
+
+    /**
+     * Estimates the bytes of the adjacency lists and the edges of this graph.
+     *
+     * @return the estimated bytes
+     */
+    public long estimateAdjacencyBytes() {
+        long bytes = MemorySizes.array(V, MemorySizes.REFERENCE) + E * Edge.estimateBytes();
+        for (int v = 0; v < V; v++)
+            bytes += adj[v].estimateBytes();
+        return bytes;
+    }
+
+    /**
+     * Estimates the bytes of the beacons of this graph and of the tables that find
+     * them, not counting their strings.
+     *
+     * @return the estimated bytes
+     */
+    public long estimateBeaconBytes() {
+        int n = beaconST.size();
+        long bytes = MemorySizes.treeMap(n) + MemorySizes.hashMap(uniqueIds.size())
+                + (n + uniqueIds.size()) * MemorySizes.object(4); // Integer keys and values
+        for (Integer v : beaconST.keys())
+            bytes += beaconST.get(v).estimateBytes();
+        return bytes;
+    }
+
+    private void checkNotFrozen() {
+        if (frozen) throw new IllegalStateException("graph is frozen");
+    }
+}
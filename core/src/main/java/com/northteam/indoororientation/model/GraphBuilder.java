@@ -0,0 +1,208 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.util.LongHashSet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Builds a {@link Graph} from edges and near places given in bulk, in time
+ * proportional to their number.
+ * <p>
+ * A map file lists most connections twice, once from each end, and may list a
+ * near place twice for a beacon. The builder keeps the first edge between two
+ * vertices and the first near place of a beacon with a given place id, finding
+ * duplicates in a {@link LongHashSet} of packed vertex pairs. {@link #build}
+ * then counts the degree of every vertex and fills adjacency arrays of exactly
+ * that size, in one pass over the edges, instead of growing them one edge at
+ * a time.
+ * <p>
+ * A builder builds one graph.
+ */
+public class GraphBuilder {
+
+    private final int V;
+    private final long created = System.nanoTime();
+    private final LongHashSet edgeKeys;
+    private final LongHashSet placeKeys;
+    private Edge[] edges;
+    private int E;
+    private final Beacon[] beacons;
+    private final ArrayList<NearPlace>[] nearPlaces;
+    private boolean built;
+
+    /**
+     * @param V             the number of vertices
+     * @param expectedEdges about how many edges will be added, duplicates included
+     * @throws IllegalArgumentException if <tt>V</tt> is negative
+     */
+    public GraphBuilder(int V, int expectedEdges) {
+        if (V < 0) throw new IllegalArgumentException("Number of vertices must be nonnegative");
+        this.V = V;
+        this.edgeKeys = new LongHashSet(expectedEdges);
+        this.placeKeys = new LongHashSet(16);
+        this.edges = new Edge[Math.max(16, expectedEdges)];
+        this.beacons = new Beacon[V];
+        @SuppressWarnings("unchecked") // an array of a generic type can not be created
+        ArrayList<NearPlace>[] lists = (ArrayList<NearPlace>[]) new ArrayList[V];
+        this.nearPlaces = lists;
+    }
+
+    /**
+     * Returns a builder with the beacons of a map file and the edges and near
+     * places they list. Every beacon is a vertex, numbered by its id.
+     *
+     * @param  beacons the beacons returned by {@link XmlParser#parseBeacons}
+     * @throws IndexOutOfBoundsException if an edge references a vertex that is not a beacon id
+     */
+    public static GraphBuilder of(List<Beacon> beacons) {
+        int maxId = -1;
+        int listed = 0;
+        for (Beacon b : beacons) {
+            if (b.getId() > maxId) maxId = b.getId();
+            listed += b.getAdj().size();
+        }
+        GraphBuilder builder = new GraphBuilder(maxId + 1, listed);
+        for (Beacon b : beacons)
+            builder.addBeacon(b);
+        return builder;
+    }
+
+    /**
+     * Adds a beacon, the edges it lists and the places near it. Once the graph is
+     * built, the beacon lists the edges of the graph incident on it and its near
+     * places without duplicates.
+     *
+     * @param  b the beacon
+     * @return this builder
+     * @throws IndexOutOfBoundsException unless its id and the ends of its edges are between 0 and V-1
+     * @throws IllegalStateException if the graph was built
+     */
+    public GraphBuilder addBeacon(Beacon b) {
+        checkNotBuilt();
+        validateVertex(b.getId());
+        b.checkNotFrozen();
+        beacons[b.id] = b;
+        for (Edge e : b.getAdj())
+            addEdge(e);
+        for (NearPlace np : b.getAdjNear())
+            addNearPlace(b.id, np);
+        return this;
+    }
+
+    /**
+     * Adds the undirected edge <tt>e</tt>, unless there is already an edge between
+     * its ends.
+     *
+     * @param  e the edge
+     * @return <tt>true</tt> if the edge was added
+     * @throws IndexOutOfBoundsException unless both ends are between 0 and V-1
+     * @throws IllegalStateException if the graph was built
+     */
+    public boolean addEdge(Edge e) {
+        checkNotBuilt();
+        validateVertex(e.v);
+        validateVertex(e.w);
+        if (!edgeKeys.add(LongHashSet.pack(Math.min(e.v, e.w), Math.max(e.v, e.w)))) return false;
+        append(e);
+        return true;
+    }
+
+    // adds e even if there is already an edge between its ends, to copy a graph with parallel edges
+    void addParallelEdge(Edge e) {
+        checkNotBuilt();
+        validateVertex(e.v);
+        validateVertex(e.w);
+        append(e);
+    }
+
+    private void append(Edge e) {
+        if (E == edges.length) edges = Arrays.copyOf(edges, 2 * E);
+        edges[E++] = e;
+    }
+
+    /**
+     * Adds a place near the beacon at vertex <tt>v</tt>, unless the beacon
+     * already has a near place with the same id.
+     *
+     * @param  v the vertex of the beacon
+     * @param  np the near place
+     * @return <tt>true</tt> if the near place was added
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     * @throws IllegalStateException if the graph was built
+     */
+    public boolean addNearPlace(int v, NearPlace np) {
+        checkNotBuilt();
+        validateVertex(v);
+        if (!placeKeys.add(LongHashSet.pack(v, np.id))) return false;
+        if (nearPlaces[v] == null) nearPlaces[v] = new ArrayList<NearPlace>(4);
+        nearPlaces[v].add(np);
+        return true;
+    }
+
+    /**
+     * Returns the number of edges added so far, duplicates left out.
+     */
+    public int getE() {
+        return E;
+    }
+
+    /**
+     * Builds the graph.
+     *
+     * @return the graph, not frozen
+     * @throws IllegalStateException if the graph was built already
+     */
+    public Graph build() {
+        checkNotBuilt();
+        built = true;
+        return new Graph(this);
+    }
+
+    // the adjacency lists, filled in the order the edges were added
+    EdgeList[] adjacency() {
+        int[] degree = new int[V];
+        for (int i = 0; i < E; i++) {
+            degree[edges[i].v]++;
+            degree[edges[i].w]++;
+        }
+        EdgeList[] adj = new EdgeList[V];
+        for (int v = 0; v < V; v++)
+            adj[v] = new EdgeList(degree[v]);
+        for (int i = 0; i < E; i++) {
+            adj[edges[i].v].add(edges[i]);
+            adj[edges[i].w].add(edges[i]);
+        }
+        return adj;
+    }
+
+    // gives every beacon the edges of the graph incident on it and its near places
+    Beacon[] beacons(EdgeList[] adj) {
+        for (int v = 0; v < V; v++) {
+            Beacon b = beacons[v];
+            if (b == null) continue;
+            ArrayList<Edge> incident = new ArrayList<Edge>(adj[v].size());
+            for (int i = 0; i < adj[v].size(); i++) incident.add(adj[v].get(i));
+            b.setLists(incident, nearPlaces[v] != null ? nearPlaces[v] : new ArrayList<NearPlace>(0));
+        }
+        return beacons;
+    }
+
+    int getV() {
+        return V;
+    }
+
+    long getCreated() {
+        return created;
+    }
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+
+    private void checkNotBuilt() {
+        if (built) throw new IllegalStateException("the graph was built");
+    }
+}
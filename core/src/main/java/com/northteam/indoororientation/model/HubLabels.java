@@ -0,0 +1,419 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A hub labelling of the {@link Graph}: walking distances between any two
+ * vertices without searching the graph, for lists of destinations with their
+ * distance, where the path itself is not needed.
+ * <p>
+ * Every vertex <tt>v</tt> has a label, the hubs it reaches and the distances to
+ * them, such that a shortest path between any two vertices goes through a hub
+ * of both of their labels. The distance between them is then the least sum of
+ * the distances to a hub the two labels share, which a merge of the two labels
+ * finds in time proportional to their length, a few tens of entries on the maps
+ * of a venue. The hubs of a label are kept sorted in an <tt>int[]</tt> and the
+ * distances in a <tt>float[]</tt> alongside.
+ * <p>
+ * The labels are computed by pruned landmark labelling (Akiba, Iwata and
+ * Yoshida): the vertices are ranked by how many shortest paths go through them,
+ * estimated from a few shortest paths trees, and a Dijkstra search from every
+ * vertex in rank order adds it as a hub to the vertices it reaches, pruned where
+ * the labels computed so far already give the distance. That takes time, so the
+ * labels are meant to be computed once per map, e.g. by the
+ * <tt>LabelIndexer</tt> of the tools, written with
+ * {@link #write} and read with {@link #read} next to the map.
+ * <p>
+ * The labels are for the weights of the graph when they were computed; use a
+ * {@link DistanceTable} for weights that change. They can be read by any number
+ * of threads at once.
+ * <p>
+ * The layout of the file, big endian:
+ * <pre>
+ * header : int MAGIC, short VERSION, int V, int E, int avoid, long fingerprint
+ * label  : int n, int[n] hubs, float[n] distances      (one for every vertex)
+ * </pre>
+ * <tt>avoid</tt> are the attributes of the {@link RouteProfile} and the
+ * fingerprint is a hash of the edges and their weights, so that labels of
+ * another version of the map are not read.
+ */
+public class HubLabels {
+
+    static final int MAGIC = 0x494F484C; // "IOHL"
+    static final short VERSION = 1;
+    private static final int SAMPLES = 16; // least number of shortest paths trees sampled in a round of ranking
+
+    private final int V;
+    private final int E;
+    private final int avoid;
+    private final long fingerprint;
+    private final int[][] hubs;         // hubs[v] = ranks of the hubs of v, increasing
+    private final float[][] distances;  // distances[v][i] = distance from v to the hub hubs[v][i]
+
+    /**
+     * Computes the labels of every vertex of <tt>G</tt>.
+     *
+     * @param  G the graph
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public HubLabels(Graph G) {
+        this(G, RouteProfile.ANY);
+    }
+
+    /**
+     * Computes the labels of every vertex of <tt>G</tt>, for the distances over
+     * the edges <tt>profile</tt> allows.
+     *
+     * @param  G the graph
+     * @param  profile the edges that can be used
+     * @throws IllegalArgumentException if an edge weight is negative
+     */
+    public HubLabels(Graph G, RouteProfile profile) {
+        this.V = G.getV();
+        this.E = G.getE();
+        this.avoid = profile.getAvoid();
+        this.fingerprint = fingerprint(G);
+        this.hubs = new int[V][];
+        this.distances = new float[V][];
+        int[] size = new int[V];
+        for (int v = 0; v < V; v++) {
+            hubs[v] = new int[4];
+            distances[v] = new float[4];
+        }
+
+        int[] byRank = byCentrality(G, profile);
+        int[] rank = new int[V];
+        for (int r = 0; r < V; r++)
+            rank[byRank[r]] = r;
+
+        float[] root = new float[V];   // root[r] = distance from the root to the hub of rank r
+        float[] distTo = new float[V];
+        int[] reached = new int[V];
+        Arrays.fill(root, Float.POSITIVE_INFINITY);
+        Arrays.fill(distTo, Float.POSITIVE_INFINITY);
+        IndexMinPQ pq = new IndexMinPQ(V);
+        for (int r = 0; r < V; r++) {
+            int s = byRank[r];
+            for (int i = 0; i < size[s]; i++)
+                root[hubs[s][i]] = distances[s][i];
+            int n = 0;
+            distTo[s] = 0;
+            reached[n++] = s;
+            pq.insert(s, 0);
+            while (!pq.isEmpty()) {
+                float d = pq.minKey();
+                int v = pq.delMin();
+                if (covered(root, hubs[v], distances[v], size[v], d)) continue;
+                if (size[v] == hubs[v].length) {
+                    hubs[v] = Arrays.copyOf(hubs[v], 2 * size[v]);
+                    distances[v] = Arrays.copyOf(distances[v], 2 * size[v]);
+                }
+                hubs[v][size[v]] = r;
+                distances[v][size[v]++] = d;
+                for (Edge e : G.adj(v)) {
+                    if (!profile.allows(e)) continue;
+                    int w = e.other(v);
+                    if (e.getWeight() < 0)
+                        throw new IllegalArgumentException("edge " + v + "-" + w + " has negative weight");
+                    if (rank[w] < r) continue; // a hub already, so the search would be pruned there
+                    float dw = d + e.getWeight();
+                    if (dw >= distTo[w]) continue;
+                    if (distTo[w] == Float.POSITIVE_INFINITY) reached[n++] = w;
+                    distTo[w] = dw;
+                    if (pq.contains(w)) pq.decreaseKey(w, dw);
+                    else pq.insert(w, dw);
+                }
+            }
+            for (int i = 0; i < n; i++)
+                distTo[reached[i]] = Float.POSITIVE_INFINITY;
+            for (int i = 0; i < size[s]; i++)
+                root[hubs[s][i]] = Float.POSITIVE_INFINITY;
+        }
+        for (int v = 0; v < V; v++) {
+            hubs[v] = Arrays.copyOf(hubs[v], size[v]);
+            distances[v] = Arrays.copyOf(distances[v], size[v]);
+        }
+    }
+
+    private HubLabels(int V, int E, int avoid, long fingerprint, int[][] hubs, float[][] distances) {
+        this.V = V;
+        this.E = E;
+        this.avoid = avoid;
+        this.fingerprint = fingerprint;
+        this.hubs = hubs;
+        this.distances = distances;
+    }
+
+    // true if the labels so far give a distance of at most d from the root to v
+    private static boolean covered(float[] root, int[] hubs, float[] distances, int n, float d) {
+        for (int i = 0; i < n; i++)
+            if (root[hubs[i]] + distances[i] <= d) return true;
+        return false;
+    }
+
+    /*
+     * The vertices by decreasing number of shortest paths through them, counted
+     * in the shortest paths trees of a sample of vertices: a vertex scores the
+     * vertices below it in every tree. Ranking is done in rounds of 1, 2, 4...
+     * vertices; the vertices ranked in a round cut the paths of the next ones, so
+     * that a long corridor is split at its middle, then at its quarters, and so on,
+     * rather than ranking the neighbours of its middle next. The vertices left
+     * after the rounds are ranked by their last score.
+     */
+    private static int[] byCentrality(Graph G, RouteProfile profile) {
+        int V = G.getV();
+        int[] sorted = new int[V];
+        boolean[] ranked = new boolean[V];
+        long[] score = new long[V];
+        int[] parent = new int[V];
+        int[] settled = new int[V];
+        int[] below = new int[V];
+        float[] distTo = new float[V];
+        Arrays.fill(distTo, Float.POSITIVE_INFINITY);
+        IndexMinPQ pq = new IndexMinPQ(V);
+        Random random = new Random(V);
+        int n = 0;
+        for (int round = 1; n < V && round <= V / SAMPLES; round *= 2) {
+            Arrays.fill(score, 0);
+            for (int k = 0; k < Math.max(SAMPLES, round); k++) {
+                int s = random.nextInt(V);
+                if (ranked[s]) continue;
+                distTo[s] = 0;
+                parent[s] = -1;
+                pq.insert(s, 0);
+                int reached = 0;
+                while (!pq.isEmpty()) {
+                    int v = pq.delMin();
+                    settled[reached++] = v;
+                    below[v] = 1;
+                    for (Edge e : G.adj(v)) {
+                        if (!profile.allows(e)) continue;
+                        int w = e.other(v);
+                        if (ranked[w]) continue;
+                        float dw = distTo[v] + e.getWeight();
+                        if (dw >= distTo[w]) continue;
+                        distTo[w] = dw;
+                        parent[w] = v;
+                        if (pq.contains(w)) pq.decreaseKey(w, dw);
+                        else pq.insert(w, dw);
+                    }
+                }
+                for (int i = reached - 1; i >= 0; i--) {
+                    int v = settled[i];
+                    score[v] += below[v];
+                    if (parent[v] >= 0) below[parent[v]] += below[v];
+                    distTo[v] = Float.POSITIVE_INFINITY;
+                }
+            }
+            int[] best = byScore(G, score, ranked);
+            for (int i = 0; i < Math.min(round, best.length) && score[best[i]] > 0; i++) {
+                ranked[best[i]] = true;
+                sorted[n++] = best[i];
+            }
+        }
+        int[] rest = byScore(G, score, ranked);
+        System.arraycopy(rest, 0, sorted, n, rest.length);
+        return sorted;
+    }
+
+    // the vertices not ranked yet by decreasing score, then by decreasing degree
+    private static int[] byScore(Graph G, long[] score, boolean[] ranked) {
+        long[] keys = new long[score.length];
+        int n = 0;
+        for (int v = 0; v < score.length; v++) {
+            if (ranked[v]) continue;
+            long priority = Math.min(Integer.MAX_VALUE, 16 * score[v] + Math.min(G.degree(v), 15));
+            keys[n++] = (Integer.MAX_VALUE - priority) << 32 | v;
+        }
+        Arrays.sort(keys, 0, n);
+        int[] sorted = new int[n];
+        for (int i = 0; i < n; i++)
+            sorted[i] = (int) keys[i];
+        return sorted;
+    }
+
+    // a hash of the ends, weights and attributes of the edges of G
+    private static long fingerprint(Graph G) {
+        long h = G.getV();
+        for (int v = 0; v < G.getV(); v++) {
+            for (Edge e : G.adj(v)) {
+                h = 31 * h + e.other(v);
+                h = 31 * h + Float.floatToIntBits(e.getWeight());
+                h = 31 * h + e.attributes;
+            }
+            h = 31 * h - 1;
+        }
+        return h;
+    }
+
+    /**
+     * Returns the walking distance between vertices <tt>v</tt> and <tt>w</tt>.
+     *
+     * @param  v one vertex
+     * @param  w the other vertex
+     * @return the distance; <tt>Float.POSITIVE_INFINITY</tt> if there is no path
+     * @throws IndexOutOfBoundsException unless both vertices are between 0 and V-1
+     */
+    public float distance(int v, int w) {
+        validateVertex(v);
+        validateVertex(w);
+        return merge(hubs[v], distances[v], hubs[w], distances[w]);
+    }
+
+    /**
+     * Computes the walking distances from vertex <tt>v</tt> to many targets.
+     *
+     * @param  v the source vertex
+     * @param  targets the target vertices
+     * @param  distances receives the distance to <tt>targets[i]</tt> in
+     *         <tt>distances[i]</tt>; <tt>Float.POSITIVE_INFINITY</tt> where there is no path
+     * @throws IndexOutOfBoundsException unless every vertex is between 0 and V-1,
+     *         or if <tt>distances</tt> is shorter than <tt>targets</tt>
+     */
+    public void distances(int v, int[] targets, float[] distances) {
+        validateVertex(v);
+        if (distances.length < targets.length)
+            throw new IndexOutOfBoundsException("room for " + distances.length + " distances, not " + targets.length);
+        int[] hv = hubs[v];
+        float[] dv = this.distances[v];
+        for (int i = 0; i < targets.length; i++) {
+            int w = targets[i];
+            validateVertex(w);
+            distances[i] = merge(hv, dv, hubs[w], this.distances[w]);
+        }
+    }
+
+    // the least distance through a hub of both labels
+    private static float merge(int[] hv, float[] dv, int[] hw, float[] dw) {
+        float best = Float.POSITIVE_INFINITY;
+        int i = 0;
+        int j = 0;
+        while (i < hv.length && j < hw.length) {
+            if (hv[i] < hw[j]) i++;
+            else if (hv[i] > hw[j]) j++;
+            else {
+                float d = dv[i++] + dw[j++];
+                if (d < best) best = d;
+            }
+        }
+        return best;
+    }
+
+    public int getV() {
+        return V;
+    }
+
+    /**
+     * Returns the number of hubs in the label of vertex <tt>v</tt>.
+     *
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public int labelSize(int v) {
+        validateVertex(v);
+        return hubs[v].length;
+    }
+
+    /**
+     * Returns the average number of hubs in a label, on which the time of a
+     * query depends.
+     */
+    public double averageLabelSize() {
+        long total = 0;
+        for (int v = 0; v < V; v++)
+            total += hubs[v].length;
+        return V == 0 ? 0 : (double) total / V;
+    }
+
+    /**
+     * Returns true if these labels were computed for graph <tt>G</tt>, with its
+     * current weights, and <tt>profile</tt>.
+     */
+    public boolean matches(Graph G, RouteProfile profile) {
+        return G.getV() == V && G.getE() == E && profile.getAvoid() == avoid && fingerprint(G) == fingerprint;
+    }
+
+    /**
+     * Estimates the bytes of the labels.
+     *
+     * @return the estimated bytes
+     */
+    public long estimateBytes() {
+        long bytes = MemorySizes.object(3 * 4 + 8 + 2 * MemorySizes.REFERENCE)
+                + 2 * MemorySizes.array(V, MemorySizes.REFERENCE);
+        for (int v = 0; v < V; v++)
+            bytes += MemorySizes.array(hubs[v].length, 4) + MemorySizes.array(distances[v].length, 4);
+        return bytes;
+    }
+
+    /**
+     * Writes the labels; the stream is flushed but not closed.
+     *
+     * @param  out the stream to write to
+     * @throws IOException if the labels can not be written
+     */
+    public void write(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out, 64 * 1024));
+        data.writeInt(MAGIC);
+        data.writeShort(VERSION);
+        data.writeInt(V);
+        data.writeInt(E);
+        data.writeInt(avoid);
+        data.writeLong(fingerprint);
+        for (int v = 0; v < V; v++) {
+            data.writeInt(hubs[v].length);
+            for (int h : hubs[v]) data.writeInt(h);
+            for (float d : distances[v]) data.writeFloat(d);
+        }
+        data.flush();
+    }
+
+    /**
+     * Reads labels written by {@link #write}; the stream is not closed.
+     *
+     * @param  in the stream to read from
+     * @param  G the graph the labels must have been computed for
+     * @param  profile the profile the labels must have been computed for
+     * @return the labels
+     * @throws IOException if the labels can not be read, or were computed for
+     *         another graph, other weights or another profile
+     */
+    public static HubLabels read(InputStream in, Graph G, RouteProfile profile) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in, 64 * 1024));
+        if (data.readInt() != MAGIC) throw new IOException("not hub labels");
+        short version = data.readShort();
+        if (version != VERSION) throw new IOException("Unsupported hub labels version " + version);
+        int V = data.readInt();
+        int E = data.readInt();
+        int avoid = data.readInt();
+        long fingerprint = data.readLong();
+        if (V != G.getV() || E != G.getE() || avoid != profile.getAvoid() || fingerprint != fingerprint(G))
+            throw new IOException("the hub labels are of another version of the map or another profile");
+        int[][] hubs = new int[V][];
+        float[][] distances = new float[V][];
+        for (int v = 0; v < V; v++) {
+            int n = data.readInt();
+            if (n < 0 || n > V) throw new IOException("corrupt label of vertex " + v);
+            hubs[v] = new int[n];
+            distances[v] = new float[n];
+            for (int i = 0; i < n; i++) hubs[v][i] = data.readInt();
+            for (int i = 0; i < n; i++) distances[v][i] = data.readFloat();
+        }
+        return new HubLabels(V, E, avoid, fingerprint, hubs, distances);
+    }
+
+    // throw an IndexOutOfBoundsException unless 0 <= v < V
+    private void validateVertex(int v) {
+        if (v < 0 || v >= V)
+            throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (V - 1));
+    }
+}
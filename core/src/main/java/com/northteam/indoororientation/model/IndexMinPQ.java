@@ -0,0 +1,241 @@
+package com.northteam.indoororientation.model;
+
+/******************************************************************************
+ * Compilation:  javac IndexMinPQ.java
+ * Execution:    java IndexMinPQ
+ * Dependencies: none
+ * <p/>
+ * Minimum-oriented indexed PQ implementation using a binary heap,
+ * specialised to <tt>float</tt> keys so that the shortest path searches
+ * do not box every distance.
+ ******************************************************************************/
+
+import com.northteam.indoororientation.memory.MemorySizes;
+
+import java.util.NoSuchElementException;
+
+/**
+ *  The <tt>IndexMinPQ</tt> class represents an indexed priority queue of
+ *  <tt>float</tt> keys. It supports the usual <em>insert</em> and
+ *  <em>delete-the-minimum</em> operations, along with <em>delete</em> and
+ *  <em>change-the-key</em> methods. In order to let the client refer to keys
+ *  on the priority queue, an integer between 0 and maxN-1 is associated with
+ *  each key&mdash;the client uses this integer to specify which key to
+ *  delete or change.
+ *  <p>
+ *  This implementation uses a binary heap along with an array to associate
+ *  keys with integers in the given range.
+ *  The <em>insert</em>, <em>delete-the-minimum</em>, <em>delete</em>,
+ *  <em>change-key</em>, <em>decrease-key</em>, and <em>increase-key</em>
+ *  operations take logarithmic time.
+ *  The <em>is-empty</em>, <em>size</em>, <em>min-index</em>, <em>min-key</em>,
+ *  and <em>key-of</em> operations take constant time.
+ *  Construction takes time proportional to the specified capacity.
+ *  <p>
+ *  For additional documentation, see <a href="http://algs4.cs.princeton.edu/24pq">Section 2.4</a> of
+ *  <i>Algorithms, 4th Edition</i> by Robert Sedgewick and Kevin Wayne.
+ *
+ *  @author Robert Sedgewick
+ *  @author Kevin Wayne
+ */
+public class IndexMinPQ {
+    private int maxN;        // maximum number of elements on PQ
+    private int N;           // number of elements on PQ
+    private int[] pq;        // binary heap using 1-based indexing
+    private int[] qp;        // inverse of pq - qp[pq[i]] = pq[qp[i]] = i
+    private float[] keys;    // keys[i] = priority of i
+
+    // bytes of the queue on the heap
+    long estimateBytes() {
+        return MemorySizes.object(2 * 4 + 3 * MemorySizes.REFERENCE)
+                + 2 * MemorySizes.array(maxN + 1, 4) + MemorySizes.array(maxN + 1, 4);
+    }
+
+    /**
+     * Initializes an empty indexed priority queue with indices between <tt>0</tt>
+     * and <tt>maxN - 1</tt>.
+     *
+     * @param  maxN the keys on this priority queue are index from <tt>0</tt>
+     *         <tt>maxN - 1</tt>
+     * @throws IllegalArgumentException if <tt>maxN</tt> &lt; <tt>0</tt>
+     */
+    public IndexMinPQ(int maxN) {
+        if (maxN < 0) throw new IllegalArgumentException();
+        this.maxN = maxN;
+        keys = new float[maxN + 1];
+        pq   = new int[maxN + 1];
+        qp   = new int[maxN + 1];
+        for (int i = 0; i <= maxN; i++)
+            qp[i] = -1;
+    }
+
+    /**
+     * Returns true if this priority queue is empty.
+     *
+     * @return <tt>true</tt> if this priority queue is empty;
+     *         <tt>false</tt> otherwise
+     */
+    public boolean isEmpty() {
+        return N == 0;
+    }
+
+    /**
+     * Is <tt>i</tt> an index on this priority queue?
+     *
+     * @param  i an index
+     * @return <tt>true</tt> if <tt>i</tt> is an index on this priority queue;
+     *         <tt>false</tt> otherwise
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>i</tt> &lt; <tt>maxN</tt>
+     */
+    public boolean contains(int i) {
+        if (i < 0 || i >= maxN) throw new IndexOutOfBoundsException();
+        return qp[i] != -1;
+    }
+
+    /**
+     * Returns the number of keys on this priority queue.
+     *
+     * @return the number of keys on this priority queue
+     */
+    public int size() {
+        return N;
+    }
+
+    /**
+     * Associates key with index <tt>i</tt>.
+     *
+     * @param  i an index
+     * @param  key the key to associate with index <tt>i</tt>
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>i</tt> &lt; <tt>maxN</tt>
+     * @throws IllegalArgumentException if there already is an item associated
+     *         with index <tt>i</tt>
+     */
+    public void insert(int i, float key) {
+        if (i < 0 || i >= maxN) throw new IndexOutOfBoundsException();
+        if (contains(i)) throw new IllegalArgumentException("index is already in the priority queue");
+        N++;
+        qp[i] = N;
+        pq[N] = i;
+        keys[i] = key;
+        swim(N);
+    }
+
+    /**
+     * Returns an index associated with a minimum key.
+     *
+     * @return an index associated with a minimum key
+     * @throws NoSuchElementException if this priority queue is empty
+     */
+    public int minIndex() {
+        if (N == 0) throw new NoSuchElementException("Priority queue underflow");
+        return pq[1];
+    }
+
+    /**
+     * Returns a minimum key.
+     *
+     * @return a minimum key
+     * @throws NoSuchElementException if this priority queue is empty
+     */
+    public float minKey() {
+        if (N == 0) throw new NoSuchElementException("Priority queue underflow");
+        return keys[pq[1]];
+    }
+
+    /**
+     * Removes a minimum key and returns its associated index.
+     *
+     * @return an index associated with a minimum key
+     * @throws NoSuchElementException if this priority queue is empty
+     */
+    public int delMin() {
+        if (N == 0) throw new NoSuchElementException("Priority queue underflow");
+        int min = pq[1];
+        exch(1, N--);
+        sink(1);
+        qp[min] = -1;        // delete
+        pq[N+1] = -1;        // not needed
+        return min;
+    }
+
+    /**
+     * Returns the key associated with index <tt>i</tt>.
+     *
+     * @param  i the index of the key to return
+     * @return the key associated with index <tt>i</tt>
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>i</tt> &lt; <tt>maxN</tt>
+     * @throws NoSuchElementException no key is associated with index <tt>i</tt>
+     */
+    public float keyOf(int i) {
+        if (i < 0 || i >= maxN) throw new IndexOutOfBoundsException();
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        else return keys[i];
+    }
+
+    /**
+     * Decrease the key associated with index <tt>i</tt> to the specified value.
+     *
+     * @param  i the index of the key to decrease
+     * @param  key decrease the key associated with index <tt>i</tt> to this key
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>i</tt> &lt; <tt>maxN</tt>
+     * @throws IllegalArgumentException if key &ge; key associated with index <tt>i</tt>
+     * @throws NoSuchElementException no key is associated with index <tt>i</tt>
+     */
+    public void decreaseKey(int i, float key) {
+        if (i < 0 || i >= maxN) throw new IndexOutOfBoundsException();
+        if (!contains(i)) throw new NoSuchElementException("index is not in the priority queue");
+        if (keys[i] <= key)
+            throw new IllegalArgumentException("Calling decreaseKey() with given argument would not strictly decrease the key");
+        keys[i] = key;
+        swim(qp[i]);
+    }
+
+    /**
+     * Removes every key from this priority queue, so that the same instance
+     * can be reused by the next search.
+     */
+    public void clear() {
+        for (int k = 1; k <= N; k++) {
+            qp[pq[k]] = -1;
+            pq[k] = -1;
+        }
+        N = 0;
+    }
+
+
+   /***************************************************************************
+    * General helper functions.
+    ***************************************************************************/
+    private boolean greater(int i, int j) {
+        return keys[pq[i]] > keys[pq[j]];
+    }
+
+    private void exch(int i, int j) {
+        int swap = pq[i];
+        pq[i] = pq[j];
+        pq[j] = swap;
+        qp[pq[i]] = i;
+        qp[pq[j]] = j;
+    }
+
+
+   /***************************************************************************
+    * Heap helper functions.
+    ***************************************************************************/
+    private void swim(int k) {
+        while (k > 1 && greater(k/2, k)) {
+            exch(k, k/2);
+            k = k/2;
+        }
+    }
+
+    private void sink(int k) {
+        while (2*k <= N) {
+            int j = 2*k;
+            if (j < N && greater(j, j+1)) j++;
+            if (!greater(k, j)) break;
+            exch(k, j);
+            k = j;
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.northteam.indoororientation.model;
+
+/**
+ * One leg of a route: a straight walk in a single direction, possibly over
+ * several edges, followed by a turn. Instances are owned and reused by the
+ * {@link InstructionGenerator}, so they must not be kept after the next call
+ * to {@link InstructionGenerator#generate}.
+ */
+public class Instruction {
+
+    public static final int STRAIGHT = 0;
+    public static final int RIGHT = 1;
+    public static final int BACK = 2;
+    public static final int LEFT = 3;
+    public static final int ARRIVE = 4;
+
+    int from;
+    int to;
+    char compass;
+    float distance;
+    int edges;
+    int turn;
+    int landmark;
+    final StringBuilder text = new StringBuilder(64);
+
+    /**
+     * @return the vertex where the leg starts
+     */
+    public int getFrom() {
+        return from;
+    }
+
+    /**
+     * @return the vertex where the leg ends
+     */
+    public int getTo() {
+        return to;
+    }
+
+    /**
+     * @return the direction of the leg
+     */
+    public char getCompass() {
+        return compass;
+    }
+
+    /**
+     * @return the length of the leg, in metres
+     */
+    public float getDistance() {
+        return distance;
+    }
+
+    /**
+     * @return the number of edges folded into this leg
+     */
+    public int getEdges() {
+        return edges;
+    }
+
+    /**
+     * @return the turn at the end of the leg: {@link #STRAIGHT}, {@link #RIGHT},
+     *         {@link #BACK}, {@link #LEFT} or {@link #ARRIVE}
+     */
+    public int getTurn() {
+        return turn;
+    }
+
+    /**
+     * @return the place seen at the end of the leg, as its position in the list
+     *         of places the {@link InstructionGenerator} was given (see
+     *         {@link MapDictionary#placeOf}), or -1
+     */
+    public int getLandmark() {
+        return landmark;
+    }
+
+    /**
+     * @return the text of the instruction, e.g. "Go north 12 m towards WC F, then turn left"
+     */
+    public CharSequence getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return text.toString();
+    }
+}
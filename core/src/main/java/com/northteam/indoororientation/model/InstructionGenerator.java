@@ -0,0 +1,161 @@
+package com.northteam.indoororientation.model;
+
+import java.util.List;
+
+/**
+ * Turns a route into turn-by-turn instructions. Consecutive edges walked in the
+ * same direction are folded into one leg, the turn at the end of each leg comes
+ * from the change of <tt>compass</tt>, and the closest {@link NearPlace} of the
+ * beacon at the end of the leg is given as a landmark.
+ * <p>
+ * The landmark of every vertex and the text fragments for every direction, turn
+ * and place are prepared once when the generator is created. Generating the
+ * instructions of a route only copies those fragments into the reused
+ * {@link Instruction} objects, so re-routing does not create garbage.
+ */
+public class InstructionGenerator {
+
+    private final int[] landmarkOf;         // landmarkOf[v] = closest place seen from v, or -1 if unknown
+    private final String[] prefixes;        // "Go north " ... by direction
+    private final String[] turnEndings;     // by turn
+    private final String[] landmarkTexts;   // " towards WC F" by position in the list of places
+    private final String metres;
+    private final String arrive;
+
+    private Instruction[] instructions = new Instruction[8];
+    private int N;
+
+    public InstructionGenerator(Graph G, List<Place> places) {
+        this(G, places, InstructionTemplates.ENGLISH);
+    }
+
+    /**
+     * @param G         the map
+     * @param places    the places of the map, used to name the landmarks
+     * @param templates the words the instructions are made of
+     */
+    public InstructionGenerator(Graph G, List<Place> places, InstructionTemplates templates) {
+        this(new MapDictionary(G, places), templates);
+    }
+
+    /**
+     * @param dictionary the map and its places, used to name the landmarks
+     * @param templates  the words the instructions are made of
+     */
+    public InstructionGenerator(MapDictionary dictionary, InstructionTemplates templates) {
+        Graph G = dictionary.getGraph();
+        landmarkOf = new int[G.getV()];
+        for (int v = 0; v < G.getV(); v++) {
+            landmarkOf[v] = -1;
+            Beacon b = G.getBeacon(v);
+            if (b == null) continue;
+            float best = Float.POSITIVE_INFINITY;
+            for (NearPlace np : b.getAdjNear()) {
+                if (np.getDistance() < best) {
+                    best = np.getDistance();
+                    landmarkOf[v] = dictionary.placeOf(np);
+                }
+            }
+        }
+
+        List<Place> places = dictionary.getPlaces();
+        landmarkTexts = new String[places.size()];
+        for (int p = 0; p < landmarkTexts.length; p++)
+            landmarkTexts[p] = templates.towards + places.get(p).getName();
+
+        prefixes = new String[4];
+        for (int d = 0; d < 4; d++)
+            prefixes[d] = templates.go + templates.directions[d] + " ";
+        turnEndings = templates.turns.clone();
+        metres = templates.metres;
+        arrive = templates.arrive;
+        for (int i = 0; i < instructions.length; i++)
+            instructions[i] = new Instruction();
+    }
+
+    /**
+     * Replaces the current instructions with those of a new route.
+     *
+     * @param  source the vertex where the route starts
+     * @param  route the edges of the route in walking order, as returned by {@link Router#route}
+     * @return the number of instructions
+     */
+    public int generate(int source, Iterable<Edge> route) {
+        N = 0;
+        if (route == null) return 0;
+        Instruction leg = null;
+        int x = source;
+        for (Edge e : route) {
+            char compass = Character.toUpperCase(Compass.leaving(e, x));  // the map file mixes 'n' and 'N'
+            if (leg == null || leg.compass != compass) {
+                if (leg != null) leg.turn = turn(leg.compass, compass);
+                leg = next();
+                leg.from = x;
+                leg.compass = compass;
+                leg.distance = 0;
+                leg.edges = 0;
+            }
+            x = e.other(x);
+            leg.to = x;
+            leg.distance += e.getWeight();
+            leg.edges++;
+        }
+        if (leg != null) leg.turn = Instruction.ARRIVE;
+        for (int i = 0; i < N; i++)
+            write(instructions[i]);
+        return N;
+    }
+
+    private Instruction next() {
+        if (N == instructions.length) {
+            Instruction[] copy = new Instruction[2 * N];
+            System.arraycopy(instructions, 0, copy, 0, N);
+            for (int i = N; i < copy.length; i++)
+                copy[i] = new Instruction();
+            instructions = copy;
+        }
+        return instructions[N++];
+    }
+
+    // turn between two legs, from the quarter turns between their directions
+    private static int turn(char from, char to) {
+        float a = Compass.toDegrees(from);
+        float b = Compass.toDegrees(to);
+        if (Float.isNaN(a) || Float.isNaN(b)) return Instruction.STRAIGHT;
+        int quarters = Math.round(Compass.normalize(b - a) / 90f) % 4;
+        return quarters; // STRAIGHT, RIGHT, BACK, LEFT are 0..3 quarter turns clockwise
+    }
+
+    private void write(Instruction leg) {
+        StringBuilder sb = leg.text;
+        sb.setLength(0);
+        int d = direction(leg.compass);
+        if (d >= 0) sb.append(prefixes[d]);
+        sb.append(Math.round(leg.distance)).append(metres);
+        int p = landmarkOf[leg.to];
+        leg.landmark = p;
+        if (p >= 0 && p < landmarkTexts.length && landmarkTexts[p] != null) sb.append(landmarkTexts[p]);
+        sb.append(leg.turn == Instruction.ARRIVE ? arrive : turnEndings[leg.turn]);
+    }
+
+    private static int direction(char compass) {
+        float deg = Compass.toDegrees(compass);
+        return Float.isNaN(deg) ? -1 : (int) (deg / 90f);
+    }
+
+    /**
+     * @return the number of instructions of the last route
+     */
+    public int size() {
+        return N;
+    }
+
+    /**
+     * @param  i the position of the instruction in the route
+     * @return the instruction; it is overwritten by the next call to {@link #generate}
+     */
+    public Instruction get(int i) {
+        if (i < 0 || i >= N) throw new IndexOutOfBoundsException("instruction " + i + " is not between 0 and " + (N - 1));
+        return instructions[i];
+    }
+}
@@ -0,0 +1,43 @@
+package com.northteam.indoororientation.model;
+
+/**
+ * The words the {@link InstructionGenerator} builds its text from. The defaults
+ * are in English; the activity can build a translated set from its string resources.
+ */
+public class InstructionTemplates {
+
+    public static final InstructionTemplates ENGLISH = new InstructionTemplates(
+            "Go ",
+            new String[]{"north", "east", "south", "west"},
+            " m",
+            " towards ",
+            new String[]{", then continue straight", ", then turn right", ", then turn around", ", then turn left"},
+            ", you have arrived");
+
+    final String go;
+    final String[] directions;    // indexed by direction: N, E, S, W
+    final String metres;
+    final String towards;
+    final String[] turns;         // indexed by turn: straight, right, back, left
+    final String arrive;
+
+    /**
+     * @param go         start of every instruction
+     * @param directions names of north, east, south and west
+     * @param metres     unit written after the distance
+     * @param towards    written before the name of a landmark
+     * @param turns      endings for continuing straight, turning right, turning around and turning left
+     * @param arrive     ending of the last instruction
+     */
+    public InstructionTemplates(String go, String[] directions, String metres, String towards,
+                                String[] turns, String arrive) {
+        if (directions.length != 4) throw new IllegalArgumentException("4 directions expected");
+        if (turns.length != 4) throw new IllegalArgumentException("4 turns expected");
+        this.go = go;
+        this.directions = directions.clone();
+        this.metres = metres;
+        this.towards = towards;
+        this.turns = turns.clone();
+        this.arrive = arrive;
+    }
+}
@@ -0,0 +1,66 @@
+package com.northteam.indoororientation.model;
+
+/**
+ * Decides at which vertex of the map the user is, from the smoothed readings of
+ * the {@link RssiFilter}. The user is placed at the strongest beacon; to avoid
+ * jumping back and forth between two beacons with similar signals, a new beacon
+ * only takes over when it is stronger by the hysteresis margin or when the
+ * current one has gone silent.
+ */
+public class Locator {
+
+    public static final int UNKNOWN = -1;
+    public static final float DEFAULT_HYSTERESIS = 3.0f;
+
+    private final float hysteresis;
+    private final long staleMillis;
+    private int current = UNKNOWN;
+    private float currentRssi;
+    private long currentSeen;
+
+    public Locator() {
+        this(DEFAULT_HYSTERESIS, RssiFilter.DEFAULT_STALE_MILLIS);
+    }
+
+    /**
+     * @param hysteresis  margin, in dB, a beacon must beat the current one by
+     * @param staleMillis time after which the current beacon is considered lost
+     */
+    public Locator(float hysteresis, long staleMillis) {
+        this.hysteresis = hysteresis;
+        this.staleMillis = staleMillis;
+    }
+
+    /**
+     * Takes a new smoothed reading into account.
+     *
+     * @param  v the vertex of the beacon that was read
+     * @param  rssi the smoothed signal strength of <tt>v</tt>
+     * @param  timeMillis the time of the reading
+     * @return the vertex where the user is
+     */
+    public int update(int v, float rssi, long timeMillis) {
+        if (v == current) {
+            currentRssi = rssi;
+            currentSeen = timeMillis;
+        } else if (current == UNKNOWN
+                || rssi > currentRssi + hysteresis
+                || timeMillis - currentSeen > staleMillis) {
+            current = v;
+            currentRssi = rssi;
+            currentSeen = timeMillis;
+        }
+        return current;
+    }
+
+    /**
+     * Returns the vertex where the user is, or {@link #UNKNOWN}.
+     */
+    public int current() {
+        return current;
+    }
+
+    public void reset() {
+        current = UNKNOWN;
+    }
+}
@@ -0,0 +1,354 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+import com.northteam.indoororientation.util.LongHashSet;
+import com.northteam.indoororientation.util.StringPool;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The names and ids of a map as dense <tt>int</tt> handles, so that the places,
+ * the beacons and the near places refer to each other by array indexes.
+ * <p>
+ * A map refers to a place three ways: a {@link Place} has a string id, a
+ * {@link NearPlace} has the same id as an <tt>int</tt>, and a {@link Beacon} has
+ * the name of its place. The dictionary parses the place ids once, keeping them
+ * sorted for a binary search, as they need not be small or dense, and numbers
+ * the places by their position in the list of places, so that
+ * <ul>
+ * <li>{@link #placeOf(NearPlace)} gives the place of a near place,
+ * {@link #place(String)} the place of a string id, and
+ * {@link #placeOfBeacon} the place a beacon names as its <tt>namePlace</tt>;</li>
+ * <li>the beacons near a place are listed by {@link #nearStart} and
+ * {@link #nearEnd}, with the distances of their near places;</li>
+ * <li>{@link #vertexOf} gives the vertex of a unique id and
+ * {@link #uniqueIdOf} the unique id of a vertex.</li>
+ * </ul>
+ * Every name and id is a handle of a {@link StringPool} of the dictionary: the
+ * strings the map shares, e.g. a place name that is also the <tt>namePlace</tt>
+ * of its beacons, are kept once when the {@link XmlParser} interned them, and
+ * the dictionary only refers to them.
+ * <p>
+ * A dictionary does not change, so that it can be read by any number of threads,
+ * e.g. with the {@link Graph} and places of a published map; build another one
+ * for another version of the map.
+ */
+public class MapDictionary {
+
+    private final Graph G;
+    private final List<Place> places;
+    private final StringPool strings = new StringPool();
+
+    private final int[] ids;            // the distinct nonnegative numeric place ids, sorted
+    private final int[] placeOfId;      // placeOfId[i] = place whose id is ids[i]
+    private final int[] placeOfString;  // placeOfString[h] = place whose id has handle h, or -1
+    private final int[] placeOfName;    // placeOfName[h] = place whose name has handle h, or -1
+    private final int[] placeIds;       // placeIds[p] = handle of the id of place p
+    private final int[] placeNames;     // placeNames[p] = handle of the name of place p
+
+    private final int[] vertexOfString; // vertexOfString[h] = vertex whose unique id has handle h, or -1
+    private final int[] uniqueIds;      // uniqueIds[v] = handle of the unique id of v, or -1
+    private final int[] beaconNames;    // beaconNames[v] = handle of the name of the beacon at v, or -1
+    private final int[] beaconPlaces;   // beaconPlaces[v] = handle of the namePlace of the beacon at v, or -1
+
+    private final int[] nearStart;      // the beacons near place p are nearVertex[nearStart[p]..nearStart[p+1])
+    private final int[] nearVertex;
+    private final float[] nearDistance;
+
+    /**
+     * @param  G the graph; its beacons list the near places
+     * @param  places the places, whose ids are the ids of the near places
+     */
+    public MapDictionary(Graph G, List<Place> places) {
+        this.G = G;
+        this.places = places;
+        int P = places.size();
+        int V = G.getV();
+
+        placeIds = new int[P];
+        placeNames = new int[P];
+        long[] parsed = new long[P];  // the numeric ids packed with their place, to sort them together
+        int n = 0;
+        for (int p = 0; p < P; p++) {
+            Place place = places.get(p);
+            placeIds[p] = handle(place.getId());
+            placeNames[p] = handle(place.getName());
+            int id = parseId(place.getId());
+            if (id >= 0) parsed[n++] = LongHashSet.pack(id, p);
+        }
+        Arrays.sort(parsed, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++) {
+            if (i + 1 < n && parsed[i + 1] >>> 32 == parsed[i] >>> 32) continue; // of places with the same id, the last
+            parsed[distinct++] = parsed[i];
+        }
+        ids = new int[distinct];
+        placeOfId = new int[distinct];
+        for (int i = 0; i < distinct; i++) {
+            ids[i] = (int) (parsed[i] >>> 32);
+            placeOfId[i] = (int) parsed[i];
+        }
+
+        uniqueIds = new int[V];
+        beaconNames = new int[V];
+        beaconPlaces = new int[V];
+        nearStart = new int[P + 1];
+        for (int v = 0; v < V; v++) {
+            Beacon b = G.getBeacon(v);
+            uniqueIds[v] = b == null ? -1 : handle(b.getUiniqueId());
+            beaconNames[v] = b == null ? -1 : handle(b.getName());
+            beaconPlaces[v] = b == null ? -1 : handle(b.getNamePlace());
+            if (b == null) continue;
+            for (NearPlace np : b.getAdjNear()) {
+                int p = placeOf(np);
+                if (p >= 0) nearStart[p + 1]++;
+            }
+        }
+        for (int p = 0; p < P; p++)
+            nearStart[p + 1] += nearStart[p];
+        nearVertex = new int[nearStart[P]];
+        nearDistance = new float[nearStart[P]];
+        int[] next = Arrays.copyOf(nearStart, P);
+        for (int v = 0; v < V; v++) {
+            Beacon b = G.getBeacon(v);
+            if (b == null) continue;
+            for (NearPlace np : b.getAdjNear()) {
+                int p = placeOf(np);
+                if (p < 0) continue;
+                nearVertex[next[p]] = v;
+                nearDistance[next[p]++] = np.distance;
+            }
+        }
+
+        placeOfString = new int[strings.size()];
+        placeOfName = new int[strings.size()];
+        vertexOfString = new int[strings.size()];
+        Arrays.fill(placeOfString, -1);
+        Arrays.fill(placeOfName, -1);
+        Arrays.fill(vertexOfString, -1);
+        for (int p = 0; p < P; p++) {
+            if (placeIds[p] >= 0) placeOfString[placeIds[p]] = p;
+            if (placeNames[p] >= 0) placeOfName[placeNames[p]] = p;  // of places with the same name, the last
+        }
+        for (int v = 0; v < V; v++)
+            if (uniqueIds[v] >= 0) vertexOfString[uniqueIds[v]] = G.indexOf(strings.get(uniqueIds[v]));
+    }
+
+    private int handle(String s) {
+        return s == null ? -1 : strings.handle(s);
+    }
+
+    private static int parseId(String id) {
+        try {
+            return Integer.parseInt(id);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    public Graph getGraph() {
+        return G;
+    }
+
+    /**
+     * @return the places, numbered by their position in the list
+     */
+    public List<Place> getPlaces() {
+        return places;
+    }
+
+    /**
+     * Returns the number of places.
+     */
+    public int getP() {
+        return places.size();
+    }
+
+    /**
+     * Returns the place a near place refers to.
+     *
+     * @param  np the near place of a beacon
+     * @return the position of the place in the list of places, or <tt>-1</tt>
+     *         if no place has its id
+     */
+    public int placeOf(NearPlace np) {
+        int i = Arrays.binarySearch(ids, np.id);
+        return i < 0 ? -1 : placeOfId[i];
+    }
+
+    /**
+     * Returns the place with a string id.
+     *
+     * @param  id the id of the place
+     * @return the position of the place in the list of places, or <tt>-1</tt>
+     *         if no place has that id
+     */
+    public int place(String id) {
+        int h = strings.find(id);
+        return h < 0 || h >= placeOfString.length ? -1 : placeOfString[h];
+    }
+
+    /**
+     * Returns the place with a name, by the handle of the name.
+     *
+     * @param  handle the handle of a name, as given by {@link #beaconPlace} or {@link #handleOf}
+     * @return the position of the place in the list of places, or <tt>-1</tt> if
+     *         no place has that name; the last of them if several have
+     */
+    public int placeOfName(int handle) {
+        return handle < 0 || handle >= placeOfName.length ? -1 : placeOfName[handle];
+    }
+
+    /**
+     * Returns the place the beacon at vertex <tt>v</tt> is in, named by its
+     * <tt>namePlace</tt>.
+     *
+     * @param  v the vertex
+     * @return the position of the place in the list of places, or <tt>-1</tt> if
+     *         there is no beacon at <tt>v</tt> or no place has its <tt>namePlace</tt>
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public int placeOfBeacon(int v) {
+        return placeOfName(beaconPlaces[v]);
+    }
+
+    /**
+     * Returns the vertex of the beacon with a unique id, as {@link Graph#indexOf}
+     * does, by the handle of the unique id.
+     *
+     * @param  uniqueId the unique id read from the scan
+     * @return the vertex, or <tt>-1</tt> if the beacon is not part of this map
+     */
+    public int vertexOf(String uniqueId) {
+        int h = strings.find(uniqueId);
+        return h < 0 || h >= vertexOfString.length ? -1 : vertexOfString[h];
+    }
+
+    /**
+     * Returns the unique id of the beacon at vertex <tt>v</tt>.
+     *
+     * @param  v the vertex
+     * @return the unique id, or <tt>null</tt> if there is no beacon at <tt>v</tt>
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public String uniqueIdOf(int v) {
+        return string(uniqueIds[v]);
+    }
+
+    /**
+     * Returns the handle of the name of place <tt>p</tt>, equal for equal names.
+     *
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>p</tt> &lt; P
+     */
+    public int placeName(int p) {
+        return placeNames[p];
+    }
+
+    /**
+     * Returns the handle of the id of place <tt>p</tt>.
+     *
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>p</tt> &lt; P
+     */
+    public int placeId(int p) {
+        return placeIds[p];
+    }
+
+    /**
+     * Returns the handle of the name of the beacon at vertex <tt>v</tt>, or
+     * <tt>-1</tt> if there is no beacon or it has no name.
+     *
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public int beaconName(int v) {
+        return beaconNames[v];
+    }
+
+    /**
+     * Returns the handle of the <tt>namePlace</tt> of the beacon at vertex
+     * <tt>v</tt>, or <tt>-1</tt> if there is no beacon or it has none.
+     *
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public int beaconPlace(int v) {
+        return beaconPlaces[v];
+    }
+
+    /**
+     * Returns the string of a handle given by this dictionary.
+     *
+     * @param  handle the handle
+     * @return the string, or <tt>null</tt> for <tt>-1</tt>
+     * @throws IndexOutOfBoundsException if the handle is not of this dictionary
+     */
+    public String string(int handle) {
+        return handle == -1 ? null : strings.get(handle);
+    }
+
+    /**
+     * Returns the handle of a string of this dictionary.
+     *
+     * @param  s the string
+     * @return the handle, or <tt>-1</tt> if no name or id of the map is <tt>s</tt>
+     */
+    public int handleOf(String s) {
+        return strings.find(s);
+    }
+
+    /**
+     * Returns the first index of the beacons near place <tt>p</tt>; the beacons
+     * are {@link #nearVertex}(<tt>i</tt>) for <tt>i</tt> from
+     * <tt>nearStart(p)</tt> to <tt>nearEnd(p) - 1</tt>.
+     *
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>p</tt> &lt; P
+     */
+    public int nearStart(int p) {
+        validatePlace(p);
+        return nearStart[p];
+    }
+
+    /**
+     * Returns the index after the last of the beacons near place <tt>p</tt>.
+     *
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>p</tt> &lt; P
+     */
+    public int nearEnd(int p) {
+        validatePlace(p);
+        return nearStart[p + 1];
+    }
+
+    /**
+     * Returns the vertex of the <tt>i</tt>-th beacon near a place.
+     */
+    public int nearVertex(int i) {
+        return nearVertex[i];
+    }
+
+    /**
+     * Returns the distance from the <tt>i</tt>-th beacon near a place to the place.
+     */
+    public float nearDistance(int i) {
+        return nearDistance[i];
+    }
+
+    /**
+     * Estimates the bytes of the dictionary, not counting the graph, the places
+     * and the strings, which belong to the map.
+     *
+     * @return the estimated bytes
+     */
+    public long estimateBytes() {
+        int V = uniqueIds.length;
+        int P = placeIds.length;
+        return MemorySizes.object(16 * MemorySizes.REFERENCE) + strings.estimateBytes()
+                + 2 * MemorySizes.array(ids.length, 4) + 3 * MemorySizes.array(strings.size(), 4)
+                + 2 * MemorySizes.array(P, 4) + 3 * MemorySizes.array(V, 4)
+                + MemorySizes.array(P + 1, 4) + MemorySizes.array(nearVertex.length, 4)
+                + MemorySizes.array(nearDistance.length, 4);
+    }
+
+    private void validatePlace(int p) {
+        if (p < 0 || p >= placeIds.length)
+            throw new IndexOutOfBoundsException("place " + p + " is not between 0 and " + (placeIds.length - 1));
+    }
+}
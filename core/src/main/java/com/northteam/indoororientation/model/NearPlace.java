@@ -15,4 +15,16 @@ public class NearPlace {
         this.distance = distance;
         this.compass = compass;
     }
+
+    public int getId() {
+        return id;
+    }
+
+    public float getDistance() {
+        return distance;
+    }
+
+    public char getCompass() {
+        return compass;
+    }
 }
@@ -0,0 +1,212 @@
+package com.northteam.indoororientation.model;
+
+import java.util.List;
+
+/**
+ * Lists the places of the map by walking distance from a vertex, nearest first,
+ * computing only as much as the places asked for.
+ * <p>
+ * A {@link Cursor} runs Dijkstra's algorithm from the vertex one step at a time.
+ * When a beacon is settled, each of its near places is offered with the distance
+ * to the beacon plus the distance from the beacon to the place; a place keeps
+ * the least distance offered. The nearest place offered can be returned as soon
+ * as its distance is not more than the distance of the next vertex to settle,
+ * because every place offered later is at least that far. The cursor stops there
+ * and goes on when the next place is asked, so the first 20 places of a campus
+ * cost a search of the part of the campus within their distance.
+ * <p>
+ * The arrays of the search belong to this object and are reused by every
+ * cursor: starting a cursor ends the previous one, and one object must be used
+ * from one thread at a time.
+ */
+public class NearestPlaces {
+
+    private final Graph G;
+    private final List<Place> places;
+    private final MapDictionary dictionary;
+
+    private final IndexMinPQ vertices;
+    private final float[] distTo;
+    private final int[] seen;             // distTo[v] is valid if seen[v] == run
+    private final IndexMinPQ candidates;  // places offered and not returned yet
+    private final int[] offered;          // place p was offered in this run if offered[p] == run
+    private int run;
+
+    /**
+     * @param G      the graph; its beacons list the near places
+     * @param places the places, whose ids are the ids of the near places
+     */
+    public NearestPlaces(Graph G, List<Place> places) {
+        this(new MapDictionary(G, places));
+    }
+
+    /**
+     * @param dictionary the graph and the places, and the places of the near places
+     */
+    public NearestPlaces(MapDictionary dictionary) {
+        this.G = dictionary.getGraph();
+        this.places = dictionary.getPlaces();
+        this.dictionary = dictionary;
+        vertices = new IndexMinPQ(G.getV());
+        distTo = new float[G.getV()];
+        seen = new int[G.getV()];
+        candidates = new IndexMinPQ(places.size());
+        offered = new int[places.size()];
+    }
+
+    /**
+     * Starts listing the places by walking distance from vertex <tt>v</tt>,
+     * ending the cursor started before.
+     *
+     * @param  v the vertex where the user is
+     * @return the cursor
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public Cursor from(int v) {
+        return from(v, RouteProfile.ANY);
+    }
+
+    /**
+     * Starts listing the places by walking distance from vertex <tt>v</tt>, using
+     * only the edges <tt>profile</tt> allows, ending the cursor started before.
+     *
+     * @param  v the vertex where the user is
+     * @param  profile the edges that can be used
+     * @return the cursor
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public Cursor from(int v, RouteProfile profile) {
+        if (v < 0 || v >= G.getV())
+            throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (G.getV() - 1));
+        run++;
+        vertices.clear();
+        candidates.clear();
+        seen[v] = run;
+        distTo[v] = 0f;
+        vertices.insert(v, 0f);
+        return new Cursor(run, profile);
+    }
+
+    public List<Place> getPlaces() {
+        return places;
+    }
+
+    /**
+     * The places by walking distance from one vertex, nearest first.
+     */
+    public class Cursor {
+        private final int run;
+        private final RouteProfile profile;
+        private float distance = Float.NaN;
+        private int returned;
+
+        private Cursor(int run, RouteProfile profile) {
+            this.run = run;
+            this.profile = profile;
+        }
+
+        /**
+         * Returns true if there is another place that can be reached, searching on
+         * until the next place is known.
+         *
+         * @throws IllegalStateException if another cursor was started since
+         */
+        public boolean hasNext() {
+            checkCurrent();
+            // settle vertices until the nearest place offered is nearer than every vertex left
+            while (!vertices.isEmpty()
+                    && (candidates.isEmpty() || candidates.minKey() > vertices.minKey())) {
+                settle(vertices.delMin());
+            }
+            return !candidates.isEmpty();
+        }
+
+        /**
+         * Returns the next place by walking distance.
+         *
+         * @return the position of the place in the list of places
+         * @throws java.util.NoSuchElementException if there are no places left
+         * @throws IllegalStateException if another cursor was started since
+         */
+        public int next() {
+            if (!hasNext()) throw new java.util.NoSuchElementException("no places left");
+            distance = candidates.minKey();
+            returned++;
+            return candidates.delMin();
+        }
+
+        /**
+         * Returns up to <tt>k</tt> next places by walking distance.
+         *
+         * @param  results receives the positions of the places in the list of places,
+         *         from <tt>results[offset]</tt>
+         * @param  distances receives their distances, from <tt>distances[offset]</tt>;
+         *         may be <tt>null</tt>
+         * @param  offset where to write the first place
+         * @param  k the most places to return
+         * @return the number of places written
+         */
+        public int next(int[] results, float[] distances, int offset, int k) {
+            int n = 0;
+            while (n < k && hasNext()) {
+                results[offset + n] = next();
+                if (distances != null) distances[offset + n] = distance;
+                n++;
+            }
+            return n;
+        }
+
+        /**
+         * @return the distance of the place returned last; <tt>NaN</tt> before the first
+         */
+        public float distance() {
+            return distance;
+        }
+
+        /**
+         * @return the number of places returned so far
+         */
+        public int count() {
+            return returned;
+        }
+
+        private void settle(int v) {
+            float d = distTo[v];
+            Beacon b = G.getBeacon(v);
+            if (b != null) {
+                for (NearPlace np : b.getAdjNear()) {
+                    int p = dictionary.placeOf(np);
+                    if (p < 0) continue;
+                    offer(p, d + np.distance);
+                }
+            }
+            for (Edge e : G.adj(v)) {
+                if (!profile.allows(e)) continue;
+                int w = e.other(v);
+                float dw = d + e.getWeight();
+                if (seen[w] != run) {
+                    seen[w] = run;
+                    distTo[w] = dw;
+                    vertices.insert(w, dw);
+                } else if (dw < distTo[w] && vertices.contains(w)) {
+                    distTo[w] = dw;
+                    vertices.decreaseKey(w, dw);
+                }
+            }
+        }
+
+        // a place returned already is not offered again: it was returned with its least distance
+        private void offer(int p, float d) {
+            if (offered[p] != run) {
+                offered[p] = run;
+                candidates.insert(p, d);
+            } else if (candidates.contains(p) && d < candidates.keyOf(p)) {
+                candidates.decreaseKey(p, d);
+            }
+        }
+
+        private void checkCurrent() {
+            if (run != NearestPlaces.this.run) throw new IllegalStateException("another cursor was started");
+        }
+    }
+}
@@ -0,0 +1,384 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+
+import java.text.Normalizer;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Search index over the names of the places, built once when the map is loaded.
+ * <p>
+ * Names are folded to lower case without accents, and punctuation becomes a
+ * space, so "P&oacute;s-Gradua&ccedil;&otilde;es" is found by "pos grad". The index keeps:
+ * <ul>
+ * <li>a sorted array with the part of every name that starts at each of its words,
+ * answering prefix queries ("nob" finds "Sal&atilde;o Nobre") with a binary search;</li>
+ * <li>a posting list of places for every three-letter sequence (trigram) of the
+ * names, answering infix queries ("raduac") from the shortest posting list of
+ * the query's trigrams.</li>
+ * </ul>
+ * Results are ranked: names that start with the query, then names with a word
+ * that starts with it, then names that contain it; shorter names first.
+ * <p>
+ * The index does not change once built. A query writes into the result buffer
+ * given by the caller and into the buffers of a {@link Searcher}, so threads that
+ * share an index search each with their own searcher; {@link #search} uses one
+ * owned by the index, from one thread at a time.
+ */
+public class PlaceSearchIndex {
+
+    private static final int NAME_PREFIX = 3;
+    private static final int WORD_PREFIX = 2;
+    private static final int INFIX = 1;
+
+    private static final char[] FOLD = new char[0x250];
+
+    static {
+        for (char c = 0; c < FOLD.length; c++) {
+            String d = Normalizer.normalize(String.valueOf(c), Normalizer.Form.NFD);
+            char base = d.charAt(0);
+            FOLD[c] = Character.isLetterOrDigit(base) ? Character.toLowerCase(base) : ' ';
+        }
+        FOLD['\u00df'] = 's'; // sharp s
+        FOLD['\u00e6'] = 'a'; // ae
+        FOLD['\u00f8'] = 'o'; // slashed o
+    }
+
+    private final List<Place> places;
+    private final char[][] names;        // folded names
+
+    // suffixes starting at a word, sorted
+    private final int[] entryPlace;
+    private final int[] entryOffset;
+
+    // trigram -> places, trigrams sorted, postings of trigram k are postings[start[k] .. start[k+1]-1]
+    private final long[] trigrams;
+    private final int[] trigramStart;
+    private final int[] postings;
+
+    private Searcher searcher; // of search, made by the first query
+
+    /**
+     * @param places the places of the map
+     */
+    public PlaceSearchIndex(List<Place> places) {
+        this.places = places;
+        int P = places.size();
+        names = new char[P][];
+        int entries = 0;
+        for (int p = 0; p < P; p++) {
+            String name = places.get(p).getName();
+            names[p] = name == null ? new char[0] : fold(name);  // a place without a name is never found
+            entries += words(names[p]);
+        }
+
+        Integer[] order = new Integer[entries];
+        final int[] ePlace = new int[entries];
+        final int[] eOffset = new int[entries];
+        int e = 0;
+        for (int p = 0; p < P; p++) {
+            char[] n = names[p];
+            for (int i = 0; i < n.length; i++) {
+                if (n[i] != ' ' && (i == 0 || n[i - 1] == ' ')) {
+                    ePlace[e] = p;
+                    eOffset[e] = i;
+                    order[e] = e;
+                    e++;
+                }
+            }
+        }
+        Arrays.sort(order, new java.util.Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return compareSuffix(names[ePlace[a]], eOffset[a], names[ePlace[b]], eOffset[b]);
+            }
+        });
+        entryPlace = new int[entries];
+        entryOffset = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            entryPlace[i] = ePlace[order[i]];
+            entryOffset[i] = eOffset[order[i]];
+        }
+
+        // (trigram, place) pairs, sorted and deduplicated
+        int pairs = 0;
+        for (char[] n : names)
+            pairs += Math.max(0, n.length - 2);
+        long[] keys = new long[pairs];
+        int[] owner = new int[pairs];
+        Integer[] byKey = new Integer[pairs];
+        int k = 0;
+        for (int p = 0; p < P; p++) {
+            char[] n = names[p];
+            for (int i = 0; i + 2 < n.length; i++) {
+                keys[k] = trigram(n, i);
+                owner[k] = p;
+                byKey[k] = k;
+                k++;
+            }
+        }
+        final long[] fk = keys;
+        final int[] fo = owner;
+        Arrays.sort(byKey, new java.util.Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                if (fk[a] != fk[b]) return fk[a] < fk[b] ? -1 : 1;
+                return fo[a] - fo[b];
+            }
+        });
+        long[] tg = new long[pairs];
+        int[] ts = new int[pairs + 1];
+        int[] ps = new int[pairs];
+        int T = 0;
+        int N = 0;
+        for (int i = 0; i < pairs; i++) {
+            long key = fk[byKey[i]];
+            int p = fo[byKey[i]];
+            if (T == 0 || tg[T - 1] != key) {
+                tg[T] = key;
+                ts[T] = N;
+                T++;
+            } else if (ps[N - 1] == p) {
+                continue;
+            }
+            ps[N++] = p;
+        }
+        ts[T] = N;
+        trigrams = Arrays.copyOf(tg, T);
+        trigramStart = Arrays.copyOf(ts, T + 1);
+        postings = Arrays.copyOf(ps, N);
+    }
+
+    /**
+     * Estimates the bytes of this index, not counting the places.
+     *
+     * @return the estimated bytes
+     */
+    public long estimateBytes() {
+        long bytes = MemorySizes.object(9 * MemorySizes.REFERENCE)
+                + MemorySizes.array(names.length, MemorySizes.REFERENCE)
+                + MemorySizes.array(entryPlace.length, 4) + MemorySizes.array(entryOffset.length, 4)
+                + MemorySizes.array(trigrams.length, 8) + MemorySizes.array(trigramStart.length, 4)
+                + MemorySizes.array(postings.length, 4);
+        for (char[] name : names)
+            bytes += MemorySizes.array(name.length, 2);
+        Searcher s = searcher;
+        return s == null ? bytes : bytes + s.estimateBytes();
+    }
+
+    /**
+     * Folds a name for searching: lower case, no accents, words separated by one space.
+     *
+     * @param  s the name
+     * @return the folded name
+     */
+    public static char[] fold(String s) {
+        char[] out = new char[s.length()];
+        int n = fold(s, out);
+        return Arrays.copyOf(out, n);
+    }
+
+    // folds s into out, which must be at least as long as s; returns the folded length
+    static int fold(CharSequence s, char[] out) {
+        int n = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            char f = c < FOLD.length ? FOLD[c] : (Character.isLetterOrDigit(c) ? Character.toLowerCase(c) : ' ');
+            if (f == ' ' && (n == 0 || out[n - 1] == ' ')) continue;
+            out[n++] = f;
+        }
+        if (n > 0 && out[n - 1] == ' ') n--;
+        return n;
+    }
+
+    private static int words(char[] n) {
+        int w = 0;
+        for (int i = 0; i < n.length; i++)
+            if (n[i] != ' ' && (i == 0 || n[i - 1] == ' ')) w++;
+        return w;
+    }
+
+    private static long trigram(char[] s, int i) {
+        return ((long) s[i] << 32) | ((long) s[i + 1] << 16) | s[i + 2];
+    }
+
+    private static int compareSuffix(char[] a, int i, char[] b, int j) {
+        while (i < a.length && j < b.length) {
+            if (a[i] != b[j]) return a[i] - b[j];
+            i++;
+            j++;
+        }
+        return (a.length - i) - (b.length - j);
+    }
+
+    // compares the first n chars of the suffix with the query, 0 if the suffix starts with it
+    private static int comparePrefix(char[] name, int offset, char[] q, int n) {
+        for (int k = 0; k < n; k++) {
+            if (offset + k >= name.length) return -1;
+            char c = name[offset + k];
+            if (c != q[k]) return c - q[k];
+        }
+        return 0;
+    }
+
+    /**
+     * Finds the places whose name matches the query, with the buffers of the
+     * index; from one thread at a time.
+     *
+     * @param  text the text typed by the user
+     * @param  results receives the positions, in the list of places, of the best matches, best first
+     * @return the number of results written
+     */
+    public int search(CharSequence text, int[] results) {
+        if (searcher == null) searcher = new Searcher();
+        return searcher.search(text, results);
+    }
+
+    /**
+     * Returns new buffers to query this index from one more thread.
+     */
+    public Searcher newSearcher() {
+        return new Searcher();
+    }
+
+    private static boolean contains(char[] name, char[] q, int n) {
+        outer:
+        for (int i = 0; i + n <= name.length; i++) {
+            for (int k = 0; k < n; k++)
+                if (name[i + k] != q[k]) continue outer;
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * The buffers of the queries of one thread over a {@link PlaceSearchIndex}.
+     */
+    public final class Searcher {
+
+        private final int[] stamp = new int[names.length];
+        private int query;
+        private final int[] score = new int[names.length];
+        private char[] folded = new char[64];
+
+        private Searcher() { }
+
+        /**
+         * Finds the places whose name matches the query.
+         *
+         * @param  text the text typed by the user
+         * @param  results receives the positions, in the list of places, of the best matches, best first
+         * @return the number of results written
+         */
+        public int search(CharSequence text, int[] results) {
+            if (folded.length < text.length()) folded = new char[text.length()];
+            int n = fold(text, folded);
+            if (n == 0 || results.length == 0) return 0;
+            if (++query == Integer.MAX_VALUE) {
+                Arrays.fill(stamp, 0);
+                query = 1;
+            }
+            int found = 0;
+
+            // prefixes of words: binary search for the first suffix that starts with the query
+            int lo = 0;
+            int hi = entryPlace.length;
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (comparePrefix(names[entryPlace[mid]], entryOffset[mid], folded, n) < 0) lo = mid + 1;
+                else hi = mid;
+            }
+            for (int i = lo; i < entryPlace.length; i++) {
+                int p = entryPlace[i];
+                if (comparePrefix(names[p], entryOffset[i], folded, n) != 0) break;
+                int s = entryOffset[i] == 0 ? NAME_PREFIX : WORD_PREFIX;
+                if (stamp[p] != query) {
+                    stamp[p] = query;
+                    score[p] = s;
+                    found = offer(p, results, found);
+                } else if (s > score[p]) {
+                    score[p] = s;
+                    found = reorder(p, results, found);
+                }
+            }
+
+            // infixes: candidates from the rarest trigram of the query, checked one by one
+            if (n >= 3) {
+                int best = -1;
+                int bestSize = Integer.MAX_VALUE;
+                for (int i = 0; i + 2 < n; i++) {
+                    int t = Arrays.binarySearch(trigrams, trigram(folded, i));
+                    if (t < 0) return found; // some trigram is in no name
+                    int size = trigramStart[t + 1] - trigramStart[t];
+                    if (size < bestSize) {
+                        best = t;
+                        bestSize = size;
+                    }
+                }
+                for (int i = trigramStart[best]; i < trigramStart[best + 1]; i++) {
+                    int p = postings[i];
+                    if (stamp[p] == query || !contains(names[p], folded, n)) continue;
+                    stamp[p] = query;
+                    score[p] = INFIX;
+                    found = offer(p, results, found);
+                }
+            }
+            return found;
+        }
+
+        // true if place a ranks before place b
+        private boolean before(int a, int b) {
+            if (score[a] != score[b]) return score[a] > score[b];
+            if (names[a].length != names[b].length) return names[a].length < names[b].length;
+            return a < b;
+        }
+
+        // inserts p in the ranked results, dropping the last one if the buffer is full
+        private int offer(int p, int[] results, int found) {
+            int i = found;
+            if (found == results.length) {
+                if (!before(p, results[found - 1])) return found;
+                i = found - 1;
+            } else {
+                found++;
+            }
+            while (i > 0 && before(p, results[i - 1])) {
+                results[i] = results[i - 1];
+                i--;
+            }
+            results[i] = p;
+            return found;
+        }
+
+        // moves p up after its score improved
+        private int reorder(int p, int[] results, int found) {
+            int i = 0;
+            while (i < found && results[i] != p) i++;
+            if (i == found) return offer(p, results, found);
+            while (i > 0 && before(p, results[i - 1])) {
+                results[i] = results[i - 1];
+                i--;
+            }
+            results[i] = p;
+            return found;
+        }
+
+        long estimateBytes() {
+            return MemorySizes.object(4 * MemorySizes.REFERENCE + 4) + 2 * MemorySizes.array(stamp.length, 4)
+                    + MemorySizes.array(folded.length, 2);
+        }
+    }
+
+    /**
+     * @param  i a result of {@link #search}
+     * @return the place
+     */
+    public Place getPlace(int i) {
+        return places.get(i);
+    }
+
+    public int size() {
+        return places.size();
+    }
+}
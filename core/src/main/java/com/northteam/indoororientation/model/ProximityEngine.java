@@ -0,0 +1,227 @@
+package com.northteam.indoororientation.model;
+
+import java.util.Arrays;
+
+/**
+ * Turns the filtered beacon readings into enter and exit events for the places
+ * listed in the <tt>nearPlaces</tt> of the beacons.
+ * <p>
+ * A place is entered when the distance to one of its beacons, estimated from the
+ * signal strength with the log-distance path loss model, falls below the
+ * <tt>proximityDistance</tt> of the {@link NearPlace}. It is left when it is further
+ * than that distance plus the hysteresis from every beacon that had detected it,
+ * so a signal that wobbles around the threshold does not repeat events.
+ * <p>
+ * The distances are turned into signal strengths once, when the engine is created,
+ * and stored per beacon in flat arrays; a reading only compares its strength with
+ * the thresholds of its own beacon, whatever the number of places in the map.
+ * <p>
+ * Built from a {@link MapDictionary}, the events name a place by its position in
+ * the list of places, as {@link NearestPlaces} does; built from a {@link Graph}
+ * alone, by the id of the near places. Near places that refer to no place, e.g.
+ * without an <tt>idPlace</tt>, never fire.
+ */
+public class ProximityEngine {
+
+    public static final float DEFAULT_TX_POWER = -59f;      // rssi at 1 m
+    public static final float DEFAULT_PATH_LOSS = 2.0f;     // free space
+    public static final float DEFAULT_HYSTERESIS = 1.0f;    // metres
+
+    // slots of vertex v are start[v] .. start[v+1]-1
+    private final int[] start;
+    private final int[] ids;              // ids[p] = NearPlace id of place p; null with a dictionary
+    private final int[] placeOf;
+    private final float[] enterRssi;
+    private final float[] exitRssi;
+    private final boolean[] active;
+
+    private final int[] holders;          // holders[p] = active slots of place p
+    private final int[] activeSlots;      // activeSlots[v] = active slots of vertex v
+    private final int[] activeVertices;   // vertices with active slots
+    private final int[] positionOf;       // position of v in activeVertices, or -1
+    private int activeCount;
+    private final long[] lastSeen;
+
+    private ProximityListener listener;
+
+    public ProximityEngine(Graph G) {
+        this(G, DEFAULT_TX_POWER, DEFAULT_PATH_LOSS, DEFAULT_HYSTERESIS);
+    }
+
+    /**
+     * @param G          the map; the places are the ids of its near places
+     * @param txPower    signal strength of the beacons at one metre, in dBm
+     * @param pathLoss   path loss exponent of the building
+     * @param hysteresis extra distance, in metres, needed to leave a place
+     */
+    public ProximityEngine(Graph G, float txPower, float pathLoss, float hysteresis) {
+        this(G, null, txPower, pathLoss, hysteresis);
+    }
+
+    public ProximityEngine(MapDictionary dictionary) {
+        this(dictionary, DEFAULT_TX_POWER, DEFAULT_PATH_LOSS, DEFAULT_HYSTERESIS);
+    }
+
+    /**
+     * @param dictionary the map; the places are positions in its list of places
+     * @param txPower    signal strength of the beacons at one metre, in dBm
+     * @param pathLoss   path loss exponent of the building
+     * @param hysteresis extra distance, in metres, needed to leave a place
+     */
+    public ProximityEngine(MapDictionary dictionary, float txPower, float pathLoss, float hysteresis) {
+        this(dictionary.getGraph(), dictionary, txPower, pathLoss, hysteresis);
+    }
+
+    private ProximityEngine(Graph G, MapDictionary dictionary, float txPower, float pathLoss, float hysteresis) {
+        int V = G.getV();
+        ids = dictionary == null ? nearPlaceIds(G) : null;
+        start = new int[V + 1];
+        for (int v = 0; v < V; v++) {
+            Beacon b = G.getBeacon(v);
+            int n = 0;
+            if (b != null) {
+                for (NearPlace np : b.getAdjNear())
+                    if (place(dictionary, np) >= 0) n++;
+            }
+            start[v + 1] = start[v] + n;
+        }
+        int slots = start[V];
+        placeOf = new int[slots];
+        enterRssi = new float[slots];
+        exitRssi = new float[slots];
+        active = new boolean[slots];
+        for (int v = 0; v < V; v++) {
+            Beacon b = G.getBeacon(v);
+            if (b == null) continue;
+            int i = start[v];
+            for (NearPlace np : b.getAdjNear()) {
+                int p = place(dictionary, np);
+                if (p < 0) continue;
+                placeOf[i] = p;
+                enterRssi[i] = rssiAt(np.getDistance(), txPower, pathLoss);
+                exitRssi[i] = rssiAt(np.getDistance() + hysteresis, txPower, pathLoss);
+                i++;
+            }
+        }
+        holders = new int[dictionary == null ? ids.length : dictionary.getP()];
+        activeSlots = new int[V];
+        activeVertices = new int[V];
+        positionOf = new int[V];
+        lastSeen = new long[V];
+        for (int v = 0; v < V; v++)
+            positionOf[v] = -1;
+    }
+
+    // the distinct nonnegative ids of the near places, sorted
+    private static int[] nearPlaceIds(Graph G) {
+        int n = 0;
+        int[] ids = new int[16];
+        for (int v = 0; v < G.getV(); v++) {
+            Beacon b = G.getBeacon(v);
+            if (b == null) continue;
+            for (NearPlace np : b.getAdjNear()) {
+                if (np.getId() < 0) continue;
+                if (n == ids.length) ids = Arrays.copyOf(ids, 2 * n);
+                ids[n++] = np.getId();
+            }
+        }
+        Arrays.sort(ids, 0, n);
+        int distinct = 0;
+        for (int i = 0; i < n; i++)
+            if (distinct == 0 || ids[i] != ids[distinct - 1]) ids[distinct++] = ids[i];
+        return Arrays.copyOf(ids, distinct);
+    }
+
+    // the place of a near place, or -1 if it refers to none
+    private int place(MapDictionary dictionary, NearPlace np) {
+        if (dictionary != null) return dictionary.placeOf(np);
+        return np.getId() < 0 ? -1 : Arrays.binarySearch(ids, np.getId());
+    }
+
+    // signal strength expected at the given distance
+    private static float rssiAt(float metres, float txPower, float pathLoss) {
+        return txPower - 10f * pathLoss * (float) Math.log10(Math.max(metres, 0.1f));
+    }
+
+    public void setListener(ProximityListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Takes a filtered reading into account, firing the events it causes.
+     *
+     * @param v          the vertex of the beacon
+     * @param rssi       the smoothed signal strength of the beacon
+     * @param timeMillis the time of the reading
+     */
+    public void update(int v, float rssi, long timeMillis) {
+        lastSeen[v] = timeMillis;
+        for (int i = start[v]; i < start[v + 1]; i++) {
+            if (!active[i]) {
+                if (rssi >= enterRssi[i]) activate(v, i, timeMillis);
+            } else if (rssi < exitRssi[i]) {
+                deactivate(v, i, timeMillis);
+            }
+        }
+    }
+
+    /**
+     * Leaves the places of the beacons that have not been heard for <tt>staleMillis</tt>.
+     * Takes time proportional to the number of beacons with places entered.
+     *
+     * @param timeMillis  the current time
+     * @param staleMillis time after which a silent beacon no longer holds its places
+     */
+    public void expire(long timeMillis, long staleMillis) {
+        for (int k = activeCount - 1; k >= 0; k--) {
+            int v = activeVertices[k];
+            if (timeMillis - lastSeen[v] <= staleMillis) continue;
+            for (int i = start[v]; i < start[v + 1]; i++)
+                if (active[i]) deactivate(v, i, timeMillis);
+        }
+    }
+
+    private void activate(int v, int i, long timeMillis) {
+        active[i] = true;
+        if (activeSlots[v]++ == 0) {
+            positionOf[v] = activeCount;
+            activeVertices[activeCount++] = v;
+        }
+        int p = placeOf[i];
+        if (holders[p]++ == 0 && listener != null) listener.onEnter(report(p), v, timeMillis);
+    }
+
+    private void deactivate(int v, int i, long timeMillis) {
+        active[i] = false;
+        if (--activeSlots[v] == 0) {
+            int k = positionOf[v];
+            int last = activeVertices[--activeCount];
+            activeVertices[k] = last;
+            positionOf[last] = k;
+            positionOf[v] = -1;
+        }
+        int p = placeOf[i];
+        if (--holders[p] == 0 && listener != null) listener.onExit(report(p), v, timeMillis);
+    }
+
+    // the place as the listener knows it
+    private int report(int p) {
+        return ids == null ? p : ids[p];
+    }
+
+    /**
+     * @param  place the place, as the events name it
+     * @return <tt>true</tt> if the user is near the place
+     */
+    public boolean isInside(int place) {
+        int p = ids == null ? place : place < 0 ? -1 : Arrays.binarySearch(ids, place);
+        return p >= 0 && p < holders.length && holders[p] > 0;
+    }
+
+    /**
+     * @return the number of place thresholds of all the beacons
+     */
+    public int getTriggerCount() {
+        return placeOf.length;
+    }
+}
@@ -0,0 +1,27 @@
+package com.northteam.indoororientation.model;
+
+/**
+ * Receives the place events of the {@link ProximityEngine}. A place is its
+ * position in the list of places of the {@link MapDictionary} of the engine, or
+ * the id of the near places when the engine was built from a {@link Graph} alone.
+ */
+public interface ProximityListener {
+
+    /**
+     * The user came within the proximity distance of a place.
+     *
+     * @param place      the place
+     * @param vertex     the beacon the place was detected from
+     * @param timeMillis the time of the reading that triggered the event
+     */
+    void onEnter(int place, int vertex, long timeMillis);
+
+    /**
+     * The user left the proximity distance of a place, as seen from every beacon near it.
+     *
+     * @param place      the place
+     * @param vertex     the last beacon the place was detected from
+     * @param timeMillis the time of the reading that triggered the event
+     */
+    void onExit(int place, int vertex, long timeMillis);
+}
@@ -0,0 +1,30 @@
+package com.northteam.indoororientation.model;
+
+import org.xmlpull.v1.XmlPullParser;
+import org.xmlpull.v1.XmlPullParserException;
+import org.xmlpull.v1.XmlPullParserFactory;
+
+/**
+ * Creates the pull parsers used by {@link XmlParser}, so that the map can be
+ * read with the parser of the platform: the one built into Android on a device,
+ * any XmlPull implementation on the classpath on a JVM.
+ */
+public interface PullParserFactory {
+
+    /**
+     * Looks the implementation up with {@link XmlPullParserFactory#newInstance()},
+     * e.g. kXML2 when it is on the classpath.
+     */
+    PullParserFactory XMLPULL = new PullParserFactory() {
+        @Override
+        public XmlPullParser newPullParser() throws XmlPullParserException {
+            return XmlPullParserFactory.newInstance().newPullParser();
+        }
+    };
+
+    /**
+     * @return a new parser, without namespace processing
+     * @throws XmlPullParserException if no parser can be created
+     */
+    XmlPullParser newPullParser() throws XmlPullParserException;
+}
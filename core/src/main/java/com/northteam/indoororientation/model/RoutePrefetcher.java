@@ -0,0 +1,244 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.metrics.Counter;
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Computes the routes to the destination before the {@link Router} is asked
+ * for them, on a background thread of the lowest priority.
+ * <p>
+ * A router answers every query to a destination from one shortest paths tree
+ * rooted there, so the query that pays for a route is the first one after the
+ * destination changed. The prefetcher builds that tree as soon as the
+ * destination is set, along with the routes from where the user is and from the
+ * next beacons a {@link TrajectoryPredictor} expects them to reach. The router
+ * takes the tree in place of computing one (see {@link Router#setPrefetcher}),
+ * and the predicted routes are returned as they are.
+ * <p>
+ * A tree computed while {@link Graph#updateWeights} changed the weights is
+ * thrown away. Requests are coalesced: when the thread is busy, only the
+ * latest request is computed next.
+ * <p>
+ * {@link #onVertex} must be called from the thread of the router; the other
+ * methods can be called from any thread.
+ */
+public class RoutePrefetcher {
+
+    public static final int DEFAULT_PREDICTIONS = 2;
+
+    private static final LatencyHistogram BUILD = MetricsRegistry.getDefault().histogram("route.prefetch");
+    private static final Counter HITS = MetricsRegistry.getDefault().counter("route.prefetch.hit");
+    private static final Counter STALE = MetricsRegistry.getDefault().counter("route.prefetch.stale");
+
+    private final Graph G;
+    private final TrajectoryPredictor predictor;
+    private final int[] predicted;
+    private final ExecutorService executor;
+    private final AtomicReference<Request> pending = new AtomicReference<Request>();
+    private final AtomicReference<Prefetch> ready = new AtomicReference<Prefetch>();
+    private volatile int destination = -1;
+    private volatile RouteProfile profile = RouteProfile.ANY;
+    private volatile Request served;   // the tree the router has, so there is no need to build it
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            Request r;
+            while ((r = pending.getAndSet(null)) != null)
+                build(r);
+        }
+    };
+
+    public RoutePrefetcher(Graph G) {
+        this(G, DEFAULT_PREDICTIONS);
+    }
+
+    /**
+     * @param G           the map
+     * @param predictions the number of next beacons to compute routes from
+     */
+    public RoutePrefetcher(Graph G, int predictions) {
+        if (predictions < 0) throw new IllegalArgumentException("predictions must be nonnegative");
+        this.G = G;
+        this.predictor = new TrajectoryPredictor(G);
+        this.predicted = new int[predictions];
+        this.executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "route-prefetch");
+                t.setDaemon(true);
+                t.setPriority(Thread.MIN_PRIORITY);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Sets the destination and starts computing the routes to it.
+     *
+     * @param to      the destination vertex; -1 to stop prefetching
+     * @param profile the edges the routes can use
+     */
+    public void setDestination(int to, RouteProfile profile) {
+        this.profile = profile;
+        this.destination = to;
+        Prefetch last = ready.get();
+        if (last != null && last.request.to != to) ready.compareAndSet(last, null);
+        if (to >= 0) request(new Request(to, profile, -1, new int[0], G.weightVersion()));
+    }
+
+    /**
+     * Records a position of the user and, if the router does not have the tree
+     * of the destination yet, asks for it with the routes from that position and
+     * from the next beacons predicted.
+     *
+     * @param v the vertex the user was located at
+     */
+    public void onVertex(int v) {
+        predictor.observe(v);
+        int to = destination;
+        RouteProfile profile = this.profile;
+        int version = G.weightVersion();
+        Request served = this.served;
+        if (to < 0 || served != null && served.to == to && served.avoid == profile.getAvoid()
+                && served.version == version) return;
+        int n = predictor.predict(predicted);
+        int[] next = new int[n];
+        System.arraycopy(predicted, 0, next, 0, n);
+        request(new Request(to, profile, v, next, version));
+    }
+
+    private void request(Request r) {
+        if (r.sameTree(served)) return;
+        if (pending.getAndSet(r) == null) executor.execute(drain);
+    }
+
+    private void build(Request r) {
+        if (r.sameTree(served)) return;
+        Prefetch last = ready.get();
+        if (last != null && r.sameTree(last.request) && last.covers(r)) return;
+        long start = System.nanoTime();
+        DijkstraSP tree = new DijkstraSP(G, r.to, r.profile);
+        int[] from = new int[r.next.length + 1];
+        @SuppressWarnings("unchecked") // an array of a generic type can not be created
+        Iterable<Edge>[] routes = (Iterable<Edge>[]) new Iterable[from.length];
+        from[0] = r.vertex;
+        routes[0] = r.vertex < 0 ? null : tree.pathFrom(r.vertex);
+        for (int i = 0; i < r.next.length; i++) {
+            from[i + 1] = r.next[i];
+            routes[i + 1] = tree.pathFrom(r.next[i]);
+        }
+        Prefetch replaced = ready.getAndSet(new Prefetch(r, tree, from, routes));
+        if (replaced != null) STALE.inc();
+        BUILD.recordSince(start);
+    }
+
+    /**
+     * Takes the tree computed for a destination, if it is ready and was computed
+     * with the weights the graph has now. Called by the router that will use it.
+     */
+    Prefetch take(int to, RouteProfile profile) {
+        Prefetch p = ready.get();
+        if (p == null || p.request.to != to || p.request.avoid != profile.getAvoid()) return null;
+        if (!ready.compareAndSet(p, null)) return null;
+        if (p.request.version != G.weightVersion()) {
+            STALE.inc();
+            return null;
+        }
+        return p;
+    }
+
+    /**
+     * Tells the prefetcher the tree the router computed or took, so that it is
+     * not computed again.
+     */
+    void onServed(DijkstraSP tree) {
+        served = tree == null ? null
+                : new Request(tree.source(), tree.profile(), -1, new int[0], G.weightVersion());
+    }
+
+    /**
+     * @return the predictor fed by {@link #onVertex}
+     */
+    public TrajectoryPredictor getPredictor() {
+        return predictor;
+    }
+
+    /**
+     * Stops the background thread.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private static final class Request {
+        final int to;
+        final RouteProfile profile;
+        final int avoid;
+        final int vertex;    // where the user is; -1 if not known
+        final int[] next;    // the beacons predicted next
+        final int version;   // the weight version of the graph when requested
+
+        Request(int to, RouteProfile profile, int vertex, int[] next, int version) {
+            this.to = to;
+            this.profile = profile;
+            this.avoid = profile.getAvoid();
+            this.vertex = vertex;
+            this.next = next;
+            this.version = version;
+        }
+
+        // true if the tree of r is the tree of this request
+        boolean sameTree(Request r) {
+            return r != null && r.to == to && r.avoid == avoid && r.version == version;
+        }
+    }
+
+    /**
+     * A tree rooted at a destination and the routes from a few vertices to it.
+     */
+    static final class Prefetch {
+        final Request request;
+        final DijkstraSP tree;
+        private final int[] from;
+        private final Iterable<Edge>[] routes;
+
+        Prefetch(Request request, DijkstraSP tree, int[] from, Iterable<Edge>[] routes) {
+            this.request = request;
+            this.tree = tree;
+            this.from = from;
+            this.routes = routes;
+        }
+
+        // true if the routes of r were computed too
+        boolean covers(Request r) {
+            if (r.vertex >= 0 && indexOf(r.vertex) < 0) return false;
+            for (int v : r.next)
+                if (indexOf(v) < 0) return false;
+            return true;
+        }
+
+        /**
+         * @return the route computed from <tt>v</tt>, or <tt>null</tt> if it was not
+         *         computed or <tt>v</tt> can not reach the destination
+         */
+        Iterable<Edge> routeFrom(int v) {
+            int i = indexOf(v);
+            if (i < 0 || routes[i] == null) return null;
+            HITS.inc();
+            return routes[i];
+        }
+
+        private int indexOf(int v) {
+            for (int i = 0; i < from.length; i++)
+                if (from[i] == v) return i;
+            return -1;
+        }
+    }
+}
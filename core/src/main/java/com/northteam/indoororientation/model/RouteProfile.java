@@ -0,0 +1,68 @@
+package com.northteam.indoororientation.model;
+
+/**
+ * A kind of walker and the edges of the map they can not use, e.g. stairs for a
+ * wheelchair. A profile is a view of the {@link Graph} without those edges:
+ * {@link DijkstraSP} skips them as it goes, so the graph is never copied.
+ */
+public final class RouteProfile {
+
+    /**
+     * Uses every edge.
+     */
+    public static final RouteProfile ANY = new RouteProfile("any", 0);
+
+    /**
+     * Avoids stairs, for wheelchairs and pushchairs.
+     */
+    public static final RouteProfile STEP_FREE = new RouteProfile("step-free", Edge.STAIRS);
+
+    /**
+     * Avoids going outdoors.
+     */
+    public static final RouteProfile INDOOR = new RouteProfile("indoor", Edge.OUTDOOR);
+
+    private final String name;
+    private final int avoid;
+
+    /**
+     * @param name  the name of the profile
+     * @param avoid the attributes of the edges it can not use, as in {@link Edge#STAIRS}
+     */
+    public RouteProfile(String name, int avoid) {
+        this.name = name;
+        this.avoid = avoid;
+    }
+
+    /**
+     * Returns the profile that avoids the attributes named in <tt>names</tt>,
+     * as in {@link Edge#parseAttributes}.
+     */
+    public static RouteProfile avoiding(String names) {
+        int avoid = Edge.parseAttributes(names);
+        if (avoid == 0) return ANY;
+        if (avoid == STEP_FREE.avoid) return STEP_FREE;
+        if (avoid == INDOOR.avoid) return INDOOR;
+        return new RouteProfile("avoid " + names, avoid);
+    }
+
+    /**
+     * Returns true if walkers of this profile can use edge <tt>e</tt>.
+     */
+    public boolean allows(Edge e) {
+        return (e.attributes & avoid) == 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getAvoid() {
+        return avoid;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
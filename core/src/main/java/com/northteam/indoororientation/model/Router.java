@@ -0,0 +1,185 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.metrics.Counter;
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+
+/**
+ * Answers route queries between two vertices of the map.
+ * <p>
+ * The destination of a walk stays the same while the position changes, so the
+ * router keeps the last shortest paths tree it computed, rooted at the
+ * destination, and answers every query to that destination by walking the tree
+ * from the position. A query that has the root of the tree as either end is a
+ * cache hit; any other query computes a new tree rooted at its destination.
+ * Queries for another {@link RouteProfile} than the tree's are misses too.
+ * <p>
+ * On a graph that is not frozen the weights can change. A cached tree computed
+ * for other weights than the current ones, as told by {@link Graph#weightVersion},
+ * is not used again: the next query computes a new one. A router that is asked
+ * to {@link #listen} repairs its tree instead, inside {@link Graph#updateWeights},
+ * which is then to be called on the thread of the router; call {@link #close}
+ * when such a router is not needed any more, as the graph keeps its listeners.
+ * <p>
+ * With a {@link RoutePrefetcher}, a query that would compute a new tree takes
+ * the one the prefetcher computed in the background instead, if it is ready.
+ * <p>
+ * This class is not thread safe, except for {@link #estimateBytes}.
+ */
+public class Router implements Graph.WeightListener {
+
+    private static final LatencyHistogram QUERY = MetricsRegistry.getDefault().histogram("route.query");
+    private static final Counter HITS = MetricsRegistry.getDefault().counter("route.cache.hit");
+    private static final Counter MISSES = MetricsRegistry.getDefault().counter("route.cache.miss");
+    private static final Counter REPAIRED = MetricsRegistry.getDefault().counter("route.repair.vertices");
+
+    private final Graph G;
+    private volatile DijkstraSP tree;  // volatile for estimateBytes on another thread
+    private int treeVersion;      // the weight version of the graph the tree is right for
+    private Thread listening;     // the thread repairs run on, or null if the router does not listen
+    private RoutePrefetcher prefetcher;
+    private RoutePrefetcher.Prefetch prefetched;  // the routes computed with the tree, if it was prefetched
+
+    public Router(Graph G) {
+        this.G = G;
+    }
+
+    /**
+     * Repairs the cached tree when {@link Graph#updateWeights} changes the
+     * weights, rather than computing a new one at the next query. The repair runs
+     * inside <tt>updateWeights</tt>, so the weights must be changed on the thread
+     * that calls this method and the queries; changes made on another thread are
+     * not repaired, and the next query computes a new tree as if the router did
+     * not listen.
+     *
+     * @return this router
+     * @throws IllegalStateException if the graph is frozen, as its weights do not change
+     */
+    public Router listen() {
+        if (G.isFrozen()) throw new IllegalStateException("the weights of a frozen graph do not change");
+        if (listening == null) G.addWeightListener(this);
+        listening = Thread.currentThread();
+        return this;
+    }
+
+    @Override
+    public void onWeightsChanged(Graph G, WeightBatch changes) {
+        if (Thread.currentThread() != listening) return;
+        // a tree that missed an earlier change can not be repaired with this one
+        if (tree == null || treeVersion != G.weightVersion() - 1) return;
+        REPAIRED.add(tree.repair(changes));
+        treeVersion = G.weightVersion();
+        prefetched = null;
+        if (prefetcher != null) prefetcher.onServed(tree);
+    }
+
+    /**
+     * Takes the trees computed by <tt>prefetcher</tt> instead of computing them,
+     * when they are ready.
+     *
+     * @param prefetcher the prefetcher of this router's graph, or <tt>null</tt>
+     */
+    public void setPrefetcher(RoutePrefetcher prefetcher) {
+        this.prefetcher = prefetcher;
+        if (prefetcher != null) prefetcher.onServed(tree);
+    }
+
+    /**
+     * Stops listening to the weights of the graph, if the router {@link #listen listens}.
+     */
+    public void close() {
+        if (listening == null) return;
+        G.removeWeightListener(this);
+        listening = null;
+    }
+
+    /**
+     * Returns the shortest route between two vertices.
+     *
+     * @param  from the vertex where the user is
+     * @param  to the destination vertex
+     * @return the edges of the route in walking order; <tt>null</tt> if
+     *         <tt>to</tt> can not be reached from <tt>from</tt>
+     * @throws IndexOutOfBoundsException unless both vertices are between 0 and V-1
+     */
+    public Iterable<Edge> route(int from, int to) {
+        return route(from, to, RouteProfile.ANY);
+    }
+
+    /**
+     * Returns the shortest route between two vertices that uses only the edges
+     * <tt>profile</tt> allows.
+     *
+     * @param  from the vertex where the user is
+     * @param  to the destination vertex
+     * @param  profile the edges that can be used
+     * @return the edges of the route in walking order; <tt>null</tt> if
+     *         <tt>to</tt> can not be reached from <tt>from</tt>
+     * @throws IndexOutOfBoundsException unless both vertices are between 0 and V-1
+     */
+    public Iterable<Edge> route(int from, int to, RouteProfile profile) {
+        long start = System.nanoTime();
+        Iterable<Edge> route;
+        int version = G.weightVersion();
+        if (tree != null && treeVersion != version) forget();
+        boolean cached = tree != null && tree.profile().getAvoid() == profile.getAvoid();
+        if (cached && tree.source() == to) {
+            HITS.inc();
+            route = prefetched != null ? prefetched.routeFrom(from) : null;
+            if (route == null) route = tree.pathFrom(from);
+        } else if (cached && tree.source() == from) {
+            HITS.inc();
+            route = tree.pathTo(to);
+        } else {
+            prefetched = prefetcher != null ? prefetcher.take(to, profile) : null;
+            if (prefetched != null) {
+                HITS.inc();
+                tree = prefetched.tree;
+                treeVersion = version;
+                route = prefetched.routeFrom(from);
+                if (route == null) route = tree.pathFrom(from);
+            } else {
+                MISSES.inc();
+                tree = new DijkstraSP(G, to, profile);
+                treeVersion = version; // if the weights changed meanwhile, the next query computes it again
+                route = tree.pathFrom(from);
+            }
+            if (prefetcher != null) prefetcher.onServed(tree);
+        }
+        QUERY.recordSince(start);
+        return route;
+    }
+
+    /**
+     * Forgets the cached tree; the next query computes a new one.
+     *
+     * @return the estimated bytes released
+     */
+    public long clearCache() {
+        long bytes = estimateBytes();
+        forget();
+        return bytes;
+    }
+
+    private void forget() {
+        tree = null;
+        prefetched = null;
+        if (prefetcher != null) prefetcher.onServed(null);
+    }
+
+    /**
+     * Estimates the bytes of the cached tree. Unlike the other methods, this one
+     * can be called on any thread, e.g. by a
+     * {@link com.northteam.indoororientation.memory.MemoryBudget}.
+     *
+     * @return the estimated bytes of the cached tree
+     */
+    public long estimateBytes() {
+        DijkstraSP t = tree;
+        return t == null ? 0 : t.estimateBytes();
+    }
+
+    public Graph getGraph() {
+        return G;
+    }
+}
@@ -0,0 +1,66 @@
+package com.northteam.indoororientation.model;
+
+/**
+ * Smooths the RSSI readings of every beacon with an exponential moving average.
+ * A beacon that has not been heard for longer than the stale window starts again
+ * from its next reading instead of averaging with old values.
+ */
+public class RssiFilter {
+
+    public static final float DEFAULT_ALPHA = 0.3f;
+    public static final long DEFAULT_STALE_MILLIS = 5000;
+
+    private final float alpha;
+    private final long staleMillis;
+    private final float[] value;   // value[v] = smoothed rssi of the beacon at vertex v
+    private final long[] lastSeen; // lastSeen[v] = time of the last reading of v
+
+    public RssiFilter(int V) {
+        this(V, DEFAULT_ALPHA, DEFAULT_STALE_MILLIS);
+    }
+
+    /**
+     * @param V           number of vertices of the map
+     * @param alpha       weight of a new reading, between 0 and 1
+     * @param staleMillis time after which a beacon's average is discarded
+     */
+    public RssiFilter(int V, float alpha, long staleMillis) {
+        if (alpha <= 0 || alpha > 1) throw new IllegalArgumentException("alpha must be in ]0, 1]");
+        this.alpha = alpha;
+        this.staleMillis = staleMillis;
+        value = new float[V];
+        lastSeen = new long[V];
+        for (int v = 0; v < V; v++)
+            lastSeen[v] = Long.MIN_VALUE;
+    }
+
+    /**
+     * Adds a reading of the beacon at vertex <tt>v</tt>.
+     *
+     * @param  v the vertex of the beacon
+     * @param  rssi the measured signal strength, in dBm
+     * @param  timeMillis the time of the reading
+     * @return the smoothed signal strength of <tt>v</tt>
+     */
+    public float update(int v, int rssi, long timeMillis) {
+        if (isStale(v, timeMillis)) value[v] = rssi;
+        else value[v] += alpha * (rssi - value[v]);
+        lastSeen[v] = timeMillis;
+        return value[v];
+    }
+
+    public float value(int v) {
+        return value[v];
+    }
+
+    public long lastSeen(int v) {
+        return lastSeen[v];
+    }
+
+    /**
+     * Returns true if the beacon at <tt>v</tt> has not been heard within the stale window.
+     */
+    public boolean isStale(int v, long timeMillis) {
+        return lastSeen[v] == Long.MIN_VALUE || timeMillis - lastSeen[v] > staleMillis;
+    }
+}
@@ -0,0 +1,151 @@
+package com.northteam.indoororientation.model;
+
+/**
+ * Guesses the next beacons the user will reach from the last vertices they
+ * were located at.
+ * <p>
+ * The heading of the user is the direction of the last edge walked, taken from
+ * the <tt>compass</tt> of the edge between two consecutive positions. The
+ * vertices next to the current one are ranked by how little the edge to them
+ * turns from that heading; vertices the user has just been at come last, so
+ * that turning back is only predicted at a dead end. Without a heading, e.g.
+ * after the first position, nearer vertices come first.
+ * <p>
+ * This class is not thread safe.
+ */
+public class TrajectoryPredictor {
+
+    /** Number of positions remembered. */
+    public static final int HISTORY = 4;
+
+    private static final float UNKNOWN_TURN = 90f;  // turn assumed for an edge without a compass
+    private static final float BACK_PENALTY = 360f; // more than any turn
+
+    private final Graph G;
+    private final int[] recent = new int[HISTORY];  // ring buffer of the last positions
+    private int head;                               // index of the latest position
+    private int size;
+
+    private int[] candidates = new int[8];
+    private float[] scores = new float[8];
+
+    public TrajectoryPredictor(Graph G) {
+        this.G = G;
+    }
+
+    /**
+     * Records a position; the same vertex twice in a row counts once.
+     *
+     * @param v the vertex the user was located at
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public void observe(int v) {
+        if (v < 0 || v >= G.getV())
+            throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (G.getV() - 1));
+        if (size > 0 && recent[head] == v) return;
+        head = (head + 1) % HISTORY;
+        recent[head] = v;
+        if (size < HISTORY) size++;
+    }
+
+    /**
+     * Forgets the positions, e.g. after the user was lost.
+     */
+    public void reset() {
+        size = 0;
+    }
+
+    /**
+     * @return the latest position, or -1 if there is none
+     */
+    public int current() {
+        return size == 0 ? -1 : recent[head];
+    }
+
+    /**
+     * Returns the direction the user is walking in, in degrees clockwise from the
+     * map's north, from the latest edge walked that has a compass.
+     *
+     * @return the heading, or {@link Compass#UNKNOWN}
+     */
+    public float heading() {
+        for (int i = 0; i + 1 < size; i++) {
+            int to = recent[(head - i + HISTORY) % HISTORY];
+            int from = recent[(head - i - 1 + HISTORY) % HISTORY];
+            Edge e = G.edge(from, to);
+            // consecutive positions are not always neighbours when a beacon was not heard
+            if (e == null) continue;
+            float heading = Compass.toDegrees(Compass.leaving(e, from));
+            if (!Float.isNaN(heading)) return heading;
+        }
+        return Compass.UNKNOWN;
+    }
+
+    /**
+     * Ranks the vertices next to the latest position, most likely next first.
+     *
+     * @param  next receives the vertices, up to <tt>next.length</tt> of them
+     * @return the number of vertices written
+     */
+    public int predict(int[] next) {
+        if (size == 0 || next.length == 0) return 0;
+        int c = recent[head];
+        float heading = heading();
+        int n = 0;
+        for (Edge e : G.adj(c)) {
+            if (n == candidates.length) grow();
+            int w = e.other(c);
+            float score = 0;
+            if (!Float.isNaN(heading)) {
+                float turn = Compass.difference(heading, Compass.toDegrees(Compass.leaving(e, c)));
+                score = Float.isNaN(turn) ? UNKNOWN_TURN : turn;
+            }
+            if (visited(w)) score += BACK_PENALTY;
+            candidates[n] = w;
+            scores[n] = score;
+            n++;
+        }
+        // selection of the best few, ties going to the nearer vertex
+        int k = Math.min(n, next.length);
+        for (int i = 0; i < k; i++) {
+            int best = i;
+            for (int j = i + 1; j < n; j++) {
+                if (scores[j] < scores[best]
+                        || scores[j] == scores[best] && weight(c, candidates[j]) < weight(c, candidates[best]))
+                    best = j;
+            }
+            swap(i, best);
+            next[i] = candidates[i];
+        }
+        return k;
+    }
+
+    private boolean visited(int w) {
+        for (int i = 1; i < size; i++)
+            if (recent[(head - i + HISTORY) % HISTORY] == w) return true;
+        return false;
+    }
+
+    private float weight(int v, int w) {
+        Edge e = G.edge(v, w);
+        return e == null ? Float.POSITIVE_INFINITY : e.getWeight();
+    }
+
+    private void swap(int i, int j) {
+        int v = candidates[i];
+        candidates[i] = candidates[j];
+        candidates[j] = v;
+        float s = scores[i];
+        scores[i] = scores[j];
+        scores[j] = s;
+    }
+
+    private void grow() {
+        int[] c = new int[2 * candidates.length];
+        System.arraycopy(candidates, 0, c, 0, candidates.length);
+        candidates = c;
+        float[] s = new float[2 * scores.length];
+        System.arraycopy(scores, 0, s, 0, scores.length);
+        scores = s;
+    }
+}
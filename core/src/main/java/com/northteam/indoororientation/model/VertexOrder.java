@@ -0,0 +1,248 @@
+package com.northteam.indoororientation.model;
+
+import java.util.Arrays;
+
+/**
+ * A renumbering of the vertices of a {@link Graph}, for cache locality.
+ * <p>
+ * A map file numbers its beacons in the order they were surveyed, so the
+ * neighbours of a vertex can be anywhere in the arrays a search reads: the
+ * distances and the index of its priority queue, the adjacency lists and the
+ * beacons. Numbering the vertices so that neighbours get close numbers keeps a
+ * search in the few cache lines around the vertices it is expanding. The
+ * {@link #reverseCuthillMcKee Reverse Cuthill-McKee} order gives the smallest
+ * spread of numbers between neighbours; the {@link #breadthFirst breadth-first}
+ * order is cheaper and nearly as good on corridor-like maps. The map files have
+ * no coordinates, so there is no order along a space-filling curve.
+ * <p>
+ * {@link #apply} builds the renumbered graph: new edges between the new vertex
+ * numbers, with the same weights, compass and attributes, allocated in the new
+ * order, and new beacons with the same unique ids and near places. The near
+ * places keep their place ids, which do not change. The renumbered graph keeps
+ * the order, so that vertex numbers can be translated back and forth to the beacon
+ * ids of the map file with {@link #toOriginal} and {@link #fromOriginal}; the
+ * unique ids map to the new numbers through {@link Graph#indexOf}.
+ */
+public class VertexOrder {
+
+    private final int[] newOf; // newOf[v] = new number of the vertex numbered v in the map file
+    private final int[] oldOf; // oldOf[v] = number in the map file of the new vertex v
+
+    private VertexOrder(int[] oldOf) {
+        this.oldOf = oldOf;
+        this.newOf = new int[oldOf.length];
+        for (int v = 0; v < oldOf.length; v++)
+            newOf[oldOf[v]] = v;
+    }
+
+    /**
+     * Numbers the vertices in the order a breadth-first search visits them, one
+     * connected component after the other, each from its vertex of lowest degree.
+     *
+     * @param  G the graph
+     * @return the order
+     */
+    public static VertexOrder breadthFirst(Graph G) {
+        return new VertexOrder(search(G, false));
+    }
+
+    /**
+     * Numbers the vertices in Reverse Cuthill-McKee order: every connected
+     * component is searched breadth-first from a vertex at the end of a longest
+     * shortest path, visiting the neighbours of a vertex by increasing degree, and
+     * the whole order is reversed.
+     *
+     * @param  G the graph
+     * @return the order
+     */
+    public static VertexOrder reverseCuthillMcKee(Graph G) {
+        int[] order = search(G, true);
+        for (int i = 0, j = order.length - 1; i < j; i++, j--) {
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return new VertexOrder(order);
+    }
+
+    // the vertices in breadth-first order, component by component
+    private static int[] search(Graph G, boolean cuthillMcKee) {
+        int V = G.getV();
+        int[] degree = new int[V];
+        for (int v = 0; v < V; v++)
+            degree[v] = G.degree(v);
+        int[] order = new int[V];
+        int[] level = new int[V];  // scratch of peripheral
+        Arrays.fill(level, -1);
+        boolean[] marked = new boolean[V];
+        int[] neighbours = new int[16];
+        int n = 0;
+        for (int s : byDegree(degree)) {
+            if (marked[s]) continue;
+            if (cuthillMcKee) s = peripheral(G, s, order, n, level);
+            int head = n;
+            order[n++] = s;
+            marked[s] = true;
+            while (head < n) {
+                int v = order[head++];
+                int k = 0;
+                for (Edge e : G.adj(v)) {
+                    int w = e.other(v);
+                    if (marked[w]) continue;
+                    marked[w] = true;
+                    if (k == neighbours.length) neighbours = Arrays.copyOf(neighbours, 2 * k);
+                    neighbours[k++] = w;
+                }
+                if (cuthillMcKee) sortByDegree(neighbours, k, degree);
+                System.arraycopy(neighbours, 0, order, n, k);
+                n += k;
+            }
+        }
+        return order;
+    }
+
+    // the vertices sorted by degree, by counting
+    private static int[] byDegree(int[] degree) {
+        int max = 0;
+        for (int d : degree) max = Math.max(max, d);
+        int[] start = new int[max + 2];
+        for (int d : degree) start[d + 1]++;
+        for (int d = 0; d <= max; d++) start[d + 1] += start[d];
+        int[] sorted = new int[degree.length];
+        for (int v = 0; v < degree.length; v++)
+            sorted[start[degree[v]]++] = v;
+        return sorted;
+    }
+
+    // insertion sort of a[0..k) by degree; a vertex has few neighbours
+    private static void sortByDegree(int[] a, int k, int[] degree) {
+        for (int i = 1; i < k; i++) {
+            int v = a[i];
+            int j = i;
+            for (; j > 0 && degree[a[j - 1]] > degree[v]; j--)
+                a[j] = a[j - 1];
+            a[j] = v;
+        }
+    }
+
+    /*
+     * A vertex at the end of a longest shortest path of the component of s, or
+     * nearly: searches again from the farthest vertex, of lowest degree, as long
+     * as it is farther than the last one (George and Liu). Uses queue[from..] as
+     * scratch, and level, which is -1 for every vertex before and after.
+     */
+    private static int peripheral(Graph G, int s, int[] queue, int from, int[] level) {
+        int eccentricity = -1;
+        while (true) {
+            int n = from;
+            queue[n++] = s;
+            level[s] = 0;
+            int far = s;
+            for (int head = from; head < n; head++) {
+                int v = queue[head];
+                for (Edge e : G.adj(v)) {
+                    int w = e.other(v);
+                    if (level[w] >= 0) continue;
+                    level[w] = level[v] + 1;
+                    queue[n++] = w;
+                    if (level[w] > level[far] || level[w] == level[far] && G.degree(w) < G.degree(far))
+                        far = w;
+                }
+            }
+            int reached = level[far];
+            for (int i = from; i < n; i++)
+                level[queue[i]] = -1;
+            if (reached <= eccentricity) return s;
+            eccentricity = reached;
+            s = far;
+        }
+    }
+
+    /**
+     * Builds the graph with the vertices renumbered by this order. The edges and
+     * the beacons are new objects, one edge for every edge of <tt>G</tt>, parallel
+     * edges and self loops included; the near places are shared, as they can not
+     * be changed. A graph renumbered before is renumbered again, and keeps the way
+     * back to the numbers of the map file. The weight listeners are not copied.
+     *
+     * @param  G the graph the order was computed for
+     * @return the renumbered graph, not frozen
+     * @throws IllegalArgumentException if <tt>G</tt> has another number of vertices
+     */
+    public Graph apply(Graph G) {
+        int V = G.getV();
+        if (V != oldOf.length)
+            throw new IllegalArgumentException("the order is for " + oldOf.length + " vertices, not " + V);
+        GraphBuilder builder = new GraphBuilder(V, G.getE());
+        for (int v = 0; v < V; v++) {
+            int old = oldOf[v];
+            Beacon b = G.getBeacon(old);
+            if (b != null) {
+                builder.addBeacon(new Beacon(v, b.getUiniqueId(), b.getName(), b.getNamePlace()));
+                for (NearPlace np : b.getAdjNear())
+                    builder.addNearPlace(v, np);
+            }
+            int selfLoops = 0;
+            for (Edge e : G.adj(old)) {
+                int w = newOf[e.other(old)];
+                if (w < v) continue;                          // added from w
+                if (w == v && selfLoops++ % 2 == 1) continue; // a self loop is listed twice
+                // every edge, parallel ones included: the lighter of two may be the one on a shortest path
+                builder.addParallelEdge(new Edge(newOf[e.v], newOf[e.w], e.getWeight(), e.compass, e.attributes));
+            }
+        }
+        Graph renumbered = builder.build();
+        VertexOrder before = G.getVertexOrder();
+        renumbered.setVertexOrder(before == null ? this : before.then(this));
+        return renumbered;
+    }
+
+    // this order followed by next
+    private VertexOrder then(VertexOrder next) {
+        int[] original = new int[oldOf.length];
+        for (int v = 0; v < original.length; v++)
+            original[v] = oldOf[next.oldOf[v]];
+        return new VertexOrder(original);
+    }
+
+    /**
+     * Returns the largest difference between the numbers of the two ends of an
+     * edge, the bandwidth of the adjacency matrix: the smaller, the closer the
+     * neighbours of every vertex are in memory.
+     *
+     * @param  G the graph
+     * @return the bandwidth
+     */
+    public static int bandwidth(Graph G) {
+        int bandwidth = 0;
+        for (Edge e : G.edges())
+            bandwidth = Math.max(bandwidth, Math.abs(e.v - e.w));
+        return bandwidth;
+    }
+
+    /**
+     * Returns the number in the map file of a vertex of the renumbered graph.
+     *
+     * @param  v the vertex of the renumbered graph
+     * @return the beacon id it had in the map file
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public int toOriginal(int v) {
+        return oldOf[v];
+    }
+
+    /**
+     * Returns the vertex of the renumbered graph of a beacon id of the map file.
+     *
+     * @param  id the beacon id in the map file
+     * @return its vertex in the renumbered graph
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>id</tt> &lt; V
+     */
+    public int fromOriginal(int id) {
+        return newOf[id];
+    }
+
+    public int getV() {
+        return oldOf.length;
+    }
+}
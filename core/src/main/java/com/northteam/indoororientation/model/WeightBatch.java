@@ -0,0 +1,81 @@
+package com.northteam.indoororientation.model;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * New weights for some edges of a {@link Graph}, applied together by
+ * {@link Graph#updateWeights}, e.g. the crowding of every corridor measured in
+ * the last few seconds. A closed corridor has weight
+ * <tt>Float.POSITIVE_INFINITY</tt>.
+ * <p>
+ * Once applied, the batch also holds the weight every edge had before, so that
+ * the shortest paths that depend on the graph can be repaired from it.
+ */
+public class WeightBatch {
+
+    private Edge[] edges = new Edge[8];
+    private float[] weights = new float[8];
+    private float[] previous = new float[8];
+    private final Map<Edge, Integer> index = new IdentityHashMap<Edge, Integer>();
+    private int n;
+
+    /**
+     * Sets the new weight of edge <tt>e</tt>. Setting an edge twice keeps the
+     * last weight.
+     *
+     * @param  e the edge
+     * @param  weight the new weight
+     * @return this batch
+     * @throws IllegalArgumentException if <tt>weight</tt> is negative or <tt>NaN</tt>
+     */
+    public WeightBatch set(Edge e, float weight) {
+        if (!(weight >= 0)) throw new IllegalArgumentException("weight " + weight + " is negative or NaN");
+        Integer i = index.get(e);
+        if (i != null) {
+            weights[i] = weight;
+            return this;
+        }
+        if (n == edges.length) {
+            edges = Arrays.copyOf(edges, 2 * n);
+            weights = Arrays.copyOf(weights, 2 * n);
+            previous = Arrays.copyOf(previous, 2 * n);
+        }
+        index.put(e, n);
+        edges[n] = e;
+        weights[n++] = weight;
+        return this;
+    }
+
+    public int size() {
+        return n;
+    }
+
+    public boolean isEmpty() {
+        return n == 0;
+    }
+
+    public Edge getEdge(int i) {
+        return edges[i];
+    }
+
+    public float getWeight(int i) {
+        return weights[i];
+    }
+
+    /**
+     * @return the weight edge <tt>i</tt> had before the batch was applied
+     */
+    public float getPrevious(int i) {
+        return previous[i];
+    }
+
+    // sets the weights, remembering the ones they replace
+    void apply() {
+        for (int i = 0; i < n; i++) {
+            previous[i] = edges[i].getWeight();
+            edges[i].setWeight(weights[i]);
+        }
+    }
+}
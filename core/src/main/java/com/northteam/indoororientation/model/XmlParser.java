@@ -1,6 +1,8 @@
 package com.northteam.indoororientation.model;
 
-import android.util.Xml;
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+import com.northteam.indoororientation.util.StringPool;
 
 import org.xmlpull.v1.XmlPullParser;
 import org.xmlpull.v1.XmlPullParserException;
@@ -15,11 +17,47 @@ import java.util.List;
  *         Date 09/05/2016
  */
 public class XmlParser {
+    private static final LatencyHistogram PARSE_PLACES = MetricsRegistry.getDefault().histogram("map.parse.places");
+    private static final LatencyHistogram PARSE_BEACONS = MetricsRegistry.getDefault().histogram("map.parse.beacons");
+
     String name;
     String id;
 
     private static final String ns = null;
 
+    private final PullParserFactory factory;
+    private final StringPool strings;
+
+    /**
+     * Creates a parser for the map files that finds the XmlPull implementation on
+     * the classpath.
+     */
+    public XmlParser() {
+        this(PullParserFactory.XMLPULL);
+    }
+
+    /**
+     * @param factory creates the pull parsers, e.g. the platform's own on Android
+     */
+    public XmlParser(PullParserFactory factory) {
+        this(factory, new StringPool());
+    }
+
+    /**
+     * Creates a parser that interns the names and ids it reads in a pool, so that a
+     * name repeated in the files, e.g. the name of a place and the
+     * <tt>namePlace</tt> of its beacons, is kept once. The pool keeps the strings of
+     * every file the parser read, so use a parser, and a pool, for each version of
+     * a map that is loaded, not one for the life of the application.
+     *
+     * @param factory creates the pull parsers, e.g. the platform's own on Android
+     * @param strings the pool of the names and ids
+     */
+    public XmlParser(PullParserFactory factory, StringPool strings) {
+        this.factory = factory;
+        this.strings = strings;
+    }
+
     // We don't use namespaces
 
     /* PLACES */
@@ -31,14 +69,16 @@ public class XmlParser {
      * @throws IOException
      */
     public List<Place> parsePlaces(InputStream in) throws XmlPullParserException, IOException {
+        long start = System.nanoTime();
         try {
-            XmlPullParser parser = Xml.newPullParser();
+            XmlPullParser parser = factory.newPullParser();
             parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
             parser.setInput(in, null);
             parser.nextTag();
             return readPlaces(parser);
         } finally {
             in.close();
+            PARSE_PLACES.recordSince(start);
         }
     }
 
@@ -106,7 +146,7 @@ public class XmlParser {
      */
     private String readIdPlace(XmlPullParser parser) throws IOException, XmlPullParserException {
         parser.require(XmlPullParser.START_TAG, ns, "id");
-        String id = readText(parser);
+        String id = readString(parser);
         parser.require(XmlPullParser.END_TAG, ns, "id");
         return id;
     }
@@ -121,11 +161,16 @@ public class XmlParser {
      */
     private String readNamePlace(XmlPullParser parser) throws IOException, XmlPullParserException {
         parser.require(XmlPullParser.START_TAG, ns, "name");
-        String name = readText(parser);
+        String name = readString(parser);
         parser.require(XmlPullParser.END_TAG, ns, "name");
         return name;
     }
 
+    // The text of a name or id, the same instance as the equal texts read before.
+    private String readString(XmlPullParser parser) throws IOException, XmlPullParserException {
+        return strings.intern(readText(parser));
+    }
+
     // For the tags id and summary, extracts their text values.
     private String readText(XmlPullParser parser) throws IOException, XmlPullParserException {
         String result = "";
@@ -138,6 +183,26 @@ public class XmlParser {
 
     /* BEACONS */
 
+    /**
+     * @param in the stream to parse
+     * @return the list of beacons in the xml file
+     * @throws XmlPullParserException
+     * @throws IOException
+     */
+    public List<Beacon> parseBeacons(InputStream in) throws XmlPullParserException, IOException {
+        long start = System.nanoTime();
+        try {
+            XmlPullParser parser = factory.newPullParser();
+            parser.setFeature(XmlPullParser.FEATURE_PROCESS_NAMESPACES, false);
+            parser.setInput(in, null);
+            parser.nextTag();
+            return readBeacons(parser);
+        } finally {
+            in.close();
+            PARSE_BEACONS.recordSince(start);
+        }
+    }
+
     /**
      * @param parser
      * @return the list of beacons in the xml file
@@ -195,18 +260,22 @@ public class XmlParser {
                 namePlace = readNameLocalBeacon(parser);
             } else if (text.equals("edges")) {
                 edges = readEdges(parser);
-            } else if (text.equals("namePlace")) {
+            } else if (text.equals("nearPlaces")) {
                 nearPlaces = readNearPlaces(parser);
             } else {
                 skip(parser);
             }
         }
         Beacon b = new Beacon(id, uniqueId, name, namePlace);
-        for (Edge e : edges) {
-            b.addAdj(e);
+        if (edges != null) {
+            for (Edge e : edges) {
+                b.addAdj(e);
+            }
         }
-        for (NearPlace np : nearPlaces) {
-            b.addAdjNear(np);
+        if (nearPlaces != null) {
+            for (NearPlace np : nearPlaces) {
+                b.addAdjNear(np);
+            }
         }
 
         return b;
@@ -237,7 +306,7 @@ public class XmlParser {
      */
     private String readUniqueIdBeacon(XmlPullParser parser) throws IOException, XmlPullParserException {
         parser.require(XmlPullParser.START_TAG, ns, "uniqueId");
-        String name = readText(parser);
+        String name = readString(parser);
         parser.require(XmlPullParser.END_TAG, ns, "uniqueId");
         return name;
     }
@@ -252,23 +321,23 @@ public class XmlParser {
      */
     private String readNameBeacon(XmlPullParser parser) throws IOException, XmlPullParserException {
         parser.require(XmlPullParser.START_TAG, ns, "name");
-        String name = readText(parser);
+        String name = readString(parser);
         parser.require(XmlPullParser.END_TAG, ns, "name");
         return name;
     }
 
     /**
-     * Processes nameLocal tags in the feed.
+     * Processes namePlace tags in the feed.
      *
      * @param parser
-     * @return nameLocal of the beacon
+     * @return namePlace of the beacon
      * @throws IOException
      * @throws XmlPullParserException
      */
     private String readNameLocalBeacon(XmlPullParser parser) throws IOException, XmlPullParserException {
-        parser.require(XmlPullParser.START_TAG, ns, "nameLocal");
-        String name = readText(parser);
-        parser.require(XmlPullParser.END_TAG, ns, "nameLocal");
+        parser.require(XmlPullParser.START_TAG, ns, "namePlace");
+        String name = readString(parser);
+        parser.require(XmlPullParser.END_TAG, ns, "namePlace");
         return name;
     }
 
@@ -314,6 +383,7 @@ public class XmlParser {
         int w = -1;
         float weight = 0.0f;
         char compass = '\u0000';
+        int attributes = 0;
         while (parser.next() != XmlPullParser.END_TAG) {
             if (parser.getEventType() != XmlPullParser.START_TAG) {
                 continue;
@@ -327,12 +397,14 @@ public class XmlParser {
                 weight = readWeightEdge(parser);
             } else if (text.equals("compass")) {
                 compass = readCompassEdge(parser);
+            } else if (text.equals("attributes")) {
+                attributes = readAttributesEdge(parser);
             } else {
                 skip(parser);
             }
         }
 
-        return new Edge(v, w, weight, compass);
+        return new Edge(v, w, weight, compass, attributes);
     }
 
     /**
@@ -395,6 +467,21 @@ public class XmlParser {
         return name.charAt(0);
     }
 
+    /**
+     * Processes attributes tags in the feed, e.g. <tt>&lt;attributes&gt;stairs door&lt;/attributes&gt;</tt>.
+     *
+     * @param parser
+     * @return attributes of the edge, as in {@link Edge#parseAttributes}
+     * @throws IOException
+     * @throws XmlPullParserException
+     */
+    private int readAttributesEdge(XmlPullParser parser) throws IOException, XmlPullParserException {
+        parser.require(XmlPullParser.START_TAG, ns, "attributes");
+        String names = readText(parser);
+        parser.require(XmlPullParser.END_TAG, ns, "attributes");
+        return Edge.parseAttributes(names);
+    }
+
     /* NEARPLACES */
 
 
@@ -0,0 +1,20 @@
+package com.northteam.indoororientation.pipeline;
+
+/**
+ * How a {@link SpscRingQueue} copes with items arriving faster than they are taken.
+ */
+public enum Backpressure {
+
+    /**
+     * Every item is handed out in order; when the queue is full the oldest item
+     * is discarded to make room for the new one.
+     */
+    DROP_OLDEST,
+
+    /**
+     * All the items waiting are merged into one when the consumer takes them,
+     * with the queue's {@link SpscRingQueue.Coalescer}; by default the newest
+     * item wins. A full queue still discards its oldest item.
+     */
+    COALESCE
+}
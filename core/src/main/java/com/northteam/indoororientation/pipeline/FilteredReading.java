@@ -0,0 +1,67 @@
+package com.northteam.indoororientation.pipeline;
+
+/**
+ * A reading resolved to its vertex, with the smoothed signal strength, or a step
+ * of the user passed on as it is.
+ */
+public class FilteredReading implements Timed {
+
+    private final int vertex;      // -1 for a step
+    private final float rssi;
+    private final float azimuth;   // NaN for a beacon reading
+    private final long timeMillis;
+    private final long scanNanos;
+
+    public FilteredReading(int vertex, float rssi, long timeMillis, long scanNanos) {
+        this(vertex, rssi, Float.NaN, timeMillis, scanNanos);
+    }
+
+    private FilteredReading(int vertex, float rssi, float azimuth, long timeMillis, long scanNanos) {
+        this.vertex = vertex;
+        this.rssi = rssi;
+        this.azimuth = azimuth;
+        this.timeMillis = timeMillis;
+        this.scanNanos = scanNanos;
+    }
+
+    /**
+     * Returns the step of a {@link ScanReading}.
+     *
+     * @param  step the step
+     * @return the step, for the locate stage
+     */
+    public static FilteredReading step(ScanReading step) {
+        return new FilteredReading(-1, 0, step.getAzimuth(), step.getTimeMillis(), step.getScanNanos());
+    }
+
+    /**
+     * @return <tt>true</tt> if this is a step, not a beacon reading
+     */
+    public boolean isStep() {
+        return vertex < 0;
+    }
+
+    public int getVertex() {
+        return vertex;
+    }
+
+    public float getRssi() {
+        return rssi;
+    }
+
+    /**
+     * @return the heading of a step, or <tt>NaN</tt> for a beacon reading
+     */
+    public float getAzimuth() {
+        return azimuth;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public long getScanNanos() {
+        return scanNanos;
+    }
+}
@@ -0,0 +1,55 @@
+package com.northteam.indoororientation.pipeline;
+
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+import com.northteam.indoororientation.model.Locator;
+import com.northteam.indoororientation.sensor.DeadReckoning;
+
+/**
+ * The locate stage of the {@link PositioningPipeline}: fuses the beacon fixes of
+ * the {@link Locator} with the steps of the user through {@link DeadReckoning}.
+ * <p>
+ * Every time the locator places the user at another vertex, dead reckoning is
+ * anchored there; the steps then move the user along the edges of the map, so
+ * the position keeps up in corridors where the next beacon is not heard yet.
+ * While dead reckoning is {@link DeadReckoning#isTracking tracking}, its vertex
+ * is the position; once the user walked too far since the last fix it is no
+ * longer trusted and the position is the locator's again. A position is only
+ * passed on when it changes.
+ * <p>
+ * Runs on the locate thread only.
+ */
+class LocateProcessor implements Stage.Processor<FilteredReading, Position> {
+
+    private static final LatencyHistogram SCAN_TO_POSITION =
+            MetricsRegistry.getDefault().histogram("pipeline.scan_to_position");
+
+    private final Locator locator;
+    private final DeadReckoning deadReckoning;
+    private int fix = Locator.UNKNOWN;       // the locator's vertex
+    private int position = Locator.UNKNOWN;  // the vertex last passed on
+
+    LocateProcessor(Locator locator, DeadReckoning deadReckoning) {
+        this.locator = locator;
+        this.deadReckoning = deadReckoning;
+    }
+
+    @Override
+    public Position process(FilteredReading r) {
+        if (r.isStep()) {
+            if (!deadReckoning.isTracking()) return null;
+            deadReckoning.onStep(r.getAzimuth());
+        } else {
+            int v = locator.update(r.getVertex(), r.getRssi(), r.getTimeMillis());
+            if (v != fix) {
+                fix = v;
+                deadReckoning.onFix(v);
+            }
+        }
+        int v = deadReckoning.isTracking() ? deadReckoning.getVertex() : fix;
+        if (v == position) return null;
+        position = v;
+        SCAN_TO_POSITION.recordSince(r.getScanNanos());
+        return new Position(v, r.getTimeMillis(), r.getScanNanos());
+    }
+}
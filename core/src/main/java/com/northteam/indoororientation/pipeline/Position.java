@@ -0,0 +1,30 @@
+package com.northteam.indoororientation.pipeline;
+
+/**
+ * The vertex where the user is, emitted when it changes.
+ */
+public class Position implements Timed {
+
+    private final int vertex;
+    private final long timeMillis;
+    private final long scanNanos;
+
+    public Position(int vertex, long timeMillis, long scanNanos) {
+        this.vertex = vertex;
+        this.timeMillis = timeMillis;
+        this.scanNanos = scanNanos;
+    }
+
+    public int getVertex() {
+        return vertex;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public long getScanNanos() {
+        return scanNanos;
+    }
+}
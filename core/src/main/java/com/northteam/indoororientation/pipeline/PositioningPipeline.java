@@ -0,0 +1,236 @@
+package com.northteam.indoororientation.pipeline;
+
+import com.northteam.indoororientation.memory.MemoryBudget;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.Locator;
+import com.northteam.indoororientation.model.RouteProfile;
+import com.northteam.indoororientation.model.RoutePrefetcher;
+import com.northteam.indoororientation.model.Router;
+import com.northteam.indoororientation.model.RssiFilter;
+import com.northteam.indoororientation.sensor.DeadReckoning;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Runs positioning off the UI thread as a chain of stages:
+ * <pre>
+ * scan -> filter -> locate -> route -> UI
+ * </pre>
+ * Filtering, locating and routing each have their own thread, and the stages are
+ * connected by bounded {@link SpscRingQueue}s. Readings use
+ * {@link Backpressure#DROP_OLDEST} by default, since an old reading is worth less
+ * than a new one; positions and routes use {@link Backpressure#COALESCE}, since
+ * only the latest one matters. A slow route computation therefore only makes
+ * positions coalesce, it never stalls the intake of readings.
+ * <p>
+ * The steps of the user, given to {@link #onStep}, travel with the readings and
+ * move the position by {@link DeadReckoning} between two beacon fixes (see
+ * {@link LocateProcessor}).
+ * <p>
+ * A {@link RoutePrefetcher} computes the routes to a new destination, and from
+ * the next beacons the user is heading to, on a thread of the lowest priority,
+ * so that the route stage rarely computes a route itself.
+ * <p>
+ * {@link #onScan} and {@link #onStep} must always be called from the same thread.
+ */
+public class PositioningPipeline {
+
+    public static final int DEFAULT_CAPACITY = 256;
+
+    /**
+     * Name of the account of the router's cached tree in a {@link MemoryBudget}.
+     */
+    public static final String ROUTER_CACHE = "pipeline.router";
+
+    private final ExecutorService filterExecutor;
+    private final ExecutorService locateExecutor;
+    private final ExecutorService routeExecutor;
+    private final Router router;
+    private final RoutePrefetcher prefetcher;
+    private final Stage<ScanReading, FilteredReading> filter;
+    private final Stage<FilteredReading, Position> locate;
+    private final Stage<Position, RouteUpdate> route;
+    private final Stage<RouteUpdate, RouteUpdate> ui;
+    private volatile int destination = -1;
+    private volatile MemoryBudget budget;
+
+    public PositioningPipeline(Graph G, Executor uiExecutor, RouteListener listener) {
+        this(G, uiExecutor, listener, DEFAULT_CAPACITY, Backpressure.DROP_OLDEST, Backpressure.COALESCE);
+    }
+
+    /**
+     * @param G         the map
+     * @param uiExecutor runs the listener, e.g. posting to the main looper
+     * @param listener  receives the routes
+     * @param capacity  size of every queue between stages
+     * @param readings  policy of the queues carrying readings (into filter and locate)
+     * @param positions policy of the queues carrying positions and routes (into route and UI)
+     */
+    public PositioningPipeline(Graph G, Executor uiExecutor, final RouteListener listener, int capacity,
+                               Backpressure readings, Backpressure positions) {
+        final RssiFilter rssiFilter = new RssiFilter(G.getV());
+        final Locator locator = new Locator();
+        final Router router = new Router(G);
+        this.router = router;
+        final RoutePrefetcher routePrefetcher = new RoutePrefetcher(G);
+        router.setPrefetcher(routePrefetcher);
+        prefetcher = routePrefetcher;
+        final Graph graph = G;
+
+        filterExecutor = Executors.newSingleThreadExecutor(new StageThreadFactory("filter", Thread.NORM_PRIORITY));
+        locateExecutor = Executors.newSingleThreadExecutor(new StageThreadFactory("locate", Thread.NORM_PRIORITY));
+        routeExecutor = Executors.newSingleThreadExecutor(new StageThreadFactory("route", Thread.NORM_PRIORITY - 1));
+
+        filter = new Stage<ScanReading, FilteredReading>("filter",
+                new SpscRingQueue<ScanReading>(capacity, readings),
+                new Stage.Processor<ScanReading, FilteredReading>() {
+                    @Override
+                    public FilteredReading process(ScanReading r) {
+                        if (r.isStep()) return FilteredReading.step(r);
+                        int v = graph.indexOf(r.getUniqueId());
+                        if (v < 0) return null;
+                        float rssi = rssiFilter.update(v, r.getRssi(), r.getTimeMillis());
+                        return new FilteredReading(v, rssi, r.getTimeMillis(), r.getScanNanos());
+                    }
+                }, filterExecutor);
+
+        locate = new Stage<FilteredReading, Position>("locate",
+                new SpscRingQueue<FilteredReading>(capacity, readings),
+                new LocateProcessor(locator, new DeadReckoning(G)), locateExecutor);
+
+        route = new Stage<Position, RouteUpdate>("route",
+                new SpscRingQueue<Position>(capacity, positions),
+                new Stage.Processor<Position, RouteUpdate>() {
+                    @Override
+                    public RouteUpdate process(Position p) {
+                        int to = destination;
+                        RouteUpdate update = new RouteUpdate(p.getVertex(), to,
+                                to < 0 ? null : router.route(p.getVertex(), to), p.getTimeMillis(), p.getScanNanos());
+                        routePrefetcher.onVertex(p.getVertex());
+                        return update;
+                    }
+                }, routeExecutor);
+
+        ui = new Stage<RouteUpdate, RouteUpdate>("ui",
+                new SpscRingQueue<RouteUpdate>(capacity, positions),
+                new Stage.Processor<RouteUpdate, RouteUpdate>() {
+                    @Override
+                    public RouteUpdate process(RouteUpdate u) {
+                        listener.onRoute(u);
+                        return null;
+                    }
+                }, uiExecutor);
+
+        filter.setNext(locate);
+        locate.setNext(route);
+        route.setNext(ui);
+    }
+
+    /**
+     * Feeds a reading from the scanner into the pipeline.
+     *
+     * @param  reading the reading
+     * @return <tt>false</tt> if the filter stage was full and a reading was dropped
+     */
+    public boolean onScan(ScanReading reading) {
+        return filter.offer(reading);
+    }
+
+    /**
+     * Feeds a step of the user into the pipeline, e.g. when a
+     * {@link com.northteam.indoororientation.sensor.StepDetector} detects one.
+     *
+     * @param  timeMillis time of the step
+     * @param  azimuth heading of the phone, in degrees clockwise from magnetic north
+     * @return <tt>false</tt> if the filter stage was full and a reading was dropped
+     */
+    public boolean onStep(long timeMillis, float azimuth) {
+        return filter.offer(ScanReading.step(azimuth, timeMillis));
+    }
+
+    /**
+     * Sets the vertex routes are computed to; -1 to stop routing.
+     * Takes effect with the next position.
+     */
+    public void setDestination(int destination) {
+        this.destination = destination;
+        prefetcher.setDestination(destination, RouteProfile.ANY);
+    }
+
+    /**
+     * Registers the shortest paths tree the router keeps for the destination as
+     * a {@link MemoryBudget.Kind#CACHE CACHE} account of <tt>budget</tt>, until
+     * {@link #shutdown}. Releasing it clears the router's cache on the route
+     * thread, before the next position is routed; the route after that computes
+     * the tree again.
+     *
+     * @param budget the memory budget of the app
+     */
+    public void accountMemory(MemoryBudget budget) {
+        this.budget = budget;
+        budget.register(ROUTER_CACHE, MemoryBudget.Kind.CACHE, new MemoryBudget.Account() {
+            @Override
+            public long estimateBytes() {
+                return router.estimateBytes();
+            }
+
+            @Override
+            public long release(long bytes) {
+                long cached = router.estimateBytes();
+                try {
+                    routeExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            router.clearCache();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    return 0; // shut down
+                }
+                return cached;
+            }
+        });
+    }
+
+    /**
+     * @return the stages, from filter to UI, for their queue depth and metrics
+     */
+    public Stage<?, ?>[] getStages() {
+        return new Stage<?, ?>[]{filter, locate, route, ui};
+    }
+
+    /**
+     * Stops the pipeline threads. Items still queued are discarded.
+     */
+    public void shutdown() {
+        filterExecutor.shutdownNow();
+        locateExecutor.shutdownNow();
+        routeExecutor.shutdownNow();
+        prefetcher.shutdown();
+        router.close();
+        MemoryBudget b = budget;
+        if (b != null) b.unregister(ROUTER_CACHE);
+    }
+
+    private static class StageThreadFactory implements ThreadFactory {
+        private final String name;
+        private final int priority;
+
+        StageThreadFactory(String name, int priority) {
+            this.name = name;
+            this.priority = priority;
+        }
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "pipeline-" + name);
+            t.setDaemon(true);
+            t.setPriority(priority);
+            return t;
+        }
+    }
+}
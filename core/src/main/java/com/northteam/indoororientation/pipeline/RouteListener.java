@@ -0,0 +1,9 @@
+package com.northteam.indoororientation.pipeline;
+
+/**
+ * Receives the routes computed by the {@link PositioningPipeline}, on the UI executor.
+ */
+public interface RouteListener {
+
+    void onRoute(RouteUpdate update);
+}
@@ -0,0 +1,50 @@
+package com.northteam.indoororientation.pipeline;
+
+import com.northteam.indoororientation.model.Edge;
+
+/**
+ * The route from the user's new position to the destination.
+ */
+public class RouteUpdate implements Timed {
+
+    private final int vertex;
+    private final int destination;
+    private final Iterable<Edge> route;
+    private final long timeMillis;
+    private final long scanNanos;
+
+    public RouteUpdate(int vertex, int destination, Iterable<Edge> route, long timeMillis, long scanNanos) {
+        this.vertex = vertex;
+        this.destination = destination;
+        this.route = route;
+        this.timeMillis = timeMillis;
+        this.scanNanos = scanNanos;
+    }
+
+    public int getVertex() {
+        return vertex;
+    }
+
+    /**
+     * @return the destination vertex, or -1 if no destination is selected
+     */
+    public int getDestination() {
+        return destination;
+    }
+
+    /**
+     * @return the edges of the route in walking order, or <tt>null</tt> if there is no route
+     */
+    public Iterable<Edge> getRoute() {
+        return route;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public long getScanNanos() {
+        return scanNanos;
+    }
+}
@@ -0,0 +1,72 @@
+package com.northteam.indoororientation.pipeline;
+
+/**
+ * A beacon reading as received from the scanner, or a step of the user with the
+ * heading of the phone, from the step detector; see {@link #step}.
+ */
+public class ScanReading implements Timed {
+
+    private final String uniqueId;  // null for a step
+    private final int rssi;
+    private final float azimuth;    // NaN for a beacon reading
+    private final long timeMillis;
+    private final long scanNanos;
+
+    public ScanReading(String uniqueId, int rssi, long timeMillis) {
+        this(uniqueId, rssi, timeMillis, System.nanoTime());
+    }
+
+    public ScanReading(String uniqueId, int rssi, long timeMillis, long scanNanos) {
+        this(uniqueId, rssi, Float.NaN, timeMillis, scanNanos);
+    }
+
+    private ScanReading(String uniqueId, int rssi, float azimuth, long timeMillis, long scanNanos) {
+        this.uniqueId = uniqueId;
+        this.rssi = rssi;
+        this.azimuth = azimuth;
+        this.timeMillis = timeMillis;
+        this.scanNanos = scanNanos;
+    }
+
+    /**
+     * Returns a step of the user.
+     *
+     * @param  azimuth heading of the phone, in degrees clockwise from magnetic north
+     * @param  timeMillis time of the step
+     * @return the step
+     */
+    public static ScanReading step(float azimuth, long timeMillis) {
+        return new ScanReading(null, 0, azimuth, timeMillis, System.nanoTime());
+    }
+
+    /**
+     * @return <tt>true</tt> if this is a step, not a beacon reading
+     */
+    public boolean isStep() {
+        return uniqueId == null;
+    }
+
+    public String getUniqueId() {
+        return uniqueId;
+    }
+
+    public int getRssi() {
+        return rssi;
+    }
+
+    /**
+     * @return the heading of a step, or <tt>NaN</tt> for a beacon reading
+     */
+    public float getAzimuth() {
+        return azimuth;
+    }
+
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    @Override
+    public long getScanNanos() {
+        return scanNanos;
+    }
+}
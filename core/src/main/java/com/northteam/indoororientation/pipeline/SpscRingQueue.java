@@ -0,0 +1,132 @@
+package com.northteam.indoororientation.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Bounded single-producer, single-consumer queue on a ring buffer. It never
+ * blocks: {@link #offer} always succeeds, discarding the oldest item when the
+ * ring is full.
+ * <p>
+ * Only one thread may call {@link #offer} and only one thread may call
+ * {@link #poll}. The consumer advances the head with a compare-and-set because
+ * the producer also moves the head forward when it discards the oldest item;
+ * the head only grows, so the compare-and-set can not be fooled by a slot that
+ * was refilled meanwhile.
+ * <p>
+ * With {@link Backpressure#COALESCE}, {@link #poll} takes every item waiting
+ * and merges them with the queue's {@link Coalescer}, so the consumer handles
+ * one item for a whole burst.
+ */
+public class SpscRingQueue<E> {
+
+    /**
+     * Merges an item into the one taken before it.
+     */
+    public interface Coalescer<E> {
+        E merge(E older, E newer);
+    }
+
+    private final AtomicReferenceArray<E> ring;
+    private final int mask;
+    private final Backpressure policy;
+    private final Coalescer<E> coalescer;
+    private final AtomicLong head = new AtomicLong(); // next slot to read
+    private final AtomicLong tail = new AtomicLong(); // next slot to write
+    private final AtomicLong dropped = new AtomicLong();
+
+    public SpscRingQueue(int capacity, Backpressure policy) {
+        this(capacity, policy, null);
+    }
+
+    /**
+     * @param capacity  the number of items the ring holds, rounded up to a power of two
+     * @param policy    what to do with items that arrive faster than they are taken
+     * @param coalescer how to merge items with {@link Backpressure#COALESCE};
+     *                  <tt>null</tt> keeps the newest item
+     */
+    public SpscRingQueue(int capacity, Backpressure policy, Coalescer<E> coalescer) {
+        if (capacity < 1 || capacity > (1 << 30)) throw new IllegalArgumentException("capacity must be in [1, 2^30]");
+        int size = Integer.highestOneBit(capacity);
+        if (size < capacity) size <<= 1;
+        ring = new AtomicReferenceArray<E>(size);
+        mask = size - 1;
+        this.policy = policy;
+        this.coalescer = coalescer;
+    }
+
+    /**
+     * Adds an item; producer thread only.
+     *
+     * @param  item the item, not <tt>null</tt>
+     * @return <tt>false</tt> if the oldest item was dropped to make room
+     */
+    public boolean offer(E item) {
+        if (item == null) throw new NullPointerException("item is null");
+        long t = tail.get();
+        boolean fit = true;
+        long h = head.get();
+        // the consumer may take the oldest item meanwhile, then there is room
+        if (t - h > mask && head.compareAndSet(h, h + 1)) {
+            dropped.incrementAndGet();
+            fit = false;
+        }
+        ring.lazySet((int) (t & mask), item);
+        tail.lazySet(t + 1);
+        return fit;
+    }
+
+    /**
+     * Removes the oldest item, or with {@link Backpressure#COALESCE} all the
+     * items merged into one; consumer thread only.
+     *
+     * @return the item, or <tt>null</tt> if the queue is empty
+     */
+    public E poll() {
+        E item = take();
+        if (policy == Backpressure.COALESCE && item != null) {
+            E newer;
+            while ((newer = take()) != null) {
+                item = coalescer == null ? newer : coalescer.merge(item, newer);
+                dropped.incrementAndGet();
+            }
+        }
+        return item;
+    }
+
+    private E take() {
+        while (true) {
+            long h = head.get();
+            if (h == tail.get()) return null;
+            E item = ring.get((int) (h & mask));
+            if (head.compareAndSet(h, h + 1)) return item;
+            // the producer dropped this item, try the next one
+        }
+    }
+
+    /**
+     * @return the number of items waiting, an estimate while other threads use the queue
+     */
+    public int size() {
+        return (int) Math.max(0, tail.get() - head.get());
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    public Backpressure getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return the number of items dropped because the queue was full, or merged away
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+}
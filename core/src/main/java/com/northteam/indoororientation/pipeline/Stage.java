@@ -0,0 +1,100 @@
+package com.northteam.indoororientation.pipeline;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One step of the {@link PositioningPipeline}. Items offered to the stage wait
+ * in its {@link SpscRingQueue} and are processed on the stage's executor; the
+ * result, if any, is offered to the next stage. A stage never waits for the next
+ * one: when the next queue is full its backpressure policy applies.
+ * <p>
+ * Items are offered by a single thread, the one of the previous stage (or the
+ * scan callback for the first stage).
+ */
+public class Stage<I extends Timed, O extends Timed> {
+
+    /**
+     * The work of a stage.
+     */
+    public interface Processor<I, O> {
+
+        /**
+         * @param  item the input item
+         * @return the item for the next stage, or <tt>null</tt> to pass nothing on
+         */
+        O process(I item);
+    }
+
+    private static final int BATCH = 64; // items processed before giving the executor back
+
+    private final SpscRingQueue<I> queue;
+    private final Processor<I, O> processor;
+    private final Executor executor;
+    private final StageMetrics metrics;
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+    private Stage<O, ?> next;
+
+    private final Runnable drain = new Runnable() {
+        @Override
+        public void run() {
+            for (int n = 0; n < BATCH; n++) {
+                int depth = queue.size();
+                I item = queue.poll();
+                if (item == null) break;
+                long start = System.nanoTime();
+                O out = processor.process(item);
+                long end = System.nanoTime();
+                metrics.record(end - start, end - item.getScanNanos(), depth);
+                if (out != null && next != null) next.offer(out);
+            }
+            scheduled.set(false);
+            if (!queue.isEmpty()) schedule();
+        }
+    };
+
+    public Stage(String name, SpscRingQueue<I> queue, Processor<I, O> processor, Executor executor) {
+        this.queue = queue;
+        this.processor = processor;
+        this.executor = executor;
+        this.metrics = new StageMetrics(name);
+    }
+
+    /**
+     * Sets the stage the results are passed to. Must be called before the first item is offered.
+     */
+    public void setNext(Stage<O, ?> next) {
+        this.next = next;
+    }
+
+    /**
+     * Queues an item for this stage.
+     *
+     * @param  item the item
+     * @return <tt>false</tt> if the queue was full and an item was dropped or merged
+     */
+    public boolean offer(I item) {
+        boolean fit = queue.offer(item);
+        schedule();
+        return fit;
+    }
+
+    private void schedule() {
+        if (scheduled.compareAndSet(false, true)) executor.execute(drain);
+    }
+
+    public StageMetrics getMetrics() {
+        return metrics;
+    }
+
+    public SpscRingQueue<I> getQueue() {
+        return queue;
+    }
+
+    /**
+     * @return the number of items waiting in the queue
+     */
+    public int getDepth() {
+        return queue.size();
+    }
+}
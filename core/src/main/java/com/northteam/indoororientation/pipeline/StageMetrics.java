@@ -0,0 +1,71 @@
+package com.northteam.indoororientation.pipeline;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of one {@link Stage}. Written by the stage's thread and read from any
+ * thread.
+ */
+public class StageMetrics {
+
+    private final String name;
+    private final AtomicLong processed = new AtomicLong();
+    private final AtomicLong serviceNanos = new AtomicLong();
+    private final AtomicLong maxServiceNanos = new AtomicLong();
+    private final AtomicLong ageNanos = new AtomicLong();
+    private final AtomicLong maxAgeNanos = new AtomicLong();
+    private final AtomicLong maxDepth = new AtomicLong();
+
+    public StageMetrics(String name) {
+        this.name = name;
+    }
+
+    // single writer, so get/lazySet is enough for the maxima
+    void record(long service, long age, int depth) {
+        processed.lazySet(processed.get() + 1);
+        serviceNanos.lazySet(serviceNanos.get() + service);
+        ageNanos.lazySet(ageNanos.get() + age);
+        if (service > maxServiceNanos.get()) maxServiceNanos.lazySet(service);
+        if (age > maxAgeNanos.get()) maxAgeNanos.lazySet(age);
+        if (depth > maxDepth.get()) maxDepth.lazySet(depth);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getProcessed() {
+        return processed.get();
+    }
+
+    /**
+     * @return the mean time spent processing an item in this stage
+     */
+    public double getMeanServiceNanos() {
+        long n = processed.get();
+        return n == 0 ? 0 : (double) serviceNanos.get() / n;
+    }
+
+    public long getMaxServiceNanos() {
+        return maxServiceNanos.get();
+    }
+
+    /**
+     * @return the mean time from the scan to the end of this stage
+     */
+    public double getMeanAgeNanos() {
+        long n = processed.get();
+        return n == 0 ? 0 : (double) ageNanos.get() / n;
+    }
+
+    public long getMaxAgeNanos() {
+        return maxAgeNanos.get();
+    }
+
+    /**
+     * @return the deepest the input queue has been when an item was taken
+     */
+    public long getMaxDepth() {
+        return maxDepth.get();
+    }
+}
@@ -0,0 +1,13 @@
+package com.northteam.indoororientation.pipeline;
+
+/**
+ * An item of the {@link PositioningPipeline}, which remembers when the scan it
+ * comes from was received so every stage can measure its age.
+ */
+public interface Timed {
+
+    /**
+     * @return the {@link System#nanoTime()} at which the originating scan was received
+     */
+    long getScanNanos();
+}
@@ -0,0 +1,62 @@
+package com.northteam.indoororientation.sensor;
+
+/**
+ * Scans as little as the walk allows.
+ * <ul>
+ * <li>While the position is not known, or the user is near a turn of the route
+ * or off it, the radio scans all the time and readings are delivered at once:
+ * that is when a late position sends the user the wrong way.</li>
+ * <li>While the user walks towards a turn further away, the period grows with
+ * the time it takes to get there, up to {@link #MAX_WALKING_PERIOD_MILLIS}, and
+ * the readings of a period are delivered together.</li>
+ * <li>While the user stands still, the radio scans a short window every
+ * {@link #STILL_PERIOD_MILLIS}, just to notice they left.</li>
+ * </ul>
+ * The scan window is longer where few beacons are around, so that one of them is
+ * still heard in a window, and shorter where many are. The periods stay shorter
+ * than the time after which the {@link com.northteam.indoororientation.model.Locator}
+ * takes the current beacon for lost, so that the gap between two windows does not
+ * make the position jump to the first beacon heard in the next one.
+ */
+public class AdaptiveScanPolicy implements ScanPolicy {
+
+    public static final long SCAN_MILLIS = 1000;
+    public static final long STILL_PERIOD_MILLIS = 4000;
+    public static final long MAX_WALKING_PERIOD_MILLIS = 3000;
+    public static final float NEAR_METRES = 8f;
+    public static final float WALKING_SPEED = 1.4f;  // metres per second
+    public static final int SPARSE_BEACONS = 2;
+    public static final int DENSE_BEACONS = 6;
+
+    private final float nearMetres;
+
+    public AdaptiveScanPolicy() {
+        this(NEAR_METRES);
+    }
+
+    /**
+     * @param nearMetres distance to a turn under which the radio scans all the time
+     */
+    public AdaptiveScanPolicy(float nearMetres) {
+        if (nearMetres < 0) throw new IllegalArgumentException("nearMetres must be nonnegative");
+        this.nearMetres = nearMetres;
+    }
+
+    @Override
+    public ScanSchedule schedule(boolean walking, float metresToDecision, int beaconsNearby) {
+        if (beaconsNearby == 0 || walking && metresToDecision <= nearMetres) return ScanSchedule.CONTINUOUS;
+        long period;
+        long scan = SCAN_MILLIS;
+        if (!walking) {
+            period = STILL_PERIOD_MILLIS;
+            scan = SCAN_MILLIS / 2;
+        } else {
+            // half the time to the turn, so that at least two positions arrive before it
+            float seconds = (metresToDecision - nearMetres) / WALKING_SPEED / 2;
+            period = Math.max(SCAN_MILLIS, Math.min(MAX_WALKING_PERIOD_MILLIS, (long) (seconds * 1000)));
+        }
+        if (beaconsNearby <= SPARSE_BEACONS) scan *= 2;
+        else if (beaconsNearby >= DENSE_BEACONS) scan /= 2;
+        return new ScanSchedule(Math.min(scan, period), period, period);
+    }
+}
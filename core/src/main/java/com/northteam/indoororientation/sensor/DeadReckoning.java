@@ -0,0 +1,197 @@
+package com.northteam.indoororientation.sensor;
+
+import com.northteam.indoororientation.model.Compass;
+import com.northteam.indoororientation.model.Edge;
+import com.northteam.indoororientation.model.Graph;
+
+/**
+ * Follows the user along the edges of the map between two beacon fixes.
+ * <p>
+ * Every beacon fix anchors the user at a vertex. Each step is then matched
+ * against the <tt>compass</tt> of the edges leaving that vertex: the edge whose
+ * direction is closest to the heading of the phone (within the tolerance) is the
+ * one being walked, and the progress along it grows by one step length. When the
+ * progress reaches the length of the edge the user is assumed to have arrived at
+ * the other end, which becomes the new anchor, so the position keeps moving
+ * through corridors where beacons are far apart.
+ * <p>
+ * The estimate drifts with every step, so it is only trusted for
+ * {@link #getMaxDistance()} metres after the last fix.
+ */
+public class DeadReckoning {
+
+    public static final float DEFAULT_STEP_LENGTH = 0.7f;  // metres
+    public static final float DEFAULT_TOLERANCE = 45f;     // degrees
+    public static final float DEFAULT_MAX_DISTANCE = 30f;  // metres
+
+    private final Graph G;
+    private final float stepLength;
+    private final float tolerance;
+    private final float maxDistance;
+    private float northOffset;
+
+    private int vertex = -1;          // last vertex reached
+    private Edge edge;                // edge being walked, null if not matched yet
+    private float progress;           // metres walked along edge from vertex
+    private float distanceSinceFix;   // metres walked since the last beacon fix
+    private int predictedArrivals;    // vertices reached without a beacon fix
+
+    public DeadReckoning(Graph G) {
+        this(G, DEFAULT_STEP_LENGTH, DEFAULT_TOLERANCE, DEFAULT_MAX_DISTANCE);
+    }
+
+    /**
+     * @param G           the map
+     * @param stepLength  length of one step, in metres
+     * @param tolerance   largest difference, in degrees, between the heading and an
+     *                    edge's direction for the edge to be followed
+     * @param maxDistance distance after the last fix beyond which the estimate is not trusted
+     */
+    public DeadReckoning(Graph G, float stepLength, float tolerance, float maxDistance) {
+        if (stepLength <= 0) throw new IllegalArgumentException("stepLength must be positive");
+        if (tolerance <= 0 || tolerance >= 90) throw new IllegalArgumentException("tolerance must be in ]0, 90[");
+        this.G = G;
+        this.stepLength = stepLength;
+        this.tolerance = tolerance;
+        this.maxDistance = maxDistance;
+    }
+
+    /**
+     * Sets the azimuth of the map's north, for buildings whose plan is not
+     * aligned with the magnetic north.
+     *
+     * @param northOffset azimuth of the map's north, in degrees
+     */
+    public void setNorthOffset(float northOffset) {
+        this.northOffset = northOffset;
+    }
+
+    /**
+     * Anchors the user at the vertex located from the beacons.
+     *
+     * @param v the vertex
+     */
+    public void onFix(int v) {
+        if (v != vertex) {
+            vertex = v;
+            edge = null;
+            progress = 0;
+        } else if (edge != null && progress > edge.getWeight() / 2) {
+            // still hearing the beacon we are walking away from
+            progress = Math.min(progress, edge.getWeight() / 2);
+        }
+        distanceSinceFix = 0;
+        predictedArrivals = 0;
+    }
+
+    /**
+     * Moves the user one step.
+     *
+     * @param  azimuth heading of the phone, in degrees clockwise from magnetic north
+     * @return the vertex the user is closest to after the step
+     */
+    public int onStep(float azimuth) {
+        if (vertex < 0) return vertex;
+        float heading = Compass.normalize(azimuth - northOffset);
+        distanceSinceFix += stepLength;
+
+        boolean moved = false;  // the step is spent, also when it reached the end of the edge
+        if (edge != null) {
+            float d = Compass.difference(heading, Compass.toDegrees(Compass.leaving(edge, vertex)));
+            if (d <= tolerance) {
+                advance(stepLength);
+                moved = true;
+            } else if (d >= 180f - tolerance) {
+                progress -= stepLength;
+                moved = true;
+                if (progress <= 0) {
+                    progress = 0;
+                    edge = null;
+                }
+            } else if (progress < stepLength) {
+                // turned right after leaving the vertex, try another edge
+                edge = null;
+            }
+        }
+        if (edge == null && !moved) {
+            edge = match(vertex, heading);
+            if (edge != null) advance(stepLength);
+        }
+        return getVertex();
+    }
+
+    private void advance(float metres) {
+        progress += metres;
+        if (progress >= edge.getWeight()) {
+            vertex = edge.other(vertex);
+            edge = null;
+            predictedArrivals++;
+            progress = 0;
+        }
+    }
+
+    // the edge leaving v whose direction is closest to heading, within the tolerance
+    private Edge match(int v, float heading) {
+        Edge best = null;
+        float bestDiff = tolerance;
+        for (Edge e : G.adj(v)) {
+            float d = Compass.difference(heading, Compass.toDegrees(Compass.leaving(e, v)));
+            if (d <= bestDiff) {
+                best = e;
+                bestDiff = d;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return the vertex the user is closest to, or -1 before the first fix
+     */
+    public int getVertex() {
+        if (edge != null && progress > edge.getWeight() / 2) return edge.other(vertex);
+        return vertex;
+    }
+
+    /**
+     * @return the last vertex reached, from a fix or by walking
+     */
+    public int getAnchor() {
+        return vertex;
+    }
+
+    /**
+     * @return the edge being walked, or <tt>null</tt>
+     */
+    public Edge getEdge() {
+        return edge;
+    }
+
+    /**
+     * @return the metres walked along {@link #getEdge()} from {@link #getAnchor()}
+     */
+    public float getProgress() {
+        return progress;
+    }
+
+    public float getDistanceSinceFix() {
+        return distanceSinceFix;
+    }
+
+    /**
+     * @return the number of vertices reached by walking since the last fix
+     */
+    public int getPredictedArrivals() {
+        return predictedArrivals;
+    }
+
+    public float getMaxDistance() {
+        return maxDistance;
+    }
+
+    /**
+     * @return <tt>true</tt> if the estimate can be used in place of a beacon fix
+     */
+    public boolean isTracking() {
+        return vertex >= 0 && distanceSinceFix <= maxDistance;
+    }
+}
@@ -0,0 +1,30 @@
+package com.northteam.indoororientation.sensor;
+
+/**
+ * Chooses the {@link ScanSchedule} of the next scan cycle from what the
+ * {@link ScanScheduler} knows about the user.
+ */
+public interface ScanPolicy {
+
+    /**
+     * Scans all the time, whatever the user does.
+     */
+    ScanPolicy CONTINUOUS = new ScanPolicy() {
+        @Override
+        public ScanSchedule schedule(boolean walking, float metresToDecision, int beaconsNearby) {
+            return ScanSchedule.CONTINUOUS;
+        }
+    };
+
+    /**
+     * @param  walking          <tt>true</tt> if the user moved recently
+     * @param  metresToDecision walking distance to the next turn of the route, 0 if
+     *                          the user is off the route and
+     *                          <tt>Float.POSITIVE_INFINITY</tt> if there is no route
+     * @param  beaconsNearby    number of beacons within two edges of the user,
+     *                          the beacon at the user's vertex included; 0 if the
+     *                          position is not known
+     * @return the schedule of the next cycle
+     */
+    ScanSchedule schedule(boolean walking, float metresToDecision, int beaconsNearby);
+}
@@ -0,0 +1,71 @@
+package com.northteam.indoororientation.sensor;
+
+/**
+ * One cycle of BLE scanning: the radio scans for the first
+ * {@link #getScanMillis()} of every {@link #getPeriodMillis()}, and the readings
+ * heard are delivered together every {@link #getBatchMillis()}, 0 meaning as
+ * soon as they are heard.
+ */
+public final class ScanSchedule {
+
+    /**
+     * Scans all the time and delivers every reading at once.
+     */
+    public static final ScanSchedule CONTINUOUS = new ScanSchedule(1000, 1000, 0);
+
+    private final long scanMillis;
+    private final long periodMillis;
+    private final long batchMillis;
+
+    /**
+     * @param scanMillis   time the radio scans in every period
+     * @param periodMillis length of one cycle
+     * @param batchMillis  time readings are held before they are delivered
+     * @throws IllegalArgumentException unless 0 &lt; <tt>scanMillis</tt> &le;
+     *         <tt>periodMillis</tt> and <tt>batchMillis</tt> &ge; 0
+     */
+    public ScanSchedule(long scanMillis, long periodMillis, long batchMillis) {
+        if (scanMillis <= 0 || scanMillis > periodMillis)
+            throw new IllegalArgumentException("scanMillis must be in ]0, periodMillis]");
+        if (batchMillis < 0) throw new IllegalArgumentException("batchMillis must be nonnegative");
+        this.scanMillis = scanMillis;
+        this.periodMillis = periodMillis;
+        this.batchMillis = batchMillis;
+    }
+
+    public long getScanMillis() {
+        return scanMillis;
+    }
+
+    public long getPeriodMillis() {
+        return periodMillis;
+    }
+
+    public long getBatchMillis() {
+        return batchMillis;
+    }
+
+    /**
+     * @return the share of the time the radio scans, in ]0, 1]
+     */
+    public float getDutyCycle() {
+        return (float) scanMillis / periodMillis;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof ScanSchedule)) return false;
+        ScanSchedule s = (ScanSchedule) o;
+        return scanMillis == s.scanMillis && periodMillis == s.periodMillis && batchMillis == s.batchMillis;
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (31 * (31 * scanMillis + periodMillis) + batchMillis);
+    }
+
+    @Override
+    public String toString() {
+        return "scan " + scanMillis + "ms every " + periodMillis + "ms, batch " + batchMillis + "ms";
+    }
+}
@@ -0,0 +1,221 @@
+package com.northteam.indoororientation.sensor;
+
+import com.northteam.indoororientation.model.Compass;
+import com.northteam.indoororientation.model.Edge;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.util.Clock;
+
+import java.util.Arrays;
+
+/**
+ * Decides when the phone scans for beacons. The scanner asks for the schedule
+ * of a cycle with {@link #nextCycle()} when the previous one ends, and the
+ * {@link ScanPolicy} chooses it from three things the scheduler follows:
+ * <ul>
+ * <li>whether the user is walking: a step or a new position in the last
+ * {@link #STILL_AFTER_MILLIS};</li>
+ * <li>how far the next turn of the current route is, a turn being a vertex
+ * where the compass of the route changes;</li>
+ * <li>how many beacons are within two edges of the user's vertex.</li>
+ * </ul>
+ * Time is read from the {@link Clock} given, so that a recorded trace can
+ * drive the scheduler faster than real time (see
+ * <tt>ScanSimulator</tt> of the tools).
+ * <p>
+ * This class is not thread safe.
+ */
+public class ScanScheduler {
+
+    public static final long STILL_AFTER_MILLIS = 5000;
+
+    private final Graph G;
+    private final ScanPolicy policy;
+    private final Clock clock;
+
+    private long lastMotionMillis = Long.MIN_VALUE / 2;
+    private int vertex = -1;
+
+    private int[] routeVertices;   // vertices of the route, in walking order; null without a route
+    private float[] toDecision;    // metres from routeVertices[i] to the next turn
+    private int routeIndex;        // index of the user's vertex on the route, -1 if off it
+
+    private final int[] nearby;    // beacons within two edges of v, -1 until counted
+    private final int[] seen;      // stamps of the vertices counted
+    private int run;
+
+    private ScanSchedule schedule = ScanSchedule.CONTINUOUS;
+    private long cycleStart;
+
+    public ScanScheduler(Graph G, ScanPolicy policy, Clock clock) {
+        this.G = G;
+        this.policy = policy;
+        this.clock = clock;
+        this.nearby = new int[G.getV()];
+        Arrays.fill(nearby, -1);
+        this.seen = new int[G.getV()];
+        this.cycleStart = clock.currentTimeMillis();
+    }
+
+    /**
+     * Records a step of the user, from a {@link StepDetector}.
+     */
+    public void onStep() {
+        lastMotionMillis = clock.currentTimeMillis();
+    }
+
+    /**
+     * Records the vertex the user was located at; a new vertex counts as motion.
+     *
+     * @param  v the vertex
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>v</tt> &lt; V
+     */
+    public void onPosition(int v) {
+        if (v < 0 || v >= G.getV())
+            throw new IndexOutOfBoundsException("vertex " + v + " is not between 0 and " + (G.getV() - 1));
+        if (v == vertex) return;
+        lastMotionMillis = clock.currentTimeMillis();
+        vertex = v;
+        routeIndex = indexOnRoute(v);
+    }
+
+    /**
+     * Sets the route the user follows.
+     *
+     * @param from  the first vertex of the route
+     * @param route the edges of the route in walking order, as returned by the
+     *              {@link com.northteam.indoororientation.model.Router}; <tt>null</tt>
+     *              if there is no route
+     */
+    public void setRoute(int from, Iterable<Edge> route) {
+        if (route == null) {
+            routeVertices = null;
+            toDecision = null;
+            return;
+        }
+        int n = 1;
+        for (Edge ignored : route) n++;
+        int[] vertices = new int[n];
+        float[] weights = new float[n];
+        boolean[] turn = new boolean[n];
+        vertices[0] = from;
+        char heading = 0;
+        int i = 0;
+        for (Edge e : route) {
+            char leaving = Character.toUpperCase(Compass.leaving(e, vertices[i]));
+            if (i > 0 && leaving != heading) turn[i] = true;
+            heading = leaving;
+            weights[i] = e.getWeight();
+            vertices[i + 1] = e.other(vertices[i]);
+            i++;
+        }
+        // the end of the route is a decision too: the user arrives there
+        float[] metres = new float[n];
+        for (int j = n - 2; j >= 0; j--)
+            metres[j] = turn[j] ? 0 : weights[j] + metres[j + 1];
+        routeVertices = vertices;
+        toDecision = metres;
+        routeIndex = vertex < 0 ? -1 : indexOnRoute(vertex);
+    }
+
+    private int indexOnRoute(int v) {
+        if (routeVertices == null) return -1;
+        // the user moves forward, so look ahead of the last index first
+        for (int i = Math.max(0, routeIndex); i < routeVertices.length; i++)
+            if (routeVertices[i] == v) return i;
+        for (int i = 0; i < Math.max(0, routeIndex); i++)
+            if (routeVertices[i] == v) return i;
+        return -1;
+    }
+
+    /**
+     * Starts a new scan cycle now.
+     *
+     * @return its schedule, chosen by the policy
+     */
+    public ScanSchedule nextCycle() {
+        schedule = policy.schedule(isWalking(), getMetresToDecision(), getBeaconsNearby());
+        cycleStart = clock.currentTimeMillis();
+        return schedule;
+    }
+
+    /**
+     * @return <tt>true</tt> if the user stepped or changed vertex in the last
+     *         {@link #STILL_AFTER_MILLIS}
+     */
+    public boolean isWalking() {
+        return clock.currentTimeMillis() - lastMotionMillis < STILL_AFTER_MILLIS;
+    }
+
+    /**
+     * @return the walking distance to the next turn of the route; 0 if the user
+     *         is off the route, <tt>Float.POSITIVE_INFINITY</tt> if there is no
+     *         route or no position
+     */
+    public float getMetresToDecision() {
+        if (routeVertices == null || vertex < 0) return Float.POSITIVE_INFINITY;
+        return routeIndex < 0 ? 0 : toDecision[routeIndex];
+    }
+
+    /**
+     * @return the number of beacons within two edges of the user's vertex, that
+     *         vertex included; 0 if the position is not known
+     */
+    public int getBeaconsNearby() {
+        if (vertex < 0) return 0;
+        if (nearby[vertex] < 0) nearby[vertex] = countNearby(vertex);
+        return nearby[vertex];
+    }
+
+    private int countNearby(int v) {
+        run++;
+        // v was located from a beacon, even if the map has no record of it
+        seen[v] = run;
+        int count = 1;
+        for (Edge e : G.adj(v)) {
+            int w = e.other(v);
+            count += mark(w);
+            for (Edge f : G.adj(w))
+                count += mark(f.other(w));
+        }
+        return count;
+    }
+
+    // 1 if x is a beacon not counted yet
+    private int mark(int x) {
+        if (seen[x] == run) return 0;
+        seen[x] = run;
+        return G.getBeacon(x) != null ? 1 : 0;
+    }
+
+    /**
+     * @return the schedule of the current cycle
+     */
+    public ScanSchedule getSchedule() {
+        return schedule;
+    }
+
+    /**
+     * @return the time the current cycle started
+     */
+    public long getCycleStart() {
+        return cycleStart;
+    }
+
+    /**
+     * @return the time the current cycle ends and {@link #nextCycle()} is due
+     */
+    public long getCycleEnd() {
+        return cycleStart + schedule.getPeriodMillis();
+    }
+
+    /**
+     * @return <tt>true</tt> if the radio scans at time <tt>t</tt> of the current cycle
+     */
+    public boolean isScanning(long t) {
+        return t >= cycleStart && t < cycleStart + schedule.getScanMillis();
+    }
+
+    public int getVertex() {
+        return vertex;
+    }
+}
@@ -0,0 +1,73 @@
+package com.northteam.indoororientation.sensor;
+
+/**
+ * Detects steps from accelerometer samples. The magnitude of the acceleration is
+ * low-pass filtered and a step is counted on every peak above the threshold,
+ * as long as the previous step is older than the minimum step interval.
+ * <p>
+ * The detector only does arithmetic on the values it is given, so it can be fed
+ * from a <tt>SensorEventListener</tt> on the device or from recorded samples.
+ */
+public class StepDetector {
+
+    public static final float GRAVITY = 9.81f;
+    public static final float DEFAULT_THRESHOLD = 1.2f;       // m/s^2 above gravity
+    public static final long DEFAULT_MIN_INTERVAL_MILLIS = 250; // at most 4 steps per second
+    private static final float SMOOTHING = 0.25f;
+
+    private final float threshold;
+    private final long minIntervalMillis;
+    private float smoothed = GRAVITY;
+    private float previous = GRAVITY;
+    private boolean rising;
+    private long lastStepMillis = Long.MIN_VALUE / 2;
+    private long steps;
+
+    public StepDetector() {
+        this(DEFAULT_THRESHOLD, DEFAULT_MIN_INTERVAL_MILLIS);
+    }
+
+    public StepDetector(float threshold, long minIntervalMillis) {
+        this.threshold = threshold;
+        this.minIntervalMillis = minIntervalMillis;
+    }
+
+    /**
+     * Adds an accelerometer sample.
+     *
+     * @param  timeMillis time of the sample
+     * @param  x acceleration on the x axis, in m/s^2
+     * @param  y acceleration on the y axis, in m/s^2
+     * @param  z acceleration on the z axis, in m/s^2
+     * @return <tt>true</tt> if the sample completes a step
+     */
+    public boolean onAcceleration(long timeMillis, float x, float y, float z) {
+        float magnitude = (float) Math.sqrt(x * x + y * y + z * z);
+        smoothed += SMOOTHING * (magnitude - smoothed);
+        boolean step = false;
+        if (smoothed > previous) {
+            rising = true;
+        } else if (rising) {
+            // previous sample was a peak
+            rising = false;
+            if (previous - GRAVITY > threshold && timeMillis - lastStepMillis >= minIntervalMillis) {
+                lastStepMillis = timeMillis;
+                steps++;
+                step = true;
+            }
+        }
+        previous = smoothed;
+        return step;
+    }
+
+    /**
+     * @return the number of steps detected so far
+     */
+    public long getSteps() {
+        return steps;
+    }
+
+    public long getLastStepMillis() {
+        return lastStepMillis;
+    }
+}
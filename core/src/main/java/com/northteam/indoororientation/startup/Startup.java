@@ -0,0 +1,269 @@
+package com.northteam.indoororientation.startup;
+
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the initialization of the app as a graph of {@link StartupTask}s.
+ * <p>
+ * A task is run as soon as every task it depends on has finished: on the main
+ * executor if it touches views, on the background executor otherwise, so
+ * independent tasks that do not need the main thread run in parallel. Deferred
+ * tasks are also held back until {@link #onFirstFrame} is called, so that they
+ * do not compete with the work needed to show the first frame. If a task fails,
+ * every task that depends on it is skipped.
+ * <p>
+ * Every task and milestone is timed in a {@link StartupTrace}, and the task
+ * durations and the time to interactive also go to the default
+ * {@link MetricsRegistry} as <tt>startup.&lt;task&gt;</tt> and
+ * <tt>startup.interactive</tt>.
+ */
+public class Startup {
+
+    /**
+     * Told about the progress of the start, always on the main executor.
+     */
+    public interface Listener {
+        /**
+         * Every task that is not deferred has finished or was skipped.
+         */
+        void onInteractive(StartupTrace trace);
+
+        /**
+         * Every task has finished or was skipped.
+         */
+        void onDone(StartupTrace trace);
+
+        void onTaskFailed(String task, Throwable e);
+    }
+
+    private static class Node {
+        final StartupTask task;
+        final List<Node> dependents = new ArrayList<Node>();
+        int waiting;
+        boolean done;
+
+        Node(StartupTask task) {
+            this.task = task;
+        }
+    }
+
+    private final long origin;
+    private final StartupTrace trace = new StartupTrace();
+    private final Map<String, Node> nodes = new LinkedHashMap<String, Node>();
+    private final List<Node> waitingForFrame = new ArrayList<Node>();
+    private Listener listener;
+    private Executor main;
+    private Executor background;
+    private int remaining;
+    private int critical;
+    private boolean started;
+    private boolean firstFrame;
+
+    /**
+     * Starts the clock of the trace.
+     */
+    public Startup() {
+        origin = System.nanoTime();
+    }
+
+    public void setListener(Listener listener) {
+        this.listener = listener;
+    }
+
+    public StartupTrace getTrace() {
+        return trace;
+    }
+
+    /**
+     * Adds a task. Tasks can only be added before {@link #start}.
+     *
+     * @throws IllegalArgumentException if there already is a task with the same name
+     * @throws IllegalStateException if the start has begun
+     */
+    public synchronized Startup add(StartupTask task) {
+        if (started) throw new IllegalStateException("startup has already begun");
+        if (nodes.containsKey(task.getName()))
+            throw new IllegalArgumentException("duplicate task " + task.getName());
+        nodes.put(task.getName(), new Node(task));
+        return this;
+    }
+
+    /**
+     * Runs the tasks that do not depend on any other task, and the others as their
+     * dependencies finish.
+     *
+     * @param  main       runs tasks on the main thread, and the listener
+     * @param  background runs the other tasks; should have more than one thread
+     * @throws IllegalArgumentException if a task depends on an unknown task, if a
+     *         task that is not deferred depends on a deferred one, or if the
+     *         dependencies have a cycle
+     */
+    public void start(Executor main, Executor background) {
+        List<Node> ready = new ArrayList<Node>();
+        synchronized (this) {
+            if (started) throw new IllegalStateException("startup has already begun");
+            this.main = main;
+            this.background = background;
+            for (Node n : nodes.values()) {
+                for (String d : n.task.getDependencies()) {
+                    Node dependency = nodes.get(d);
+                    if (dependency == null)
+                        throw new IllegalArgumentException(n.task.getName() + " depends on unknown task " + d);
+                    if (dependency.task.isDeferred() && !n.task.isDeferred())
+                        throw new IllegalArgumentException(n.task.getName() + " is not deferred but depends on "
+                                + "deferred task " + d);
+                    dependency.dependents.add(n);
+                    n.waiting++;
+                }
+            }
+            checkAcyclic();
+            started = true;
+            remaining = nodes.size();
+            for (Node n : nodes.values()) {
+                if (!n.task.isDeferred()) critical++;
+                if (n.waiting == 0) ready.add(n);
+            }
+            ready = release(ready);
+            if (critical == 0) interactive();
+            if (remaining == 0) done();
+        }
+        dispatch(ready);
+    }
+
+    // Kahn's algorithm on a copy of the counts
+    private void checkAcyclic() {
+        Map<Node, Integer> waiting = new LinkedHashMap<Node, Integer>();
+        List<Node> queue = new ArrayList<Node>();
+        for (Node n : nodes.values()) {
+            waiting.put(n, n.waiting);
+            if (n.waiting == 0) queue.add(n);
+        }
+        for (int i = 0; i < queue.size(); i++) {
+            for (Node d : queue.get(i).dependents) {
+                int w = waiting.get(d) - 1;
+                waiting.put(d, w);
+                if (w == 0) queue.add(d);
+            }
+        }
+        if (queue.size() != nodes.size())
+            throw new IllegalArgumentException("the dependencies of the startup tasks have a cycle");
+    }
+
+    /**
+     * Tells that the first frame has been drawn, which lets the deferred tasks run.
+     * Call it from the main thread.
+     */
+    public void onFirstFrame() {
+        List<Node> ready;
+        synchronized (this) {
+            if (firstFrame) return;
+            firstFrame = true;
+            trace.addMark(StartupTrace.FIRST_FRAME, System.nanoTime() - origin);
+            ready = new ArrayList<Node>(waitingForFrame);
+            waitingForFrame.clear();
+        }
+        dispatch(ready);
+    }
+
+    // keeps the deferred tasks back until the first frame; returns the ones that can run now
+    private List<Node> release(List<Node> ready) {
+        List<Node> now = new ArrayList<Node>();
+        for (Node n : ready) {
+            if (n.task.isDeferred() && !firstFrame) waitingForFrame.add(n);
+            else now.add(n);
+        }
+        return now;
+    }
+
+    private void dispatch(List<Node> ready) {
+        for (final Node n : ready) {
+            (n.task.isMainThread() ? main : background).execute(new Runnable() {
+                @Override
+                public void run() {
+                    execute(n);
+                }
+            });
+        }
+    }
+
+    private void execute(Node n) {
+        long start = System.nanoTime();
+        String status = StartupTrace.OK;
+        Throwable failure = null;
+        try {
+            n.task.run();
+        } catch (Throwable e) {
+            status = StartupTrace.FAILED;
+            failure = e;
+        }
+        long duration = System.nanoTime() - start;
+        trace.addTask(n.task.getName(), Thread.currentThread().getName(), start - origin, duration, status);
+        MetricsRegistry.getDefault().histogram("startup." + n.task.getName()).record(duration);
+        if (failure != null) {
+            final Throwable e = failure;
+            final String name = n.task.getName();
+            notifyListener(new Runnable() {
+                @Override
+                public void run() {
+                    listener.onTaskFailed(name, e);
+                }
+            });
+        }
+
+        List<Node> ready = new ArrayList<Node>();
+        synchronized (this) {
+            finish(n, failure == null, ready);
+            if (remaining == 0) done();
+            ready = release(ready);
+        }
+        dispatch(ready);
+    }
+
+    // marks the task as done and collects the dependents that became ready; skips them if it failed
+    private void finish(Node n, boolean ok, List<Node> ready) {
+        n.done = true;
+        remaining--;
+        if (!n.task.isDeferred() && --critical == 0) interactive();
+        for (Node d : n.dependents) {
+            if (d.done) continue;
+            if (!ok) {
+                trace.addTask(d.task.getName(), "", System.nanoTime() - origin, 0, StartupTrace.SKIPPED);
+                finish(d, false, ready);
+            } else if (--d.waiting == 0) {
+                ready.add(d);
+            }
+        }
+    }
+
+    private void interactive() {
+        long at = System.nanoTime() - origin;
+        trace.addMark(StartupTrace.INTERACTIVE, at);
+        MetricsRegistry.getDefault().histogram("startup.interactive").record(at);
+        notifyListener(new Runnable() {
+            @Override
+            public void run() {
+                listener.onInteractive(trace);
+            }
+        });
+    }
+
+    private void done() {
+        trace.addMark(StartupTrace.DONE, System.nanoTime() - origin);
+        notifyListener(new Runnable() {
+            @Override
+            public void run() {
+                listener.onDone(trace);
+            }
+        });
+    }
+
+    private void notifyListener(Runnable r) {
+        if (listener != null) main.execute(r);
+    }
+}
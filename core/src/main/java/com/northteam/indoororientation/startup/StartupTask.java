@@ -0,0 +1,52 @@
+package com.northteam.indoororientation.startup;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A piece of initialization run by {@link Startup}. A task runs once every task
+ * it depends on has finished, on the main thread or on the background pool, and
+ * a deferred task also waits for the first frame to be drawn.
+ */
+public abstract class StartupTask {
+
+    private final String name;
+    private final boolean mainThread;
+    private final boolean deferred;
+    private final List<String> dependencies;
+
+    /**
+     * @param name         unique name of the task, used in the trace
+     * @param mainThread   <tt>true</tt> if the task touches views and must run on the main thread
+     * @param deferred     <tt>true</tt> if the task is not needed for the first frame
+     * @param dependencies names of the tasks that must finish before this one
+     */
+    protected StartupTask(String name, boolean mainThread, boolean deferred, String... dependencies) {
+        this.name = name;
+        this.mainThread = mainThread;
+        this.deferred = deferred;
+        this.dependencies = Collections.unmodifiableList(Arrays.asList(dependencies));
+    }
+
+    /**
+     * Does the work of the task. If it throws, the tasks that depend on it are skipped.
+     */
+    protected abstract void run() throws Exception;
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isMainThread() {
+        return mainThread;
+    }
+
+    public boolean isDeferred() {
+        return deferred;
+    }
+
+    public List<String> getDependencies() {
+        return dependencies;
+    }
+}
@@ -0,0 +1,227 @@
+package com.northteam.indoororientation.startup;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * The timings of one start of the app: when every {@link StartupTask} started,
+ * how long it took and on which thread, plus milestones such as the first frame.
+ * Times are in nanoseconds since the start.
+ * <p>
+ * A trace can be saved and read back, so that the trace of a start can be
+ * compared with the one before, e.g. when a new map ships, to tell which phase
+ * got slower. The file format is:
+ * <pre>
+ * # startup,&lt;label&gt;
+ * task,&lt;name&gt;,&lt;thread&gt;,&lt;start&gt;,&lt;duration&gt;,&lt;status&gt;
+ * mark,&lt;name&gt;,&lt;time&gt;
+ * </pre>
+ */
+public class StartupTrace {
+
+    public static final String OK = "ok";
+    public static final String FAILED = "failed";
+    public static final String SKIPPED = "skipped";
+
+    /**
+     * Milestone reached when the first frame has been drawn.
+     */
+    public static final String FIRST_FRAME = "first_frame";
+
+    /**
+     * Milestone reached when every task that is not deferred has finished.
+     */
+    public static final String INTERACTIVE = "interactive";
+
+    /**
+     * Milestone reached when every task has finished.
+     */
+    public static final String DONE = "done";
+
+    private String label = "";
+    private final List<Entry> tasks = new ArrayList<Entry>();
+    private final List<Entry> marks = new ArrayList<Entry>();
+
+    /**
+     * The timing of one task, or a milestone.
+     */
+    public static class Entry {
+        private final String name;
+        private final String thread;
+        private final long startNanos;
+        private final long durationNanos;
+        private final String status;
+
+        Entry(String name, String thread, long startNanos, long durationNanos, String status) {
+            this.name = name;
+            this.thread = thread;
+            this.startNanos = startNanos;
+            this.durationNanos = durationNanos;
+            this.status = status;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public String getThread() {
+            return thread;
+        }
+
+        public long getStartNanos() {
+            return startNanos;
+        }
+
+        public long getDurationNanos() {
+            return durationNanos;
+        }
+
+        public String getStatus() {
+            return status;
+        }
+    }
+
+    /**
+     * Sets what this start is known by in reports, e.g. the version of the map.
+     */
+    public synchronized void setLabel(String label) {
+        this.label = label.replace(',', ' ').replace('\n', ' ');
+    }
+
+    public synchronized String getLabel() {
+        return label;
+    }
+
+    synchronized void addTask(String name, String thread, long startNanos, long durationNanos, String status) {
+        tasks.add(new Entry(name, thread, startNanos, durationNanos, status));
+    }
+
+    synchronized void addMark(String name, long atNanos) {
+        marks.add(new Entry(name, "", atNanos, 0, OK));
+    }
+
+    public synchronized List<Entry> getTasks() {
+        return new ArrayList<Entry>(tasks);
+    }
+
+    /**
+     * @return the task with the given name; <tt>null</tt> if it has not finished
+     */
+    public synchronized Entry getTask(String name) {
+        for (Entry e : tasks)
+            if (e.name.equals(name)) return e;
+        return null;
+    }
+
+    /**
+     * @return the time of the milestone, in nanoseconds since the start; -1 if not reached
+     */
+    public synchronized long getMark(String name) {
+        for (Entry e : marks)
+            if (e.name.equals(name)) return e.startNanos;
+        return -1;
+    }
+
+    /**
+     * Lists what got slower since a previous start: every task and milestone that
+     * took more than <tt>ratio</tt> times as long as in <tt>baseline</tt> and at
+     * least <tt>minNanos</tt> more. Tasks that failed or were skipped in either
+     * start are left out.
+     *
+     * @param  baseline the trace of a previous start
+     * @param  ratio    e.g. 1.2 for 20% slower
+     * @param  minNanos changes smaller than this are noise
+     * @return one line per regression; empty if nothing regressed
+     */
+    public List<String> regressions(StartupTrace baseline, double ratio, long minNanos) {
+        List<String> report = new ArrayList<String>();
+        for (Entry e : getTasks()) {
+            Entry before = baseline.getTask(e.name);
+            if (before == null || !OK.equals(before.status) || !OK.equals(e.status)) continue;
+            regression(report, "task " + e.name, before.durationNanos, e.durationNanos, ratio, minNanos, baseline);
+        }
+        for (String mark : new String[]{FIRST_FRAME, INTERACTIVE, DONE}) {
+            long before = baseline.getMark(mark);
+            long now = getMark(mark);
+            if (before < 0 || now < 0) continue;
+            regression(report, "mark " + mark, before, now, ratio, minNanos, baseline);
+        }
+        return report;
+    }
+
+    private void regression(List<String> report, String what, long before, long now, double ratio, long minNanos,
+                            StartupTrace baseline) {
+        if (now - before < minNanos || now <= before * ratio) return;
+        report.add(String.format(Locale.US, "%s: %.1f ms -> %.1f ms (%s -> %s)",
+                what, before / 1e6, now / 1e6, baseline.getLabel(), getLabel()));
+    }
+
+    /**
+     * Writes the trace. The writer is not closed.
+     */
+    public synchronized void writeTo(Writer out) throws IOException {
+        out.write("# startup," + label + "\n");
+        for (Entry e : tasks)
+            out.write("task," + e.name + "," + e.thread + "," + e.startNanos + "," + e.durationNanos + ","
+                    + e.status + "\n");
+        for (Entry e : marks)
+            out.write("mark," + e.name + "," + e.startNanos + "\n");
+    }
+
+    public void writeTo(File file) throws IOException {
+        Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), "UTF-8"));
+        try {
+            writeTo(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Reads a trace written by {@link #writeTo}. Lines that can not be parsed are ignored.
+     */
+    public static StartupTrace read(Reader in) throws IOException {
+        StartupTrace trace = new StartupTrace();
+        BufferedReader reader = new BufferedReader(in);
+        String line;
+        while ((line = reader.readLine()) != null) {
+            String[] f = line.split(",", -1);
+            try {
+                if (f[0].equals("# startup") && f.length == 2) {
+                    trace.label = f[1];
+                } else if (f[0].equals("task") && f.length == 6) {
+                    trace.addTask(f[1], f[2], Long.parseLong(f[3]), Long.parseLong(f[4]), f[5]);
+                } else if (f[0].equals("mark") && f.length == 3) {
+                    trace.addMark(f[1], Long.parseLong(f[2]));
+                }
+            } catch (NumberFormatException e) {
+                // skip the line
+            }
+        }
+        return trace;
+    }
+
+    /**
+     * @return the trace in the file; <tt>null</tt> if there is no such file
+     */
+    public static StartupTrace read(File file) throws IOException {
+        if (!file.exists()) return null;
+        Reader in = new InputStreamReader(new FileInputStream(file), "UTF-8");
+        try {
+            return read(in);
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.northteam.indoororientation.trace;
+
+import com.northteam.indoororientation.model.Graph;
+
+import java.util.Arrays;
+
+/**
+ * Maps the beacons of a trace to the vertices of a map. A beacon is looked up
+ * by its unique id the first time one of its readings is resolved, and its
+ * vertex is then found by its index in the trace, without hashing the id again.
+ */
+public class BeaconResolver {
+
+    private static final int UNRESOLVED = -2;
+
+    private final Graph G;
+    private int[] vertexOf = new int[16]; // trace beacon index -> vertex, UNRESOLVED if not looked up yet
+
+    /**
+     * @param G the map
+     */
+    public BeaconResolver(Graph G) {
+        this.G = G;
+        Arrays.fill(vertexOf, UNRESOLVED);
+    }
+
+    /**
+     * Forgets the beacons of the previous trace.
+     */
+    public void clear() {
+        Arrays.fill(vertexOf, UNRESOLVED);
+    }
+
+    /**
+     * @param  reader a trace, at a reading
+     * @return the vertex of the beacon of the current reading, or <tt>-1</tt> if
+     *         the beacon is not part of the map
+     */
+    public int resolve(TraceReader reader) {
+        int i = reader.getIndex();
+        if (i >= vertexOf.length) {
+            int old = vertexOf.length;
+            vertexOf = Arrays.copyOf(vertexOf, Math.max(2 * old, i + 1));
+            Arrays.fill(vertexOf, old, vertexOf.length, UNRESOLVED);
+        }
+        if (vertexOf[i] == UNRESOLVED) vertexOf[i] = G.indexOf(reader.getUniqueId());
+        return vertexOf[i];
+    }
+}
@@ -0,0 +1,76 @@
+package com.northteam.indoororientation.trace;
+
+/**
+ * Result of replaying a trace with the {@link TraceReplayer}.
+ */
+public class ReplayReport {
+
+    final StageStats filter = new StageStats("filter");
+    final StageStats locate = new StageStats("locate");
+    final StageStats route = new StageStats("route");
+    long samples;
+    long unknownBeacons;
+    long vertexChanges;
+    long traceMillis;
+    long wallNanos;
+
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return readings of beacons that are not part of the map
+     */
+    public long getUnknownBeacons() {
+        return unknownBeacons;
+    }
+
+    public long getVertexChanges() {
+        return vertexChanges;
+    }
+
+    /**
+     * @return the time covered by the trace
+     */
+    public long getTraceMillis() {
+        return traceMillis;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return readings processed per second of wall time
+     */
+    public double getSamplesPerSecond() {
+        return wallNanos == 0 ? 0 : samples * 1e9 / wallNanos;
+    }
+
+    /**
+     * @return how many times faster than real time the trace was replayed
+     */
+    public double getSpeedup() {
+        return wallNanos == 0 ? 0 : traceMillis * 1e6 / wallNanos;
+    }
+
+    public StageStats getFilter() {
+        return filter;
+    }
+
+    public StageStats getLocate() {
+        return locate;
+    }
+
+    public StageStats getRoute() {
+        return route;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("samples=%d unknown=%d vertexChanges=%d trace=%dms wall=%.1fms "
+                        + "throughput=%.0f samples/s speedup=%.1fx%n  %s%n  %s%n  %s",
+                samples, unknownBeacons, vertexChanges, traceMillis, wallNanos / 1e6,
+                getSamplesPerSecond(), getSpeedup(), filter, locate, route);
+    }
+}
@@ -0,0 +1,55 @@
+package com.northteam.indoororientation.trace;
+
+/**
+ * Latency of one stage of the replay: number of calls, total, minimum and
+ * maximum time spent in the stage.
+ */
+public class StageStats {
+
+    private final String name;
+    private long count;
+    private long totalNanos;
+    private long minNanos = Long.MAX_VALUE;
+    private long maxNanos;
+
+    public StageStats(String name) {
+        this.name = name;
+    }
+
+    public void record(long nanos) {
+        count++;
+        totalNanos += nanos;
+        if (nanos < minNanos) minNanos = nanos;
+        if (nanos > maxNanos) maxNanos = nanos;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getTotalNanos() {
+        return totalNanos;
+    }
+
+    public double getMeanNanos() {
+        return count == 0 ? 0 : (double) totalNanos / count;
+    }
+
+    public long getMinNanos() {
+        return count == 0 ? 0 : minNanos;
+    }
+
+    public long getMaxNanos() {
+        return maxNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-8s n=%d mean=%.0fns min=%dns max=%dns",
+                name, count, getMeanNanos(), getMinNanos(), getMaxNanos());
+    }
+}
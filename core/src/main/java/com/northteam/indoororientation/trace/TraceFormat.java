@@ -0,0 +1,31 @@
+package com.northteam.indoororientation.trace;
+
+/**
+ * Layout of the binary scan trace files, big endian:
+ * <pre>
+ * header : int MAGIC, short VERSION, long startTimeMillis
+ * beacon : byte TAG_BEACON, short index, short length, byte[length] uniqueId (UTF-8)
+ * sample : byte TAG_SAMPLE, int millis since the previous sample, short index, byte rssi
+ * </pre>
+ * A beacon record is written the first time a uniqueId is seen and every sample
+ * after it refers to the beacon by its index, so a sample takes 8 bytes.
+ */
+final class TraceFormat {
+
+    static final int MAGIC = 0x494F5452; // "IOTR"
+    static final short VERSION = 1;
+    static final int HEADER_BYTES = 4 + 2 + 8;
+
+    static final byte TAG_BEACON = 1;
+    static final byte TAG_SAMPLE = 2;
+    static final int SAMPLE_BYTES = 1 + 4 + 2 + 1;
+
+    static final int MAX_BEACONS = 0xFFFF;
+    static final int BUFFER_BYTES = 64 * 1024;
+    static final int BEACON_BYTES = 1 + 2 + 2;  // a beacon record without its uniqueId
+    // the length is a short, and a record must fit in the buffer
+    static final int MAX_ID_BYTES = Math.min(0xFFFF, BUFFER_BYTES - BEACON_BYTES);
+
+    private TraceFormat() {
+    }
+}
@@ -0,0 +1,151 @@
+package com.northteam.indoororientation.trace;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+
+/**
+ * Reads a trace written by {@link TraceWriter}. The reader works like a cursor:
+ * every call to {@link #next()} moves to the following reading, whose fields are
+ * then available through the getters, so reading a trace does not allocate per
+ * reading.
+ */
+public class TraceReader implements Closeable {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final FileInputStream in;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TraceFormat.BUFFER_BYTES);
+    private final ArrayList<String> uniqueIds = new ArrayList<String>();
+    private final long startTimeMillis;
+    private boolean eof;
+
+    private long timeMillis;
+    private int index = -1;
+    private int rssi;
+
+    /**
+     * Opens a trace file and reads its header.
+     *
+     * @param  file the trace file
+     * @throws IOException if the file can not be read or is not a trace
+     */
+    public TraceReader(File file) throws IOException {
+        in = new FileInputStream(file);
+        channel = in.getChannel();
+        buffer.limit(0);
+        if (!fill(TraceFormat.HEADER_BYTES) || buffer.getInt() != TraceFormat.MAGIC) {
+            in.close();
+            throw new IOException(file + " is not a scan trace");
+        }
+        short version = buffer.getShort();
+        if (version != TraceFormat.VERSION) {
+            in.close();
+            throw new IOException("Unsupported trace version " + version);
+        }
+        startTimeMillis = buffer.getLong();
+        timeMillis = startTimeMillis;
+    }
+
+    // makes sure at least n bytes are buffered; returns false at the end of the file
+    private boolean fill(int n) throws IOException {
+        if (buffer.remaining() >= n) return true;
+        buffer.compact();
+        while (buffer.position() < n && !eof) {
+            if (channel.read(buffer) < 0) eof = true;
+        }
+        buffer.flip();
+        return buffer.remaining() >= n;
+    }
+
+    /**
+     * Moves to the next reading of the trace.
+     *
+     * @return <tt>true</tt> if there is a reading; <tt>false</tt> at the end of the trace
+     * @throws IOException if the trace can not be read or is truncated
+     */
+    public boolean next() throws IOException {
+        while (fill(1)) {
+            byte tag = buffer.get();
+            if (tag == TraceFormat.TAG_SAMPLE) {
+                if (!fill(TraceFormat.SAMPLE_BYTES - 1)) throw new EOFException("Truncated sample");
+                timeMillis += buffer.getInt() & 0xFFFFFFFFL;
+                index = buffer.getShort() & 0xFFFF;
+                rssi = buffer.get();
+                return true;
+            } else if (tag == TraceFormat.TAG_BEACON) {
+                if (!fill(4)) throw new EOFException("Truncated beacon");
+                int i = buffer.getShort() & 0xFFFF;
+                int length = buffer.getShort() & 0xFFFF;
+                if (i != uniqueIds.size()) throw new IOException("Beacon " + i + " is out of order");
+                if (!fill(length)) throw new EOFException("Truncated beacon");
+                byte[] bytes = new byte[length];
+                buffer.get(bytes);
+                uniqueIds.add(new String(bytes, UTF8));
+            } else {
+                throw new IOException("Unknown record " + tag);
+            }
+        }
+        return false;
+    }
+
+    public long getStartTimeMillis() {
+        return startTimeMillis;
+    }
+
+    /**
+     * @return the time of the current reading
+     */
+    public long getTimeMillis() {
+        return timeMillis;
+    }
+
+    /**
+     * @return the position of the current beacon in the trace's beacon table,
+     *         see {@link #getUniqueId(int)}
+     */
+    public int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return the unique id of the beacon of the current reading
+     */
+    public String getUniqueId() {
+        return uniqueIds.get(index);
+    }
+
+    /**
+     * @param  index a beacon index returned by {@link #getIndex()}
+     * @return the unique id of the beacon
+     */
+    public String getUniqueId(int index) {
+        return uniqueIds.get(index);
+    }
+
+    /**
+     * @return the number of beacons seen so far in the trace
+     */
+    public int getBeaconCount() {
+        return uniqueIds.size();
+    }
+
+    /**
+     * @return the signal strength of the current reading, in dBm
+     */
+    public int getRssi() {
+        return rssi;
+    }
+
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+}
@@ -0,0 +1,131 @@
+package com.northteam.indoororientation.trace;
+
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.Locator;
+import com.northteam.indoororientation.model.Router;
+import com.northteam.indoororientation.model.RssiFilter;
+import com.northteam.indoororientation.util.VirtualClock;
+
+import java.io.IOException;
+
+/**
+ * Feeds a recorded trace through the positioning and routing stack:
+ * every reading goes through the {@link RssiFilter} and the {@link Locator}, and
+ * a new route to the destination is asked to the {@link Router} every time the
+ * user changes vertex. The components see the time of the trace through a
+ * {@link VirtualClock}, so a replay takes the same decisions whatever its speed.
+ */
+public class TraceReplayer {
+
+    /**
+     * Speed that replays the trace without waiting between readings.
+     */
+    public static final float AS_FAST_AS_POSSIBLE = 0f;
+
+    private final Graph G;
+    private final int destination;
+    private final RssiFilter filter;
+    private final Locator locator;
+    private final Router router;
+    private final boolean ownsRouter;
+    private VirtualClock clock;
+    private final BeaconResolver beacons;
+
+    /**
+     * @param G           the map
+     * @param destination the vertex routes are computed to
+     */
+    public TraceReplayer(Graph G, int destination) {
+        this(G, destination, new RssiFilter(G.getV()), new Locator(), new Router(G), true);
+    }
+
+    /**
+     * Replays through the given components; the router stays the caller's to close.
+     */
+    public TraceReplayer(Graph G, int destination, RssiFilter filter, Locator locator, Router router) {
+        this(G, destination, filter, locator, router, false);
+    }
+
+    private TraceReplayer(Graph G, int destination, RssiFilter filter, Locator locator, Router router,
+                          boolean ownsRouter) {
+        if (destination < 0 || destination >= G.getV())
+            throw new IndexOutOfBoundsException("vertex " + destination + " is not between 0 and " + (G.getV() - 1));
+        this.G = G;
+        this.destination = destination;
+        this.filter = filter;
+        this.locator = locator;
+        this.router = router;
+        this.ownsRouter = ownsRouter;
+        this.beacons = new BeaconResolver(G);
+    }
+
+    /**
+     * Closes the router this replayer created, if it did.
+     */
+    public void close() {
+        if (ownsRouter) router.close();
+    }
+
+    /**
+     * Replays a trace.
+     *
+     * @param  reader the trace
+     * @param  speed  1 to replay in real time, 2 for twice as fast, and so on;
+     *                {@link #AS_FAST_AS_POSSIBLE} not to wait at all
+     * @return throughput and latency of every stage
+     * @throws IOException if the trace can not be read
+     * @throws InterruptedException if interrupted while waiting for the next reading
+     */
+    public ReplayReport replay(TraceReader reader, float speed) throws IOException, InterruptedException {
+        if (speed < 0) throw new IllegalArgumentException("speed must be nonnegative");
+        ReplayReport report = new ReplayReport();
+        beacons.clear();
+        clock = new VirtualClock(reader.getStartTimeMillis());
+        int position = locator.current();
+        long startNanos = System.nanoTime();
+
+        while (reader.next()) {
+            long t = reader.getTimeMillis();
+            clock.advanceTo(t);
+            if (speed > 0) {
+                long due = startNanos + (long) ((t - reader.getStartTimeMillis()) * 1e6 / speed);
+                long wait = due - System.nanoTime();
+                if (wait > 0) Thread.sleep(wait / 1000000, (int) (wait % 1000000));
+            }
+            report.samples++;
+
+            int v = beacons.resolve(reader);
+            if (v < 0) {
+                report.unknownBeacons++;
+                continue;
+            }
+
+            long t0 = System.nanoTime();
+            float rssi = filter.update(v, reader.getRssi(), clock.currentTimeMillis());
+            long t1 = System.nanoTime();
+            int now = locator.update(v, rssi, clock.currentTimeMillis());
+            long t2 = System.nanoTime();
+            report.filter.record(t1 - t0);
+            report.locate.record(t2 - t1);
+
+            if (now != position) {
+                position = now;
+                report.vertexChanges++;
+                long t3 = System.nanoTime();
+                router.route(position, destination);
+                report.route.record(System.nanoTime() - t3);
+            }
+        }
+
+        report.wallNanos = System.nanoTime() - startNanos;
+        report.traceMillis = reader.getTimeMillis() - reader.getStartTimeMillis();
+        return report;
+    }
+
+    /**
+     * @return the clock of the last replay, at the time of its last reading
+     */
+    public VirtualClock getClock() {
+        return clock;
+    }
+}
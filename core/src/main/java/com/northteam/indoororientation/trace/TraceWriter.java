@@ -0,0 +1,119 @@
+package com.northteam.indoororientation.trace;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.HashMap;
+
+/**
+ * Records the beacon readings of a scan session into a binary trace file (see
+ * {@link TraceFormat}). Records are collected in a direct buffer and written to
+ * the file channel only when the buffer is full, so recording does not touch the
+ * disk on every scan callback.
+ */
+public class TraceWriter implements Closeable {
+
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private final FileOutputStream out;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TraceFormat.BUFFER_BYTES);
+    private final HashMap<String, Integer> indexes = new HashMap<String, Integer>();
+    private long lastTimeMillis;
+    private int samples;
+
+    /**
+     * Creates the trace file, replacing it if it exists.
+     *
+     * @param  file the file to write
+     * @param  startTimeMillis the time the session started
+     * @throws IOException if the file can not be created
+     */
+    public TraceWriter(File file, long startTimeMillis) throws IOException {
+        out = new FileOutputStream(file);
+        channel = out.getChannel();
+        lastTimeMillis = startTimeMillis;
+        buffer.putInt(TraceFormat.MAGIC);
+        buffer.putShort(TraceFormat.VERSION);
+        buffer.putLong(startTimeMillis);
+    }
+
+    /**
+     * Appends a reading to the trace.
+     *
+     * @param  timeMillis the time of the reading; readings must be recorded in time order
+     * @param  uniqueId the unique id advertised by the beacon
+     * @param  rssi the measured signal strength, in dBm
+     * @throws IOException if the trace can not be written
+     * @throws IllegalArgumentException if the reading is older than the previous one,
+     *         or if the unique id takes more than 65531 bytes in UTF-8
+     */
+    public void record(long timeMillis, String uniqueId, int rssi) throws IOException {
+        if (timeMillis < lastTimeMillis) throw new IllegalArgumentException("Readings must be recorded in time order");
+        long delta = timeMillis - lastTimeMillis;
+        if (delta > Integer.MAX_VALUE) throw new IllegalArgumentException("Gap between readings is too long");
+        Integer index = indexes.get(uniqueId);
+        if (index == null) {
+            index = defineBeacon(uniqueId);
+        }
+        ensure(TraceFormat.SAMPLE_BYTES);
+        buffer.put(TraceFormat.TAG_SAMPLE);
+        buffer.putInt((int) delta);
+        buffer.putShort((short) (int) index);
+        buffer.put((byte) Math.max(Byte.MIN_VALUE, Math.min(Byte.MAX_VALUE, rssi)));
+        lastTimeMillis = timeMillis;
+        samples++;
+    }
+
+    private Integer defineBeacon(String uniqueId) throws IOException {
+        if (indexes.size() == TraceFormat.MAX_BEACONS) throw new IllegalStateException("Too many beacons in one trace");
+        byte[] bytes = uniqueId.getBytes(UTF8);
+        if (bytes.length > TraceFormat.MAX_ID_BYTES)
+            throw new IllegalArgumentException("Unique id of " + bytes.length + " bytes, more than " + TraceFormat.MAX_ID_BYTES);
+        Integer index = indexes.size();
+        ensure(TraceFormat.BEACON_BYTES + bytes.length);
+        buffer.put(TraceFormat.TAG_BEACON);
+        buffer.putShort((short) (int) index);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+        indexes.put(uniqueId, index);
+        return index;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) flush();
+    }
+
+    /**
+     * Writes the buffered records to the file.
+     *
+     * @throws IOException if the trace can not be written
+     */
+    public void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * @return the number of readings recorded so far
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+        } finally {
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.northteam.indoororientation.util;
+
+/**
+ * Source of time for the components that make decisions based on time, so that
+ * they can be driven by a recorded trace instead of the wall clock.
+ */
+public interface Clock {
+
+    /**
+     * The wall clock.
+     */
+    Clock SYSTEM = new Clock() {
+        @Override
+        public long currentTimeMillis() {
+            return System.currentTimeMillis();
+        }
+    };
+
+    /**
+     * @return the current time in milliseconds since the epoch
+     */
+    long currentTimeMillis();
+}
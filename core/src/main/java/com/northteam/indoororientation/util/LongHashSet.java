@@ -0,0 +1,91 @@
+package com.northteam.indoororientation.util;
+
+/**
+ * Set of <tt>long</tt> keys on an open addressing table with linear probing, so
+ * that adding a key does not box it or allocate a node. Two <tt>int</tt> ids,
+ * such as the ends of an edge, are packed into one key with {@link #pack}.
+ * <p>
+ * This class is not thread safe.
+ */
+public class LongHashSet {
+
+    private static final long EMPTY = 0L; // free slot; the key 0 itself is kept aside
+
+    private long[] keys;
+    private int mask;
+    private int size;        // keys in the table, the key 0 not included
+    private boolean hasZero;
+
+    /**
+     * @param expected number of keys the set holds without growing
+     */
+    public LongHashSet(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        keys = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * Returns the key of the pair <tt>a</tt>, <tt>b</tt>, in that order.
+     */
+    public static long pack(int a, int b) {
+        return ((long) a << 32) | (b & 0xffffffffL);
+    }
+
+    /**
+     * Adds a key.
+     *
+     * @return <tt>true</tt> if the key was not in the set
+     */
+    public boolean add(long key) {
+        if (key == EMPTY) {
+            if (hasZero) return false;
+            hasZero = true;
+            return true;
+        }
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) return false;
+            i = (i + 1) & mask;
+        }
+        keys[i] = key;
+        if (++size * 2 > keys.length) grow();
+        return true;
+    }
+
+    public boolean contains(long key) {
+        if (key == EMPTY) return hasZero;
+        int i = slot(key);
+        while (keys[i] != EMPTY) {
+            if (keys[i] == key) return true;
+            i = (i + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return hasZero ? size + 1 : size;
+    }
+
+    private int slot(long key) {
+        // the finalizer of MurmurHash3, so that packed pairs spread over the table
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private void grow() {
+        long[] old = keys;
+        keys = new long[old.length * 2];
+        mask = keys.length - 1;
+        for (long key : old) {
+            if (key == EMPTY) continue;
+            int i = slot(key);
+            while (keys[i] != EMPTY) i = (i + 1) & mask;
+            keys[i] = key;
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package com.northteam.indoororientation.util;
+
+import com.northteam.indoororientation.memory.MemorySizes;
+
+import java.util.Arrays;
+
+/**
+ * Pool of distinct strings, each numbered with a dense <tt>int</tt> handle in the
+ * order it was first added. Interning a string returns the instance already in
+ * the pool when there is an equal one, so that a name repeated all over a map
+ * file is kept once, and handles can be compared and used as array indexes
+ * instead of comparing and hashing the strings.
+ * <p>
+ * The strings are found in an open addressing table of handles with linear
+ * probing, so that interning does not allocate an entry per string.
+ * <p>
+ * This class is not thread safe while strings are added; once no more are, it
+ * can be read by any number of threads.
+ */
+public class StringPool {
+
+    private String[] strings;  // strings[h] = string of handle h
+    private int[] hashes;      // hashes[h] = hash code of strings[h]
+    private int[] table;       // handle + 1 of the string in each slot, 0 if free
+    private int mask;
+    private int size;
+
+    public StringPool() {
+        this(64);
+    }
+
+    /**
+     * @param expected number of distinct strings the pool holds without growing
+     */
+    public StringPool(int expected) {
+        int capacity = Integer.highestOneBit(Math.max(4, expected * 2 - 1)) << 1;
+        table = new int[capacity];
+        mask = capacity - 1;
+        strings = new String[Math.max(4, expected)];
+        hashes = new int[strings.length];
+    }
+
+    /**
+     * Returns the string of the pool equal to <tt>s</tt>, adding <tt>s</tt> if
+     * there is none.
+     *
+     * @param  s the string; may be <tt>null</tt>
+     * @return the pooled string, or <tt>null</tt> if <tt>s</tt> is <tt>null</tt>
+     */
+    public String intern(String s) {
+        return s == null ? null : strings[handle(s)];
+    }
+
+    /**
+     * Returns the handle of <tt>s</tt>, adding it to the pool if it is not there.
+     *
+     * @param  s the string
+     * @return the handle, between 0 and {@link #size} - 1
+     * @throws NullPointerException if <tt>s</tt> is <tt>null</tt>
+     */
+    public int handle(String s) {
+        int hash = s.hashCode();
+        int i = slot(hash);
+        while (table[i] != 0) {
+            int h = table[i] - 1;
+            if (hashes[h] == hash && strings[h].equals(s)) return h;
+            i = (i + 1) & mask;
+        }
+        if (size == strings.length) {
+            strings = Arrays.copyOf(strings, 2 * size);
+            hashes = Arrays.copyOf(hashes, 2 * size);
+        }
+        strings[size] = s;
+        hashes[size] = hash;
+        table[i] = ++size;
+        if (size * 2 > table.length) grow();
+        return size - 1;
+    }
+
+    /**
+     * Returns the handle of <tt>s</tt> without adding it.
+     *
+     * @param  s the string; may be <tt>null</tt>
+     * @return the handle, or <tt>-1</tt> if <tt>s</tt> is not in the pool
+     */
+    public int find(String s) {
+        if (s == null) return -1;
+        int hash = s.hashCode();
+        for (int i = slot(hash); table[i] != 0; i = (i + 1) & mask) {
+            int h = table[i] - 1;
+            if (hashes[h] == hash && strings[h].equals(s)) return h;
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the string of a handle.
+     *
+     * @param  handle the handle
+     * @return the string
+     * @throws IndexOutOfBoundsException unless 0 &le; <tt>handle</tt> &lt; {@link #size}
+     */
+    public String get(int handle) {
+        if (handle < 0 || handle >= size)
+            throw new IndexOutOfBoundsException("handle " + handle + " is not between 0 and " + (size - 1));
+        return strings[handle];
+    }
+
+    /**
+     * Returns the number of distinct strings in the pool.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Estimates the bytes of the pool, not counting its strings.
+     */
+    public long estimateBytes() {
+        return MemorySizes.object(3 * MemorySizes.REFERENCE + 2 * 4)
+                + MemorySizes.array(strings.length, MemorySizes.REFERENCE)
+                + MemorySizes.array(hashes.length, 4) + MemorySizes.array(table.length, 4);
+    }
+
+    // spreads the high bits of the hash over the slot, as HashMap does
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+    private void grow() {
+        table = new int[2 * table.length];
+        mask = table.length - 1;
+        for (int h = 0; h < size; h++) {
+            int i = slot(hashes[h]);
+            while (table[i] != 0) i = (i + 1) & mask;
+            table[i] = h + 1;
+        }
+    }
+}
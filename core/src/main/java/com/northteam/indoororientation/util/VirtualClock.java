@@ -0,0 +1,32 @@
+package com.northteam.indoororientation.util;
+
+/**
+ * A {@link Clock} that only moves when it is told to.
+ */
+public class VirtualClock implements Clock {
+
+    private volatile long now;
+
+    public VirtualClock(long startMillis) {
+        this.now = startMillis;
+    }
+
+    @Override
+    public long currentTimeMillis() {
+        return now;
+    }
+
+    /**
+     * Moves the clock to the given time. The clock never goes backwards.
+     *
+     * @param timeMillis the new time
+     */
+    public void advanceTo(long timeMillis) {
+        if (timeMillis > now) now = timeMillis;
+    }
+
+    public void advanceBy(long millis) {
+        if (millis < 0) throw new IllegalArgumentException("millis must be nonnegative");
+        now += millis;
+    }
+}
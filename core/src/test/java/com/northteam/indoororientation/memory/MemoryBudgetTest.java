@@ -0,0 +1,115 @@
+package com.northteam.indoororientation.memory;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MemoryBudgetTest {
+
+    // an account of a given size that releases everything, recording the order of the releases
+    private static class Fixed implements MemoryBudget.Account {
+        final String name;
+        final List<String> released;
+        long bytes;
+
+        Fixed(String name, long bytes, List<String> released) {
+            this.name = name;
+            this.bytes = bytes;
+            this.released = released;
+        }
+
+        @Override
+        public long estimateBytes() {
+            return bytes;
+        }
+
+        @Override
+        public long release(long asked) {
+            released.add(name);
+            long b = bytes;
+            bytes = 0;
+            return b;
+        }
+    }
+
+    @Test
+    public void reportAddsTheAccounts() {
+        List<String> released = new ArrayList<String>();
+        MemoryBudget budget = new MemoryBudget(1000);
+        Fixed cache = new Fixed("cache", 100, released);
+        budget.register("map", MemoryBudget.Kind.PINNED, new Fixed("map", 500, released));
+        budget.register("cache", MemoryBudget.Kind.CACHE, cache);
+        MemoryReport report = budget.report();
+        assertEquals(2, report.size());
+        assertEquals(600, report.getTotal());
+        assertEquals(100, report.getBytes("cache"));
+        assertFalse(report.isOverBudget());
+
+        cache.bytes = 700;  // estimated again at every report
+        assertEquals(1200, budget.report().getTotal());
+        assertTrue(budget.report().isOverBudget());
+        assertTrue(released.isEmpty());
+    }
+
+    @Test
+    public void registeringANameAgainReplacesTheAccount() {
+        List<String> released = new ArrayList<String>();
+        MemoryBudget budget = new MemoryBudget(1000);
+        budget.register("a", MemoryBudget.Kind.CACHE, new Fixed("a", 100, released));
+        budget.register("a", MemoryBudget.Kind.COLD, new Fixed("a", 300, released));
+        assertEquals(300, budget.report().getTotal());
+        budget.unregister("a");
+        assertEquals(0, budget.report().size());
+    }
+
+    @Test
+    public void releasesCachesThenColdDataNeverPinned() {
+        List<String> released = new ArrayList<String>();
+        MemoryBudget budget = new MemoryBudget(100);
+        budget.register("map", MemoryBudget.Kind.PINNED, new Fixed("map", 1000, released));
+        budget.register("cold", MemoryBudget.Kind.COLD, new Fixed("cold", 300, released));
+        budget.register("small cache", MemoryBudget.Kind.CACHE, new Fixed("small cache", 50, released));
+        budget.register("big cache", MemoryBudget.Kind.CACHE, new Fixed("big cache", 200, released));
+        MemoryReport report = budget.enforce();
+        assertEquals("[big cache, small cache, cold]", released.toString());
+        assertEquals(550, report.getReleased());
+        assertEquals(1000, report.getTotal());
+        assertTrue(report.isOverBudget());
+    }
+
+    @Test
+    public void stopsOnceTheAccountsFit() {
+        List<String> released = new ArrayList<String>();
+        MemoryBudget budget = new MemoryBudget(500);
+        budget.register("map", MemoryBudget.Kind.PINNED, new Fixed("map", 200, released));
+        budget.register("cold", MemoryBudget.Kind.COLD, new Fixed("cold", 300, released));
+        budget.register("cache", MemoryBudget.Kind.CACHE, new Fixed("cache", 150, released));
+        MemoryReport report = budget.enforce();
+        assertEquals("[cache]", released.toString());
+        assertEquals(500, report.getTotal());
+        assertFalse(report.isOverBudget());
+        released.clear();
+        assertEquals(0, budget.enforce().getReleased());
+        assertTrue(released.isEmpty());
+    }
+
+    @Test
+    public void trimToZeroReleasesEverythingButPinned() {
+        List<String> released = new ArrayList<String>();
+        MemoryBudget budget = new MemoryBudget(10000);
+        budget.register("map", MemoryBudget.Kind.PINNED, new Fixed("map", 200, released));
+        budget.register("cold", MemoryBudget.Kind.COLD, new Fixed("cold", 300, released));
+        budget.register("cache", MemoryBudget.Kind.CACHE, new Fixed("cache", 150, released));
+        MemoryReport report = budget.trimTo(0);
+        assertEquals("[cache, cold]", released.toString());
+        assertEquals(200, report.getTotal());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeBudget() {
+        new MemoryBudget(-1);
+    }
+}
@@ -0,0 +1,149 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class AlternativeRoutesTest {
+
+    /*
+     * From 0 to 5:
+     *   0 -2- 1 -1- 2 -2- 5   the shortest route, 5 m
+     *         1 -.6- 7 -.6- 2 a detour of 5.2 m, 4 m of it on the shortest route
+     *   0 -3- 3 -3- 5         6 m
+     *   0 -3.5- 4 -4- 5       7.5 m, 1.5 times the shortest
+     *   0 -4- 6 -4- 5         8 m, too long
+     */
+    private static Graph ladder() {
+        Graph G = new Graph(8);
+        G.addEdge(new Edge(0, 1, 2, 'N'));
+        G.addEdge(new Edge(1, 2, 1, 'N'));
+        G.addEdge(new Edge(2, 5, 2, 'N'));
+        G.addEdge(new Edge(1, 7, 0.6f, 'E'));
+        G.addEdge(new Edge(7, 2, 0.6f, 'W'));
+        G.addEdge(new Edge(0, 3, 3, 'E'));
+        G.addEdge(new Edge(3, 5, 3, 'W'));
+        G.addEdge(new Edge(0, 4, 3.5f, 'W'));
+        G.addEdge(new Edge(4, 5, 4, 'E'));
+        G.addEdge(new Edge(0, 6, 4, 'S'));
+        G.addEdge(new Edge(6, 5, 4, 'N'));
+        return G;
+    }
+
+    @Test
+    public void knownAlternatives() {
+        List<AlternativeRoutes.Route> routes = new AlternativeRoutes(ladder()).routes(0, 5, 10, RouteProfile.ANY);
+        assertEquals("[0, 3, 4]", vias(routes));
+        assertEquals(5f, routes.get(0).getDistance(), 1e-6);
+        assertEquals(6f, routes.get(1).getDistance(), 1e-6);
+        assertEquals(7.5f, routes.get(2).getDistance(), 1e-6);
+        check(routes, 0, 5, AlternativeRoutes.DEFAULT_MAX_STRETCH, AlternativeRoutes.DEFAULT_MAX_SHARE);
+    }
+
+    @Test
+    public void overlapLimit() {
+        // the detour shares 4 of its 5.2 m with the shortest route
+        List<AlternativeRoutes.Route> routes = new AlternativeRoutes(ladder(), 1.5f, 0.8f).routes(0, 5, 10, RouteProfile.ANY);
+        assertEquals("[0, 7, 3, 4]", vias(routes));
+        check(routes, 0, 5, 1.5f, 0.8f);
+    }
+
+    @Test
+    public void stretchBound() {
+        List<AlternativeRoutes.Route> routes = new AlternativeRoutes(ladder(), 1.7f, 0.7f).routes(0, 5, 10, RouteProfile.ANY);
+        assertEquals("[0, 3, 4, 6]", vias(routes));
+        check(routes, 0, 5, 1.7f, 0.7f);
+        routes = new AlternativeRoutes(ladder(), 1f, 0.7f).routes(0, 5, 10, RouteProfile.ANY);
+        assertEquals("[0]", vias(routes));
+    }
+
+    @Test
+    public void atMostKRoutes() {
+        AlternativeRoutes alternatives = new AlternativeRoutes(ladder());
+        assertEquals("[0, 3]", vias(alternatives.routes(0, 5, 2, RouteProfile.ANY)));
+        assertEquals("[0]", vias(alternatives.routes(0, 5, 1, RouteProfile.ANY)));
+        assertTrue(alternatives.routes(0, 5, 0, RouteProfile.ANY).isEmpty());
+        // the arrays stamped by the previous queries are not in the way
+        assertEquals("[0, 3, 4]", vias(alternatives.routes(0, 5, 10, RouteProfile.ANY)));
+    }
+
+    @Test
+    public void singlePath() {
+        // a corridor with a dead end off it: the only route is the shortest
+        Graph G = new Graph(4);
+        G.addEdge(new Edge(0, 1, 1, 'N'));
+        G.addEdge(new Edge(1, 2, 1, 'N'));
+        G.addEdge(new Edge(1, 3, 0.1f, 'E'));
+        List<AlternativeRoutes.Route> routes = new AlternativeRoutes(G).routes(0, 2, 5, RouteProfile.ANY);
+        assertEquals(1, routes.size());
+        assertEquals(2, routes.get(0).getEdges().size());
+        assertEquals(2f, routes.get(0).getDistance(), 1e-6);
+        check(routes, 0, 2, AlternativeRoutes.DEFAULT_MAX_STRETCH, AlternativeRoutes.DEFAULT_MAX_SHARE);
+    }
+
+    @Test
+    public void unreachable() {
+        Graph G = new Graph(3);
+        G.addEdge(new Edge(0, 1, 1, 'N'));
+        assertTrue(new AlternativeRoutes(G).routes(0, 2, 3, RouteProfile.ANY).isEmpty());
+        assertEquals(0, new AlternativeRoutes(G).routes(1, 1, 3, RouteProfile.ANY).get(0).getEdges().size());
+    }
+
+    @Test
+    public void randomGraphs() {
+        Random random = new Random(8);
+        for (int t = 0; t < 30; t++) {
+            Graph G = RandomGraphs.connected(random, 40, 60);
+            AlternativeRoutes alternatives = new AlternativeRoutes(G);
+            int from = random.nextInt(40);
+            int to = random.nextInt(40);
+            List<AlternativeRoutes.Route> routes = alternatives.routes(from, to, 4, RouteProfile.ANY);
+            assertEquals(new DijkstraSP(G, from).distTo(to), routes.get(0).getDistance(), 1e-4);
+            check(routes, from, to, AlternativeRoutes.DEFAULT_MAX_STRETCH, AlternativeRoutes.DEFAULT_MAX_SHARE);
+        }
+    }
+
+    private static String vias(List<AlternativeRoutes.Route> routes) {
+        List<Integer> vias = new ArrayList<Integer>();
+        for (AlternativeRoutes.Route r : routes)
+            vias.add(r.getVia());
+        return vias.toString();
+    }
+
+    // every route walks from one end to the other without visiting a vertex twice, is
+    // distinct, within the stretch bound, and shares at most maxShare of its length with
+    // the routes before it
+    private static void check(List<AlternativeRoutes.Route> routes, int from, int to, float maxStretch, float maxShare) {
+        float shortest = routes.get(0).getDistance();
+        Set<List<Edge>> distinct = new HashSet<List<Edge>>();
+        for (int i = 0; i < routes.size(); i++) {
+            AlternativeRoutes.Route route = routes.get(i);
+            assertTrue(distinct.add(route.getEdges()));
+            Set<Integer> visited = new HashSet<Integer>();
+            int x = from;
+            visited.add(x);
+            float length = 0;
+            for (Edge e : route.getEdges()) {
+                x = e.other(x);
+                assertTrue("vertex " + x + " visited twice", visited.add(x));
+                length += e.getWeight();
+            }
+            assertEquals(to, x);
+            assertEquals(length, route.getDistance(), 1e-4);
+            assertTrue(route.getDistance() <= maxStretch * shortest + 1e-4);
+            if (i > 0) assertTrue(route.getDistance() >= routes.get(i - 1).getDistance());
+            for (int j = 0; j < i; j++) {
+                float shared = 0;
+                for (Edge e : route.getEdges())
+                    if (routes.get(j).getEdges().contains(e)) shared += e.getWeight();
+                assertTrue(shared <= maxShare * route.getDistance() + 1e-4);
+            }
+        }
+    }
+}
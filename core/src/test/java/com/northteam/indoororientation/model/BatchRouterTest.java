@@ -0,0 +1,68 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+public class BatchRouterTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void distancesMatchSingleQueries() {
+        Random random = new Random(39);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (int trial = 0; trial < 20; trial++) {
+                Graph G = RandomGraphs.connected(random, 50 + random.nextInt(150), 100);
+                BatchRouter router = new BatchRouter(G, pool);
+                int n = 1 + random.nextInt(300);
+                int[] from = new int[n];
+                int[] to = new int[n];
+                for (int i = 0; i < n; i++) {
+                    // few sources, so that most are asked more than once
+                    from[i] = random.nextInt(Math.min(10, G.getV()));
+                    to[i] = random.nextInt(G.getV());
+                }
+                float[] distances = router.distances(from, to);
+                for (int i = 0; i < n; i++)
+                    assertEquals(new DijkstraSP(G, from[i]).distTo(to[i]), distances[i], EPSILON);
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void matrixMatchesSingleQueries() {
+        Random random = new Random(390);
+        Graph G = RandomGraphs.connected(random, 200, 150);
+        G.addEdge(new Edge(7, 7, 3, 'N'));
+        Graph unreachable = new Graph(G.getV() + 1);
+        for (Edge e : G.edges()) unreachable.addEdge(e);
+        int[] sources = { 0, 5, 5, 199, 200 };
+        int[] targets = { 200, 0, 7, 5, 199, 42 };
+        float[][] matrix = new BatchRouter(unreachable).matrix(sources, targets);
+        assertEquals(sources.length, matrix.length);
+        for (int i = 0; i < sources.length; i++) {
+            DijkstraSP sp = new DijkstraSP(unreachable, sources[i]);
+            for (int j = 0; j < targets.length; j++)
+                assertEquals(sp.distTo(targets[j]), matrix[i][j], EPSILON);
+        }
+        assertEquals(Float.POSITIVE_INFINITY, matrix[0][0], 0);
+        assertEquals(0f, matrix[4][0], 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void pairsOfDifferentLengths() {
+        new BatchRouter(new Graph(2)).distances(new int[] { 0 }, new int[0]);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void vertexOutOfRange() {
+        new BatchRouter(new Graph(2)).distances(new int[] { 0 }, new int[] { 2 });
+    }
+}
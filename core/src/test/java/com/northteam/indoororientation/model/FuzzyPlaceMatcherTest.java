@@ -0,0 +1,118 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class FuzzyPlaceMatcherTest {
+
+    private static List<Place> places(String... names) {
+        List<Place> places = new ArrayList<Place>();
+        for (int p = 0; p < names.length; p++)
+            places.add(new Place(String.valueOf(p), names[p]));
+        return places;
+    }
+
+    private static int[] search(FuzzyPlaceMatcher matcher, String query, int max) {
+        int[] results = new int[max];
+        return Arrays.copyOf(results, matcher.search(query, results));
+    }
+
+    @Test
+    public void wordShorterThanTheLongestInItsSubtree() {
+        FuzzyPlaceMatcher matcher = new FuzzyPlaceMatcher(places("abcd", "abcde"));
+        assertArrayEquals(new int[] { 0 }, search(matcher, "abc", 10));
+    }
+
+    @Test
+    public void findsTypos() {
+        FuzzyPlaceMatcher matcher = new FuzzyPlaceMatcher(places("Gabinete de Est\u00e1gio", "Bar", "ISSUS"));
+        assertArrayEquals(new int[] { 0 }, search(matcher, "gabinte estagio", 10));
+        assertArrayEquals(new int[] { 2 }, search(matcher, "isus", 10));
+        assertArrayEquals(new int[] { 1 }, search(matcher, "bar", 10));
+        assertArrayEquals(new int[0], search(matcher, "bra", 10));
+    }
+
+    @Test
+    public void emptyMatcher() {
+        FuzzyPlaceMatcher matcher = new FuzzyPlaceMatcher(places());
+        assertEquals(0, matcher.search("abc", new int[10]));
+    }
+
+    @Test
+    public void matchesBruteForceLevenshtein() {
+        Random random = new Random(32);
+        for (int trial = 0; trial < 200; trial++) {
+            String[] names = new String[1 + random.nextInt(30)];
+            for (int p = 0; p < names.length; p++)
+                names[p] = words(random, 1 + random.nextInt(3));
+            FuzzyPlaceMatcher matcher = new FuzzyPlaceMatcher(places(names));
+            for (int q = 0; q < 20; q++) {
+                String query = words(random, 1 + random.nextInt(2));
+                int max = 1 + random.nextInt(names.length + 2);
+                String message = Arrays.toString(names) + " \"" + query + "\"";
+                assertEquals(message, Arrays.toString(bruteForce(names, query, max)),
+                        Arrays.toString(search(matcher, query, max)));
+            }
+        }
+    }
+
+    // words of 1 to 7 letters of a small alphabet, so that many are close
+    private static String words(Random random, int n) {
+        StringBuilder s = new StringBuilder();
+        for (int i = 0; i < n; i++) {
+            if (i > 0) s.append(' ');
+            int length = 1 + random.nextInt(7);
+            for (int c = 0; c < length; c++)
+                s.append((char) ('a' + random.nextInt(4)));
+        }
+        return s.toString();
+    }
+
+    private static int[] bruteForce(String[] names, String query, int max) {
+        String[] q = query.split(" ");
+        List<int[]> found = new ArrayList<int[]>(); // place, total distance, name length
+        for (int p = 0; p < names.length; p++) {
+            int total = 0;
+            for (String word : q) {
+                int best = Integer.MAX_VALUE;
+                for (String w : names[p].split(" "))
+                    best = Math.min(best, levenshtein(word, w));
+                if (best > FuzzyPlaceMatcher.tolerance(word.length())) {
+                    total = -1;
+                    break;
+                }
+                total += best;
+            }
+            if (total >= 0) found.add(new int[] { p, total, names[p].length() });
+        }
+        int[][] sorted = found.toArray(new int[found.size()][]);
+        Arrays.sort(sorted, new java.util.Comparator<int[]>() {
+            public int compare(int[] a, int[] b) {
+                if (a[1] != b[1]) return a[1] - b[1];
+                if (a[2] != b[2]) return a[2] - b[2];
+                return a[0] - b[0];
+            }
+        });
+        int[] results = new int[Math.min(max, sorted.length)];
+        for (int i = 0; i < results.length; i++)
+            results[i] = sorted[i][0];
+        return results;
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[][] d = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) d[i][0] = i;
+        for (int j = 0; j <= b.length(); j++) d[0][j] = j;
+        for (int i = 1; i <= a.length(); i++)
+            for (int j = 1; j <= b.length(); j++)
+                d[i][j] = Math.min(Math.min(d[i - 1][j], d[i][j - 1]) + 1,
+                        d[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1));
+        return d[a.length()][b.length()];
+    }
+}
@@ -0,0 +1,131 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class GraphBuilderTest {
+
+    @Test
+    public void keepsTheFirstOfDuplicateAndReversedEdges() {
+        GraphBuilder builder = new GraphBuilder(3, 4);
+        Edge first = new Edge(0, 1, 2, 'N');
+        assertTrue(builder.addEdge(first));
+        assertFalse(builder.addEdge(new Edge(0, 1, 5, 'N')));
+        assertFalse(builder.addEdge(new Edge(1, 0, 2, 'S')));
+        assertTrue(builder.addEdge(new Edge(2, 1, 3, 'W')));
+        assertEquals(2, builder.getE());
+        Graph G = builder.build();
+        assertEquals(2, G.getE());
+        assertSame(first, G.edge(1, 0));
+        assertEquals(2, G.degree(1));
+        assertEquals(1, G.degree(0));
+    }
+
+    @Test
+    public void selfLoops() {
+        GraphBuilder builder = new GraphBuilder(2, 2);
+        Edge loop = new Edge(1, 1, 4, 'N');
+        assertTrue(builder.addEdge(loop));
+        assertFalse(builder.addEdge(new Edge(1, 1, 1, 'S')));
+        assertTrue(builder.addEdge(new Edge(0, 1, 1, 'E')));
+        Graph G = builder.build();
+        assertEquals(2, G.getE());
+        assertEquals(3, G.degree(1));  // a self-loop is in the list of its vertex twice, as with addEdge
+        assertSame(loop, G.edge(1, 1));
+    }
+
+    @Test
+    public void beaconsListTheGraphEdgesAndDistinctNearPlaces() {
+        Beacon a = new Beacon(0, "aa:00", "A", null);
+        a.addAdj(new Edge(0, 1, 2, 'E'));
+        a.addAdjNear(new NearPlace(7, 1, 'N'));
+        a.addAdjNear(new NearPlace(7, 3, 'S'));
+        a.addAdjNear(new NearPlace(8, 2, 'S'));
+        Beacon b = new Beacon(1, "aa:01", "B", null);
+        b.addAdj(new Edge(1, 0, 2, 'W'));
+        GraphBuilder builder = new GraphBuilder(2, 2).addBeacon(a).addBeacon(b);
+        Graph G = builder.build();
+        assertEquals(1, G.getE());
+        assertEquals(1, a.getAdj().size());
+        assertSame(a.getAdj().get(0), b.getAdj().get(0));
+        assertEquals(2, a.getAdjNear().size());
+        assertEquals(1f, a.getAdjNear().get(0).getDistance(), 0);
+        assertEquals(1, G.indexOf("aa:01"));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void buildsOneGraph() {
+        GraphBuilder builder = new GraphBuilder(1, 0);
+        builder.build();
+        builder.build();
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void edgeOutsideTheGraph() {
+        new GraphBuilder(2, 1).addEdge(new Edge(0, 2, 1, 'N'));
+    }
+
+    @Test
+    public void sameGraphAsAddingTheEdgesOneByOne() {
+        Random random = new Random(11);
+        for (int t = 0; t < 20; t++) {
+            int V = 1 + random.nextInt(60);
+            // every edge listed by both its ends, in any direction, some more than once
+            long seed = random.nextLong();
+            Graph built = new Graph(beacons(new Random(seed), V));
+            Graph added = addedOneByOne(beacons(new Random(seed), V), V);
+            assertEquals(added.getV(), built.getV());
+            assertEquals(added.getE(), built.getE());
+            for (int v = 0; v < V; v++) {
+                assertEquals(edges(added.adj(v)), edges(built.adj(v)));
+                assertEquals(added.getBeacon(v).getUiniqueId(), built.getBeacon(v).getUiniqueId());
+                assertEquals(v, built.indexOf("aa:" + v));
+            }
+        }
+    }
+
+    private static List<Beacon> beacons(Random random, int V) {
+        List<Beacon> beacons = new ArrayList<Beacon>();
+        for (int v = 0; v < V; v++)
+            beacons.add(new Beacon(v, "aa:" + v, "B" + v, null));
+        for (int i = 0; i < 2 * V; i++) {
+            int v = random.nextInt(V);
+            int w = random.nextInt(V);
+            Edge e = RandomGraphs.edge(random, v, w);
+            beacons.get(v).addAdj(e);
+            beacons.get(w).addAdj(random.nextBoolean() ? e : new Edge(w, v, e.getWeight(), Compass.opposite(e.getCompass())));
+            if (random.nextInt(4) == 0) beacons.get(v).addAdj(e);
+        }
+        return beacons;
+    }
+
+    // the way Graph(List<Beacon>) built a graph before GraphBuilder
+    private static Graph addedOneByOne(List<Beacon> beacons, int V) {
+        Graph G = new Graph(V);
+        HashSet<Long> seen = new HashSet<Long>();
+        for (Beacon b : beacons)
+            G.addBeacon(b);
+        for (Beacon b : beacons) {
+            for (Edge e : b.getAdj()) {
+                int v = e.either();
+                int w = e.other(v);
+                long key = ((long) Math.min(v, w) << 32) | Math.max(v, w);
+                if (seen.add(key)) G.addEdge(e);
+            }
+        }
+        return G;
+    }
+
+    private static List<String> edges(Iterable<Edge> adj) {
+        List<String> edges = new ArrayList<String>();
+        for (Edge e : adj)
+            edges.add(e.either() + "-" + e.other(e.either()) + " " + e.getWeight() + " " + e.getCompass());
+        return edges;
+    }
+}
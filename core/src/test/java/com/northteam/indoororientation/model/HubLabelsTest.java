@@ -0,0 +1,69 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class HubLabelsTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void distancesMatchDijkstra() {
+        Random random = new Random(49);
+        Graph G = RandomGraphs.connected(random, 300, 200);
+        Graph disconnected = new Graph(G.getV() + 3);
+        for (Edge e : G.edges()) disconnected.addEdge(e);
+        disconnected.addEdge(new Edge(G.getV(), G.getV() + 1, 2, 'N'));
+        for (RouteProfile profile : new RouteProfile[] { RouteProfile.ANY, RouteProfile.STEP_FREE }) {
+            HubLabels labels = new HubLabels(disconnected, profile);
+            int[] targets = new int[disconnected.getV()];
+            for (int v = 0; v < targets.length; v++) targets[v] = v;
+            float[] distances = new float[targets.length];
+            for (int i = 0; i < 30; i++) {
+                int s = random.nextInt(disconnected.getV());
+                DijkstraSP sp = new DijkstraSP(disconnected, s, profile);
+                labels.distances(s, targets, distances);
+                for (int v = 0; v < disconnected.getV(); v++) {
+                    assertEquals(profile + " from " + s + " to " + v, sp.distTo(v), labels.distance(s, v), EPSILON);
+                    assertEquals(sp.distTo(v), distances[v], EPSILON);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void writtenLabelsAreReadBack() throws IOException {
+        Graph G = RandomGraphs.connected(new Random(490), 100, 80);
+        HubLabels labels = new HubLabels(G, RouteProfile.STEP_FREE);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        labels.write(out);
+        HubLabels read = HubLabels.read(new ByteArrayInputStream(out.toByteArray()), G, RouteProfile.STEP_FREE);
+        assertTrue(read.matches(G, RouteProfile.STEP_FREE));
+        for (int v = 0; v < G.getV(); v++) {
+            assertEquals(labels.labelSize(v), read.labelSize(v));
+            for (int w = 0; w < G.getV(); w += 7)
+                assertEquals(labels.distance(v, w), read.distance(v, w), 0);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void labelsOfOtherWeightsAreNotRead() throws IOException {
+        Graph G = RandomGraphs.connected(new Random(491), 50, 20);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new HubLabels(G).write(out);
+        Edge e = G.edges().iterator().next();
+        e.setWeight(e.getWeight() + 1);
+        HubLabels.read(new ByteArrayInputStream(out.toByteArray()), G, RouteProfile.ANY);
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void vertexOutOfRange() {
+        new HubLabels(new Graph(3)).distance(0, 3);
+    }
+}
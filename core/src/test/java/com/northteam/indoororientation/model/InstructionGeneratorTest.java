@@ -0,0 +1,46 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class InstructionGeneratorTest {
+
+    @Test
+    public void mixedCaseEdgesMakeOneLeg() {
+        Graph G = new Graph(5);
+        Edge a = new Edge(0, 1, 2, 'N');
+        Edge b = new Edge(1, 2, 3, 'n');
+        Edge c = new Edge(3, 2, 4, 's');  // walked from 2 to 3: north
+        Edge d = new Edge(3, 4, 5, 'e');
+        G.addEdge(a);
+        G.addEdge(b);
+        G.addEdge(c);
+        G.addEdge(d);
+        InstructionGenerator generator = new InstructionGenerator(G, new ArrayList<Place>());
+
+        assertEquals(2, generator.generate(0, Arrays.asList(a, b, c, d)));
+        Instruction north = generator.get(0);
+        assertEquals('N', north.getCompass());
+        assertEquals(0, north.getFrom());
+        assertEquals(3, north.getTo());
+        assertEquals(3, north.getEdges());
+        assertEquals(9f, north.getDistance(), 0);
+        assertEquals(Instruction.RIGHT, north.getTurn());
+        Instruction east = generator.get(1);
+        assertEquals('E', east.getCompass());
+        assertEquals(1, east.getEdges());
+        assertEquals(Instruction.ARRIVE, east.getTurn());
+    }
+
+    @Test
+    public void emptyRoute() {
+        InstructionGenerator generator = new InstructionGenerator(new Graph(1), new ArrayList<Place>());
+        assertEquals(0, generator.generate(0, null));
+        assertEquals(0, generator.generate(0, new ArrayList<Edge>()));
+        assertEquals(0, generator.size());
+    }
+}
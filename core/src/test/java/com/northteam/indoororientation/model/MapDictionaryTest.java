@@ -0,0 +1,75 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MapDictionaryTest {
+
+    @Test
+    public void largeAndSparsePlaceIds() {
+        List<Place> places = Arrays.asList(
+                new Place("2000000000", "Bar"),
+                new Place("7", "Biblioteca"),
+                new Place("reception", "Recep\u00e7\u00e3o"),
+                new Place("7", "Biblioteca Nova"),
+                new Place("-3", "Arquivo"));
+        Beacon a = new Beacon(0, "aa:01", "A", "Bar");
+        a.addAdjNear(new NearPlace(2000000000, 1.5f, 'N'));
+        a.addAdjNear(new NearPlace(7, 2, 'E'));
+        a.addAdj(new Edge(0, 1, 4, 'E'));
+        Beacon b = new Beacon(1, "aa:02", "B", "Biblioteca");
+        b.addAdjNear(new NearPlace(7, 3, 'S'));
+        b.addAdjNear(new NearPlace(-3, 1, 'W'));
+        b.addAdjNear(new NearPlace(Integer.MAX_VALUE, 1, 'W'));
+        MapDictionary dictionary = new MapDictionary(new Graph(Arrays.asList(a, b)), places);
+
+        assertEquals(0, dictionary.placeOf(new NearPlace(2000000000, 0, 'N')));
+        assertEquals(3, dictionary.placeOf(new NearPlace(7, 0, 'N')));
+        assertEquals(-1, dictionary.placeOf(new NearPlace(-3, 0, 'N')));
+        assertEquals(-1, dictionary.placeOf(new NearPlace(8, 0, 'N')));
+        assertEquals(2, dictionary.place("reception"));
+
+        assertEquals(1, dictionary.nearEnd(0) - dictionary.nearStart(0));
+        assertEquals(0, dictionary.nearEnd(1) - dictionary.nearStart(1));
+        assertEquals(2, dictionary.nearEnd(3) - dictionary.nearStart(3));
+        assertEquals(0, dictionary.nearVertex(dictionary.nearStart(3)));
+        assertEquals(3f, dictionary.nearDistance(dictionary.nearStart(3) + 1), 0);
+        assertEquals(1, dictionary.vertexOf("aa:02"));
+    }
+
+    @Test
+    public void placeOfTheNamePlaceOfABeacon() {
+        List<Place> places = Arrays.asList(
+                new Place("1", "Bar"),
+                new Place("2", "Biblioteca"),
+                new Place("3", "WC"),
+                new Place("4", "WC"),
+                new Place("5", null));
+        List<Beacon> beacons = Arrays.asList(
+                new Beacon(0, "aa:00", "A", "Biblioteca"),
+                new Beacon(1, "aa:01", "B", "Bar"),
+                new Beacon(2, "aa:02", "C", "WC"),
+                new Beacon(3, "aa:03", "D", "Cantina"),
+                new Beacon(4, "aa:04", "E", null),
+                new Beacon(6, "aa:06", "Bar", "Bar"));
+        MapDictionary dictionary = new MapDictionary(new Graph(beacons), places);
+
+        assertEquals(1, dictionary.placeOfBeacon(0));
+        assertEquals(0, dictionary.placeOfBeacon(1));
+        assertEquals(3, dictionary.placeOfBeacon(2));   // of places with the same name, the last
+        assertEquals(-1, dictionary.placeOfBeacon(3));  // no such place
+        assertEquals(-1, dictionary.placeOfBeacon(4));  // no namePlace
+        assertEquals(-1, dictionary.placeOfBeacon(5));  // no beacon
+        assertEquals(0, dictionary.placeOfBeacon(6));
+
+        assertEquals(0, dictionary.placeOfName(dictionary.handleOf("Bar")));
+        assertEquals(dictionary.placeName(1), dictionary.beaconPlace(0));
+        assertEquals(-1, dictionary.placeOfName(dictionary.handleOf("A")));
+        assertEquals(-1, dictionary.placeOfName(dictionary.handleOf("aa:00")));
+        assertEquals(-1, dictionary.placeOfName(-1));
+    }
+}
@@ -0,0 +1,102 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class NearestPlacesTest {
+
+    private static final int V = 60;
+    private static final int P = 40;
+
+    // a connected graph of V - 5 vertices and 5 vertices apart; every vertex has a
+    // beacon near up to 3 random places, and some places are near no beacon
+    private static MapDictionary map(Random random) {
+        Graph connected = RandomGraphs.connected(random, V - 5, 80);
+        Graph G = new Graph(V);
+        for (Edge e : connected.edges())
+            G.addEdge(e);
+        for (int v = 0; v < V; v++) {
+            Beacon b = new Beacon(v, "aa:" + v, "B" + v, null);
+            for (int i = random.nextInt(4); i > 0; i--)
+                b.addAdjNear(new NearPlace(random.nextInt(P - 5), 5 * random.nextFloat(), 'N'));
+            G.addBeacon(b);
+        }
+        List<Place> places = new ArrayList<Place>();
+        for (int p = 0; p < P; p++)
+            places.add(new Place(String.valueOf(p), "P" + p));
+        return new MapDictionary(G, places);
+    }
+
+    // the walking distance to every place, from a shortest paths tree of the whole graph
+    private static float[] bruteForce(MapDictionary dictionary, int s, RouteProfile profile) {
+        Graph G = dictionary.getGraph();
+        DijkstraSP sp = new DijkstraSP(G, s, profile);
+        float[] dist = new float[P];
+        Arrays.fill(dist, Float.POSITIVE_INFINITY);
+        for (int v = 0; v < G.getV(); v++) {
+            if (!sp.hasPathTo(v)) continue;
+            for (NearPlace np : G.getBeacon(v).getAdjNear()) {
+                int p = dictionary.placeOf(np);
+                dist[p] = Math.min(dist[p], sp.distTo(v) + np.getDistance());
+            }
+        }
+        return dist;
+    }
+
+    @Test
+    public void sameDistancesAsBruteForce() {
+        Random random = new Random(17);
+        for (int t = 0; t < 20; t++) {
+            MapDictionary dictionary = map(random);
+            NearestPlaces nearest = new NearestPlaces(dictionary);
+            RouteProfile[] profiles = {RouteProfile.ANY, RouteProfile.STEP_FREE};
+            for (RouteProfile profile : profiles) {
+                int s = random.nextInt(V);
+                float[] expected = bruteForce(dictionary, s, profile);
+                int reachable = 0;
+                for (float d : expected)
+                    if (d != Float.POSITIVE_INFINITY) reachable++;
+
+                NearestPlaces.Cursor cursor = nearest.from(s, profile);
+                boolean[] returned = new boolean[P];
+                float last = 0;
+                while (cursor.hasNext()) {
+                    int p = cursor.next();
+                    assertFalse("place " + p + " returned twice", returned[p]);
+                    returned[p] = true;
+                    assertEquals(expected[p], cursor.distance(), 1e-3);
+                    assertTrue(cursor.distance() >= last);
+                    last = cursor.distance();
+                }
+                assertEquals(reachable, cursor.count());
+            }
+        }
+    }
+
+    @Test
+    public void theFirstKPlacesAreTheKNearest() {
+        MapDictionary dictionary = map(new Random(3));
+        NearestPlaces nearest = new NearestPlaces(dictionary);
+        float[] expected = bruteForce(dictionary, 0, RouteProfile.ANY);
+        Arrays.sort(expected);
+        int[] results = new int[5];
+        float[] distances = new float[5];
+        assertEquals(5, nearest.from(0).next(results, distances, 0, 5));
+        for (int i = 0; i < 5; i++)
+            assertEquals(expected[i], distances[i], 1e-3);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void aNewCursorEndsThePreviousOne() {
+        NearestPlaces nearest = new NearestPlaces(map(new Random(4)));
+        NearestPlaces.Cursor cursor = nearest.from(0);
+        nearest.from(1);
+        cursor.hasNext();
+    }
+}
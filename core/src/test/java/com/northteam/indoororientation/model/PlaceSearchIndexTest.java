@@ -0,0 +1,83 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class PlaceSearchIndexTest {
+
+    private PlaceSearchIndex index;
+
+    @Before
+    public void places() {
+        index = new PlaceSearchIndex(Arrays.asList(
+                new Place("0", "Sal\u00e3o Nobre"),
+                new Place("1", "P\u00f3s-Gradua\u00e7\u00f5es"),
+                new Place("2", "Nobel"),
+                new Place("3", null),
+                new Place("4", "WC F"),
+                new Place("5", "Biblioteca Nova"),
+                new Place("6", "Biblioteca")));
+    }
+
+    @Test
+    public void foldsCaseAccentsAndPunctuation() {
+        assertEquals("salao nobre", new String(PlaceSearchIndex.fold("Sal\u00e3o  Nobre ")));
+        assertEquals("pos graduacoes", new String(PlaceSearchIndex.fold("P\u00f3s-Gradua\u00e7\u00f5es")));
+        assertEquals("", new String(PlaceSearchIndex.fold("--")));
+    }
+
+    @Test
+    public void namesThatStartWithTheQueryComeFirst() {
+        assertArrayEquals(new int[]{2, 0}, search("nob"));
+        assertArrayEquals(new int[]{6, 5}, search("BIBLIO"));
+        assertArrayEquals(new int[]{5}, search("biblioteca n"));
+    }
+
+    @Test
+    public void accentsAreIgnoredOnBothSides() {
+        assertArrayEquals(new int[]{1}, search("pos grad"));
+        assertArrayEquals(new int[]{1}, search("P\u00d3S"));
+        assertArrayEquals(new int[]{0}, search("salao"));
+        assertArrayEquals(new int[]{0}, search("sal\u00e3o nob"));
+    }
+
+    @Test
+    public void infixes() {
+        assertArrayEquals(new int[]{1}, search("raduac"));
+        assertArrayEquals(new int[]{0}, search("obre"));
+        assertArrayEquals(new int[0], search("xyz"));
+    }
+
+    @Test
+    public void unnamedPlacesAreNeverFound() {
+        assertEquals(7, index.size());
+        assertArrayEquals(new int[0], search("null"));
+        assertArrayEquals(new int[0], search(" - "));
+    }
+
+    @Test
+    public void resultsAreCutToTheBuffer() {
+        int[] results = new int[1];
+        assertEquals(1, index.search("b", results));
+        assertEquals(6, results[0]);
+        assertEquals("Biblioteca", index.getPlace(results[0]).getName());
+    }
+
+    @Test
+    public void searchersOfOneIndexAreIndependent() {
+        PlaceSearchIndex.Searcher other = index.newSearcher();
+        int[] results = new int[8];
+        int n = other.search("nob", results);
+        assertArrayEquals(new int[]{2, 0}, Arrays.copyOf(results, n));
+        assertArrayEquals(new int[]{6, 5}, search("bib"));
+    }
+
+    private int[] search(String text) {
+        int[] results = new int[8];
+        return Arrays.copyOf(results, index.search(text, results));
+    }
+}
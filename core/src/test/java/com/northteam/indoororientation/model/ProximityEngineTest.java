@@ -0,0 +1,123 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProximityEngineTest {
+
+    // with the default model, 2 m is entered above -65.0 dBm and left below -68.5 dBm (3 m)
+    private static final float PROXIMITY = 2;
+
+    private static class Events implements ProximityListener {
+        final List<String> events = new ArrayList<String>();
+
+        @Override
+        public void onEnter(int place, int vertex, long timeMillis) {
+            events.add("enter " + place + " from " + vertex + " at " + timeMillis);
+        }
+
+        @Override
+        public void onExit(int place, int vertex, long timeMillis) {
+            events.add("exit " + place + " from " + vertex + " at " + timeMillis);
+        }
+    }
+
+    // beacons 0 and 1 both near place 7, beacon 1 also near place 9
+    private static Graph map() {
+        Beacon a = new Beacon(0, "aa:00", "A", null);
+        a.addAdjNear(new NearPlace(7, PROXIMITY, 'N'));
+        Beacon b = new Beacon(1, "aa:01", "B", null);
+        b.addAdjNear(new NearPlace(7, PROXIMITY, 'S'));
+        b.addAdjNear(new NearPlace(9, 1, 'E'));
+        b.addAdjNear(new NearPlace(-1, 1, 'E'));  // no place
+        return new Graph(Arrays.asList(a, b));
+    }
+
+    @Test
+    public void hysteresis() {
+        ProximityEngine engine = new ProximityEngine(map());
+        Events listener = new Events();
+        engine.setListener(listener);
+        float[] rssi = {-70, -64, -66, -68, -66, -69, -67, -66, -65};
+        for (int t = 0; t < rssi.length; t++)
+            engine.update(0, rssi[t], t);
+        assertEquals(Arrays.asList("enter 7 from 0 at 1", "exit 7 from 0 at 5", "enter 7 from 0 at 8"),
+                listener.events);
+        assertTrue(engine.isInside(7));
+        assertFalse(engine.isInside(9));
+        assertFalse(engine.isInside(8));
+    }
+
+    @Test
+    public void smoothedReadings() {
+        ProximityEngine engine = new ProximityEngine(map());
+        Events listener = new Events();
+        engine.setListener(listener);
+        RssiFilter filter = new RssiFilter(2);
+        // a spike does not enter the place and a dip does not leave it, once smoothed
+        int[] rssi = {-75, -50, -75, -60, -60, -72, -60, -80, -80, -80};
+        for (int t = 0; t < rssi.length; t++)
+            engine.update(0, filter.update(0, rssi[t], t), t);
+        assertEquals(Arrays.asList("enter 7 from 0 at 4", "exit 7 from 0 at 7"), listener.events);
+
+        // the same readings without smoothing
+        listener.events.clear();
+        ProximityEngine raw = new ProximityEngine(map());
+        raw.setListener(listener);
+        for (int t = 0; t < rssi.length; t++)
+            raw.update(0, rssi[t], t);
+        assertEquals(Arrays.asList("enter 7 from 0 at 1", "exit 7 from 0 at 2", "enter 7 from 0 at 3",
+                "exit 7 from 0 at 5", "enter 7 from 0 at 6", "exit 7 from 0 at 7"), listener.events);
+    }
+
+    @Test
+    public void aPlaceIsLeftWhenEveryBeaconLeavesIt() {
+        ProximityEngine engine = new ProximityEngine(map());
+        Events listener = new Events();
+        engine.setListener(listener);
+        engine.update(0, -60, 0);
+        engine.update(1, -55, 1);
+        engine.update(0, -80, 2);
+        assertTrue(engine.isInside(7));
+        engine.update(1, -80, 3);
+        assertEquals(Arrays.asList("enter 7 from 0 at 0", "enter 9 from 1 at 1", "exit 7 from 1 at 3",
+                "exit 9 from 1 at 3"), listener.events);
+        assertFalse(engine.isInside(7));
+        assertEquals(3, engine.getTriggerCount());  // not the near place without a place
+    }
+
+    @Test
+    public void silentBeaconsExpire() {
+        ProximityEngine engine = new ProximityEngine(map());
+        Events listener = new Events();
+        engine.setListener(listener);
+        engine.update(0, -60, 0);
+        engine.update(1, -55, 1000);
+        engine.expire(3000, 2500);
+        assertTrue(engine.isInside(7));
+        engine.update(1, -55, 3000);
+        engine.expire(4000, 2500);
+        assertEquals(Arrays.asList("enter 7 from 0 at 0", "enter 9 from 1 at 1000"), listener.events);
+        engine.expire(6000, 2500);
+        assertFalse(engine.isInside(7));
+        assertFalse(engine.isInside(9));
+        assertEquals(4, listener.events.size());
+    }
+
+    @Test
+    public void placesOfADictionaryArePositions() {
+        List<Place> places = Arrays.asList(new Place("9", "Bar"), new Place("7", "Biblioteca"));
+        ProximityEngine engine = new ProximityEngine(new MapDictionary(map(), places));
+        Events listener = new Events();
+        engine.setListener(listener);
+        engine.update(1, -55, 0);
+        assertEquals(Arrays.asList("enter 1 from 1 at 0", "enter 0 from 1 at 0"), listener.events);
+        assertTrue(engine.isInside(0));
+        assertTrue(engine.isInside(1));
+    }
+}
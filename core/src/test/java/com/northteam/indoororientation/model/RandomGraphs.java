@@ -0,0 +1,31 @@
+package com.northteam.indoororientation.model;
+
+import java.util.Random;
+
+/**
+ * Random graphs for the tests of the searches.
+ */
+final class RandomGraphs {
+
+    private static final char[] COMPASS = { 'N', 'E', 'S', 'W' };
+
+    private RandomGraphs() { }
+
+    /**
+     * A connected graph: a random spanning tree with <tt>extra</tt> more random
+     * edges, weights between 1 and 10 and some edges with attributes.
+     */
+    static Graph connected(Random random, int V, int extra) {
+        Graph G = new Graph(V);
+        for (int v = 1; v < V; v++)
+            G.addEdge(edge(random, random.nextInt(v), v));
+        for (int i = 0; i < extra; i++)
+            G.addEdge(edge(random, random.nextInt(V), random.nextInt(V)));
+        return G;
+    }
+
+    static Edge edge(Random random, int v, int w) {
+        int attributes = random.nextInt(4) == 0 ? Edge.STAIRS : 0;
+        return new Edge(v, w, 1 + 9 * random.nextFloat(), COMPASS[random.nextInt(4)], attributes);
+    }
+}
@@ -0,0 +1,108 @@
+package com.northteam.indoororientation.model;
+
+import com.northteam.indoororientation.metrics.Counter;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RouterTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void repairedTreesMatchFreshDijkstra() {
+        Random random = new Random(41);
+        Graph G = RandomGraphs.connected(random, 300, 300);
+        List<Edge> edges = edges(G);
+        Counter misses = MetricsRegistry.getDefault().counter("route.cache.miss");
+        long computed = misses.get();
+        Router router = new Router(G).listen();
+        try {
+            int to = random.nextInt(G.getV());
+            for (int batch = 0; batch < 300; batch++) {
+                if (batch % 50 == 0) to = random.nextInt(G.getV());
+                router.route(random.nextInt(G.getV()), to);
+                G.updateWeights(randomBatch(random, edges));
+                int from = random.nextInt(G.getV());
+                assertEquals("batch " + batch, new DijkstraSP(G, to).distTo(from), length(router.route(from, to)), EPSILON);
+            }
+            // a tree per destination, repaired after every batch
+            assertTrue(misses.get() - computed <= 6);
+        } finally {
+            router.close();
+        }
+    }
+
+    @Test
+    public void routerThatDoesNotListenComputesANewTree() {
+        Random random = new Random(410);
+        Graph G = RandomGraphs.connected(random, 100, 100);
+        List<Edge> edges = edges(G);
+        Router router = new Router(G);
+        for (int batch = 0; batch < 100; batch++) {
+            router.route(0, 1);
+            G.updateWeights(randomBatch(random, edges));
+            int from = random.nextInt(G.getV());
+            assertEquals(new DijkstraSP(G, 1).distTo(from), length(router.route(from, 1)), EPSILON);
+        }
+    }
+
+    @Test
+    public void updatesFromAnotherThreadAreNotRepaired() throws InterruptedException {
+        Random random = new Random(411);
+        final Graph G = RandomGraphs.connected(random, 100, 100);
+        final List<Edge> edges = edges(G);
+        Router router = new Router(G).listen();
+        try {
+            for (int batch = 0; batch < 20; batch++) {
+                router.route(0, 1);
+                final WeightBatch changes = randomBatch(random, edges);
+                Thread t = new Thread() {
+                    @Override
+                    public void run() {
+                        G.updateWeights(changes);
+                    }
+                };
+                t.start();
+                t.join();
+                int from = random.nextInt(G.getV());
+                assertEquals(new DijkstraSP(G, 1).distTo(from), length(router.route(from, 1)), EPSILON);
+            }
+        } finally {
+            router.close();
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void frozenGraphCanNotBeListenedTo() {
+        new Router(new Graph(2).freeze()).listen();
+    }
+
+    private static List<Edge> edges(Graph G) {
+        List<Edge> edges = new ArrayList<Edge>();
+        for (Edge e : G.edges()) edges.add(e);
+        return edges;
+    }
+
+    // some edges made heavier and some lighter
+    private static WeightBatch randomBatch(Random random, List<Edge> edges) {
+        WeightBatch changes = new WeightBatch();
+        int n = 1 + random.nextInt(10);
+        for (int i = 0; i < n; i++)
+            changes.set(edges.get(random.nextInt(edges.size())), 0.5f + 15 * random.nextFloat());
+        return changes;
+    }
+
+    private static float length(Iterable<Edge> route) {
+        if (route == null) return Float.POSITIVE_INFINITY;
+        float total = 0;
+        for (Edge e : route) total += e.getWeight();
+        return total;
+    }
+}
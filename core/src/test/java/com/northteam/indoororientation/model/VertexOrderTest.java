@@ -0,0 +1,70 @@
+package com.northteam.indoororientation.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class VertexOrderTest {
+
+    private static final float EPSILON = 1e-3f;
+
+    @Test
+    public void renumberedGraphHasTheSameDistances() {
+        Random random = new Random(48);
+        for (int trial = 0; trial < 20; trial++) {
+            Graph G = RandomGraphs.connected(random, 20 + random.nextInt(100), 50);
+            // parallel edges, the second lighter than the first half of the time, and self loops
+            for (int i = 0; i < 30; i++) {
+                Edge e = G.adj(random.nextInt(G.getV())).iterator().next();
+                G.addEdge(RandomGraphs.edge(random, e.w, e.v));
+            }
+            for (int i = 0; i < 5; i++) {
+                int v = random.nextInt(G.getV());
+                G.addEdge(RandomGraphs.edge(random, v, v));
+            }
+            VertexOrder order = trial % 2 == 0 ? VertexOrder.breadthFirst(G) : VertexOrder.reverseCuthillMcKee(G);
+            Graph renumbered = order.apply(G);
+            assertEquals(G.getE(), renumbered.getE());
+            for (int v = 0; v < G.getV(); v++)
+                assertEquals(G.degree(order.toOriginal(v)), renumbered.degree(v));
+            for (int i = 0; i < 5; i++) {
+                int s = random.nextInt(G.getV());
+                DijkstraSP before = new DijkstraSP(G, s);
+                DijkstraSP after = new DijkstraSP(renumbered, order.fromOriginal(s));
+                for (int v = 0; v < G.getV(); v++)
+                    assertEquals(before.distTo(v), after.distTo(order.fromOriginal(v)), EPSILON);
+            }
+        }
+    }
+
+    @Test
+    public void keepsTheLighterOfTwoParallelEdges() {
+        Graph G = new Graph(3);
+        G.addEdge(new Edge(0, 1, 5, 'N'));
+        G.addEdge(new Edge(1, 2, 5, 'N'));
+        G.addEdge(new Edge(1, 0, 1, 'S'));
+        Graph renumbered = VertexOrder.breadthFirst(G).apply(G);
+        VertexOrder order = renumbered.getVertexOrder();
+        assertEquals(1f, new DijkstraSP(renumbered, order.fromOriginal(0)).distTo(order.fromOriginal(1)), 0);
+    }
+
+    @Test
+    public void orderIsAPermutation() {
+        Graph G = RandomGraphs.connected(new Random(480), 200, 100);
+        VertexOrder order = VertexOrder.reverseCuthillMcKee(G);
+        boolean[] seen = new boolean[G.getV()];
+        for (int v = 0; v < G.getV(); v++) {
+            int original = order.toOriginal(v);
+            assertFalse(seen[original]);
+            seen[original] = true;
+            assertEquals(v, order.fromOriginal(original));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void orderOfAnotherGraph() {
+        VertexOrder.breadthFirst(new Graph(3)).apply(new Graph(4));
+    }
+}
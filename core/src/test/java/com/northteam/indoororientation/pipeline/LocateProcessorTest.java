@@ -0,0 +1,58 @@
+package com.northteam.indoororientation.pipeline;
+
+import com.northteam.indoororientation.model.Edge;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.Locator;
+import com.northteam.indoororientation.sensor.DeadReckoning;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LocateProcessorTest {
+
+    private static final float NORTH = 0;
+
+    private Graph G;
+    private long time;
+
+    // a corridor 0 - 1 - 2 going north, 2 m between beacons
+    @Before
+    public void corridor() {
+        G = new Graph(3);
+        G.addEdge(new Edge(0, 1, 2, 'N'));
+        G.addEdge(new Edge(1, 2, 2, 'N'));
+    }
+
+    @Test
+    public void stepsMoveThePositionBetweenFixes() {
+        LocateProcessor locate = new LocateProcessor(new Locator(), new DeadReckoning(G));
+        assertNull(step(locate));  // nowhere yet
+        assertEquals(0, reading(locate, 0, -60).getVertex());
+        assertNull(step(locate));
+        assertEquals(1, step(locate).getVertex());
+        assertNull(step(locate));
+        assertNull(reading(locate, 0, -62));  // the beacon behind, still heard: no jump back
+        assertEquals(2, reading(locate, 2, -50).getVertex());
+        assertNull(step(locate));             // no edge ahead
+    }
+
+    @Test
+    public void locatorTakesOverWhenTheEstimateDrifted() {
+        LocateProcessor locate = new LocateProcessor(new Locator(), new DeadReckoning(G, 0.7f, 45, 2));
+        reading(locate, 0, -60);
+        step(locate);
+        assertEquals(1, step(locate).getVertex());
+        assertEquals(0, step(locate).getVertex());  // 2.1 m since the fix
+        assertNull(step(locate));
+    }
+
+    private Position reading(LocateProcessor locate, int v, float rssi) {
+        return locate.process(new FilteredReading(v, rssi, time += 100, System.nanoTime()));
+    }
+
+    private Position step(LocateProcessor locate) {
+        return locate.process(FilteredReading.step(ScanReading.step(NORTH, time += 500)));
+    }
+}
@@ -0,0 +1,63 @@
+package com.northteam.indoororientation.pipeline;
+
+import com.northteam.indoororientation.memory.MemoryBudget;
+import com.northteam.indoororientation.model.Beacon;
+import com.northteam.indoororientation.model.Edge;
+import com.northteam.indoororientation.model.Graph;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class PositioningPipelineTest {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable r) {
+            r.run();
+        }
+    };
+
+    @Test
+    public void routerCacheIsReleasedUnderPressure() throws InterruptedException {
+        Beacon a = new Beacon(0, "aa:00", "A", null);
+        a.addAdj(new Edge(0, 1, 2, 'N'));
+        Beacon b = new Beacon(1, "aa:01", "B", null);
+        b.addAdj(new Edge(1, 2, 2, 'N'));
+        Graph G = new Graph(Arrays.asList(a, b, new Beacon(2, "aa:02", "C", null)));
+        final BlockingQueue<RouteUpdate> routes = new LinkedBlockingQueue<RouteUpdate>();
+        PositioningPipeline pipeline = new PositioningPipeline(G, DIRECT, new RouteListener() {
+            @Override
+            public void onRoute(RouteUpdate update) {
+                routes.add(update);
+            }
+        });
+        MemoryBudget budget = new MemoryBudget(Long.MAX_VALUE);
+        try {
+            pipeline.accountMemory(budget);
+            pipeline.setDestination(2);
+            pipeline.onScan(new ScanReading("aa:00", -60, 1000));
+            RouteUpdate update = routes.poll(5, TimeUnit.SECONDS);
+            assertNotNull(update);
+            assertEquals(0, update.getVertex());
+            long cached = budget.report().getBytes(PositioningPipeline.ROUTER_CACHE);
+            assertTrue(cached > 0);
+
+            assertEquals(cached, budget.trimTo(0).getReleased());
+            // cleared on the route thread
+            long deadline = System.currentTimeMillis() + 5000;
+            while (budget.report().getBytes(PositioningPipeline.ROUTER_CACHE) > 0 && System.currentTimeMillis() < deadline)
+                Thread.sleep(10);
+            assertEquals(0, budget.report().getBytes(PositioningPipeline.ROUTER_CACHE));
+        } finally {
+            pipeline.shutdown();
+        }
+        assertEquals(0, budget.report().size());
+    }
+}
@@ -0,0 +1,149 @@
+package com.northteam.indoororientation.pipeline;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.*;
+
+public class SpscRingQueueTest {
+
+    @Test
+    public void emptyQueue() {
+        SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(4, Backpressure.DROP_OLDEST);
+        assertNull(q.poll());
+        assertTrue(q.isEmpty());
+        assertEquals(0, q.size());
+        q.offer(1);
+        assertEquals(1, (int) q.poll());
+        assertNull(q.poll());
+        assertTrue(q.isEmpty());
+    }
+
+    @Test
+    public void capacityIsRoundedUpToAPowerOfTwo() {
+        assertEquals(1, new SpscRingQueue<Integer>(1, Backpressure.DROP_OLDEST).capacity());
+        assertEquals(8, new SpscRingQueue<Integer>(5, Backpressure.DROP_OLDEST).capacity());
+        assertEquals(8, new SpscRingQueue<Integer>(8, Backpressure.DROP_OLDEST).capacity());
+    }
+
+    @Test
+    public void wrapsAround() {
+        SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(4, Backpressure.DROP_OLDEST);
+        int next = 0;
+        int expected = 0;
+        for (int round = 0; round < 100; round++) {
+            for (int i = 0; i < 3; i++) assertTrue(q.offer(next++));
+            assertEquals(3, q.size());
+            for (int i = 0; i < 3; i++) assertEquals(expected++, (int) q.poll());
+        }
+        assertEquals(0, q.getDropped());
+    }
+
+    @Test
+    public void fullQueueDropsTheOldest() {
+        SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(4, Backpressure.DROP_OLDEST);
+        for (int i = 0; i < 4; i++) assertTrue(q.offer(i));
+        assertEquals(4, q.size());
+        assertFalse(q.offer(4));
+        assertFalse(q.offer(5));
+        assertEquals(4, q.size());
+        assertEquals(2, q.getDropped());
+        for (int i = 2; i < 6; i++) assertEquals(i, (int) q.poll());
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void coalescesWhatIsWaiting() {
+        SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(8, Backpressure.COALESCE,
+                new SpscRingQueue.Coalescer<Integer>() {
+                    @Override
+                    public Integer merge(Integer older, Integer newer) {
+                        return older + newer;
+                    }
+                });
+        for (int i = 1; i <= 4; i++) q.offer(i);
+        assertEquals(10, (int) q.poll());
+        assertEquals(3, q.getDropped());
+        assertNull(q.poll());
+    }
+
+    @Test
+    public void coalescingKeepsTheNewestByDefault() {
+        SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(8, Backpressure.COALESCE);
+        for (int i = 1; i <= 4; i++) q.offer(i);
+        assertEquals(4, (int) q.poll());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullItem() {
+        new SpscRingQueue<Integer>(4, Backpressure.DROP_OLDEST).offer(null);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void noCapacity() {
+        new SpscRingQueue<Integer>(0, Backpressure.DROP_OLDEST);
+    }
+
+    // a producer that waits for room hands over every item, once and in order
+    @Test
+    public void producerAndConsumerThreads() throws InterruptedException {
+        final int n = 200000;
+        final SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(64, Backpressure.DROP_OLDEST);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (int i = 0; i < n; i++) {
+                    while (q.size() >= q.capacity()) Thread.yield();
+                    q.offer(i);
+                }
+            }
+        });
+        producer.start();
+        int expected = 0;
+        while (expected < n) {
+            Integer item = q.poll();
+            if (item == null) {
+                Thread.yield();  // also on a single core
+                continue;
+            }
+            assertEquals(expected++, (int) item);
+        }
+        producer.join();
+        assertNull(q.poll());
+        assertEquals(0, q.getDropped());
+    }
+
+    // a producer that never waits: the items dropped are counted, the rest arrive once and in order
+    @Test
+    public void producerOutrunsTheConsumer() throws InterruptedException {
+        final int n = 200000;
+        final SpscRingQueue<Integer> q = new SpscRingQueue<Integer>(8, Backpressure.DROP_OLDEST);
+        final AtomicReference<Integer> notFit = new AtomicReference<Integer>(0);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                int drops = 0;
+                for (int i = 0; i < n; i++)
+                    if (!q.offer(i)) drops++;
+                notFit.set(drops);
+            }
+        });
+        producer.start();
+        int received = 0;
+        int last = -1;
+        while (producer.isAlive() || !q.isEmpty()) {
+            Integer item = q.poll();
+            if (item == null) {
+                Thread.yield();
+                continue;
+            }
+            assertTrue(item + " after " + last, item > last);
+            last = item;
+            received++;
+        }
+        producer.join();
+        assertEquals(n, received + q.getDropped());
+        assertEquals((long) notFit.get(), q.getDropped());
+    }
+}
@@ -0,0 +1,120 @@
+package com.northteam.indoororientation.sensor;
+
+import com.northteam.indoororientation.model.Edge;
+import com.northteam.indoororientation.model.Graph;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class DeadReckoningTest {
+
+    private static final float NORTH = 0;
+    private static final float EAST = 90;
+    private static final float SOUTH = 180;
+
+    private Graph G;
+
+    /*
+     *  2
+     *  |  2 m
+     *  1 - 3   1.4 m
+     *  |  2 m
+     *  0
+     */
+    @Before
+    public void corridor() {
+        G = new Graph(4);
+        G.addEdge(new Edge(0, 1, 2, 'N'));
+        G.addEdge(new Edge(1, 2, 2, 'N'));
+        G.addEdge(new Edge(3, 1, 1.4f, 'W'));
+    }
+
+    @Test
+    public void stepsFollowTheEdges() {
+        DeadReckoning dr = new DeadReckoning(G);
+        dr.onFix(0);
+        assertEquals(0, dr.onStep(NORTH));
+        assertEquals(1, dr.onStep(NORTH));   // past half of the edge
+        assertEquals(0, dr.getAnchor());
+        assertEquals(1, dr.onStep(NORTH));   // arrived
+        assertEquals(1, dr.getAnchor());
+        assertNull(dr.getEdge());
+        assertEquals(1, dr.getPredictedArrivals());
+        dr.onStep(EAST + 20);                // within the tolerance of the corridor to 3
+        assertEquals(3, dr.onStep(EAST));
+        assertEquals(3, dr.getAnchor());
+        assertEquals(2, dr.getPredictedArrivals());
+        assertEquals(5 * DeadReckoning.DEFAULT_STEP_LENGTH, dr.getDistanceSinceFix(), 1e-4);
+        assertTrue(dr.isTracking());
+    }
+
+    @Test
+    public void fixCorrectsTheEstimate() {
+        DeadReckoning dr = new DeadReckoning(G);
+        dr.onFix(0);
+        for (int i = 0; i < 3; i++) dr.onStep(EAST);  // no corridor that way
+        assertEquals(0, dr.getVertex());
+        for (int i = 0; i < 4; i++) dr.onStep(NORTH);
+        assertEquals(1, dr.getAnchor());
+        dr.onFix(2);
+        assertEquals(2, dr.getVertex());
+        assertEquals(0, dr.getDistanceSinceFix(), 0);
+        assertEquals(0, dr.getPredictedArrivals());
+        assertNull(dr.getEdge());
+    }
+
+    @Test
+    public void fixOfTheBeaconLeftBehindHoldsTheUserBack() {
+        DeadReckoning dr = new DeadReckoning(G);
+        dr.onFix(0);
+        dr.onStep(NORTH);
+        dr.onStep(NORTH);
+        assertEquals(1, dr.getVertex());
+        dr.onFix(0);  // still hearing beacon 0
+        assertEquals(0, dr.getVertex());
+        assertEquals(1, dr.getProgress(), 1e-4);
+    }
+
+    @Test
+    public void walkingBackUndoesProgress() {
+        DeadReckoning dr = new DeadReckoning(G);
+        dr.onFix(0);
+        dr.onStep(NORTH);
+        dr.onStep(NORTH);
+        dr.onStep(SOUTH);
+        assertEquals(0.7f, dr.getProgress(), 1e-4);
+        dr.onStep(SOUTH);
+        assertNull(dr.getEdge());
+        assertEquals(0, dr.getVertex());
+    }
+
+    @Test
+    public void notTrustedFarFromTheLastFix() {
+        DeadReckoning dr = new DeadReckoning(G, 0.7f, 45, 2);
+        assertFalse(dr.isTracking());
+        assertEquals(-1, dr.onStep(NORTH));
+        dr.onFix(0);
+        dr.onStep(NORTH);
+        dr.onStep(NORTH);
+        assertTrue(dr.isTracking());
+        dr.onStep(NORTH);
+        assertFalse(dr.isTracking());
+    }
+
+    @Test
+    public void northOffset() {
+        DeadReckoning dr = new DeadReckoning(G);
+        dr.setNorthOffset(90);  // the map's north is the magnetic east
+        dr.onFix(0);
+        dr.onStep(EAST);
+        dr.onStep(EAST);
+        assertEquals(1, dr.getVertex());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void toleranceOutOfRange() {
+        new DeadReckoning(G, 0.7f, 90, 30);
+    }
+}
@@ -0,0 +1,45 @@
+package com.northteam.indoororientation.sensor;
+
+import com.northteam.indoororientation.model.Edge;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.util.VirtualClock;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+public class ScanSchedulerTest {
+
+    @Test
+    public void mixedCaseEdgesAreNotATurn() {
+        Graph G = new Graph(4);
+        Edge a = new Edge(0, 1, 2, 'N');
+        Edge b = new Edge(1, 2, 3, 'n');
+        Edge c = new Edge(2, 3, 4, 'e');
+        G.addEdge(a);
+        G.addEdge(b);
+        G.addEdge(c);
+        ScanScheduler scheduler = new ScanScheduler(G, ScanPolicy.CONTINUOUS, new VirtualClock(0));
+        assertEquals(Float.POSITIVE_INFINITY, scheduler.getMetresToDecision(), 0);
+        scheduler.setRoute(0, Arrays.asList(a, b, c));
+        scheduler.onPosition(0);
+        assertEquals(5f, scheduler.getMetresToDecision(), 0);
+        scheduler.onPosition(2);
+        assertEquals(0f, scheduler.getMetresToDecision(), 0);
+    }
+
+    @Test
+    public void stepsKeepTheUserWalking() {
+        VirtualClock clock = new VirtualClock(0);
+        ScanScheduler scheduler = new ScanScheduler(new Graph(1), ScanPolicy.CONTINUOUS, clock);
+        clock.advanceTo(ScanScheduler.STILL_AFTER_MILLIS);
+        assertFalse(scheduler.isWalking());
+        scheduler.onStep();
+        clock.advanceBy(ScanScheduler.STILL_AFTER_MILLIS - 1);
+        assertTrue(scheduler.isWalking());
+        clock.advanceBy(1);
+        assertFalse(scheduler.isWalking());
+    }
+}
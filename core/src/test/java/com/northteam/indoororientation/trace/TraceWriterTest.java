@@ -0,0 +1,149 @@
+package com.northteam.indoororientation.trace;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class TraceWriterTest {
+
+    private File file;
+
+    @Before
+    public void createFile() throws IOException {
+        file = File.createTempFile("trace", ".bin");
+    }
+
+    @After
+    public void deleteFile() {
+        file.delete();
+    }
+
+    @Test
+    public void readsBackWhatWasWritten() throws IOException {
+        String[] ids = { "aa:00", "aa:01", "Recep\u00e7\u00e3o \u2192 1", "aa:03" };
+        Random random = new Random(26);
+        int n = 3 * TraceFormat.BUFFER_BYTES / TraceFormat.SAMPLE_BYTES;  // flushed twice on the way
+        long[] times = new long[n];
+        int[] beacons = new int[n];
+        int[] rssis = new int[n];
+        long time = 1000;
+        TraceWriter writer = new TraceWriter(file, time);
+        try {
+            for (int i = 0; i < n; i++) {
+                if (i == 10) time += Integer.MAX_VALUE;  // the largest gap
+                else if (i == 11) time += 1L << 30;
+                else time += random.nextInt(3);        // readings of the same scan too
+                times[i] = time;
+                beacons[i] = random.nextInt(ids.length);
+                rssis[i] = -100 + random.nextInt(80);
+                writer.record(time, ids[beacons[i]], rssis[i]);
+            }
+        } finally {
+            writer.close();
+        }
+        assertEquals(n, writer.getSamples());
+
+        TraceReader reader = new TraceReader(file);
+        try {
+            assertEquals(1000, reader.getStartTimeMillis());
+            for (int i = 0; i < n; i++) {
+                assertTrue(reader.next());
+                assertEquals(times[i], reader.getTimeMillis());
+                assertEquals(ids[beacons[i]], reader.getUniqueId());
+                assertEquals(rssis[i], reader.getRssi());
+            }
+            assertFalse(reader.next());
+            assertEquals(ids.length, reader.getBeaconCount());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void rssiIsClampedToAByte() throws IOException {
+        TraceWriter writer = new TraceWriter(file, 0);
+        writer.record(0, "aa:00", -300);
+        writer.record(1, "aa:00", 300);
+        writer.record(2, "aa:00", -128);
+        writer.close();
+        TraceReader reader = new TraceReader(file);
+        try {
+            int[] rssis = new int[3];
+            for (int i = 0; i < 3; i++) {
+                assertTrue(reader.next());
+                rssis[i] = reader.getRssi();
+            }
+            assertArrayEquals(new int[] { -128, 127, -128 }, rssis);
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void longestIdFitsTheBuffer() throws IOException {
+        char[] id = new char[TraceFormat.MAX_ID_BYTES];
+        Arrays.fill(id, 'x');
+        TraceWriter writer = new TraceWriter(file, 0);
+        writer.record(0, "aa:00", -60);   // so that the beacon record does not fit behind it
+        writer.record(1, new String(id), -70);
+        writer.record(2, "aa:00", -61);
+        writer.close();
+        TraceReader reader = new TraceReader(file);
+        try {
+            assertTrue(reader.next());
+            assertTrue(reader.next());
+            assertEquals(new String(id), reader.getUniqueId());
+            assertTrue(reader.next());
+            assertEquals("aa:00", reader.getUniqueId());
+            assertFalse(reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test
+    public void tooLongIdIsRejected() throws IOException {
+        char[] id = new char[TraceFormat.MAX_ID_BYTES / 2 + 1];
+        Arrays.fill(id, '\u00e9');  // two bytes in UTF-8
+        TraceWriter writer = new TraceWriter(file, 0);
+        try {
+            writer.record(0, new String(id), -60);
+            fail();
+        } catch (IllegalArgumentException e) {
+            // nothing written; the trace goes on
+        }
+        writer.record(1, "aa:00", -60);
+        writer.close();
+        TraceReader reader = new TraceReader(file);
+        try {
+            assertTrue(reader.next());
+            assertEquals("aa:00", reader.getUniqueId());
+            assertEquals(0, reader.getIndex());
+            assertFalse(reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readingsOutOfOrder() throws IOException {
+        TraceWriter writer = new TraceWriter(file, 100);
+        try {
+            writer.record(99, "aa:00", -60);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void notATrace() throws IOException {
+        new TraceReader(file);
+    }
+}
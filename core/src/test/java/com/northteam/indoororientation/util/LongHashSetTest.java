@@ -0,0 +1,62 @@
+package com.northteam.indoororientation.util;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class LongHashSetTest {
+
+    @Test
+    public void addAndContains() {
+        LongHashSet set = new LongHashSet(4);
+        assertTrue(set.add(42));
+        assertFalse(set.add(42));
+        assertTrue(set.contains(42));
+        assertFalse(set.contains(43));
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    public void zeroAndNegativeKeys() {
+        LongHashSet set = new LongHashSet(4);
+        assertFalse(set.contains(0));
+        assertTrue(set.add(0));
+        assertFalse(set.add(0));
+        assertTrue(set.add(-1));
+        assertTrue(set.add(Long.MIN_VALUE));
+        assertTrue(set.contains(0));
+        assertTrue(set.contains(-1));
+        assertTrue(set.contains(Long.MIN_VALUE));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    public void packKeepsTheOrderOfThePair() {
+        assertNotEquals(LongHashSet.pack(1, 2), LongHashSet.pack(2, 1));
+        assertNotEquals(LongHashSet.pack(0, -1), LongHashSet.pack(-1, 0));
+        assertEquals(0L, LongHashSet.pack(0, 0));
+        assertEquals(0xffffffffL, LongHashSet.pack(0, -1));
+    }
+
+    @Test
+    public void growsPastItsLoadFactor() {
+        Random random = new Random(5);
+        LongHashSet set = new LongHashSet(2);
+        HashSet<Long> expected = new HashSet<Long>();
+        for (int i = 0; i < 100000; i++) {
+            // packed pairs of small ids, as for the edges of a map, collide a lot
+            long key = random.nextInt(3) == 0 ? random.nextLong() : LongHashSet.pack(random.nextInt(300), random.nextInt(300));
+            assertEquals(expected.add(key), set.add(key));
+        }
+        assertEquals(expected.size(), set.size());
+        for (long key : expected)
+            assertTrue(set.contains(key));
+        for (int i = 0; i < 1000; i++) {
+            long key = LongHashSet.pack(300 + random.nextInt(300), random.nextInt(300));
+            assertEquals(expected.contains(key), set.contains(key));
+        }
+    }
+}
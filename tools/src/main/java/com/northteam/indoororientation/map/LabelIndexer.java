@@ -0,0 +1,96 @@
+package com.northteam.indoororientation.map;
+
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.HubLabels;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Computes the {@link HubLabels} of a map offline and writes them next to the
+ * beacons file, where {@link FileMapLoader#loadLabels} finds them.
+ * <pre>
+ * java com.northteam.indoororientation.map.LabelIndexer beacons.xml places.xml [reorder]
+ * </pre>
+ * The labels are for the vertices as the loader numbers them, so <tt>reorder</tt>
+ * must be given as it is to the {@link FileMapLoader} that reads them.
+ * <p>
+ * The labels are only built offline for now: neither the app nor the
+ * <tt>RoutingServer</tt> reads them, and the distances they serve are computed
+ * by searching the graph. The indexer reads the file back with
+ * {@link FileMapLoader#loadLabels} and checks it against the labels it computed
+ * before timing distance queries on it.
+ */
+public class LabelIndexer {
+
+    private static final int QUERIES = 1000000;
+
+    public static void main(String[] args) throws IOException, XmlPullParserException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("usage: LabelIndexer <beacons.xml> <places.xml> [reorder]");
+            System.exit(2);
+        }
+        FileMapLoader loader = new FileMapLoader(new File(args[0]), new File(args[1]));
+        loader.setReorder(args.length > 2 && Boolean.parseBoolean(args[2]));
+        Graph G = loader.loadGraph();
+
+        long start = System.nanoTime();
+        HubLabels labels = new HubLabels(G);
+        long built = System.nanoTime() - start;
+        File file = loader.getLabelsFile();
+        OutputStream out = new FileOutputStream(file);
+        try {
+            labels.write(out);
+        } finally {
+            out.close();
+        }
+
+        System.out.println(String.format(Locale.US,
+                "%d vertices, %.1f hubs per label, %.1fkB in memory, %.1fkB in %s, built in %.0fms",
+                G.getV(), labels.averageLabelSize(), labels.estimateBytes() / 1e3, file.length() / 1e3,
+                file.getName(), built / 1e6));
+        if (G.getV() == 0) return;
+
+        int[] pairs = randomPairs(G.getV());
+        HubLabels read = loader.loadLabels(G);
+        if (read == null || !sameDistances(labels, read, pairs)) {
+            System.err.println(file + " does not read back as written");
+            System.exit(1);
+        }
+        timeQueries(read, pairs);
+    }
+
+    private static int[] randomPairs(int V) {
+        Random random = new Random(1);
+        int[] pairs = new int[2 * 4096];
+        for (int i = 0; i < pairs.length; i++)
+            pairs[i] = random.nextInt(V);
+        return pairs;
+    }
+
+    private static boolean sameDistances(HubLabels a, HubLabels b, int[] pairs) {
+        for (int k = 0; k < pairs.length; k += 2)
+            if (Float.compare(a.distance(pairs[k], pairs[k + 1]), b.distance(pairs[k], pairs[k + 1])) != 0)
+                return false;
+        return true;
+    }
+
+    // prints the mean time of a distance, and the sum of the distances, which the loop must compute
+    private static void timeQueries(HubLabels labels, int[] pairs) {
+        double sum = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < QUERIES; i++) {
+            int k = 2 * (i & 4095);
+            sum += labels.distance(pairs[k], pairs[k + 1]);
+        }
+        long nanos = System.nanoTime() - start;
+        System.out.println(String.format(Locale.US, "%.0fns per distance, checksum %.1f",
+                (double) nanos / QUERIES, sum));
+    }
+}
@@ -0,0 +1,92 @@
+package com.northteam.indoororientation.server;
+
+/**
+ * Appends JSON values to a reused <tt>StringBuilder</tt>; just enough JSON for
+ * the responses of the {@link RoutingServer}.
+ */
+class Json {
+
+    private final StringBuilder out;
+    private boolean first = true;
+
+    Json(StringBuilder out) {
+        this.out = out;
+    }
+
+    Json beginObject() {
+        separate();
+        out.append('{');
+        first = true;
+        return this;
+    }
+
+    Json endObject() {
+        out.append('}');
+        first = false;
+        return this;
+    }
+
+    Json beginArray(String name) {
+        key(name);
+        out.append('[');
+        first = true;
+        return this;
+    }
+
+    Json endArray() {
+        out.append(']');
+        first = false;
+        return this;
+    }
+
+    Json value(String name, String value) {
+        key(name);
+        string(value);
+        first = false;
+        return this;
+    }
+
+    Json value(String name, long value) {
+        key(name);
+        out.append(value);
+        first = false;
+        return this;
+    }
+
+    Json value(String name, float value) {
+        key(name);
+        if (Float.isInfinite(value) || Float.isNaN(value)) out.append("null");
+        else out.append(value);
+        first = false;
+        return this;
+    }
+
+    private void key(String name) {
+        separate();
+        string(name);
+        out.append(':');
+        first = true;
+    }
+
+    private void separate() {
+        if (!first) out.append(',');
+    }
+
+    private void string(String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"':  out.append("\\\""); break;
+                case '\\': out.append("\\\\"); break;
+                case '\n': out.append("\\n"); break;
+                case '\r': out.append("\\r"); break;
+                case '\t': out.append("\\t"); break;
+                default:
+                    if (c < 0x20) out.append(String.format("\\u%04x", (int) c));
+                    else out.append(c);
+            }
+        }
+        out.append('"');
+    }
+}
@@ -0,0 +1,162 @@
+package com.northteam.indoororientation.server;
+
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Sends a mix of route, search and nearest place queries to a
+ * {@link RoutingServer} from many client threads at once, and reports the
+ * throughput and latency seen by the clients.
+ * <pre>
+ * java com.northteam.indoororientation.server.LoadGenerator http://localhost:8080 [clients] [seconds]
+ * </pre>
+ * Of every 10 queries 7 are routes between random vertices, 2 are searches for a
+ * random prefix and 1 is a nearest place query. Connections are kept alive, as a
+ * kiosk would.
+ */
+public class LoadGenerator {
+
+    private static final String LETTERS = "abcdefghijklmnoprstu";
+
+    private final String base;
+    private final int clients;
+    private final long durationNanos;
+    private final MetricsRegistry metrics = new MetricsRegistry();
+    private final LatencyHistogram latency = metrics.histogram("client.request");
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong busy = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private int vertices;
+
+    /**
+     * @param base    the address of the server, e.g. <tt>http://localhost:8080</tt>
+     * @param clients number of client threads
+     * @param seconds how long to send queries for
+     */
+    public LoadGenerator(String base, int clients, int seconds) {
+        this.base = base.endsWith("/") ? base.substring(0, base.length() - 1) : base;
+        this.clients = clients;
+        this.durationNanos = seconds * 1000000000L;
+    }
+
+    /**
+     * Runs the load and returns a report of it.
+     *
+     * @throws IOException if the size of the map can not be asked to the server
+     */
+    public String run() throws IOException, InterruptedException {
+        // the JDK keeps only 5 idle connections per server by default
+        if (System.getProperty("http.maxConnections") == null)
+            System.setProperty("http.maxConnections", String.valueOf(clients));
+        vertices = readVertices();
+        if (vertices == 0) throw new IOException("the map on the server is empty");
+
+        final CountDownLatch done = new CountDownLatch(clients);
+        final long start = System.nanoTime();
+        for (int i = 0; i < clients; i++) {
+            final long seed = i;
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        client(new Random(seed), start + durationNanos);
+                    } finally {
+                        done.countDown();
+                    }
+                }
+            }, "load-client-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+
+        LatencyHistogram.Snapshot s = latency.snapshot();
+        return String.format(Locale.US, "clients=%d requests=%d busy=%d failed=%d throughput=%.0f req/s "
+                        + "latency p50=%.2fms p90=%.2fms p99=%.2fms max=%.2fms",
+                clients, ok.get(), busy.get(), failed.get(), ok.get() / (elapsed / 1e9),
+                s.getValueAtPercentile(50) / 1e6, s.getValueAtPercentile(90) / 1e6,
+                s.getValueAtPercentile(99) / 1e6, s.getMax() / 1e6);
+    }
+
+    private int readVertices() throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        if (get(base + "/info", new byte[4096], body) != 200) throw new IOException("GET /info failed");
+        Matcher m = Pattern.compile("\"vertices\":(\\d+)").matcher(body.toString("UTF-8"));
+        if (!m.find()) throw new IOException("no vertex count in /info");
+        return Integer.parseInt(m.group(1));
+    }
+
+    private void client(Random random, long end) {
+        byte[] buffer = new byte[8192];
+        StringBuilder url = new StringBuilder(128);
+        while (System.nanoTime() < end) {
+            url.setLength(0);
+            url.append(base);
+            int kind = random.nextInt(10);
+            if (kind < 7) {
+                url.append("/route?from=").append(random.nextInt(vertices))
+                        .append("&to=").append(random.nextInt(vertices));
+            } else if (kind < 9) {
+                url.append("/search?q=");
+                for (int i = 1 + random.nextInt(3); i > 0; i--)
+                    url.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+            } else {
+                url.append("/nearest?from=").append(random.nextInt(vertices));
+            }
+            long start = System.nanoTime();
+            try {
+                int status = get(url.toString(), buffer, null);
+                if (status == 200) {
+                    latency.recordSince(start);
+                    ok.incrementAndGet();
+                } else if (status == 503) {
+                    busy.incrementAndGet();
+                } else {
+                    failed.incrementAndGet();
+                }
+            } catch (IOException e) {
+                failed.incrementAndGet();
+            }
+        }
+    }
+
+    // reads the whole body, so that the connection goes back to the keep-alive cache
+    private static int get(String url, byte[] buffer, ByteArrayOutputStream body) throws IOException {
+        HttpURLConnection c = (HttpURLConnection) new URL(url).openConnection();
+        int status = c.getResponseCode();
+        InputStream in = status >= 400 ? c.getErrorStream() : c.getInputStream();
+        if (in != null) {
+            try {
+                int n;
+                while ((n = in.read(buffer)) > 0)
+                    if (body != null) body.write(buffer, 0, n);
+            } finally {
+                in.close();
+            }
+        }
+        return status;
+    }
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("usage: LoadGenerator <server url> [clients] [seconds]");
+            System.exit(2);
+        }
+        int clients = args.length > 1 ? Integer.parseInt(args[1]) : 16;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        System.out.println(new LoadGenerator(args[0], clients, seconds).run());
+    }
+}
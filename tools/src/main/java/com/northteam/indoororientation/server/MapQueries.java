@@ -0,0 +1,141 @@
+package com.northteam.indoororientation.server;
+
+import com.northteam.indoororientation.map.MapSnapshot;
+import com.northteam.indoororientation.model.AlternativeRoutes;
+import com.northteam.indoororientation.model.Edge;
+import com.northteam.indoororientation.model.FuzzyPlaceMatcher;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.NearestPlaces;
+import com.northteam.indoororientation.model.Place;
+import com.northteam.indoororientation.model.PlaceSearchIndex;
+import com.northteam.indoororientation.model.RouteProfile;
+import com.northteam.indoororientation.model.Router;
+import com.northteam.indoororientation.model.VertexOrder;
+
+import java.util.List;
+
+/**
+ * Answers the queries of the {@link RoutingServer} over a snapshot of the map.
+ * The graph, the places, the dictionary and the search indexes of the snapshot
+ * are shared by every worker thread; a <tt>MapQueries</tt> only holds the scratch
+ * state of one thread, the routers, the nearest places search and the buffers of
+ * the search indexes.
+ * <p>
+ * The vertices of the queries and the answers are the beacon ids of the map
+ * file, also when the loader renumbered the vertices of the graph.
+ */
+class MapQueries {
+
+    static final int MAX_RESULTS = 50;
+    static final int MAX_ALTERNATIVES = 5;
+
+    private final Graph G;
+    private final VertexOrder order;
+    private final List<Place> places;
+    private final Router router;
+    private final AlternativeRoutes alternatives;
+    private final PlaceSearchIndex.Searcher index;
+    private final FuzzyPlaceMatcher.Searcher matcher;
+    private final NearestPlaces nearest;
+    private final int[] results = new int[MAX_RESULTS];
+    private final float[] distances = new float[MAX_RESULTS];
+
+    MapQueries(MapSnapshot snapshot) {
+        this.G = snapshot.getGraph();
+        this.order = G.getVertexOrder();
+        this.places = snapshot.getPlaces();
+        this.router = new Router(G);
+        this.alternatives = new AlternativeRoutes(G);
+        this.index = snapshot.getSearchIndex().newSearcher();
+        this.matcher = snapshot.getMatcher().newSearcher();
+        this.nearest = new NearestPlaces(snapshot.getDictionary());
+    }
+
+    void info(Json json) {
+        json.beginObject()
+                .value("vertices", G.getV())
+                .value("edges", G.getE())
+                .value("places", places.size())
+                .endObject();
+    }
+
+    void search(String text, int limit, Json json) {
+        int n = index.search(text, results);
+        if (n == 0) n = matcher.search(text, results);
+        json.beginObject().beginArray("places");
+        for (int i = 0; i < Math.min(n, limit); i++)
+            place(json, places.get(results[i])).endObject();
+        json.endArray().endObject();
+    }
+
+    void route(int from, int to, RouteProfile profile, Json json) {
+        validateVertex(from);
+        validateVertex(to);
+        json.beginObject().value("from", from).value("to", to);
+        from = vertex(from);
+        Iterable<Edge> route = router.route(from, vertex(to), profile);
+        if (route == null) {
+            json.value("distance", Float.POSITIVE_INFINITY).endObject();
+            return;
+        }
+        edges(json, from, route).endObject();
+    }
+
+    void alternatives(int from, int to, int k, RouteProfile profile, Json json) {
+        validateVertex(from);
+        validateVertex(to);
+        json.beginObject().value("from", from).value("to", to).beginArray("routes");
+        from = vertex(from);
+        for (AlternativeRoutes.Route route : alternatives.routes(from, vertex(to), k, profile))
+            edges(json.beginObject().value("via", original(route.getVia())), from, route.getEdges()).endObject();
+        json.endArray().endObject();
+    }
+
+    // the edges of a route and its distance
+    private Json edges(Json json, int from, Iterable<Edge> route) {
+        float total = 0;
+        json.beginArray("edges");
+        int v = from;
+        for (Edge e : route) {
+            int w = e.other(v);
+            total += e.getWeight();
+            json.beginObject().value("from", original(v)).value("to", original(w))
+                    .value("distance", e.getWeight()).endObject();
+            v = w;
+        }
+        return json.endArray().value("distance", total);
+    }
+
+    /**
+     * Lists the places closest to a vertex by walking distance, the distance to a
+     * place being the distance to one of the beacons it is near plus the distance
+     * from that beacon.
+     */
+    void nearest(int from, int limit, Json json) {
+        validateVertex(from);
+        int n = nearest.from(vertex(from)).next(results, distances, 0, Math.min(limit, MAX_RESULTS));
+        json.beginObject().value("from", from).beginArray("places");
+        for (int i = 0; i < n; i++)
+            place(json, places.get(results[i])).value("distance", distances[i]).endObject();
+        json.endArray().endObject();
+    }
+
+    private static Json place(Json json, Place p) {
+        return json.beginObject().value("id", p.getId()).value("name", p.getName());
+    }
+
+    // the vertex of the graph of a beacon id of the map file
+    private int vertex(int id) {
+        return order == null ? id : order.fromOriginal(id);
+    }
+
+    // the beacon id of the map file of a vertex of the graph
+    private int original(int v) {
+        return order == null ? v : order.toOriginal(v);
+    }
+
+    private void validateVertex(int v) {
+        if (v < 0 || v >= G.getV())
+            throw new IllegalArgumentException("vertex " + v + " is not between 0 and " + (G.getV() - 1));
+    }
+}
@@ -0,0 +1,331 @@
+package com.northteam.indoororientation.server;
+
+import com.northteam.indoororientation.map.FileMapLoader;
+import com.northteam.indoororientation.map.MapFileWatcher;
+import com.northteam.indoororientation.map.MapSnapshot;
+import com.northteam.indoororientation.map.MapStore;
+import com.northteam.indoororientation.metrics.Counter;
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.Place;
+import com.northteam.indoororientation.model.RouteProfile;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UnsupportedEncodingException;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Serves place search, route and nearest place queries over HTTP from one map,
+ * for kiosks and web clients that should not load the map themselves.
+ * <pre>
+ * GET /info                          vertices, edges and places of the map
+ * GET /search?q=text[&amp;limit=n]       places matching the text, misspellings included
+ * GET /route?from=v&amp;to=w[&amp;avoid=a]  shortest route between two vertices, avoiding
+ *                                    edges with the attributes a, e.g. <tt>stairs,outdoor</tt>
+ * GET /alternatives?from=v&amp;to=w[&amp;k=n][&amp;avoid=a]
+ *                                    the shortest route and alternatives to it
+ * GET /nearest?from=v[&amp;limit=n]      places closest to a vertex by walking distance
+ * GET /metrics                       the metrics of the server as CSV
+ * </pre>
+ * Responses are JSON. Queries run on a fixed pool of worker threads fed by a
+ * bounded queue: when the queue is full the request is answered at once with
+ * <tt>503</tt> instead of piling up. Every query runs on the snapshot of the
+ * {@link MapStore} that is current when it starts, so the map can be reloaded or
+ * patched while the server runs.
+ */
+public class RoutingServer {
+
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_QUEUE = 1024;
+    private static final int DEFAULT_LIMIT = 10;
+    private static final Charset UTF8 = Charset.forName("UTF-8");
+
+    private static final LatencyHistogram REQUESTS = MetricsRegistry.getDefault().histogram("server.request");
+    private static final Counter REJECTED = MetricsRegistry.getDefault().counter("server.rejected");
+    private static final Counter ERRORS = MetricsRegistry.getDefault().counter("server.error");
+
+    static {
+        // responses are written as headers then body; without this every response of a kept-alive
+        // connection waits for the client's delayed ACK, about 40 ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null)
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final MapStore store;
+    private final HttpServer http;
+    private final ThreadPoolExecutor workers;
+    private final ThreadLocal<Worker> worker = new ThreadLocal<Worker>() {
+        @Override
+        protected Worker initialValue() {
+            return new Worker();
+        }
+    };
+
+    // the state of one worker thread, reused from request to request
+    private static class Worker {
+        MapSnapshot snapshot;
+        MapQueries queries;
+        final StringBuilder text = new StringBuilder(1024);
+
+        // the queries over the current snapshot, built again when the map changed
+        MapQueries queries(MapSnapshot current) {
+            if (current != snapshot) {
+                queries = new MapQueries(current);
+                snapshot = current;
+            }
+            return queries;
+        }
+    }
+
+    /**
+     * Serves a map that only changes through patches to the store.
+     *
+     * @param G        the map; frozen by this constructor
+     * @param places   the places of the map
+     * @param port     the port to listen on; 0 for any free port
+     * @param threads  number of worker threads
+     * @param capacity number of requests that can wait for a worker
+     * @throws IOException if the port can not be bound
+     */
+    public RoutingServer(Graph G, List<Place> places, int port, int threads, int capacity) throws IOException {
+        this(new MapStore(G, places), port, threads, capacity);
+    }
+
+    /**
+     * @param store    the map, already loaded
+     * @param port     the port to listen on; 0 for any free port
+     * @param threads  number of worker threads
+     * @param capacity number of requests that can wait for a worker
+     * @throws IOException if the port can not be bound
+     * @throws IllegalStateException if the store has no map yet
+     */
+    public RoutingServer(MapStore store, int port, int threads, int capacity) throws IOException {
+        if (store.current() == null) throw new IllegalStateException("no map loaded");
+        this.store = store;
+        this.workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<Runnable>(capacity), new WorkerThreadFactory());
+        this.http = HttpServer.create(new InetSocketAddress(port), capacity);
+        // the handler runs on the server's dispatcher thread and only hands the exchange over
+        http.createContext("/", new HttpHandler() {
+            @Override
+            public void handle(HttpExchange exchange) throws IOException {
+                dispatch(exchange);
+            }
+        });
+    }
+
+    public MapStore getStore() {
+        return store;
+    }
+
+    public void start() {
+        http.start();
+    }
+
+    /**
+     * Stops accepting requests, lets the queued ones finish for up to
+     * <tt>delaySeconds</tt> and stops the workers.
+     */
+    public void stop(int delaySeconds) {
+        http.stop(delaySeconds);
+        workers.shutdown();
+        try {
+            workers.awaitTermination(delaySeconds, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        workers.shutdownNow();
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return http.getAddress().getPort();
+    }
+
+    private void dispatch(final HttpExchange exchange) throws IOException {
+        final long start = System.nanoTime();
+        try {
+            workers.execute(new Runnable() {
+                @Override
+                public void run() {
+                    serve(exchange, start);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            REJECTED.inc();
+            send(exchange, 503, "{\"error\":\"busy\"}");
+        }
+    }
+
+    private void serve(HttpExchange exchange, long start) {
+        Worker w = worker.get();
+        StringBuilder text = w.text;
+        text.setLength(0);
+        int status = 200;
+        try {
+            MapQueries queries = w.queries(store.current());
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getRawQuery();
+            Json json = new Json(text);
+            if (!"GET".equals(exchange.getRequestMethod())) {
+                status = 405;
+            } else if (path.equals("/info")) {
+                queries.info(json);
+            } else if (path.equals("/search")) {
+                queries.search(parameter(query, "q", ""), limit(query), json);
+            } else if (path.equals("/route")) {
+                queries.route(intParameter(query, "from"), intParameter(query, "to"), profile(query), json);
+            } else if (path.equals("/alternatives")) {
+                String k = parameter(query, "k", null);
+                queries.alternatives(intParameter(query, "from"), intParameter(query, "to"),
+                        k == null ? 3 : Math.max(0, Math.min(MapQueries.MAX_ALTERNATIVES, parseInt("k", k))),
+                        profile(query), json);
+            } else if (path.equals("/nearest")) {
+                queries.nearest(intParameter(query, "from"), limit(query), json);
+            } else if (path.equals("/metrics")) {
+                StringWriter csv = new StringWriter();
+                MetricsRegistry.getDefault().snapshot(System.currentTimeMillis()).writeTo(csv);
+                send(exchange, 200, "text/csv", csv.toString());
+                return;
+            } else {
+                status = 404;
+            }
+            if (status != 200) {
+                text.setLength(0);
+                text.append("{\"error\":\"").append(status == 404 ? "not found" : "method not allowed").append("\"}");
+            }
+        } catch (IllegalArgumentException e) {
+            status = 400;
+            text.setLength(0);
+            new Json(text).beginObject().value("error", String.valueOf(e.getMessage())).endObject();
+        } catch (IOException | RuntimeException e) {
+            status = 500;
+            text.setLength(0);
+            text.append("{\"error\":\"internal\"}");
+        }
+        if (status >= 500) ERRORS.inc();
+        send(exchange, status, text);
+        REQUESTS.recordSince(start);
+    }
+
+    private static void send(HttpExchange exchange, int status, CharSequence body) {
+        send(exchange, status, "application/json", body);
+    }
+
+    private static void send(HttpExchange exchange, int status, String type, CharSequence body) {
+        try {
+            byte[] bytes = body.toString().getBytes(UTF8);
+            exchange.getResponseHeaders().set("Content-Type", type + "; charset=utf-8");
+            exchange.sendResponseHeaders(status, bytes.length);
+            OutputStream out = exchange.getResponseBody();
+            out.write(bytes);
+            out.close();
+        } catch (IOException e) {
+            // the client went away
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private static int limit(String query) {
+        String limit = parameter(query, "limit", null);
+        if (limit == null) return DEFAULT_LIMIT;
+        return Math.max(0, Math.min(MapQueries.MAX_RESULTS, parseInt("limit", limit)));
+    }
+
+    private static RouteProfile profile(String query) {
+        String avoid = parameter(query, "avoid", null);
+        return avoid == null ? RouteProfile.ANY : RouteProfile.avoiding(avoid);
+    }
+
+    private static int intParameter(String query, String name) {
+        String value = parameter(query, name, null);
+        if (value == null) throw new IllegalArgumentException("missing " + name);
+        return parseInt(name, value);
+    }
+
+    private static int parseInt(String name, String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(name + " is not a number");
+        }
+    }
+
+    // the decoded value of a parameter of a raw query string
+    private static String parameter(String query, String name, String defaultValue) {
+        if (query == null) return defaultValue;
+        int i = 0;
+        while (i <= query.length()) {
+            int end = query.indexOf('&', i);
+            if (end < 0) end = query.length();
+            int eq = query.indexOf('=', i);
+            if (eq > 0 && eq < end && query.regionMatches(i, name, 0, name.length()) && eq - i == name.length()) {
+                try {
+                    return URLDecoder.decode(query.substring(eq + 1, end), "UTF-8");
+                } catch (UnsupportedEncodingException e) {
+                    throw new AssertionError(e);
+                }
+            }
+            i = end + 1;
+        }
+        return defaultValue;
+    }
+
+    private static class WorkerThreadFactory implements ThreadFactory {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = new Thread(r, "routing-worker-" + count.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        }
+    }
+
+    /**
+     * Serves a map until the process is killed, reloading it when its files change.
+     * <pre>
+     * java com.northteam.indoororientation.server.RoutingServer beacons.xml places.xml [port] [threads]
+     * </pre>
+     */
+    public static void main(String[] args) throws IOException, XmlPullParserException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("usage: RoutingServer <beacons.xml> <places.xml> [port] [threads]");
+            System.exit(2);
+        }
+        FileMapLoader loader = new FileMapLoader(new File(args[0]), new File(args[1]));
+        loader.setReorder(true);
+        MapStore store = new MapStore(loader);
+        MapSnapshot map = store.load();
+        new MapFileWatcher(store, loader.getFiles()).start();
+        int port = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PORT;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+
+        RoutingServer server = new RoutingServer(store, port, threads, DEFAULT_QUEUE);
+        server.start();
+        System.out.println("Serving " + map.getGraph().getV() + " vertices and " + map.getPlaces().size()
+                + " places on port "
+                + server.getPort() + " with " + threads + " workers");
+    }
+}
@@ -0,0 +1,48 @@
+package com.northteam.indoororientation.trace;
+
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.XmlParser;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+
+/**
+ * Replays a recorded trace against a map from the command line, to benchmark the
+ * positioning and routing stack on a JVM.
+ * <pre>
+ * java com.northteam.indoororientation.trace.Replay beacons.xml trace.iotr destination [speed]
+ * </pre>
+ * Prints the {@link ReplayReport} and the metrics gathered during the replay.
+ */
+public class Replay {
+
+    public static void main(String[] args) throws IOException, XmlPullParserException, InterruptedException {
+        if (args.length < 3 || args.length > 4) {
+            System.err.println("usage: Replay <beacons.xml> <trace> <destination vertex> [speed, 0 = no waits]");
+            System.exit(2);
+        }
+        Graph G = new Graph(new XmlParser().parseBeacons(new FileInputStream(args[0])));
+        int destination = Integer.parseInt(args[2]);
+        float speed = args.length == 4 ? Float.parseFloat(args[3]) : TraceReplayer.AS_FAST_AS_POSSIBLE;
+
+        TraceReader reader = new TraceReader(new File(args[1]));
+        TraceReplayer replayer = new TraceReplayer(G, destination);
+        try {
+            ReplayReport report = replayer.replay(reader, speed);
+            System.out.println(report);
+        } finally {
+            replayer.close();
+            reader.close();
+        }
+
+        Writer out = new OutputStreamWriter(System.out, "UTF-8");
+        MetricsRegistry.getDefault().snapshot(System.currentTimeMillis()).writeTo(out);
+        out.flush();
+    }
+}
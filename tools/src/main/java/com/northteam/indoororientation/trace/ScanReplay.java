@@ -0,0 +1,44 @@
+package com.northteam.indoororientation.trace;
+
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.XmlParser;
+import com.northteam.indoororientation.sensor.AdaptiveScanPolicy;
+import com.northteam.indoororientation.sensor.ScanPolicy;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+
+/**
+ * Compares scan policies over a recorded trace from the command line.
+ * <pre>
+ * java com.northteam.indoororientation.trace.ScanReplay beacons.xml trace.iotr [destination]
+ * </pre>
+ * Prints the {@link ScanReport} of scanning all the time and of the
+ * {@link AdaptiveScanPolicy}.
+ */
+public class ScanReplay {
+
+    public static void main(String[] args) throws IOException, XmlPullParserException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("usage: ScanReplay <beacons.xml> <trace> [destination vertex]");
+            System.exit(2);
+        }
+        Graph G = new Graph(new XmlParser().parseBeacons(new FileInputStream(args[0])));
+        int destination = args.length == 3 ? Integer.parseInt(args[2]) : -1;
+        ScanSimulator simulator = new ScanSimulator(G, destination);
+
+        ScanPolicy[] policies = {ScanPolicy.CONTINUOUS, new AdaptiveScanPolicy()};
+        String[] names = {"continuous", "adaptive"};
+        for (int i = 0; i < policies.length; i++) {
+            TraceReader reader = new TraceReader(new File(args[1]));
+            try {
+                System.out.println(simulator.simulate(reader, policies[i], names[i]));
+            } finally {
+                reader.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.northteam.indoororientation.trace;
+
+/**
+ * Result of simulating a scan policy over a trace with the {@link ScanSimulator}.
+ */
+public class ScanReport {
+
+    final String policy;
+    final StageStats process = new StageStats("process");
+    long samples;
+    long heard;
+    long unknownBeacons;
+    long cycles;
+    long deliveries;
+    long radioMillis;
+    long traceMillis;
+    long vertexChanges;
+    double locatedMetres;
+
+    ScanReport(String policy) {
+        this.policy = policy;
+    }
+
+    public String getPolicy() {
+        return policy;
+    }
+
+    /**
+     * @return readings of the trace, heard or not
+     */
+    public long getSamples() {
+        return samples;
+    }
+
+    /**
+     * @return readings that arrived while the radio was scanning
+     */
+    public long getHeard() {
+        return heard;
+    }
+
+    public long getUnknownBeacons() {
+        return unknownBeacons;
+    }
+
+    public long getCycles() {
+        return cycles;
+    }
+
+    /**
+     * @return the number of times heard readings were delivered, each one a
+     *         wake up of the positioning code
+     */
+    public long getDeliveries() {
+        return deliveries;
+    }
+
+    /**
+     * @return the time the radio scanned
+     */
+    public long getRadioMillis() {
+        return radioMillis;
+    }
+
+    public long getTraceMillis() {
+        return traceMillis;
+    }
+
+    /**
+     * @return the share of the trace the radio scanned
+     */
+    public double getDutyCycle() {
+        return traceMillis == 0 ? 0 : (double) radioMillis / traceMillis;
+    }
+
+    public long getVertexChanges() {
+        return vertexChanges;
+    }
+
+    /**
+     * @return the walking distance between the positions located, one after the other
+     */
+    public double getLocatedMetres() {
+        return locatedMetres;
+    }
+
+    /**
+     * @return the time spent filtering, locating and routing the readings heard
+     */
+    public StageStats getProcess() {
+        return process;
+    }
+
+    /**
+     * @return the processing time per metre located, in nanoseconds
+     */
+    public double getNanosPerMetre() {
+        return locatedMetres == 0 ? 0 : process.getTotalNanos() / locatedMetres;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: samples=%d heard=%d unknown=%d cycles=%d deliveries=%d duty=%.1f%% "
+                        + "vertexChanges=%d located=%.1fm cpu=%.0fns/m%n  %s",
+                policy, samples, heard, unknownBeacons, cycles, deliveries, 100 * getDutyCycle(),
+                vertexChanges, locatedMetres, getNanosPerMetre(), process);
+    }
+}
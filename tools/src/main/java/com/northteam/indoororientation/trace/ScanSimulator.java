@@ -0,0 +1,185 @@
+package com.northteam.indoororientation.trace;
+
+import com.northteam.indoororientation.model.DijkstraSP;
+import com.northteam.indoororientation.model.Edge;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.Locator;
+import com.northteam.indoororientation.model.Router;
+import com.northteam.indoororientation.model.RssiFilter;
+import com.northteam.indoororientation.sensor.ScanPolicy;
+import com.northteam.indoororientation.sensor.ScanScheduler;
+import com.northteam.indoororientation.util.VirtualClock;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Replays a trace recorded with the radio scanning all the time as if a
+ * {@link ScanPolicy} had driven the scanner. A reading is heard only if it
+ * arrived while the {@link ScanScheduler} had the radio on, and heard readings
+ * are held until the batch of the cycle is delivered to the {@link RssiFilter},
+ * the {@link Locator} and the {@link Router}, as the positioning code would
+ * receive them on the phone.
+ * <p>
+ * The step detector keeps counting while the radio is off. A trace records no
+ * steps, so the user who recorded it is followed apart from the simulated phone,
+ * on every reading, and each vertex the user walks to is reported to the
+ * scheduler as a step.
+ * <p>
+ * The scheduler reads the time of the trace through a {@link VirtualClock}, so
+ * a simulation runs as fast as the readings can be processed and takes the same
+ * decisions every time. Comparing the {@link ScanReport}s of two policies over
+ * the same trace shows the radio time and the processing time each one spends
+ * per metre located.
+ */
+public class ScanSimulator {
+
+    private final Graph G;
+    private final int destination;
+    private final BeaconResolver beacons;
+
+    // readings heard and not delivered yet
+    private int[] heldVertex = new int[64];
+    private int[] heldRssi = new int[64];
+    private long[] heldTime = new long[64];
+    private int held;
+
+    // state of the simulation running
+    private ScanReport report;
+    private ScanScheduler scheduler;
+    private RssiFilter filter;
+    private Locator locator;
+    private final Router router;  // one for every simulation, its cache cleared in between
+    private int position;
+
+    // the user who walked the trace, located from all its readings
+    private RssiFilter walkerFilter;
+    private Locator walker;
+
+    /**
+     * @param G           the map
+     * @param destination the vertex routes are computed to; -1 for no route
+     */
+    public ScanSimulator(Graph G, int destination) {
+        if (destination < -1 || destination >= G.getV())
+            throw new IndexOutOfBoundsException("vertex " + destination + " is not between 0 and " + (G.getV() - 1));
+        this.G = G;
+        this.destination = destination;
+        this.router = new Router(G);
+        this.beacons = new BeaconResolver(G);
+    }
+
+    /**
+     * Simulates a policy over a trace.
+     *
+     * @param  reader the trace, at its start
+     * @param  policy the policy that drives the scanner
+     * @param  name   the name of the policy in the report
+     * @return what the radio and the positioning code did
+     * @throws IOException if the trace can not be read
+     */
+    public ScanReport simulate(TraceReader reader, ScanPolicy policy, String name) throws IOException {
+        VirtualClock clock = new VirtualClock(reader.getStartTimeMillis());
+        report = new ScanReport(name);
+        scheduler = new ScanScheduler(G, policy, clock);
+        filter = new RssiFilter(G.getV());
+        locator = new Locator();
+        router.clearCache();
+        position = Locator.UNKNOWN;
+        walkerFilter = new RssiFilter(G.getV());
+        walker = new Locator();
+        beacons.clear();
+        held = 0;
+        long lastDelivery = reader.getStartTimeMillis();
+        scheduler.nextCycle();
+
+        while (reader.next()) {
+            long t = reader.getTimeMillis();
+            // close the cycles that ended before this reading
+            while (t >= scheduler.getCycleEnd()) {
+                long end = scheduler.getCycleEnd();
+                clock.advanceTo(end);
+                if (held > 0 && end - lastDelivery >= scheduler.getSchedule().getBatchMillis()) {
+                    deliver();
+                    lastDelivery = end;
+                }
+                report.radioMillis += scheduler.getSchedule().getScanMillis();
+                report.cycles++;
+                scheduler.nextCycle();
+            }
+            clock.advanceTo(t);
+            report.samples++;
+
+            int v = beacons.resolve(reader);
+            if (v < 0) {
+                report.unknownBeacons++;
+                continue;
+            }
+            walk(v, reader.getRssi(), t);
+            if (!scheduler.isScanning(t)) continue;
+            report.heard++;
+            hold(v, reader.getRssi(), t);
+            if (scheduler.getSchedule().getBatchMillis() == 0) {
+                deliver();
+                lastDelivery = t;
+            }
+        }
+        if (held > 0) deliver();
+        long last = reader.getTimeMillis();
+        report.radioMillis += Math.min(scheduler.getSchedule().getScanMillis(), last - scheduler.getCycleStart());
+        report.cycles++;
+        report.traceMillis = last - reader.getStartTimeMillis();
+        return report;
+    }
+
+    // what the step detector would report: the user walks on whether the radio hears it or not
+    private void walk(int v, int rssi, long t) {
+        int before = walker.current();
+        int now = walker.update(v, walkerFilter.update(v, rssi, t), t);
+        if (before != Locator.UNKNOWN && now != before && now != Locator.UNKNOWN) scheduler.onStep();
+    }
+
+    private void hold(int v, int rssi, long t) {
+        if (held == heldVertex.length) {
+            heldVertex = Arrays.copyOf(heldVertex, 2 * held);
+            heldRssi = Arrays.copyOf(heldRssi, 2 * held);
+            heldTime = Arrays.copyOf(heldTime, 2 * held);
+        }
+        heldVertex[held] = v;
+        heldRssi[held] = rssi;
+        heldTime[held] = t;
+        held++;
+    }
+
+    // runs the held readings through the positioning code, as one wake up of the phone
+    private void deliver() {
+        report.deliveries++;
+        long busy = 0;
+        for (int i = 0; i < held; i++) {
+            long start = System.nanoTime();
+            float rssi = filter.update(heldVertex[i], heldRssi[i], heldTime[i]);
+            int now = locator.update(heldVertex[i], rssi, heldTime[i]);
+            boolean moved = now != position && now != Locator.UNKNOWN;
+            if (moved) {
+                scheduler.onPosition(now);
+                if (destination >= 0) scheduler.setRoute(now, router.route(now, destination));
+            }
+            busy += System.nanoTime() - start;
+            if (!moved) continue;
+            // measured apart, it is not work the phone would do
+            if (position != Locator.UNKNOWN) report.locatedMetres += walkingDistance(position, now);
+            position = now;
+            report.vertexChanges++;
+        }
+        report.process.record(busy);
+        held = 0;
+    }
+
+    private float walkingDistance(int v, int w) {
+        Edge e = G.edge(v, w);
+        if (e != null) return e.getWeight();
+        // a beacon was not heard on the way
+        float d = new DijkstraSP(G, v).distTo(w);
+        return d == Float.POSITIVE_INFINITY ? 0 : d;
+    }
+}
@@ -0,0 +1,127 @@
+package com.northteam.indoororientation.trace;
+
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+
+import java.util.Locale;
+
+/**
+ * Result of a run of the {@link WalkerSimulator}.
+ */
+public class WalkerReport {
+
+    int walkers;
+    int threads;
+    long simulatedMillis;
+    long readings;
+    long vertexChanges;
+    long locatedRight;
+    long wallNanos;
+    long allocatedBytes = -1;
+    LatencyHistogram.Snapshot reading;
+    LatencyHistogram.Snapshot route;
+
+    public int getWalkers() {
+        return walkers;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * @return the time walked by every walker
+     */
+    public long getSimulatedMillis() {
+        return simulatedMillis;
+    }
+
+    /**
+     * @return the readings synthesized and run through the engine
+     */
+    public long getReadings() {
+        return readings;
+    }
+
+    /**
+     * @return the number of times a walker was located at a new vertex, each
+     *         one a route query
+     */
+    public long getVertexChanges() {
+        return vertexChanges;
+    }
+
+    /**
+     * @return the share of readings after which the walker was located at the
+     *         vertex nearest to where they really were
+     */
+    public double getAccuracy() {
+        return readings == 0 ? 0 : (double) locatedRight / readings;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    /**
+     * @return readings processed per second of wall time, by all threads
+     */
+    public double getReadingsPerSecond() {
+        return wallNanos == 0 ? 0 : readings * 1e9 / wallNanos;
+    }
+
+    /**
+     * @return how many times faster than real time the walkers were simulated
+     */
+    public double getSpeedup() {
+        return wallNanos == 0 ? 0 : simulatedMillis * 1e6 / wallNanos;
+    }
+
+    /**
+     * @return the bytes allocated by the walker threads, or -1 if the JVM does
+     *         not measure it
+     */
+    public long getAllocatedBytes() {
+        return allocatedBytes;
+    }
+
+    /**
+     * @return the bytes allocated per second of wall time, or -1 if not measured
+     */
+    public double getAllocationRate() {
+        return allocatedBytes < 0 || wallNanos == 0 ? -1 : allocatedBytes * 1e9 / wallNanos;
+    }
+
+    /**
+     * @return the time from a reading to the position it gives, and the route
+     *         when the position changed
+     */
+    public LatencyHistogram.Snapshot getReadingLatency() {
+        return reading;
+    }
+
+    /**
+     * @return the time of the route queries
+     */
+    public LatencyHistogram.Snapshot getRouteLatency() {
+        return route;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.US, "walkers=%d threads=%d simulated=%ds wall=%.1fms speedup=%.0fx "
+                        + "readings=%d throughput=%.0f readings/s vertexChanges=%d accuracy=%.1f%%%n"
+                        + "  %s%n  %s%n  allocated=%s",
+                walkers, threads, simulatedMillis / 1000, wallNanos / 1e6, getSpeedup(),
+                readings, getReadingsPerSecond(), vertexChanges, 100 * getAccuracy(),
+                latency(reading), latency(route),
+                allocatedBytes < 0 ? "n/a" : String.format(Locale.US, "%.1fMB (%.1fMB/s, %.0fB/reading)",
+                        allocatedBytes / 1e6, getAllocationRate() / 1e6,
+                        readings == 0 ? 0.0 : (double) allocatedBytes / readings));
+    }
+
+    private static String latency(LatencyHistogram.Snapshot s) {
+        return String.format(Locale.US, "%-8s n=%d p50=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                s.getName(), s.getCount(), s.getValueAtPercentile(50) / 1e3, s.getValueAtPercentile(99) / 1e3,
+                s.getValueAtPercentile(99.9) / 1e3, s.getMax() / 1e3);
+    }
+}
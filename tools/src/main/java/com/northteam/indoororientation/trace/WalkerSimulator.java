@@ -0,0 +1,327 @@
+package com.northteam.indoororientation.trace;
+
+import com.northteam.indoororientation.metrics.LatencyHistogram;
+import com.northteam.indoororientation.metrics.MetricsRegistry;
+import com.northteam.indoororientation.model.DijkstraSP;
+import com.northteam.indoororientation.model.Edge;
+import com.northteam.indoororientation.model.Graph;
+import com.northteam.indoororientation.model.Locator;
+import com.northteam.indoororientation.model.Router;
+import com.northteam.indoororientation.model.RssiFilter;
+import com.northteam.indoororientation.model.XmlParser;
+
+import org.xmlpull.v1.XmlPullParserException;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Loads the positioning and routing engine with many virtual walkers at once,
+ * the way a kiosk server tracking the visitors of a venue, or a phone replaying
+ * a crowded event, would.
+ * <pre>
+ * java com.northteam.indoororientation.trace.WalkerSimulator beacons.xml [walkers] [threads] [seconds]
+ * </pre>
+ * Every walker walks along the edges of the map at its own speed, on the
+ * shortest route to one of a few destinations, and picks another destination
+ * when it arrives. Every {@link #TICK_MILLIS} it hears some of the beacons
+ * within {@link #RANGE_METRES}, at a signal strength that falls with the walking
+ * distance to the beacon plus noise. Each reading goes through the walker's
+ * {@link RssiFilter} and {@link Locator} and, when the walker is located at a new
+ * vertex, a route to its destination is asked to a {@link Router}, exactly as
+ * the {@link TraceReplayer} does for one recorded walk.
+ * <p>
+ * The walkers are shared out between the threads, and every thread has its own
+ * routers, one per destination, as a server would have per worker thread. Time
+ * is simulated: the threads run as fast as they can, and the report gives the
+ * throughput, the latency percentiles and the bytes the threads allocated, when
+ * the JVM measures it.
+ */
+public class WalkerSimulator {
+
+    public static final long TICK_MILLIS = 100;
+    public static final float RANGE_METRES = 15f;
+    public static final int DEFAULT_DESTINATIONS = 8;
+
+    private static final float TX_POWER = -59f;   // dBm heard at 1 metre
+    private static final float PATH_LOSS = 2.2f;  // exponent of the log-distance model, indoors
+    private static final float NOISE_DB = 4f;     // standard deviation of the noise
+    private static final float HEARD = 0.3f;      // chance a beacon in range is heard in a tick
+    private static final float MIN_SPEED = 0.8f;  // metres per second
+    private static final float MAX_SPEED = 1.8f;
+
+    private final Graph G;
+    private final int walkers;
+    private final int threads;
+    private final int[] destinations;
+    private final Edge[][] nextEdge;  // nextEdge[d][v] = first edge of the route from v to destination d
+    private final long seed;
+
+    /**
+     * @param G            the map
+     * @param walkers      the number of walkers
+     * @param threads      the number of threads driving them
+     * @param destinations the number of destinations the walkers head to
+     * @param seed         seed of the random walks, so that a run can be repeated
+     */
+    public WalkerSimulator(Graph G, int walkers, int threads, int destinations, long seed) {
+        if (G.getV() == 0) throw new IllegalArgumentException("the map is empty");
+        if (walkers < 1 || threads < 1 || destinations < 1)
+            throw new IllegalArgumentException("walkers, threads and destinations must be positive");
+        this.G = G;
+        this.walkers = walkers;
+        this.threads = Math.min(threads, walkers);
+        this.seed = seed;
+        Random random = new Random(seed);
+        this.destinations = new int[Math.min(destinations, G.getV())];
+        this.nextEdge = new Edge[this.destinations.length][];
+        for (int d = 0; d < this.destinations.length; d++) {
+            this.destinations[d] = random.nextInt(G.getV());
+            nextEdge[d] = nextEdges(new DijkstraSP(G, this.destinations[d]));
+        }
+    }
+
+    // the first edge of the route from every vertex to the root of the tree
+    private Edge[] nextEdges(DijkstraSP tree) {
+        Edge[] next = new Edge[G.getV()];
+        for (int v = 0; v < next.length; v++) {
+            Iterable<Edge> path = tree.pathFrom(v);
+            if (path == null) continue;
+            Iterator<Edge> it = path.iterator();
+            if (it.hasNext()) next[v] = it.next();
+        }
+        return next;
+    }
+
+    /**
+     * Runs the walkers for <tt>seconds</tt> of simulated time.
+     *
+     * @return throughput, latency and allocation of the run
+     * @throws InterruptedException if interrupted while waiting for the threads
+     */
+    public WalkerReport run(int seconds) throws InterruptedException {
+        final long ticks = seconds * 1000L / TICK_MILLIS;
+        final Worker[] workers = new Worker[threads];
+        for (int i = 0; i < threads; i++)
+            workers[i] = new Worker(i);
+
+        final CountDownLatch ready = new CountDownLatch(threads);
+        final CountDownLatch start = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            final Worker worker = workers[i];
+            Thread t = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        worker.init();
+                        ready.countDown();
+                        start.await();
+                        worker.run(ticks);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        worker.close();
+                        done.countDown();
+                    }
+                }
+            }, "walkers-" + i);
+            t.setDaemon(true);
+            t.start();
+        }
+        ready.await();
+        long startNanos = System.nanoTime();
+        start.countDown();
+        done.await();
+
+        WalkerReport report = new WalkerReport();
+        report.wallNanos = System.nanoTime() - startNanos;
+        report.walkers = walkers;
+        report.threads = threads;
+        report.simulatedMillis = ticks * TICK_MILLIS;
+        long allocated = 0;
+        for (Worker w : workers) {
+            report.readings += w.readings;
+            report.vertexChanges += w.vertexChanges;
+            report.locatedRight += w.locatedRight;
+            allocated = allocated < 0 || w.allocatedBytes < 0 ? -1 : allocated + w.allocatedBytes;
+            LatencyHistogram.Snapshot reading = w.reading.snapshot();
+            LatencyHistogram.Snapshot route = w.route.snapshot();
+            report.reading = report.reading == null ? reading : report.reading.merge(reading);
+            report.route = report.route == null ? route : report.route.merge(route);
+        }
+        report.allocatedBytes = allocated;
+        return report;
+    }
+
+    // bytes allocated by the current thread so far, or -1 if the JVM does not tell
+    private static long allocatedBytes() {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (!(bean instanceof com.sun.management.ThreadMXBean)) return -1;
+        com.sun.management.ThreadMXBean sun = (com.sun.management.ThreadMXBean) bean;
+        if (!sun.isThreadAllocatedMemorySupported() || !sun.isThreadAllocatedMemoryEnabled()) return -1;
+        return sun.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * One thread and the walkers it drives.
+     */
+    private class Worker {
+        private final int index;
+        private final MetricsRegistry metrics = new MetricsRegistry();
+        private final LatencyHistogram reading = metrics.histogram("reading");
+        private final LatencyHistogram route = metrics.histogram("route");
+        private Random random;
+        private Router[] routers;
+        private List<Walker> own;
+
+        long readings;
+        long vertexChanges;
+        long locatedRight;
+        long allocatedBytes;
+
+        Worker(int index) {
+            this.index = index;
+        }
+
+        // built on the worker's thread, out of the measured time
+        void init() {
+            random = new Random(seed + 31 * (index + 1));
+            routers = new Router[destinations.length];
+            for (int d = 0; d < routers.length; d++)
+                routers[d] = new Router(G);
+            own = new ArrayList<Walker>();
+            for (int i = index; i < walkers; i += threads)
+                own.add(new Walker(random));
+        }
+
+        void close() {
+            if (routers == null) return;
+            for (Router router : routers)
+                if (router != null) router.close();
+        }
+
+        void run(long ticks) {
+            long allocatedBefore = allocatedBytes();
+            for (long tick = 0; tick < ticks; tick++) {
+                long time = tick * TICK_MILLIS;
+                for (int i = 0; i < own.size(); i++) {
+                    Walker w = own.get(i);
+                    w.move(random);
+                    hear(w, time);
+                }
+            }
+            long allocatedAfter = allocatedBytes();
+            allocatedBytes = allocatedBefore < 0 ? -1 : allocatedAfter - allocatedBefore;
+        }
+
+        // the beacons at both ends of the walker's edge and next to them
+        private void hear(Walker w, long time) {
+            if (w.edge == null) {
+                offer(w, w.v, 0, time);
+                return;
+            }
+            int other = w.edge.other(w.v);
+            float toOther = w.edge.getWeight() - w.progress;
+            offer(w, w.v, w.progress, time);
+            offer(w, other, toOther, time);
+            for (Edge e : G.adj(w.v))
+                if (e != w.edge) offer(w, e.other(w.v), w.progress + e.getWeight(), time);
+            for (Edge e : G.adj(other))
+                if (e != w.edge) offer(w, e.other(other), toOther + e.getWeight(), time);
+        }
+
+        private void offer(Walker w, int beacon, float metres, long time) {
+            if (metres > RANGE_METRES || random.nextFloat() >= HEARD) return;
+            double d = Math.max(0.5, metres);
+            int rssi = (int) Math.round(TX_POWER - 10 * PATH_LOSS * Math.log10(d) + NOISE_DB * random.nextGaussian());
+
+            long start = System.nanoTime();
+            float smoothed = w.filter.update(beacon, rssi, time);
+            int now = w.locator.update(beacon, smoothed, time);
+            if (now != w.located) {
+                w.located = now;
+                vertexChanges++;
+                long t = System.nanoTime();
+                routers[w.destination].route(now, destinations[w.destination]);
+                route.recordSince(t);
+            }
+            reading.recordSince(start);
+            readings++;
+            if (now == w.nearest()) locatedRight++;
+        }
+
+        /**
+         * A visitor walking to a destination, and the engine state that follows them.
+         */
+        private class Walker {
+            final RssiFilter filter = new RssiFilter(G.getV());
+            final Locator locator = new Locator();
+            final float speed;
+            int located = Locator.UNKNOWN;
+            int destination;
+            int v;            // vertex the walker last passed
+            Edge edge;        // edge being walked from v, null if there is none
+            float progress;   // metres walked along edge
+
+            Walker(Random random) {
+                speed = MIN_SPEED + (MAX_SPEED - MIN_SPEED) * random.nextFloat();
+                v = random.nextInt(G.getV());
+                destination = random.nextInt(destinations.length);
+                edge = choose(random);
+                if (edge != null) progress = edge.getWeight() * random.nextFloat();
+            }
+
+            void move(Random random) {
+                if (edge == null) {
+                    edge = choose(random);
+                    return;
+                }
+                progress += speed * TICK_MILLIS / 1000f;
+                while (edge != null && progress >= edge.getWeight()) {
+                    progress -= edge.getWeight();
+                    v = edge.other(v);
+                    if (v == destinations[destination]) destination = random.nextInt(destinations.length);
+                    edge = choose(random);
+                }
+                if (edge == null) progress = 0;
+            }
+
+            // the next edge to the destination, or any edge if it can not be reached
+            private Edge choose(Random random) {
+                Edge next = nextEdge[destination][v];
+                if (next != null) return next;
+                int degree = G.degree(v);
+                if (degree == 0) return null;
+                int k = random.nextInt(degree);
+                for (Edge e : G.adj(v))
+                    if (k-- == 0) return e;
+                return null;
+            }
+
+            int nearest() {
+                if (edge == null || progress < edge.getWeight() / 2) return v;
+                return edge.other(v);
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException, XmlPullParserException, InterruptedException {
+        if (args.length < 1 || args.length > 4) {
+            System.err.println("usage: WalkerSimulator <beacons.xml> [walkers] [threads] [seconds]");
+            System.exit(2);
+        }
+        Graph G = new Graph(new XmlParser().parseBeacons(new FileInputStream(args[0]))).freeze();
+        int walkers = args.length > 1 ? Integer.parseInt(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 60;
+        System.out.println(new WalkerSimulator(G, walkers, threads, DEFAULT_DESTINATIONS, 1).run(seconds));
+    }
+}